@@ -37,6 +37,8 @@ public interface AuditService
 {
     long addAudit( Audit audit );
 
+    void addAudits( List<Audit> audits );
+
     int countAudits( AuditQuery query );
 
     List<Audit> getAudits( AuditQuery query );
@@ -29,6 +29,7 @@ package org.hisp.dhis.cache;
  */
 
 import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
 
 /**
  * A Builder class that helps in building Cache instances. Sensible defaults are
@@ -60,6 +61,19 @@ public interface CacheBuilder<V>
      */
     public CacheBuilder<V> withInitialCapacity( int initialCapacity );
 
+    /**
+     * Set the maximum total weight of the values for the cache instance to be
+     * built, in place of the maximum size. Applies to local caches only, the
+     * memory of Redis backed caches is bounded by the Redis eviction policy.
+     *
+     * @param maximumWeight The maximum total weight
+     * @param weigher The function returning the weight of a value
+     * @return The builder instance
+     * @throws IllegalArgumentException if specified maximumWeight is not a
+     *          positive value or the weigher is null.
+     */
+    public CacheBuilder<V> withMaximumWeight( long maximumWeight, ToIntFunction<V> weigher );
+
     /**
      * Set the cacheRegion for the cache instance to be built. If not specified
      * default is "default" region.
@@ -132,6 +146,18 @@ public interface CacheBuilder<V>
      */
     public int getInitialCapacity();
 
+    /**
+     * Getter for maximumWeight
+     * @return the maximumWeight value set in the builder, or 0 if not set
+     */
+    public long getMaximumWeight();
+
+    /**
+     * Getter for weigher
+     * @return the weigher set in the builder, or null if not set
+     */
+    public ToIntFunction<V> getWeigher();
+
     /**
      * Getter for region
      * @return the region set in the builder
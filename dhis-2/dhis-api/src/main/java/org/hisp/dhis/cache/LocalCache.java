@@ -36,6 +36,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Optional;
 import java.util.function.Function;
+import java.util.function.ToIntFunction;
 
 import org.cache2k.Cache2kBuilder;
 
@@ -79,7 +80,14 @@ public class LocalCache<V> implements Cache<V>
         {
             builder.eternal( true );
         }
-        if ( cacheBuilder.getMaximumSize() > 0 )
+        if ( cacheBuilder.getWeigher() != null )
+        {
+            ToIntFunction<V> weigher = cacheBuilder.getWeigher();
+
+            ((Cache2kBuilder<Object, Object>) builder).weigher( ( key, value ) -> weigher.applyAsInt( (V) value ) );
+            builder.maximumWeight( cacheBuilder.getMaximumWeight() );
+        }
+        else if ( cacheBuilder.getMaximumSize() > 0 )
         {
             builder.entryCapacity( cacheBuilder.getMaximumSize() );
         }
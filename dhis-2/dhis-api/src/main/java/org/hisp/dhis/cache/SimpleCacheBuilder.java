@@ -29,6 +29,7 @@ package org.hisp.dhis.cache;
  */
 
 import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -47,6 +48,10 @@ public class SimpleCacheBuilder<V> implements CacheBuilder<V>
     
     private int initialCapacity;
 
+    private long maximumWeight;
+
+    private ToIntFunction<V> weigher;
+
     private String region;
 
     private boolean refreshExpiryOnAccess;
@@ -70,6 +75,8 @@ public class SimpleCacheBuilder<V> implements CacheBuilder<V>
         this.expiryEnabled = false;
         this.disabled = false;
         this.initialCapacity = 16;
+        this.maximumWeight = 0;
+        this.weigher = null;
     }
     
     public CacheBuilder<V> withMaximumSize( long maximumSize )
@@ -92,6 +99,21 @@ public class SimpleCacheBuilder<V> implements CacheBuilder<V>
         return this;
     }
 
+    public CacheBuilder<V> withMaximumWeight( long maximumWeight, ToIntFunction<V> weigher )
+    {
+        if ( maximumWeight <= 0 )
+        {
+            throw new IllegalArgumentException( "MaximumWeight must be positive" );
+        }
+        if ( weigher == null )
+        {
+            throw new IllegalArgumentException( "Weigher cannot be null" );
+        }
+        this.maximumWeight = maximumWeight;
+        this.weigher = weigher;
+        return this;
+    }
+
     public CacheBuilder<V> forRegion( String region )
     {
         if ( region == null )
@@ -170,6 +192,16 @@ public class SimpleCacheBuilder<V> implements CacheBuilder<V>
         return initialCapacity;
     }
 
+    public long getMaximumWeight()
+    {
+        return maximumWeight;
+    }
+
+    public ToIntFunction<V> getWeigher()
+    {
+        return weigher;
+    }
+
     public String getRegion()
     {
         return region;
@@ -44,6 +44,8 @@ public class DataAnalysisParams
 
     private String ou;
 
+    private OutlierDetectionAlgorithm algorithm;
+
     public DataAnalysisParams()
     {
     }
@@ -113,6 +115,17 @@ public class DataAnalysisParams
         this.ou = ou;
     }
 
+    @JsonProperty
+    public OutlierDetectionAlgorithm getAlgorithm()
+    {
+        return algorithm;
+    }
+
+    public void setAlgorithm( OutlierDetectionAlgorithm algorithm )
+    {
+        this.algorithm = algorithm;
+    }
+
     @Override
     public String toString()
     {
@@ -122,6 +135,7 @@ public class DataAnalysisParams
             ", ds=" + ds +
             ", standardDeviation=" + standardDeviation +
             ", ou='" + ou + '\'' +
+            ", algorithm=" + algorithm +
             '}';
     }
 }
@@ -60,6 +60,28 @@ public interface DataAnalysisStore
         Collection<CategoryOptionCombo> categoryOptionCombos,
         Collection<String> parentPaths, Date from );
 
+    /**
+     * Returns the outlier data values for the given data elements in a single
+     * query. Measures of central tendency and spread are computed for each
+     * data element, category option combo and organisation unit from the data
+     * values registered since the from date, and data values in the given
+     * periods outside of the resulting bounds are returned with the bounds as
+     * min and max.
+     *
+     * @param dataElements         the data elements.
+     * @param categoryOptionCombos the category option combos of the data elements.
+     * @param periods              the periods to return outliers for.
+     * @param parentPaths          the parent OrganisationUnits' paths.
+     * @param from                 the from date for which to include data values in the measures.
+     * @param factor               the number of deviations from the middle value to allow.
+     * @param algorithm            the outlier detection algorithm.
+     * @param limit                the max limit of outliers to return.
+     * @return a list of outlier data values.
+     */
+    List<DeflatedDataValue> getOutlierDataValues( Collection<DataElement> dataElements,
+        Collection<CategoryOptionCombo> categoryOptionCombos, Collection<Period> periods,
+        Collection<String> parentPaths, Date from, double factor, OutlierDetectionAlgorithm algorithm, int limit );
+
     /**
      * Generates a collection of data value violations of min-max predefined values.
      *
@@ -36,6 +36,8 @@ import org.hisp.dhis.period.Period;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * Defines the functionality for persisting DataValues.
@@ -144,6 +146,15 @@ public interface DataValueStore
      */
     List<DeflatedDataValue> getDeflatedDataValues( DataExportParams params );
 
+    /**
+     * Streams deflated data values for the given data export parameters to
+     * the given consumer, without holding all values in memory.
+     *
+     * @param params the data export parameters.
+     * @param consumer the consumer of deflated data values.
+     */
+    void getDeflatedDataValues( DataExportParams params, Consumer<DeflatedDataValue> consumer );
+
     /**
      * Gets the number of DataValues which have been updated between the given
      * start and end date. The <pre>startDate</pre> and <pre>endDate</pre> parameters
@@ -155,4 +166,14 @@ public interface DataValueStore
      * @return the number of DataValues.
      */
     int getDataValueCountLastUpdatedBetween( Date startDate, Date endDate, boolean includeDeleted );
+
+    /**
+     * Gets the number of non-deleted DataValues for the given periods by
+     * organisation unit identifier. Organisation units without data values
+     * are not included.
+     *
+     * @param periods the periods.
+     * @return a mapping from organisation unit identifier to number of DataValues.
+     */
+    Map<Long, Integer> getDataValueCountBySource( Collection<Period> periods );
 }
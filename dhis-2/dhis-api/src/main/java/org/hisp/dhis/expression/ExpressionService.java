@@ -308,4 +308,50 @@ public interface ExpressionService
         Map<String, Integer> orgUnitCountMap, Integer days,
         MissingValueStrategy missingValueStrategy, List<Period> samplePeriods,
         MapMap<Period, DimensionalItemObject, Double> periodValueMap );
+
+    /**
+     * Generates the calculated numeric value for an expression, with values
+     * given by item identifier, which is the dimension item followed by a dot
+     * and the period offset, if any. Values are only looked up for the items
+     * referred to by the expression, so the map can be a view over another
+     * representation of the values.
+     *
+     * @param expression the expression holding the formula for calculation.
+     * @param parseType the type of expression to parse.
+     * @param itemValueMap the values by item identifier.
+     * @param constantMap map of constants to use for calculation.
+     * @param orgUnitCountMap the map of organisation unit group member counts.
+     * @param days the number of days to use in the calculation.
+     * @param missingValueStrategy the strategy to use when data values are
+     *        missing when calculating the expression.
+     * @return the calculated value as a double.
+     */
+    Double getExpressionValueForItemIds( String expression, ParseType parseType,
+        Map<String, Double> itemValueMap, Map<String, Constant> constantMap,
+        Map<String, Integer> orgUnitCountMap, Integer days,
+        MissingValueStrategy missingValueStrategy );
+
+    /**
+     * Generates the calculated value for an expression with aggregate
+     * functions, with values given by item identifier. Sample values are
+     * given by period and dimension item. Callers evaluating many expressions
+     * over the same samples can build these maps once and reuse them.
+     *
+     * @param expression the expression holding the formula for calculation.
+     * @param parseType the type of expression to parse.
+     * @param itemValueMap the values by item identifier.
+     * @param constantMap map of constants to use for calculation.
+     * @param orgUnitCountMap the map of organisation unit group member counts.
+     * @param days the number of days to use in the calculation.
+     * @param missingValueStrategy the strategy to use when data values are
+     *        missing when calculating the expression.
+     * @param samplePeriods periods for samples to aggregate.
+     * @param periodItemValueMap sample values by period and dimension item.
+     * @return the calculated value.
+     */
+    Object getExpressionValueForItemIds( String expression, ParseType parseType,
+        Map<String, Double> itemValueMap, Map<String, Constant> constantMap,
+        Map<String, Integer> orgUnitCountMap, Integer days,
+        MissingValueStrategy missingValueStrategy, List<Period> samplePeriods,
+        MapMap<Period, String, Double> periodItemValueMap );
 }
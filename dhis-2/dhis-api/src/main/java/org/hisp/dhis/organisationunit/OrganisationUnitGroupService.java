@@ -30,6 +30,7 @@ package org.hisp.dhis.organisationunit;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Defines methods for working with OrganisationUnitGroups and
@@ -99,6 +100,16 @@ public interface OrganisationUnitGroupService
      */
     List<OrganisationUnitGroup> getOrganisationUnitGroupsWithGroupSets();
 
+    /**
+     * Returns the UIDs of the members of the given organisation unit groups,
+     * without loading the groups or their members.
+     *
+     * @param groupUids the organisation unit group UIDs.
+     * @return a mapping of group UID to the UIDs of its members. Groups which
+     *         do not exist or have no members are not included.
+     */
+    Map<String, List<String>> getOrganisationUnitGroupMemberUids( Collection<String> groupUids );
+
     // -------------------------------------------------------------------------
     // OrganisationUnitGroupSet
     // -------------------------------------------------------------------------
@@ -28,7 +28,9 @@ package org.hisp.dhis.organisationunit;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import org.hisp.dhis.common.IdentifiableObjectStore;
 
@@ -39,4 +41,13 @@ public interface OrganisationUnitGroupStore
     extends IdentifiableObjectStore<OrganisationUnitGroup>
 {
     List<OrganisationUnitGroup> getOrganisationUnitGroupsWithGroupSets();
+
+    /**
+     * Returns the UIDs of the members of the given organisation unit groups.
+     *
+     * @param groupUids the organisation unit group UIDs.
+     * @return a mapping of group UID to the UIDs of its members. Groups which
+     *         do not exist or have no members are not included.
+     */
+    Map<String, List<String>> getMemberUids( Collection<String> groupUids );
 }
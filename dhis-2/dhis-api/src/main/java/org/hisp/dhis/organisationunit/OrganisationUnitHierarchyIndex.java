@@ -0,0 +1,291 @@
+package org.hisp.dhis.organisationunit;
+
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Compact, immutable index of the organisation unit hierarchy based on
+ * interval numbering.
+ * <p>
+ * Every organisation unit is numbered in pre-order of a depth-first
+ * traversal of the hierarchy, and additionally holds the highest number
+ * within its sub-hierarchy. An organisation unit is then a descendant of
+ * another organisation unit if its number lies within the interval of the
+ * other, which takes a pair of integer comparisons regardless of the depth of
+ * the hierarchy. Identifiers are mapped to positions with an open addressing
+ * hash table of primitive arrays, so that the index for a hierarchy of
+ * hundreds of thousands of organisation units takes a few megabytes.
+ * <p>
+ * Organisation units which are not reachable from a root, such as units
+ * which are part of a cycle, are not part of the index.
+ */
+public final class OrganisationUnitHierarchyIndex
+{
+    private static final long EMPTY = 0L;
+
+    /**
+     * Identifiers plus one, so that zero marks an empty slot.
+     */
+    private final long[] keys;
+
+    private final int[] positions;
+
+    /**
+     * Pre-order number of each position, -1 if not reachable from a root.
+     */
+    private final int[] pre;
+
+    /**
+     * Highest pre-order number within the sub-hierarchy of each position.
+     */
+    private final int[] last;
+
+    private final int size;
+
+    /**
+     * Creates the index from parallel arrays of organisation unit identifiers
+     * and parent identifiers. A parent identifier of zero, or of an
+     * organisation unit not included, denotes a root.
+     *
+     * @param ids the organisation unit identifiers.
+     * @param parentIds the parent identifiers.
+     */
+    public OrganisationUnitHierarchyIndex( long[] ids, long[] parentIds )
+    {
+        if ( ids.length != parentIds.length )
+        {
+            throw new IllegalArgumentException( "Identifier and parent identifier arrays must be of equal length" );
+        }
+
+        int n = ids.length;
+
+        keys = new long[Math.max( 2, Integer.highestOneBit( Math.max( 1, n ) ) << 2 )];
+        positions = new int[keys.length];
+
+        for ( int i = 0; i < n; i++ )
+        {
+            put( ids[i], i );
+        }
+
+        // Children in compressed row form, where the children of position i
+        // are at children[childStart[i]] up to children[childStart[i + 1]]
+
+        int[] parents = new int[n];
+        int[] childStart = new int[n + 1];
+
+        for ( int i = 0; i < n; i++ )
+        {
+            parents[i] = ids[i] == parentIds[i] ? -1 : positionOf( parentIds[i] );
+
+            if ( parents[i] >= 0 )
+            {
+                childStart[parents[i] + 1]++;
+            }
+        }
+
+        for ( int i = 0; i < n; i++ )
+        {
+            childStart[i + 1] += childStart[i];
+        }
+
+        int[] children = new int[childStart[n]];
+        int[] fill = Arrays.copyOf( childStart, n );
+
+        for ( int i = 0; i < n; i++ )
+        {
+            if ( parents[i] >= 0 )
+            {
+                children[fill[parents[i]]++] = i;
+            }
+        }
+
+        pre = new int[n];
+        last = new int[n];
+        Arrays.fill( pre, -1 );
+
+        int[] stack = new int[n];
+        int[] next = new int[n];
+        int number = 0;
+
+        for ( int root = 0; root < n; root++ )
+        {
+            if ( parents[root] >= 0 || pre[root] >= 0 )
+            {
+                continue;
+            }
+
+            int depth = 0;
+            stack[0] = root;
+            next[0] = childStart[root];
+            pre[root] = number++;
+
+            while ( depth >= 0 )
+            {
+                int node = stack[depth];
+
+                if ( next[depth] < childStart[node + 1] )
+                {
+                    int child = children[next[depth]++];
+
+                    stack[++depth] = child;
+                    next[depth] = childStart[child];
+                    pre[child] = number++;
+                }
+                else
+                {
+                    last[node] = number - 1;
+                    depth--;
+                }
+            }
+        }
+
+        size = number;
+    }
+
+    // -------------------------------------------------------------------------
+    // Logic
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the number of organisation units in the index.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Indicates whether the organisation unit with the given identifier is
+     * part of the index.
+     *
+     * @param id the organisation unit identifier.
+     */
+    public boolean contains( long id )
+    {
+        int position = positionOf( id );
+
+        return position >= 0 && pre[position] >= 0;
+    }
+
+    /**
+     * Indicates whether an organisation unit is equal to or a descendant of
+     * another organisation unit. Returns false if either is not part of the
+     * index.
+     *
+     * @param id the identifier of the organisation unit.
+     * @param ancestorId the identifier of the ancestor organisation unit.
+     */
+    public boolean isDescendant( long id, long ancestorId )
+    {
+        int position = positionOf( id );
+        int ancestor = positionOf( ancestorId );
+
+        return position >= 0 && ancestor >= 0 && pre[position] >= 0 && pre[ancestor] >= 0 &&
+            pre[ancestor] <= pre[position] && pre[position] <= last[ancestor];
+    }
+
+    /**
+     * Indicates whether an organisation unit is equal to or a descendant of
+     * any of the given organisation units. Organisation units which are not
+     * part of the index are ignored.
+     *
+     * @param id the identifier of the organisation unit.
+     * @param ancestors the ancestor organisation units.
+     */
+    public boolean isDescendant( long id, Collection<OrganisationUnit> ancestors )
+    {
+        int position = positionOf( id );
+
+        if ( position < 0 || pre[position] < 0 )
+        {
+            return false;
+        }
+
+        for ( OrganisationUnit ancestor : ancestors )
+        {
+            int ancestorPosition = positionOf( ancestor.getId() );
+
+            if ( ancestorPosition >= 0 && pre[ancestorPosition] >= 0 &&
+                pre[ancestorPosition] <= pre[position] && pre[position] <= last[ancestorPosition] )
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private int slot( long id )
+    {
+        long h = id * 0x9E3779B97F4A7C15L;
+
+        return (int) (h ^ (h >>> 32)) & (keys.length - 1);
+    }
+
+    private void put( long id, int position )
+    {
+        int slot = slot( id );
+
+        while ( keys[slot] != EMPTY && keys[slot] != id + 1 )
+        {
+            slot = (slot + 1) & (keys.length - 1);
+        }
+
+        keys[slot] = id + 1;
+        positions[slot] = position;
+    }
+
+    private int positionOf( long id )
+    {
+        for ( int slot = slot( id ); ; slot = (slot + 1) & (keys.length - 1) )
+        {
+            if ( keys[slot] == id + 1 )
+            {
+                return positions[slot];
+            }
+            else if ( keys[slot] == EMPTY )
+            {
+                return -1;
+            }
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "[OrganisationUnitHierarchyIndex, size: " + size + "]";
+    }
+}
@@ -368,8 +368,10 @@ public interface OrganisationUnitService
 
     /**
      * Equal to {@link OrganisationUnitService#isInUserHierarchy(OrganisationUnit)}
-     * except adds a caching layer on top. Use this method when performance is
-     * imperative and the risk of a stale result is tolerable.
+     * except answered from the {@link OrganisationUnitHierarchyIndex}. Use this
+     * method when performance is imperative and the risk of a stale result is
+     * tolerable, as the index may lag behind changes made by other instances
+     * of a cluster.
      *
      * @param organisationUnit the organisation unit.
      * @return true if the given organisation unit is part of the hierarchy.
@@ -378,8 +380,10 @@ public interface OrganisationUnitService
     
     /**
      * Equal to {@link OrganisationUnitService#isInUserHierarchy(User,OrganisationUnit)}
-     * except adds a caching layer on top. Use this method when performance is
-     * imperative and the risk of a stale result is tolerable.
+     * except answered from the {@link OrganisationUnitHierarchyIndex}. Use this
+     * method when performance is imperative and the risk of a stale result is
+     * tolerable, as the index may lag behind changes made by other instances
+     * of a cluster.
      *
      * @param user the user to check for.
      * @param organisationUnit the organisation unit.
@@ -399,6 +403,21 @@ public interface OrganisationUnitService
      * @return true if the organisation unit with the given uid is part of the hierarchy.
      */
     boolean isInUserHierarchy( String uid, Set<OrganisationUnit> organisationUnits );
+
+    /**
+     * Indicates whether the given organisation unit is equal to or a
+     * descendant of any of the given organisation units. Answered from the
+     * {@link OrganisationUnitHierarchyIndex} where possible, hence the result
+     * may be stale with respect to changes made by other instances of a
+     * cluster. Use {@link OrganisationUnit#isDescendant(Set)} for checks which
+     * must reflect the current hierarchy.
+     *
+     * @param organisationUnit the organisation unit.
+     * @param ancestors the ancestor organisation units.
+     * @return true if the organisation unit is part of the hierarchy of any
+     *         of the ancestors.
+     */
+    boolean isDescendant( OrganisationUnit organisationUnit, Set<OrganisationUnit> ancestors );
     
     /**
      * Indicates whether the given organisation unit is part of the search hierarchy
@@ -411,8 +430,10 @@ public interface OrganisationUnitService
 
     /**
      * Equal to {@link OrganisationUnitService#isInUserSearchHierarchy(OrganisationUnit)}
-     * except adds a caching layer on top. Use this method when performance is
-     * imperative and the risk of a stale result is tolerable.
+     * except answered from the {@link OrganisationUnitHierarchyIndex}. Use this
+     * method when performance is imperative and the risk of a stale result is
+     * tolerable, as the index may lag behind changes made by other instances
+     * of a cluster.
      *
      * @param organisationUnit the organisation unit.
      * @return true if the given organisation unit is part of the hierarchy.
@@ -421,8 +442,10 @@ public interface OrganisationUnitService
     
     /**
      * Equal to {@link OrganisationUnitService#isInUserSearchHierarchy(User,OrganisationUnit)}
-     * except adds a caching layer on top. Use this method when performance is
-     * imperative and the risk of a stale result is tolerable.
+     * except answered from the {@link OrganisationUnitHierarchyIndex}. Use this
+     * method when performance is imperative and the risk of a stale result is
+     * tolerable, as the index may lag behind changes made by other instances
+     * of a cluster.
      *
      * @param user the user to check for.
      * @param organisationUnit the organisation unit.
@@ -443,6 +466,22 @@ public interface OrganisationUnitService
      */
     OrganisationUnitHierarchy getOrganisationUnitHierarchy();
 
+    /**
+     * Get the interval encoded index of the OrganisationUnit hierarchy. The
+     * index is held in memory. It is built in the background on first access
+     * after the hierarchy has changed or the index has expired.
+     *
+     * @return the OrganisationUnitHierarchyIndex, or null while it is being
+     *         built.
+     */
+    OrganisationUnitHierarchyIndex getOrganisationUnitHierarchyIndex();
+
+    /**
+     * Invalidates the OrganisationUnit hierarchy index, to be invoked when
+     * organisation units are added, removed or moved.
+     */
+    void invalidateOrganisationUnitHierarchyIndex();
+
     /**
      * Updates the parent id of the organisation unit with the given id.
      *
@@ -133,6 +133,13 @@ public interface OrganisationUnitStore
      */
     OrganisationUnitHierarchy getOrganisationUnitHierarchy();
 
+    /**
+     * Get the interval encoded index of the OrganisationUnit hierarchy.
+     *
+     * @return an OrganisationUnitHierarchyIndex of all organisation units.
+     */
+    OrganisationUnitHierarchyIndex getOrganisationUnitHierarchyIndex();
+
     /**
      * Updates the parent id of the organisation unit with the given id.
      *
@@ -44,6 +44,16 @@ public interface ReservedValueStore
 
     List<ReservedValue> getIfReservedValues( ReservedValue reservedValue, List<String> values );
 
+    /**
+     * Returns the given values which are neither reserved nor used for the
+     * owner and key of the given reserved value.
+     *
+     * @param reservedValue the reserved value holding the owner and key.
+     * @param values the values to check.
+     * @return the available values.
+     */
+    List<String> getAvailableValues( ReservedValue reservedValue, List<String> values );
+
     int getNumberOfUsedValues( ReservedValue reservedValue );
 
     void removeExpiredReservations();
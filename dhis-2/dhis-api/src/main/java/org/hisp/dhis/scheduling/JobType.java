@@ -85,6 +85,7 @@ public enum JobType
     EVENT_IMPORT( null, false ),
     ENROLLMENT_IMPORT( null, false ),
     TEI_IMPORT( null, false ),
+    TRACKED_ENTITY_ATTRIBUTE_SEARCH_INDEX( null, false ),
 
     // Testing purposes
     MOCK( "mockJob", false, SchedulingType.CRON, MockJobParameters.class, null ),
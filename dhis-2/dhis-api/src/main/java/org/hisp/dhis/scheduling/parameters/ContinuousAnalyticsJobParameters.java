@@ -69,6 +69,12 @@ public class ContinuousAnalyticsJobParameters
      */
     private Set<AnalyticsTableType> skipTableTypes = new HashSet<>();
 
+    /**
+     * Whether updated data is merged into the existing analytics tables instead
+     * of being swapped in as a "latest" partition between full updates.
+     */
+    private boolean incrementalUpdate;
+
     public ContinuousAnalyticsJobParameters()
     {
     }
@@ -118,6 +124,18 @@ public class ContinuousAnalyticsJobParameters
         this.skipTableTypes = skipTableTypes;
     }
 
+    @JsonProperty
+    @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
+    public boolean isIncrementalUpdate()
+    {
+        return incrementalUpdate;
+    }
+
+    public void setIncrementalUpdate( boolean incrementalUpdate )
+    {
+        this.incrementalUpdate = incrementalUpdate;
+    }
+
     @Override
     public Optional<ErrorReport> validate()
     {
@@ -43,6 +43,8 @@ import org.springframework.core.Ordered;
 import java.lang.reflect.Method;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 /**
  * @author Morten Olav Hansen <mortenoh@gmail.com>
@@ -80,6 +82,16 @@ public class Property implements Ordered, Klass
      */
     private Method setterMethod;
 
+    /**
+     * Generated accessor invoking the getter method directly, if available.
+     */
+    private transient Function<Object, Object> getter;
+
+    /**
+     * Generated accessor invoking the setter method directly, if available.
+     */
+    private transient BiConsumer<Object, Object> setter;
+
     /**
      * Name for this property, if this class is a collection, it is the name of the items -inside- the collection
      * and not the collection wrapper itself.
@@ -346,6 +358,7 @@ public class Property implements Ordered, Klass
     public void setGetterMethod( Method getterMethod )
     {
         this.getterMethod = getterMethod;
+        this.getter = null;
     }
 
     public Method getSetterMethod()
@@ -356,6 +369,27 @@ public class Property implements Ordered, Klass
     public void setSetterMethod( Method setterMethod )
     {
         this.setterMethod = setterMethod;
+        this.setter = null;
+    }
+
+    public Function<Object, Object> getGetter()
+    {
+        return getter;
+    }
+
+    public void setGetter( Function<Object, Object> getter )
+    {
+        this.getter = getter;
+    }
+
+    public BiConsumer<Object, Object> getSetter()
+    {
+        return setter;
+    }
+
+    public void setSetter( BiConsumer<Object, Object> setter )
+    {
+        this.setter = setter;
     }
 
     @JsonProperty
@@ -29,11 +29,13 @@ package org.hisp.dhis.sqlview;
  */
 
 import org.hisp.dhis.common.Grid;
+import org.hisp.dhis.common.GridHeader;
 import org.hisp.dhis.common.IllegalQueryException;
 import org.hisp.dhis.user.CurrentUserService;
 
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
 
 /**
@@ -101,6 +103,23 @@ public interface SqlViewService
     */
     Grid getSqlViewGrid( SqlView sqlView, Map<String, String> criteria, Map<String, String> variables, List<String> filters, List<String> fields );
 
+    /**
+    * Passes the headers and then the rows of the SQL view to the given consumers
+    * as they are read from the database, without building a grid. Checks if
+    * the SQL query is valid.
+    *
+    * @param sqlView the SQL view to render.
+    * @param criteria the criteria on the format key:value, will be applied as
+    *        criteria on the SQL result set.
+    * @param variables the variables on the format key:value, will be substituted
+    *        with variables inside the SQL view.
+    * @param headerConsumer the consumer of the headers.
+    * @param rowConsumer the consumer of each row.
+    * @throws {@link IllegalQueryException} if the SQL query is invalid.
+    */
+    void writeSqlViewRows( SqlView sqlView, Map<String, String> criteria, Map<String, String> variables, List<String> filters, List<String> fields,
+        Consumer<List<GridHeader>> headerConsumer, Consumer<List<Object>> rowConsumer );
+
     /**
      * Validates the given SQL view. Checks include:
      *
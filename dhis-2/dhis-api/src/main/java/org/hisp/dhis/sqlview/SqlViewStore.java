@@ -28,8 +28,12 @@ package org.hisp.dhis.sqlview;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import java.util.List;
+import java.util.function.Consumer;
+
 import org.hisp.dhis.common.IdentifiableObjectStore;
 import org.hisp.dhis.common.Grid;
+import org.hisp.dhis.common.GridHeader;
 
 /**
  * @author Dang Duy Hieu
@@ -47,6 +51,17 @@ public interface SqlViewStore
 
     void populateSqlViewGrid( Grid grid, String sql );
 
+    /**
+     * Executes the given SQL and passes the headers and then each row to the
+     * given consumers as the rows are fetched, so that the result is never
+     * held in memory as a whole.
+     *
+     * @param sql the SQL string.
+     * @param headerConsumer the consumer of the headers.
+     * @param rowConsumer the consumer of each row.
+     */
+    void streamSqlViewRows( String sql, Consumer<List<GridHeader>> headerConsumer, Consumer<List<Object>> rowConsumer );
+
     /**
      * Tests the given SQL for validity.
      * 
@@ -0,0 +1,86 @@
+package org.hisp.dhis.trackedentity;
+
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+/**
+ * Manages trigram search indexes on the values of tracked entity attributes.
+ * <p>
+ * Each index is a partial GIN index on the lower cased value of a single
+ * attribute, which serves the {@code like} filters and the free text query
+ * of the tracked entity instance search without scanning the values of all
+ * attributes. Indexes are maintained by the database as values are written.
+ * <p>
+ * Indexes are built concurrently, hence methods of this service must not be
+ * invoked within a transaction. Building an index scans the whole value
+ * table, so builds should run as a job rather than on a request thread.
+ * Building requires the pg_trgm extension, which is created if missing when
+ * the database user is allowed to.
+ */
+public interface TrackedEntityAttributeSearchIndexService
+{
+    /**
+     * Indicates whether a valid search index exists for the given attribute.
+     * An invalid index left behind by a failed build is treated as missing.
+     *
+     * @param attribute the {@link TrackedEntityAttribute}.
+     * @return true if a valid search index exists.
+     */
+    boolean hasSearchIndex( TrackedEntityAttribute attribute );
+
+    /**
+     * Builds the search index for the given attribute if no valid index
+     * exists.
+     *
+     * @param attribute the {@link TrackedEntityAttribute}.
+     */
+    void createSearchIndex( TrackedEntityAttribute attribute );
+
+    /**
+     * Drops and builds the search index for the given attribute.
+     *
+     * @param attribute the {@link TrackedEntityAttribute}.
+     */
+    void rebuildSearchIndex( TrackedEntityAttribute attribute );
+
+    /**
+     * Drops the search index for the given attribute if it exists.
+     *
+     * @param attribute the {@link TrackedEntityAttribute}.
+     */
+    void dropSearchIndex( TrackedEntityAttribute attribute );
+
+    /**
+     * Builds missing search indexes for all attributes which are searchable
+     * for a tracked entity type or program, or unique system wide.
+     *
+     * @return the number of search indexes built.
+     */
+    int createSearchIndexes();
+}
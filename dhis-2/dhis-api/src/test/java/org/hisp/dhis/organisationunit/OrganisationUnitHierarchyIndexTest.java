@@ -0,0 +1,94 @@
+package org.hisp.dhis.organisationunit;
+
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class OrganisationUnitHierarchyIndexTest
+{
+    //       1            10
+    //     /   \          |
+    //    2     3         11
+    //   / \    |
+    //  4   5   6
+    //      |
+    //      7
+
+    private final OrganisationUnitHierarchyIndex index = new OrganisationUnitHierarchyIndex(
+        new long[] { 7, 5, 1, 2, 3, 4, 6, 11, 10, 20, 21 },
+        new long[] { 5, 2, 0, 1, 1, 2, 3, 10, 0, 21, 20 } );
+
+    @Test
+    public void testIsDescendant()
+    {
+        assertTrue( index.isDescendant( 7, 1 ) );
+        assertTrue( index.isDescendant( 7, 2 ) );
+        assertTrue( index.isDescendant( 7, 5 ) );
+        assertTrue( index.isDescendant( 7, 7 ) );
+        assertTrue( index.isDescendant( 6, 3 ) );
+        assertTrue( index.isDescendant( 11, 10 ) );
+
+        assertFalse( index.isDescendant( 7, 3 ) );
+        assertFalse( index.isDescendant( 4, 5 ) );
+        assertFalse( index.isDescendant( 1, 2 ) );
+        assertFalse( index.isDescendant( 11, 1 ) );
+        assertFalse( index.isDescendant( 7, 99 ) );
+    }
+
+    @Test
+    public void testIsDescendantOfAny()
+    {
+        assertTrue( index.isDescendant( 6, Arrays.asList( unit( 2 ), unit( 3 ) ) ) );
+        assertTrue( index.isDescendant( 11, Arrays.asList( unit( 1 ), unit( 10 ) ) ) );
+        assertFalse( index.isDescendant( 4, Arrays.asList( unit( 3 ), unit( 10 ) ) ) );
+    }
+
+    @Test
+    public void testCycleNotIndexed()
+    {
+        assertEquals( 9, index.size() );
+        assertTrue( index.contains( 7 ) );
+        assertFalse( index.contains( 20 ) );
+        assertFalse( index.isDescendant( 20, 21 ) );
+    }
+
+    private OrganisationUnit unit( long id )
+    {
+        OrganisationUnit unit = new OrganisationUnit( "Unit" + id );
+        unit.setId( id );
+        return unit;
+    }
+}
@@ -43,6 +43,9 @@ import org.hisp.dhis.user.UserAccess;
 import org.hisp.dhis.user.UserGroupAccess;
 import org.springframework.stereotype.Service;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -60,6 +63,14 @@ public class DefaultAclService implements AclService
 {
     private final SchemaService schemaService;
 
+    /**
+     * Snapshots of user groups by user instance. Keys are weak and compared by
+     * identity, so that snapshots are dropped with the users they belong to.
+     */
+    private final Cache<User, UserAccessSet> userAccessSets = CacheBuilder.newBuilder()
+        .weakKeys()
+        .build();
+
     public DefaultAclService( SchemaService schemaService )
     {
         checkNotNull( schemaService );
@@ -649,14 +660,23 @@ public class DefaultAclService implements AclService
             return true;
         }
 
+        UserAccessSet userAccessSet = null;
+
         for ( UserGroupAccess userGroupAccess : object.getUserGroupAccesses() )
         {
             // Check if user is allowed to read this object through group access
 
-            if ( AccessStringHelper.isEnabled( userGroupAccess.getAccess(), permission )
-                    && userGroupAccess.userGroupContainsUser( user ) )
+            if ( AccessStringHelper.isEnabled( userGroupAccess.getAccess(), permission ) )
             {
-                return true;
+                if ( userAccessSet == null )
+                {
+                    userAccessSet = getUserAccessSet( user );
+                }
+
+                if ( userAccessSet.isMember( user, userGroupAccess ) )
+                {
+                    return true;
+                }
             }
         }
 
@@ -674,6 +694,26 @@ public class DefaultAclService implements AclService
         return false;
     }
 
+    /**
+     * Returns the snapshot of the user groups of the given user, building it
+     * if missing or if the user groups of the user have changed.
+     *
+     * @param user User to get the snapshot for
+     * @return the snapshot of the user groups of the user
+     */
+    private UserAccessSet getUserAccessSet( User user )
+    {
+        UserAccessSet userAccessSet = userAccessSets.getIfPresent( user );
+
+        if ( userAccessSet == null || !userAccessSet.isValidFor( user ) )
+        {
+            userAccessSet = UserAccessSet.of( user );
+            userAccessSets.put( user, userAccessSet );
+        }
+
+        return userAccessSet;
+    }
+
     private boolean checkOptionComboSharingPermission( User user, IdentifiableObject object, Permission permission )
     {
         CategoryOptionCombo optionCombo = (CategoryOptionCombo) object;
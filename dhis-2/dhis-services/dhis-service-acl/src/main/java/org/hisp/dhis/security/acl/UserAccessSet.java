@@ -0,0 +1,123 @@
+package org.hisp.dhis.security.acl;
+
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.Arrays;
+import java.util.Set;
+
+import org.hibernate.Hibernate;
+import org.hisp.dhis.user.User;
+import org.hisp.dhis.user.UserGroup;
+import org.hisp.dhis.user.UserGroupAccess;
+
+/**
+ * Snapshot of the user groups a user is a member of, used to answer user
+ * group sharing checks with a lookup in a sorted array of group identifiers
+ * instead of walking the members of each group.
+ * <p>
+ * The snapshot is valid as long as the user is a member of the same groups,
+ * by identifier, as when the snapshot was built. Members
+ * added to a group without updating the groups of the user are only seen
+ * through the members of the group, which are checked when already loaded.
+ */
+final class UserAccessSet
+{
+    private final long[] groupIds;
+
+    private UserAccessSet( Set<UserGroup> groups )
+    {
+        this.groupIds = getGroupIds( groups );
+    }
+
+    /**
+     * Creates a snapshot of the user groups of the given user.
+     *
+     * @param user the user.
+     */
+    static UserAccessSet of( User user )
+    {
+        return new UserAccessSet( user.getGroups() );
+    }
+
+    /**
+     * Indicates whether this snapshot still reflects the user groups of the
+     * user it was built for.
+     *
+     * @param user the user.
+     */
+    boolean isValidFor( User user )
+    {
+        return Arrays.equals( groupIds, getGroupIds( user.getGroups() ) );
+    }
+
+    /**
+     * Indicates whether the user is a member of the user group of the given
+     * user group access.
+     *
+     * @param user the user this snapshot was built for.
+     * @param userGroupAccess the user group access.
+     */
+    boolean isMember( User user, UserGroupAccess userGroupAccess )
+    {
+        UserGroup userGroup = userGroupAccess.getUserGroup();
+
+        if ( userGroup == null )
+        {
+            return false;
+        }
+
+        if ( userGroup.getId() != 0 && Arrays.binarySearch( groupIds, userGroup.getId() ) >= 0 )
+        {
+            return true;
+        }
+
+        return userGroup.getMembers() != null && Hibernate.isInitialized( userGroup.getMembers() )
+            && userGroupAccess.userGroupContainsUser( user );
+    }
+
+    /**
+     * Returns the sorted identifiers of the given persisted user groups.
+     *
+     * @param groups the user groups, can be null.
+     */
+    private static long[] getGroupIds( Set<UserGroup> groups )
+    {
+        if ( groups == null )
+        {
+            return new long[0];
+        }
+
+        return groups.stream()
+            .mapToLong( UserGroup::getId )
+            .filter( id -> id != 0 )
+            .sorted()
+            .toArray();
+    }
+}
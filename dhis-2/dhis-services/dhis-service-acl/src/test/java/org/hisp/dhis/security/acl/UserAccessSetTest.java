@@ -0,0 +1,113 @@
+package org.hisp.dhis.security.acl;
+
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.hisp.dhis.user.User;
+import org.hisp.dhis.user.UserGroup;
+import org.hisp.dhis.user.UserGroupAccess;
+import org.junit.Before;
+import org.junit.Test;
+
+public class UserAccessSetTest
+{
+    private User user;
+
+    private UserGroup groupA;
+
+    private UserGroup groupB;
+
+    @Before
+    public void setUp()
+    {
+        user = new User();
+        user.setId( 1L );
+
+        User otherUser = new User();
+        otherUser.setId( 2L );
+
+        groupA = new UserGroup( "A" );
+        groupA.setId( 10L );
+
+        groupB = new UserGroup( "B" );
+        groupB.setId( 20L );
+
+        groupA.addUser( user );
+        groupB.addUser( otherUser );
+    }
+
+    @Test
+    public void testIsMember()
+    {
+        UserAccessSet userAccessSet = UserAccessSet.of( user );
+
+        assertTrue( userAccessSet.isMember( user, new UserGroupAccess( groupA, AccessStringHelper.READ ) ) );
+        assertFalse( userAccessSet.isMember( user, new UserGroupAccess( groupB, AccessStringHelper.READ ) ) );
+        assertFalse( userAccessSet.isMember( user, new UserGroupAccess( null, AccessStringHelper.READ ) ) );
+    }
+
+    @Test
+    public void testIsMemberThroughGroupMembers()
+    {
+        UserAccessSet userAccessSet = UserAccessSet.of( user );
+
+        groupB.getMembers().add( user );
+
+        assertTrue( userAccessSet.isMember( user, new UserGroupAccess( groupB, AccessStringHelper.READ ) ) );
+    }
+
+    @Test
+    public void testIsValidFor()
+    {
+        UserAccessSet userAccessSet = UserAccessSet.of( user );
+
+        assertTrue( userAccessSet.isValidFor( user ) );
+
+        groupB.addUser( user );
+
+        assertFalse( userAccessSet.isValidFor( user ) );
+        assertTrue( UserAccessSet.of( user ).isMember( user, new UserGroupAccess( groupB, AccessStringHelper.READ ) ) );
+    }
+
+    @Test
+    public void testIsValidForAfterRemoveAndAdd()
+    {
+        UserAccessSet userAccessSet = UserAccessSet.of( user );
+
+        groupA.removeUser( user );
+        groupB.addUser( user );
+
+        assertFalse( userAccessSet.isValidFor( user ) );
+        assertFalse( UserAccessSet.of( user ).isMember( user, new UserGroupAccess( groupA, AccessStringHelper.READ ) ) );
+        assertTrue( UserAccessSet.of( user ).isMember( user, new UserGroupAccess( groupB, AccessStringHelper.READ ) ) );
+    }
+}
@@ -34,9 +34,11 @@ import static org.hisp.dhis.sqlview.SqlView.*;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import org.apache.commons.lang.StringUtils;
 import org.hisp.dhis.common.Grid;
+import org.hisp.dhis.common.GridHeader;
 import org.hisp.dhis.common.IllegalQueryException;
 import org.hisp.dhis.commons.util.SqlHelper;
 import org.hisp.dhis.external.conf.ConfigurationKey;
@@ -201,6 +203,21 @@ public class DefaultSqlViewService
         return grid;
     }
 
+    @Override
+    public void writeSqlViewRows( SqlView sqlView, Map<String, String> criteria, Map<String, String> variables, List<String> filters, List<String> fields,
+        Consumer<List<GridHeader>> headerConsumer, Consumer<List<Object>> rowConsumer )
+    {
+        validateSqlView( sqlView, criteria, variables );
+
+        log.info( String.format( "Streaming data for SQL view: '%s'", sqlView.getUid() ) );
+
+        String sql = sqlView.isQuery() ?
+            getSqlForQuery( sqlView, criteria, variables, filters, fields ) :
+            getSqlForView( sqlView, criteria, filters, fields );
+
+        sqlViewStore.streamSqlViewRows( sql, headerConsumer, rowConsumer );
+    }
+
     private String parseFilters(List<String> filters, SqlHelper sqlHelper ) throws QueryParserException
     {
         String query = StringUtils.EMPTY;
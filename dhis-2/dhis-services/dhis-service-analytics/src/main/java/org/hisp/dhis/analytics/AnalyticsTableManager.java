@@ -87,6 +87,27 @@ public interface AnalyticsTableManager
      */
     void removeUpdatedData( AnalyticsTableUpdateParams params, List<AnalyticsTable> tables );
 
+    /**
+     * Indicates whether this manager supports incremental updates, where the
+     * "latest" data is merged into the existing analytics table partitions.
+     *
+     * @return true if incremental updates are supported.
+     */
+    boolean isIncrementalUpdateSupported();
+
+    /**
+     * Merges the populated "latest" temporary tables of an incremental update
+     * into the existing analytics table partitions. Updated and deleted data is
+     * removed by natural key and the rows of the temporary tables are inserted
+     * into the partition for their year. No tables are swapped. The start time
+     * of the update is stored as the new incremental update watermark, unless
+     * data was found for a year without an existing partition.
+     *
+     * @param params the {@link AnalyticsTableUpdateParams}.
+     * @param tables the list of {@link AnalyticsTable}.
+     */
+    void mergeIncrementalData( AnalyticsTableUpdateParams params, List<AnalyticsTable> tables );
+
     /**
      * Attempts to drop and then create analytics table.
      *
@@ -94,6 +115,35 @@ public interface AnalyticsTableManager
      */
     void createTable( AnalyticsTable table );
 
+    /**
+     * Drops and creates the temporary table of the given analytics table
+     * partition. The temporary master table must exist.
+     *
+     * @param partition the analytics table partition.
+     */
+    void createTablePartition( AnalyticsTablePartition partition );
+
+    /**
+     * Indicates whether the temporary table of the given analytics table
+     * partition was completely populated and indexed by a previous run of an
+     * update with the same start time and columns, and can be reused when
+     * resuming a failed update.
+     *
+     * @param params the {@link AnalyticsTableUpdateParams}.
+     * @param partition the analytics table partition.
+     * @return true if the partition is complete.
+     */
+    boolean isTablePartitionComplete( AnalyticsTableUpdateParams params, AnalyticsTablePartition partition );
+
+    /**
+     * Marks the temporary table of the given analytics table partition as
+     * complete for the given update.
+     *
+     * @param params the {@link AnalyticsTableUpdateParams}.
+     * @param partition the analytics table partition.
+     */
+    void setTablePartitionComplete( AnalyticsTableUpdateParams params, AnalyticsTablePartition partition );
+
     /**
      * Creates single indexes on the given columns of the analytics table with
      * the given name.
@@ -117,14 +167,21 @@ public interface AnalyticsTableManager
     void swapTable( AnalyticsTableUpdateParams params, AnalyticsTable table );
 
     /**
-     * Copies and denormalizes rows from data value table into analytics table.
-     * The data range is based on the start date of the data value row.
+     * Copies and denormalizes rows from data value table into the given analytics
+     * table partition. The data range is based on the start date of the data
+     * value row.
      *
      * @param params the {@link AnalyticsTableUpdateParams}.
-     * @param tablePartitions the analytics table partitions.
-     * @return a future representing the asynchronous task.
+     * @param partition the analytics table partition.
      */
-    Future<?> populateTablesAsync( AnalyticsTableUpdateParams params, ConcurrentLinkedQueue<AnalyticsTablePartition> tablePartitions );
+    void populateTablePartition( AnalyticsTableUpdateParams params, AnalyticsTablePartition partition );
+
+    /**
+     * Indicates whether analytics table SQL hooks exist for the table type.
+     *
+     * @return true if analytics table SQL hooks exist.
+     */
+    boolean hasAnalyticsTableSqlHooks();
 
     /**
      * Invokes analytics table SQL hooks for the table type.
@@ -162,26 +219,23 @@ public interface AnalyticsTableManager
     void analyzeTable( String tableName );
 
     /**
-     * Applies aggregation level logic to the analytics table by setting the
-     * organisation unit level column values to null for the levels above the
+     * Applies aggregation level logic to the analytics table partition by setting
+     * the organisation unit level column values to null for the levels above the
      * given aggregation level.
      *
-     * @param partitions the analytics table partitions.
+     * @param partition the analytics table partition.
      * @param dataElements the data element identifiers to apply aggregation levels for.
      * @param aggregationLevel the aggregation level.
-     * @return a future representing the asynchronous task.
      */
-    Future<?> applyAggregationLevels( ConcurrentLinkedQueue<AnalyticsTablePartition> partitions,
-        Collection<String> dataElements, int aggregationLevel );
+    void applyAggregationLevels( AnalyticsTablePartition partition, Collection<String> dataElements, int aggregationLevel );
 
     /**
-     * Performs vacuum or optimization of the given table. The type of operation
-     * performed is dependent on the underlying DBMS.
+     * Performs vacuum or optimization of the given table partition. The type of
+     * operation performed is dependent on the underlying DBMS.
      *
-     * @param partitions the analytics table partitions.
-     * @return a future representing the asynchronous task.
+     * @param partition the analytics table partition.
      */
-    Future<?> vacuumTablesAsync( ConcurrentLinkedQueue<AnalyticsTablePartition> partitions );
+    void vacuumTable( AnalyticsTablePartition partition );
 
     /**
      * Returns a list of non-dynamic {@link AnalyticsTableColumn}.
@@ -56,6 +56,13 @@ public class AnalyticsTableUpdateParams
      */
     private Integer lastYears;
 
+    /**
+     * Indicates whether "latest" data should be merged into the existing
+     * analytics table partitions instead of being swapped in as a separate
+     * partition. Only applies to "latest" updates.
+     */
+    private boolean incrementalUpdate;
+
     /**
      * Indicates whether to skip update of resource tables.
      */
@@ -101,6 +108,11 @@ public class AnalyticsTableUpdateParams
         return lastYears;
     }
 
+    public boolean isIncrementalUpdate()
+    {
+        return incrementalUpdate;
+    }
+
     public boolean isSkipResourceTables()
     {
         return skipResourceTables;
@@ -153,6 +165,7 @@ public class AnalyticsTableUpdateParams
     {
         return MoreObjects.toStringHelper( this )
             .add( "last years", lastYears )
+            .add( "incremental update", incrementalUpdate )
             .add( "skip resource tables", skipResourceTables )
             .add( "skip table types", skipTableTypes )
             .add( "start time", DateUtils.getLongDateString( startTime ) )
@@ -195,6 +208,7 @@ public class AnalyticsTableUpdateParams
         AnalyticsTableUpdateParams params = new AnalyticsTableUpdateParams();
 
         params.lastYears = this.lastYears;
+        params.incrementalUpdate = this.incrementalUpdate;
         params.skipResourceTables = this.skipResourceTables;
         params.skipTableTypes = new HashSet<>( this.skipTableTypes );
         params.jobId = this.jobId;
@@ -243,6 +257,17 @@ public class AnalyticsTableUpdateParams
             return this;
         }
 
+        /**
+         * Indicates a "latest" update where updated data is merged into the
+         * existing analytics table partitions.
+         */
+        public Builder withIncrementalUpdate()
+        {
+            this.params.lastYears = AnalyticsTablePartition.LATEST_PARTITION;
+            this.params.incrementalUpdate = true;
+            return this;
+        }
+
         public Builder withSkipResourceTables( boolean skipResourceTables )
         {
             this.params.skipResourceTables = skipResourceTables;
@@ -540,6 +540,14 @@ public class DataQueryParams
         measureCriteria.forEach( ( k, v ) -> key.add( "measureCriteria", ( String.valueOf( k ) + v ) ) );
         preAggregateMeasureCriteria.forEach( ( k, v ) -> key.add( "preAggregateMeasureCriteria", ( String.valueOf( k ) + v ) ) );
 
+        if ( isDataApproval() )
+        {
+            dataApprovalLevels.entrySet().stream()
+                .map( e -> e.getKey().getUid() + ":" + e.getValue() )
+                .sorted()
+                .forEach( e -> key.add( "dataApprovalLevel", e ) );
+        }
+
         return key
             .add( "aggregationType", aggregationType )
             .add( "skipMeta", skipMeta )
@@ -35,9 +35,18 @@ import static org.apache.commons.logging.LogFactory.getLog;
 import static org.hisp.dhis.commons.util.SystemUtils.isTestRun;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 import org.apache.commons.logging.Log;
 import org.hisp.dhis.analytics.DataQueryParams;
@@ -45,19 +54,37 @@ import org.hisp.dhis.cache.Cache;
 import org.hisp.dhis.cache.CacheProvider;
 import org.hisp.dhis.common.Grid;
 import org.springframework.core.env.Environment;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 
 /**
  * This is just a wrapper class responsible for keeping and isolating all
  * caching definition related to the analytics caching, decoupling it from the
  * service layer.
+ *
+ * Concurrent misses for the same key are coalesced, so that only one of them
+ * fetches the Grid while the others wait for its result. Expired Grids are
+ * kept for the stale-while-revalidate window defined in
+ * {@link AnalyticsCacheSettings}, and are served while a single background
+ * refresh is running. Background refreshes run in a read-only transaction, so
+ * that the fetch has a Hibernate session like the request it replaces.
+ *
+ * Invalidating the cache increments a generation counter, and fetches which
+ * started before the invalidation do not put their Grids in the cache.
  */
 @Component
 public class AnalyticsCache
 {
     private static final Log log = getLog( AnalyticsCache.class );
 
-    private Cache<Grid> queryCache;
+    private Cache<AnalyticsCacheEntry> queryCache;
 
     private final CacheProvider cacheProvider;
 
@@ -65,24 +92,54 @@ public class AnalyticsCache
 
     private final AnalyticsCacheSettings analyticsCacheSettings;
 
+    private final MeterRegistry meterRegistry;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private final ConcurrentMap<String, CompletableFuture<Grid>> inFlight = new ConcurrentHashMap<>();
+
+    private ExecutorService refreshExecutor;
+
+    private Counter hitCounter;
+
+    private Counter missCounter;
+
+    private Counter coalescedCounter;
+
+    private Counter staleCounter;
+
+    private Counter refreshCounter;
+
     private static final int MAX_CACHE_ENTRIES = 20000;
 
+    private static final int REFRESH_THREADS = 2;
+
     private static final String CACHE_REGION = "analyticsResponse";
 
+    private static final String METRIC_REQUESTS = "analytics.cache.requests";
+
     public AnalyticsCache( final CacheProvider cacheProvider, final Environment environment,
-        final AnalyticsCacheSettings analyticsCacheSettings )
+        final AnalyticsCacheSettings analyticsCacheSettings, final MeterRegistry meterRegistry,
+        final TransactionTemplate transactionTemplate )
     {
         checkNotNull( cacheProvider );
         checkNotNull( environment );
         checkNotNull( analyticsCacheSettings );
+        checkNotNull( meterRegistry );
+        checkNotNull( transactionTemplate );
         this.cacheProvider = cacheProvider;
         this.environment = environment;
         this.analyticsCacheSettings = analyticsCacheSettings;
+        this.meterRegistry = meterRegistry;
+        this.transactionTemplate = new TransactionTemplate( transactionTemplate.getTransactionManager() );
+        this.transactionTemplate.setReadOnly( true );
     }
 
     public Optional<Grid> get( final String key )
     {
-        return queryCache.get( key );
+        return queryCache.get( key ).map( AnalyticsCacheEntry::getGrid );
     }
 
     /**
@@ -91,6 +148,11 @@ public class AnalyticsCache
      * fetched by the function provided. In this case, the fetched Grid will be
      * cached, so the next consumers can hit the cache only.
      * 
+     * Concurrent calls missing the cache for the same key wait for the Grid
+     * fetched by the first call instead of fetching it again. If the cached Grid
+     * is expired but still within the stale-while-revalidate window, it is
+     * returned and a single background refresh is triggered.
+     * 
      * The TTL of the cached object will be set accordingly to the cache settings
      * available at {@link org.hisp.dhis.analytics.cache.AnalyticsCacheSettings}.
      * 
@@ -100,20 +162,55 @@ public class AnalyticsCache
      */
     public Grid getOrFetch( final DataQueryParams params, final Function<DataQueryParams, Grid> function )
     {
-        final Optional<Grid> cachedGrid = get( params.getKey() );
+        final String key = params.getKey();
 
-        if ( cachedGrid.isPresent() )
+        final Optional<AnalyticsCacheEntry> cachedEntry = queryCache.get( key );
+
+        if ( cachedEntry.isPresent() )
         {
-            return cachedGrid.get();
+            if ( cachedEntry.get().isExpired() )
+            {
+                staleCounter.increment();
+
+                refreshInBackground( params, function );
+            }
+            else
+            {
+                hitCounter.increment();
+            }
+
+            return cachedEntry.get().getGrid();
         }
-        else
+
+        final long fetchGeneration = generation.get();
+        final CompletableFuture<Grid> future = new CompletableFuture<>();
+        final CompletableFuture<Grid> existing = inFlight.putIfAbsent( key, future );
+
+        if ( existing != null )
         {
-            final Grid grid = function.apply( params );
+            coalescedCounter.increment();
+
+            return await( existing );
+        }
 
-            put( params, grid );
+        // A fetch for the same key may have completed and left the in-flight
+        // map between the cache lookup and claiming the key, check again
 
-            return grid;
+        final Optional<AnalyticsCacheEntry> fetchedEntry = queryCache.get( key );
+
+        if ( fetchedEntry.isPresent() && !fetchedEntry.get().isExpired() )
+        {
+            hitCounter.increment();
+
+            future.complete( fetchedEntry.get().getGrid() );
+            inFlight.remove( key, future );
+
+            return fetchedEntry.get().getGrid();
         }
+
+        missCounter.increment();
+
+        return fetchAndPut( params, function, future, fetchGeneration );
     }
 
     /**
@@ -142,7 +239,8 @@ public class AnalyticsCache
 
     /**
      * Will cache the given key/Grid pair respecting the TTL provided through the
-     * parameter "ttlInSeconds".
+     * parameter "ttlInSeconds". The entry is kept in the cache for the additional
+     * stale-while-revalidate window.
      * 
      * @param key the cache key associate with the Grid.
      * @param grid the Grid object to be cached.
@@ -150,7 +248,9 @@ public class AnalyticsCache
      */
     public void put( final String key, final Grid grid, final long ttlInSeconds )
     {
-        queryCache.put( key, grid, ttlInSeconds );
+        final long staleTtlInSeconds = analyticsCacheSettings.staleWhileRevalidateTimeOrDefault();
+
+        queryCache.put( key, new AnalyticsCacheEntry( grid, ttlInSeconds ), ttlInSeconds + staleTtlInSeconds );
     }
 
     /**
@@ -158,6 +258,8 @@ public class AnalyticsCache
      */
     public void invalidateAll()
     {
+        generation.incrementAndGet();
+        inFlight.clear();
         queryCache.invalidateAll();
         log.info( "Analytics cache cleared" );
     }
@@ -176,11 +278,137 @@ public class AnalyticsCache
 
         final boolean nonTestEnv = !isTestRun( this.environment.getActiveProfiles() );
 
-        queryCache = cacheProvider.newCacheBuilder( Grid.class ).forRegion( CACHE_REGION )
+        queryCache = cacheProvider.newCacheBuilder( AnalyticsCacheEntry.class ).forRegion( CACHE_REGION )
             .expireAfterWrite( initialExpirationTime, SECONDS ).withMaximumSize( nonTestEnv ? MAX_CACHE_ENTRIES : 0 )
             .build();
 
+        refreshExecutor = Executors.newFixedThreadPool( REFRESH_THREADS,
+            new ThreadFactoryBuilder().setNameFormat( "ANALYTICS-CACHE-REFRESH-%d" ).setDaemon( true ).build() );
+
+        hitCounter = requestCounter( "hit" );
+        missCounter = requestCounter( "miss" );
+        coalescedCounter = requestCounter( "coalesced" );
+        staleCounter = requestCounter( "stale" );
+        refreshCounter = Counter.builder( "analytics.cache.refreshes" )
+            .description( "Background refreshes of stale analytics responses" )
+            .register( meterRegistry );
+
+        Gauge.builder( "analytics.cache.inflight", inFlight, ConcurrentMap::size )
+            .description( "Analytics responses currently being fetched" )
+            .register( meterRegistry );
+
         log.info( format( "Analytics server-side cache is enabled with expiration time (in seconds): %d",
             initialExpirationTime ) );
     }
+
+    @PreDestroy
+    public void destroy()
+    {
+        refreshExecutor.shutdownNow();
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Fetches the Grid, caches it and completes the given in-flight future with
+     * it, so that coalesced callers receive the same Grid or exception. The
+     * future is removed from the in-flight map afterwards. The Grid is not
+     * cached if the cache was invalidated after the given generation.
+     */
+    private Grid fetchAndPut( final DataQueryParams params, final Function<DataQueryParams, Grid> function,
+        final CompletableFuture<Grid> future, final long fetchGeneration )
+    {
+        try
+        {
+            final Grid grid = function.apply( params );
+
+            if ( generation.get() == fetchGeneration )
+            {
+                put( params, grid );
+            }
+
+            future.complete( grid );
+
+            return grid;
+        }
+        catch ( RuntimeException ex )
+        {
+            future.completeExceptionally( ex );
+
+            throw ex;
+        }
+        finally
+        {
+            inFlight.remove( params.getKey(), future );
+        }
+    }
+
+    /**
+     * Triggers a background refresh of the Grid for the given DataQueryParams,
+     * unless a fetch for the same key is already in flight. The security context
+     * of the current user is propagated to the refresh, which runs in a
+     * read-only transaction.
+     */
+    private void refreshInBackground( final DataQueryParams params, final Function<DataQueryParams, Grid> function )
+    {
+        final long fetchGeneration = generation.get();
+        final CompletableFuture<Grid> future = new CompletableFuture<>();
+
+        if ( inFlight.putIfAbsent( params.getKey(), future ) != null )
+        {
+            return;
+        }
+
+        refreshCounter.increment();
+
+        try
+        {
+            refreshExecutor.execute( DelegatingSecurityContextRunnable.create( () -> {
+                try
+                {
+                    transactionTemplate.execute( status -> fetchAndPut( params, function, future, fetchGeneration ) );
+                }
+                catch ( RuntimeException ex )
+                {
+                    log.warn( format( "Background refresh of analytics response failed for key: '%s'", params.getKey() ), ex );
+                }
+            }, null ) );
+        }
+        catch ( RejectedExecutionException ex )
+        {
+            inFlight.remove( params.getKey(), future );
+            future.completeExceptionally( ex );
+        }
+    }
+
+    /**
+     * Waits for the given in-flight fetch and returns its Grid. Exceptions thrown
+     * by the fetch are rethrown as is.
+     */
+    private Grid await( final CompletableFuture<Grid> future )
+    {
+        try
+        {
+            return future.join();
+        }
+        catch ( CompletionException ex )
+        {
+            if ( ex.getCause() instanceof RuntimeException )
+            {
+                throw (RuntimeException) ex.getCause();
+            }
+
+            throw ex;
+        }
+    }
+
+    private Counter requestCounter( final String result )
+    {
+        return Counter.builder( METRIC_REQUESTS )
+            .description( "Analytics cache requests by result" )
+            .tag( "result", result )
+            .register( meterRegistry );
+    }
 }
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2004-2019, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.hisp.dhis.analytics.cache;
+
+import static java.lang.System.currentTimeMillis;
+
+import java.io.Serializable;
+
+import org.hisp.dhis.common.Grid;
+
+/**
+ * Holds a cached Grid together with the time at which it expires. An expired
+ * entry is kept in the cache for the stale-while-revalidate window, so that it
+ * can still be served while a single refresh is running.
+ */
+public class AnalyticsCacheEntry
+    implements
+    Serializable
+{
+    private static final long serialVersionUID = 2417390846710524158L;
+
+    private final Grid grid;
+
+    private final long expiresAt;
+
+    public AnalyticsCacheEntry( final Grid grid, final long ttlInSeconds )
+    {
+        this.grid = grid;
+        this.expiresAt = currentTimeMillis() + ttlInSeconds * 1000;
+    }
+
+    public Grid getGrid()
+    {
+        return grid;
+    }
+
+    /**
+     * Returns true if the TTL of this entry has passed, meaning that the Grid is
+     * stale and should be refreshed.
+     *
+     * @return true if the entry is expired, false otherwise.
+     */
+    public boolean isExpired()
+    {
+        return currentTimeMillis() >= expiresAt;
+    }
+}
@@ -34,6 +34,7 @@ import static org.hisp.dhis.analytics.AnalyticsCacheTtlMode.FIXED;
 import static org.hisp.dhis.analytics.AnalyticsCacheTtlMode.PROGRESSIVE;
 import static org.hisp.dhis.common.cache.CacheStrategy.NO_CACHE;
 import static org.hisp.dhis.setting.SettingKey.ANALYTICS_CACHE_PROGRESSIVE_TTL_FACTOR;
+import static org.hisp.dhis.setting.SettingKey.ANALYTICS_CACHE_STALE_WHILE_REVALIDATE_TTL;
 import static org.hisp.dhis.setting.SettingKey.ANALYTICS_CACHE_TTL_MODE;
 import static org.hisp.dhis.setting.SettingKey.CACHE_STRATEGY;
 
@@ -150,6 +151,21 @@ public class AnalyticsCacheSettings
         return isFixedCachingEnabled() || isProgressiveCachingEnabled();
     }
 
+    /**
+     * Retrieves the number of seconds an expired Grid can still be served while
+     * it is being refreshed in the background, based on the system setting
+     * {@link org.hisp.dhis.setting.SettingKey#ANALYTICS_CACHE_STALE_WHILE_REVALIDATE_TTL}.
+     *
+     * @return the stale-while-revalidate time in seconds or 0 (ZERO) if disabled.
+     */
+    public long staleWhileRevalidateTimeOrDefault()
+    {
+        final Integer staleTtl = (Integer) systemSettingManager
+            .getSystemSetting( ANALYTICS_CACHE_STALE_WHILE_REVALIDATE_TTL );
+
+        return staleTtl != null ? max( staleTtl, 0 ) : 0;
+    }
+
     /**
      * Returns the TTL factor set in system settings or 1 (when the factor is set to
      * ZERO or negative).
@@ -0,0 +1,300 @@
+/*
+ * Copyright (c) 2004-2019, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.hisp.dhis.analytics.cache;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.apache.commons.logging.LogFactory.getLog;
+import static org.hisp.dhis.commons.util.SystemUtils.isTestRun;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+
+import javax.annotation.PostConstruct;
+
+import org.apache.commons.logging.Log;
+import org.hisp.dhis.analytics.AnalyticsTable;
+import org.hisp.dhis.analytics.AnalyticsTablePartition;
+import org.hisp.dhis.analytics.AnalyticsTableType;
+import org.hisp.dhis.analytics.DataQueryParams;
+import org.hisp.dhis.analytics.QueryKey;
+import org.hisp.dhis.analytics.table.PartitionUtils;
+import org.hisp.dhis.cache.Cache;
+import org.hisp.dhis.cache.CacheBuilder;
+import org.hisp.dhis.cache.CacheProvider;
+import org.hisp.dhis.common.CodeGenerator;
+import org.hisp.dhis.common.event.ApplicationCacheClearedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * Second analytics cache tier, below the Grid level. Caches the value map of
+ * each planned sub-query, meaning the per-partition and per-period type query
+ * which is executed against the analytics tables, so that overlapping requests
+ * can reuse partial results.
+ *
+ * The cache is bounded by the total number of values of the cached value maps
+ * rather than by the number of sub-queries, as the size of a value map ranges
+ * from a single value to the max limit.
+ *
+ * Cached entries are keyed on a version of each analytics table partition they
+ * were read from, and on a version of the analytics table as a whole. Swapping
+ * analytics tables replaces the versions, which orphans the entries read from
+ * the swapped partitions until they expire. Versions are kept in the cache
+ * provider as well, so that with a clustered cache the invalidation applies to
+ * all nodes.
+ */
+@Component
+public class AnalyticsSubQueryCache
+{
+    private static final Log log = getLog( AnalyticsSubQueryCache.class );
+
+    /**
+     * Max total number of values of the cached value maps.
+     */
+    private static final long MAX_CACHE_WEIGHT = 500000;
+
+    private static final int MAX_VERSION_ENTRIES = 10000;
+
+    private static final String CACHE_REGION = "analyticsSubQuery";
+
+    private static final String VERSION_CACHE_REGION = "analyticsSubQueryVersion";
+
+    /**
+     * Suffix of the version of an analytics table as a whole, as opposed to the
+     * version of the master table as the source of non-partitioned queries.
+     */
+    private static final String ALL_PARTITIONS_SUFFIX = "#all";
+
+    private Cache<Map<String, Object>> subQueryCache;
+
+    /**
+     * Mapping between analytics table or partition name and its current version.
+     */
+    private Cache<String> tableVersions;
+
+    private final CacheProvider cacheProvider;
+
+    private final Environment environment;
+
+    private final AnalyticsCacheSettings analyticsCacheSettings;
+
+    public AnalyticsSubQueryCache( final CacheProvider cacheProvider, final Environment environment,
+        final AnalyticsCacheSettings analyticsCacheSettings )
+    {
+        checkNotNull( cacheProvider );
+        checkNotNull( environment );
+        checkNotNull( analyticsCacheSettings );
+        this.cacheProvider = cacheProvider;
+        this.environment = environment;
+        this.analyticsCacheSettings = analyticsCacheSettings;
+    }
+
+    /**
+     * Returns the cached value map of the given sub-query, if caching is enabled
+     * and the sub-query is cached.
+     *
+     * @param params the planned sub-query.
+     * @param tableType the analytics table type.
+     * @param maxLimit the max number of records to retrieve.
+     * @return the cached value map, or an empty Optional.
+     */
+    public Optional<Map<String, Object>> get( final DataQueryParams params, final AnalyticsTableType tableType,
+        final int maxLimit )
+    {
+        if ( !isEnabled() )
+        {
+            return Optional.empty();
+        }
+
+        return subQueryCache.get( getKey( params, tableType, maxLimit ) );
+    }
+
+    /**
+     * Caches the value map of the given sub-query with the fixed analytics cache
+     * expiration time.
+     *
+     * @param params the planned sub-query.
+     * @param tableType the analytics table type.
+     * @param maxLimit the max number of records to retrieve.
+     * @param values the value map of the sub-query.
+     */
+    public void put( final DataQueryParams params, final AnalyticsTableType tableType, final int maxLimit,
+        final Map<String, Object> values )
+    {
+        if ( !isEnabled() )
+        {
+            return;
+        }
+
+        subQueryCache.put( getKey( params, tableType, maxLimit ), values,
+            analyticsCacheSettings.fixedExpirationTimeOrDefault() );
+    }
+
+    /**
+     * Invalidates the cached sub-queries which read from the given analytics
+     * table. If the table has year partitions, only sub-queries on the swapped
+     * partitions and on the master table are invalidated. If the table contains
+     * the latest partition, which updates data across years, or has no
+     * partitions, all sub-queries on the table are invalidated.
+     *
+     * @param table the {@link AnalyticsTable} which was swapped.
+     */
+    public void invalidate( final AnalyticsTable table )
+    {
+        if ( tableVersions == null )
+        {
+            return;
+        }
+
+        final String masterTable = table.getTableName();
+        final List<AnalyticsTablePartition> partitions = table.getTablePartitions();
+
+        if ( !table.hasPartitionTables() || partitions.stream().anyMatch( AnalyticsTablePartition::isLatestPartition ) )
+        {
+            invalidateTable( masterTable + ALL_PARTITIONS_SUFFIX );
+        }
+        else
+        {
+            invalidateTable( masterTable );
+            partitions.forEach( p -> invalidateTable( p.getTableName() ) );
+        }
+    }
+
+    /**
+     * Clean the current cache by removing all existing entries.
+     */
+    public void invalidateAll()
+    {
+        if ( subQueryCache != null )
+        {
+            subQueryCache.invalidateAll();
+            tableVersions.invalidateAll();
+        }
+    }
+
+    public boolean isEnabled()
+    {
+        return subQueryCache != null && analyticsCacheSettings.isCachingEnabled();
+    }
+
+    @EventListener
+    public void handleApplicationCachesCleared( ApplicationCacheClearedEvent event )
+    {
+        invalidateAll();
+    }
+
+    @PostConstruct
+    public void init()
+    {
+        final boolean nonTestEnv = !isTestRun( this.environment.getActiveProfiles() );
+
+        final CacheBuilder<Map<String, Object>> cacheBuilder = cacheProvider.newCacheBuilder( String.class, Object.class )
+            .forRegion( CACHE_REGION ).expireAfterWrite( analyticsCacheSettings.fixedExpirationTimeOrDefault(), SECONDS );
+
+        subQueryCache = nonTestEnv ?
+            cacheBuilder.withMaximumWeight( MAX_CACHE_WEIGHT, values -> values.size() + 1 ).build() :
+            cacheBuilder.withMaximumSize( 0 ).build();
+
+        tableVersions = cacheProvider.newCacheBuilder( String.class ).forRegion( VERSION_CACHE_REGION )
+            .withMaximumSize( nonTestEnv ? MAX_VERSION_ENTRIES : 0 ).build();
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns a key for the given sub-query. Planned sub-queries are not fully
+     * described by {@link DataQueryParams#getKey()}, hence the table, partitions
+     * and period types are added, along with the current versions of the
+     * analytics tables the sub-query reads from.
+     */
+    private String getKey( final DataQueryParams params, final AnalyticsTableType tableType, final int maxLimit )
+    {
+        final QueryKey key = new QueryKey();
+
+        key.add( "tableVersion", getTableVersion( params.getTableName() + ALL_PARTITIONS_SUFFIX ) );
+
+        getSourceTableNames( params ).forEach( table -> key.add( "sourceVersion", getTableVersion( table ) ) );
+
+        return key
+            .add( "query", params.getKey() )
+            .add( "tableType", tableType )
+            .add( "tableName", params.getTableName() )
+            .add( "skipPartitioning", params.isSkipPartitioning() )
+            .addIgnoreNull( "partitions", params.getPartitions(),
+                () -> new TreeSet<>( params.getPartitions().getPartitions() ).toString() )
+            .add( "periodType", params.getPeriodType() )
+            .addIgnoreNull( "dataPeriodType", params.getDataPeriodType(), () -> params.getDataPeriodType().getName() )
+            .add( "maxLimit", maxLimit ).build();
+    }
+
+    /**
+     * Returns the names of the analytics tables or partitions the given sub-query
+     * reads from.
+     */
+    private List<String> getSourceTableNames( final DataQueryParams params )
+    {
+        final List<String> tables = new ArrayList<>();
+
+        if ( !params.isSkipPartitioning() && params.hasPartitions() )
+        {
+            params.getPartitions().getPartitions()
+                .forEach( p -> tables.add( PartitionUtils.getPartitionName( params.getTableName(), p ) ) );
+        }
+        else
+        {
+            tables.add( params.getTableName() );
+        }
+
+        return tables;
+    }
+
+    /**
+     * Returns the current version of the given analytics table or partition.
+     * A random version is assigned if there is none, which means that entries
+     * cached under an evicted version are never served.
+     */
+    private String getTableVersion( final String table )
+    {
+        return tableVersions.get( table, t -> CodeGenerator.generateUid() ).orElse( null );
+    }
+
+    private void invalidateTable( final String table )
+    {
+        tableVersions.put( table, CodeGenerator.generateUid() );
+
+        log.debug( String.format( "Invalidated analytics sub-queries for table: '%s'", table ) );
+    }
+}
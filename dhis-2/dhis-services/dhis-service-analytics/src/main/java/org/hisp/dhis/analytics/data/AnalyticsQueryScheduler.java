@@ -0,0 +1,395 @@
+/*
+ * Copyright (c) 2004-2019, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.hisp.dhis.analytics.data;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hisp.dhis.commons.util.SystemUtils.getCpuCores;
+import static org.hisp.dhis.external.conf.ConfigurationKey.ANALYTICS_QUERY_TIMEOUT;
+import static org.hisp.dhis.setting.SettingKey.DATABASE_SERVER_CPUS;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.lang3.math.NumberUtils;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.hisp.dhis.setting.SystemSettingManager;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bounded scheduler for analytics sub-queries. All sub-queries run on a fixed
+ * number of threads sized after the database server cores, instead of being
+ * fanned out on the unbounded asynchronous task executor.
+ *
+ * Each batch of sub-queries submitted by a request runs with at most the given
+ * parallelism, so that a single wide query cannot occupy all threads and
+ * database connections. Queued sub-queries of interactive requests, meaning
+ * requests bound to an HTTP request, are run before queued sub-queries of
+ * background requests such as scheduled jobs.
+ *
+ * Cancelling the future of a running sub-query cancels the SQL statement which
+ * the sub-query registered through {@link #setCurrentStatement(Statement)}, so
+ * that abandoned queries release their database connection. Callers should
+ * wait at most {@link #getQueryTimeout()} for the sub-queries of a request and
+ * cancel them when the wait times out.
+ */
+@Slf4j
+@Component
+public class AnalyticsQueryScheduler
+{
+    public enum Priority
+    {
+        INTERACTIVE, BACKGROUND
+    }
+
+    private static final int THREADS_PER_CORE = 2;
+
+    private static final int MIN_THREADS = 2;
+
+    private static final String METRIC_QUEUE = "analytics.query.queue";
+
+    private static final String METRIC_WAIT = "analytics.query.wait";
+
+    /**
+     * Sub-query run by the current thread of the scheduler.
+     */
+    private static final ThreadLocal<CancellableTask<?>> CURRENT_TASK = new ThreadLocal<>();
+
+    private final SystemSettingManager systemSettingManager;
+
+    private final DhisConfigurationProvider dhisConfig;
+
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final AtomicInteger heldBack = new AtomicInteger();
+
+    private final Map<Priority, Timer> waitTimers = new EnumMap<>( Priority.class );
+
+    private ThreadPoolExecutor executor;
+
+    private long queryTimeout;
+
+    public AnalyticsQueryScheduler( SystemSettingManager systemSettingManager, DhisConfigurationProvider dhisConfig,
+        MeterRegistry meterRegistry )
+    {
+        checkNotNull( systemSettingManager );
+        checkNotNull( dhisConfig );
+        checkNotNull( meterRegistry );
+
+        this.systemSettingManager = systemSettingManager;
+        this.dhisConfig = dhisConfig;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init()
+    {
+        int threads = Math.max( MIN_THREADS, getProcessNo() * THREADS_PER_CORE );
+
+        queryTimeout = SECONDS.toMillis( NumberUtils.toLong( dhisConfig.getProperty( ANALYTICS_QUERY_TIMEOUT ), 0 ) );
+
+        executor = new ThreadPoolExecutor( threads, threads, 0L, MILLISECONDS, new PriorityBlockingQueue<>(),
+            new ThreadFactoryBuilder().setNameFormat( "ANALYTICS-QUERY-%d" ).setDaemon( true ).build() );
+
+        Gauge.builder( METRIC_QUEUE, executor, e -> e.getQueue().size() )
+            .description( "Analytics sub-queries waiting for a thread" )
+            .tag( "state", "queued" )
+            .register( meterRegistry );
+
+        Gauge.builder( METRIC_QUEUE, heldBack, AtomicInteger::get )
+            .description( "Analytics sub-queries held back by the per-request parallelism cap" )
+            .tag( "state", "capped" )
+            .register( meterRegistry );
+
+        for ( Priority priority : Priority.values() )
+        {
+            waitTimers.put( priority, Timer.builder( METRIC_WAIT )
+                .description( "Time analytics sub-queries wait before being executed" )
+                .tag( "priority", priority.name().toLowerCase() )
+                .register( meterRegistry ) );
+        }
+
+        log.info( String.format( "Analytics query scheduler started with %d threads", threads ) );
+    }
+
+    @PreDestroy
+    public void destroy()
+    {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Submits the given batch of sub-queries. At most the given number of
+     * sub-queries of the batch are queued for execution at any time, the
+     * remaining sub-queries are queued as running ones complete. Cancelling a
+     * future of a sub-query which has not started prevents it from running.
+     * Cancelling a future of a running sub-query with interruption cancels its
+     * current SQL statement.
+     *
+     * @param tasks the sub-queries.
+     * @param maxParallelism the max number of sub-queries of the batch to run
+     *        concurrently.
+     * @return a list of futures in the same order as the given sub-queries.
+     */
+    public <T> List<Future<T>> submit( List<Callable<T>> tasks, int maxParallelism )
+    {
+        Batch batch = new Batch( getCurrentPriority() );
+
+        List<Future<T>> futures = new ArrayList<>();
+
+        for ( Callable<T> task : tasks )
+        {
+            CancellableTask<T> future = new CancellableTask<>( task );
+            futures.add( future );
+            batch.add( future );
+        }
+
+        for ( int i = 0; i < Math.max( 1, maxParallelism ); i++ )
+        {
+            batch.scheduleNext();
+        }
+
+        return futures;
+    }
+
+    /**
+     * Returns the max time in milliseconds to wait for the sub-queries of a
+     * request, or 0 if there is no limit.
+     */
+    public long getQueryTimeout()
+    {
+        return queryTimeout;
+    }
+
+    /**
+     * Registers the given statement as the statement currently executed by the
+     * sub-query running on the current thread, so that cancelling the sub-query
+     * cancels the statement. Does nothing if the current thread is not running a
+     * sub-query of the scheduler.
+     *
+     * @param statement the statement, or null to clear the current statement.
+     */
+    public static void setCurrentStatement( Statement statement )
+    {
+        CancellableTask<?> task = CURRENT_TASK.get();
+
+        if ( task != null )
+        {
+            task.setStatement( statement );
+        }
+    }
+
+    /**
+     * Returns the priority of the current thread, which is interactive if the
+     * thread is bound to an HTTP request and background if not.
+     */
+    public static Priority getCurrentPriority()
+    {
+        return RequestContextHolder.getRequestAttributes() != null ? Priority.INTERACTIVE : Priority.BACKGROUND;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private int getProcessNo()
+    {
+        Integer cores = (Integer) systemSettingManager.getSystemSetting( DATABASE_SERVER_CPUS );
+
+        return (cores == null || cores == 0) ? getCpuCores() : cores;
+    }
+
+    /**
+     * Sub-queries submitted together by a request. Holds back the sub-queries
+     * which exceed the parallelism cap of the batch.
+     */
+    private class Batch
+    {
+        private final Priority priority;
+
+        private final Queue<CancellableTask<?>> pending = new ConcurrentLinkedQueue<>();
+
+        Batch( Priority priority )
+        {
+            this.priority = priority;
+        }
+
+        void add( CancellableTask<?> task )
+        {
+            pending.add( task );
+            heldBack.incrementAndGet();
+        }
+
+        void scheduleNext()
+        {
+            CancellableTask<?> task;
+
+            while ( (task = pending.poll()) != null )
+            {
+                heldBack.decrementAndGet();
+
+                if ( !task.isCancelled() )
+                {
+                    executor.execute( new PrioritizedTask( task, this ) );
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Sub-query queued for execution, ordered by priority and then by order of
+     * submission.
+     */
+    private class PrioritizedTask
+        implements Runnable, Comparable<PrioritizedTask>
+    {
+        private final CancellableTask<?> task;
+
+        private final Batch batch;
+
+        private final long seq = sequence.incrementAndGet();
+
+        private final long queued = System.nanoTime();
+
+        PrioritizedTask( CancellableTask<?> task, Batch batch )
+        {
+            this.task = task;
+            this.batch = batch;
+        }
+
+        @Override
+        public void run()
+        {
+            waitTimers.get( batch.priority ).record( System.nanoTime() - queued, NANOSECONDS );
+
+            CURRENT_TASK.set( task );
+
+            try
+            {
+                task.run();
+            }
+            finally
+            {
+                CURRENT_TASK.remove();
+                batch.scheduleNext();
+            }
+        }
+
+        @Override
+        public int compareTo( PrioritizedTask other )
+        {
+            int result = batch.priority.compareTo( other.batch.priority );
+
+            return result != 0 ? result : Long.compare( seq, other.seq );
+        }
+    }
+
+    /**
+     * Sub-query future which cancels the SQL statement currently executed by
+     * the sub-query when cancelled with interruption.
+     */
+    private static class CancellableTask<T>
+        extends FutureTask<T>
+    {
+        private volatile Statement statement;
+
+        CancellableTask( Callable<T> callable )
+        {
+            super( callable );
+        }
+
+        void setStatement( Statement statement )
+        {
+            this.statement = statement;
+
+            // Cancelled before the statement was registered
+
+            if ( statement != null && isCancelled() )
+            {
+                cancelStatement( statement );
+            }
+        }
+
+        @Override
+        public boolean cancel( boolean mayInterruptIfRunning )
+        {
+            boolean cancelled = super.cancel( mayInterruptIfRunning );
+
+            Statement current = statement;
+
+            if ( cancelled && mayInterruptIfRunning && current != null )
+            {
+                cancelStatement( current );
+            }
+
+            return cancelled;
+        }
+
+        private static void cancelStatement( Statement statement )
+        {
+            try
+            {
+                statement.cancel();
+            }
+            catch ( SQLException ex )
+            {
+                log.warn( "Failed to cancel analytics sub-query statement", ex );
+            }
+        }
+    }
+}
@@ -51,6 +51,8 @@ import static org.hisp.dhis.commons.util.TextUtils.getQuotedCommaDelimitedString
 import static org.hisp.dhis.commons.util.TextUtils.removeLastOr;
 import static org.hisp.dhis.util.DateUtils.getMediumDateString;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
@@ -61,6 +63,7 @@ import java.util.Set;
 import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
+import org.apache.commons.lang3.mutable.MutableInt;
 import org.hisp.dhis.analytics.AggregationType;
 import org.hisp.dhis.analytics.AnalyticsAggregationType;
 import org.hisp.dhis.analytics.AnalyticsManager;
@@ -88,9 +91,9 @@ import org.hisp.dhis.period.PeriodType;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.dao.DataAccessResourceFailureException;
 import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.scheduling.annotation.AsyncResult;
 import org.springframework.stereotype.Component;
 import org.springframework.util.Assert;
@@ -114,6 +117,7 @@ public class JdbcAnalyticsManager
 {
     private static final String COL_APPROVALLEVEL = "approvallevel";
     private static final int LAST_VALUE_YEARS_OFFSET = -10;
+    private static final int FETCH_SIZE = 10000;
 
     private static final Map<MeasureFilter, String> OPERATOR_SQL_MAP = ImmutableMap.<MeasureFilter, String>builder()
         .put( MeasureFilter.EQ, "=" )
@@ -141,7 +145,6 @@ public class JdbcAnalyticsManager
     // -------------------------------------------------------------------------
 
     @Override
-    @Async
     public Future<Map<String, Object>> getAggregatedDataValues( DataQueryParams params, AnalyticsTableType tableType, int maxLimit )
     {
         assertQuery( params );
@@ -655,7 +658,9 @@ public class JdbcAnalyticsManager
 
     /**
      * Retrieves data from the database based on the given query and SQL and puts
-     * into a value key and value mapping.
+     * into a value key and value mapping. Rows are streamed from the result set
+     * through a row callback rather than buffered in a row set, and the columns
+     * of the dimensions are resolved once up front instead of by name per row.
      */
     private Map<String, Object> getKeyValueMap( DataQueryParams params, String sql, int maxLimit )
     {
@@ -663,47 +668,100 @@ public class JdbcAnalyticsManager
 
         log.debug( String.format( "Analytics SQL: %s", sql ) );
 
-        SqlRowSet rowSet = jdbcTemplate.queryForRowSet( sql );
+        List<DimensionalObject> dimensions = params.getDimensions();
 
-        int counter = 0;
+        boolean textValue = params.isDataType( TEXT );
 
-        while ( rowSet.next() )
-        {
-            boolean exceedsMaxLimit = maxLimit > 0 && ++counter > maxLimit;
+        StringBuilder key = new StringBuilder();
+
+        int[] columnIndexes = new int[dimensions.size()];
+
+        MutableInt counter = new MutableInt();
+
+        RowCallbackHandler handler = rs -> {
+            boolean exceedsMaxLimit = maxLimit > 0 && counter.incrementAndGet() > maxLimit;
 
             if ( exceedsMaxLimit )
             {
                 throwIllegalQueryEx( ErrorCode.E7128, maxLimit );
             }
 
-            StringBuilder key = new StringBuilder();
+            if ( counter.intValue() == 1 )
+            {
+                for ( int i = 0; i < dimensions.size(); i++ )
+                {
+                    DimensionalObject dim = dimensions.get( i );
+
+                    columnIndexes[i] = dim.isFixed() ? -1 : rs.findColumn( dim.getDimensionName() );
+                }
+            }
 
-            for ( DimensionalObject dim : params.getDimensions() )
+            key.setLength( 0 );
+
+            for ( int i = 0; i < dimensions.size(); i++ )
             {
-                String value = dim.isFixed() ? dim.getDimensionName() : rowSet.getString( dim.getDimensionName() );
+                String value = columnIndexes[i] == -1 ? dimensions.get( i ).getDimensionName() : rs.getString( columnIndexes[i] );
 
                 key.append( value ).append( DIMENSION_SEP );
             }
 
             key.deleteCharAt( key.length() - 1 );
 
-            if ( params.isDataType( TEXT ) )
+            if ( textValue )
             {
-                String value = rowSet.getString( VALUE_ID );
-
-                map.put( key.toString(), value );
+                map.put( key.toString(), rs.getString( VALUE_ID ) );
             }
             else // NUMERIC
             {
-                Double value = rowSet.getDouble( VALUE_ID );
-
-                map.put( key.toString(), value );
+                map.put( key.toString(), rs.getDouble( VALUE_ID ) );
             }
-        }
+        };
+
+        streamRows( sql, handler );
 
         return map;
     }
 
+    /**
+     * Executes the given SQL and passes each row to the given handler. The
+     * query runs outside auto-commit mode, as the driver otherwise ignores the
+     * fetch size and buffers the entire result set in memory. The statement is
+     * registered with the {@link AnalyticsQueryScheduler} while executing, so
+     * that cancelling the sub-query cancels the statement.
+     */
+    private void streamRows( String sql, RowCallbackHandler handler )
+    {
+        jdbcTemplate.execute( (ConnectionCallback<Void>) connection -> {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit( false );
+
+            try ( PreparedStatement statement = connection.prepareStatement( sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY ) )
+            {
+                statement.setFetchSize( FETCH_SIZE );
+
+                AnalyticsQueryScheduler.setCurrentStatement( statement );
+
+                try ( ResultSet rs = statement.executeQuery() )
+                {
+                    while ( rs.next() )
+                    {
+                        handler.processRow( rs );
+                    }
+                }
+                finally
+                {
+                    AnalyticsQueryScheduler.setCurrentStatement( null );
+                }
+            }
+            finally
+            {
+                connection.setAutoCommit( autoCommit );
+            }
+
+            return null;
+        } );
+    }
+
     /**
      * Generates a comma-delimited string based on the dimension names of the
      * given dimensions where each dimension name is quoted.
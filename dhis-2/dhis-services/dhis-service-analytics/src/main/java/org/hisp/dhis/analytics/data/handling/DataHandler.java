@@ -32,6 +32,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.collect.Lists.newArrayList;
 import static java.lang.Math.min;
 import static java.util.Collections.singletonList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.apache.commons.collections4.CollectionUtils.isEmpty;
 import static org.apache.commons.collections4.CollectionUtils.isNotEmpty;
 import static org.apache.commons.lang3.ArrayUtils.remove;
@@ -112,8 +113,11 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -129,6 +133,8 @@ import org.hisp.dhis.analytics.QueryPlanner;
 import org.hisp.dhis.analytics.QueryPlannerParams;
 import org.hisp.dhis.analytics.QueryValidator;
 import org.hisp.dhis.analytics.RawAnalyticsManager;
+import org.hisp.dhis.analytics.cache.AnalyticsSubQueryCache;
+import org.hisp.dhis.analytics.data.AnalyticsQueryScheduler;
 import org.hisp.dhis.analytics.event.EventAnalyticsService;
 import org.hisp.dhis.analytics.event.EventQueryParams;
 import org.hisp.dhis.analytics.resolver.ExpressionResolver;
@@ -137,12 +143,14 @@ import org.hisp.dhis.common.DimensionItemObjectValue;
 import org.hisp.dhis.common.DimensionalItemObject;
 import org.hisp.dhis.common.DimensionalObject;
 import org.hisp.dhis.common.Grid;
+import org.hisp.dhis.common.QueryRuntimeException;
 import org.hisp.dhis.common.ReportingRateMetric;
 import org.hisp.dhis.constant.Constant;
 import org.hisp.dhis.constant.ConstantService;
 import org.hisp.dhis.dataelement.DataElementOperand;
 import org.hisp.dhis.dataelement.DataElementOperand.TotalType;
 import org.hisp.dhis.expression.ExpressionService;
+import org.hisp.dhis.feedback.ErrorCode;
 import org.hisp.dhis.indicator.Indicator;
 import org.hisp.dhis.indicator.IndicatorValue;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
@@ -189,12 +197,17 @@ public class DataHandler
 
     private final OrganisationUnitService organisationUnitService;
 
+    private final AnalyticsSubQueryCache subQueryCache;
+
+    private final AnalyticsQueryScheduler queryScheduler;
+
     private DataAggregator dataAggregator;
 
     public DataHandler( EventAnalyticsService eventAnalyticsService, RawAnalyticsManager rawAnalyticsManager,
         ConstantService constantService, ExpressionResolver resolver, ExpressionService expressionService,
         QueryPlanner queryPlanner, QueryValidator queryValidator, SystemSettingManager systemSettingManager,
-        AnalyticsManager analyticsManager, OrganisationUnitService organisationUnitService )
+        AnalyticsManager analyticsManager, OrganisationUnitService organisationUnitService,
+        AnalyticsSubQueryCache subQueryCache, AnalyticsQueryScheduler queryScheduler )
     {
         checkNotNull( eventAnalyticsService );
         checkNotNull( rawAnalyticsManager );
@@ -206,6 +219,8 @@ public class DataHandler
         checkNotNull( systemSettingManager );
         checkNotNull( analyticsManager );
         checkNotNull( organisationUnitService );
+        checkNotNull( subQueryCache );
+        checkNotNull( queryScheduler );
 
         this.eventAnalyticsService = eventAnalyticsService;
         this.rawAnalyticsManager = rawAnalyticsManager;
@@ -217,6 +232,8 @@ public class DataHandler
         this.systemSettingManager = systemSettingManager;
         this.analyticsManager = analyticsManager;
         this.organisationUnitService = organisationUnitService;
+        this.subQueryCache = subQueryCache;
+        this.queryScheduler = queryScheduler;
     }
 
     /**
@@ -1126,7 +1143,7 @@ public class DataHandler
 
         for ( List<DataQueryParams> queries : queryGroups.getSequentialQueries() )
         {
-            executeQueries( tableType, maxLimit, map, queries );
+            executeQueries( tableType, maxLimit, optimalQueries, map, queries );
         }
 
         timer.getTime( "Got analytics values" );
@@ -1134,29 +1151,65 @@ public class DataHandler
         return map;
     }
 
-    private void executeQueries( AnalyticsTableType tableType, int maxLimit, Map<String, Object> map,
-        List<DataQueryParams> queries )
+    private void executeQueries( AnalyticsTableType tableType, int maxLimit, int maxParallelism,
+        Map<String, Object> map, List<DataQueryParams> queries )
     {
-        List<Future<Map<String, Object>>> futures = new ArrayList<>();
+        List<DataQueryParams> fetchedQueries = new ArrayList<>();
+        List<Callable<Map<String, Object>>> tasks = new ArrayList<>();
 
         for ( DataQueryParams query : queries )
         {
-            futures.add( analyticsManager.getAggregatedDataValues( query, tableType, maxLimit ) );
+            Optional<Map<String, Object>> cachedValues = subQueryCache.get( query, tableType, maxLimit );
+
+            if ( cachedValues.isPresent() )
+            {
+                map.putAll( cachedValues.get() );
+            }
+            else
+            {
+                fetchedQueries.add( query );
+                tasks.add( () -> analyticsManager.getAggregatedDataValues( query, tableType, maxLimit ).get() );
+            }
         }
 
-        for ( Future<Map<String, Object>> future : futures )
+        List<Future<Map<String, Object>>> futures = queryScheduler.submit( tasks, maxParallelism );
+
+        long timeout = queryScheduler.getQueryTimeout();
+        long deadline = System.currentTimeMillis() + timeout;
+
+        for ( int i = 0; i < futures.size(); i++ )
         {
             try
             {
-                Map<String, Object> taskValues = future.get();
+                Map<String, Object> taskValues = timeout > 0
+                    ? futures.get( i ).get( Math.max( 0, deadline - System.currentTimeMillis() ), MILLISECONDS )
+                    : futures.get( i ).get();
 
                 if ( taskValues != null )
                 {
                     map.putAll( taskValues );
+
+                    subQueryCache.put( fetchedQueries.get( i ), tableType, maxLimit, taskValues );
                 }
             }
             catch ( Exception ex )
             {
+                // Cancel queued and running queries as the result of the request is lost
+
+                futures.forEach( future -> future.cancel( true ) );
+
+                if ( ex instanceof TimeoutException )
+                {
+                    log.warn( String.format( "Analytics query timed out after %d ms", timeout ) );
+
+                    throw new QueryRuntimeException( ErrorCode.E7131, ex );
+                }
+
+                if ( ex instanceof InterruptedException )
+                {
+                    Thread.currentThread().interrupt();
+                }
+
                 log.error( getStackTrace( ex ) );
                 log.error( getStackTrace( ex.getCause() ) );
 
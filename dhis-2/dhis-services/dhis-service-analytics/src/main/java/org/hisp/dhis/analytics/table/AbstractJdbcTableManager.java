@@ -37,6 +37,7 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableSet;
 
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.hisp.dhis.analytics.*;
 import org.hisp.dhis.analytics.partition.PartitionManager;
@@ -180,6 +181,24 @@ public abstract class AbstractJdbcTableManager
     {
     }
 
+    /**
+     * Incremental update is supported if a setting key for the incremental
+     * update watermark is provided.
+     */
+    @Override
+    public boolean isIncrementalUpdateSupported()
+    {
+        return getIncrementalUpdateKey() != null;
+    }
+
+    /**
+     * Override in order to merge data for incremental update.
+     */
+    @Override
+    public void mergeIncrementalData( AnalyticsTableUpdateParams params, List<AnalyticsTable> tables )
+    {
+    }
+
     @Override
     public void createTable( AnalyticsTable table )
     {
@@ -187,6 +206,61 @@ public abstract class AbstractJdbcTableManager
         createTempTablePartitions( table );
     }
 
+    @Override
+    public void createTablePartition( AnalyticsTablePartition partition )
+    {
+        dropTable( partition.getTempTableName() );
+        createTempTablePartition( partition );
+    }
+
+    /**
+     * The completion marker is stored as a comment on the temporary partition
+     * table, which makes it survive a failed update process. The fake partition
+     * representing a master table without partitions is never complete.
+     */
+    @Override
+    public boolean isTablePartitionComplete( AnalyticsTableUpdateParams params, AnalyticsTablePartition partition )
+    {
+        if ( partition.getYear() == null )
+        {
+            return false;
+        }
+
+        final String sql =
+            "select obj_description(c.oid, 'pg_class') from pg_class c " +
+            "where c.relname = '" + partition.getTempTableName() + "'";
+
+        List<String> comments = jdbcTemplate.queryForList( sql, String.class );
+
+        return !comments.isEmpty() && getCompletionMarker( params, partition ).equals( comments.get( 0 ) );
+    }
+
+    @Override
+    public void setTablePartitionComplete( AnalyticsTableUpdateParams params, AnalyticsTablePartition partition )
+    {
+        if ( partition.getYear() != null )
+        {
+            jdbcTemplate.execute( "comment on table " + partition.getTempTableName() +
+                " is '" + getCompletionMarker( params, partition ) + "'" );
+        }
+    }
+
+    /**
+     * Override in order to apply aggregation levels.
+     */
+    @Override
+    public void applyAggregationLevels( AnalyticsTablePartition partition, Collection<String> dataElements, int aggregationLevel )
+    {
+    }
+
+    /**
+     * Override in order to vacuum tables.
+     */
+    @Override
+    public void vacuumTable( AnalyticsTablePartition partition )
+    {
+    }
+
     @Override
     @Async
     public Future<?> createIndexesAsync( ConcurrentLinkedQueue<AnalyticsIndex> indexes )
@@ -264,22 +338,16 @@ public abstract class AbstractJdbcTableManager
     }
 
     @Override
-    @Async
-    public Future<?> populateTablesAsync( AnalyticsTableUpdateParams params, ConcurrentLinkedQueue<AnalyticsTablePartition> partitions )
+    public void populateTablePartition( AnalyticsTableUpdateParams params, AnalyticsTablePartition partition )
     {
-        taskLoop: while ( true )
-        {
-            AnalyticsTablePartition partition = partitions.poll();
-
-            if ( partition == null )
-            {
-                break taskLoop;
-            }
-
-            populateTable( params, partition );
-        }
+        populateTable( params, partition );
+    }
 
-        return null;
+    @Override
+    public boolean hasAnalyticsTableSqlHooks()
+    {
+        return !tableHookService.getByPhaseAndAnalyticsTableType(
+            AnalyticsTablePhase.ANALYTICS_TABLE_POPULATED, getAnalyticsTableType() ).isEmpty();
     }
 
     @Override
@@ -325,6 +393,118 @@ public abstract class AbstractJdbcTableManager
     // Protected supportive methods
     // -------------------------------------------------------------------------
 
+    /**
+     * Returns the setting key holding the watermark of the last successful
+     * incremental update for this table type. Override in order to support
+     * incremental update.
+     *
+     * @return a {@link SettingKey}, or null if incremental update is not supported.
+     */
+    protected SettingKey getIncrementalUpdateKey()
+    {
+        return null;
+    }
+
+    /**
+     * Returns the start date of the "latest" data. For an incremental update this
+     * is the latest of the last successful full update, the last successful "latest"
+     * partition update and the incremental update watermark of this table type,
+     * as data before that time is already present in the analytics tables. For
+     * any other "latest" update this is the last successful full update.
+     *
+     * @param params the {@link AnalyticsTableUpdateParams}.
+     * @return the start date of the "latest" data.
+     */
+    protected Date getLatestStartDate( AnalyticsTableUpdateParams params )
+    {
+        Date lastFullTableUpdate = (Date) systemSettingManager.getSystemSetting( SettingKey.LAST_SUCCESSFUL_ANALYTICS_TABLES_UPDATE );
+
+        Assert.notNull( lastFullTableUpdate, "A full analytics table update process must be run prior to a latest partition update process" );
+
+        if ( params.isIncrementalUpdate() && isIncrementalUpdateSupported() )
+        {
+            Date lastLatestPartitionUpdate = (Date) systemSettingManager.getSystemSetting( SettingKey.LAST_SUCCESSFUL_LATEST_ANALYTICS_PARTITION_UPDATE );
+            Date lastIncrementalUpdate = (Date) systemSettingManager.getSystemSetting( getIncrementalUpdateKey() );
+
+            return DateUtils.getLatest( lastFullTableUpdate, lastLatestPartitionUpdate, lastIncrementalUpdate );
+        }
+
+        return lastFullTableUpdate;
+    }
+
+    /**
+     * Inserts the rows of the given populated "latest" temporary partition into
+     * the existing partitions of the given analytics table, one insert per year
+     * with data. Only columns which are present in the existing partition are
+     * inserted. Years without an existing partition are skipped, as they require
+     * a full analytics table update.
+     *
+     * @param table the {@link AnalyticsTable}.
+     * @param partition the "latest" {@link AnalyticsTablePartition}.
+     * @param yearColumn the name of the year column of the analytics table.
+     * @return true if the rows of all years were inserted, false if any year
+     *         was skipped.
+     */
+    protected boolean insertIntoExistingPartitions( AnalyticsTable table, AnalyticsTablePartition partition, String yearColumn )
+    {
+        final String tempTableName = partition.getTempTableName();
+
+        boolean merged = true;
+
+        List<Integer> years = jdbcTemplate.queryForList(
+            "select distinct cast(" + yearColumn + " as integer) from " + tempTableName, Integer.class );
+
+        for ( Integer year : years )
+        {
+            String partitionName = PartitionUtils.getPartitionName( table.getTableName(), year );
+
+            if ( !partitionManager.tableExists( partitionName ) )
+            {
+                log.warn( String.format( "No analytics table partition exists for year: %d, table: '%s', full update required", year, table.getTableName() ) );
+                merged = false;
+                continue;
+            }
+
+            Set<String> existingColumns = new HashSet<>( jdbcTemplate.queryForList(
+                "select column_name from information_schema.columns where table_name = '" + partitionName + "'", String.class ) );
+
+            String columns = ListUtils.union( table.getDimensionColumns(), table.getValueColumns() ).stream()
+                .map( AnalyticsTableColumn::getName )
+                .filter( name -> existingColumns.contains( StringUtils.strip( name, "\"" ) ) )
+                .collect( Collectors.joining( "," ) );
+
+            String sql =
+                "insert into " + partitionName + " (" + columns + ") " +
+                "select " + columns + " from " + tempTableName + " " +
+                "where " + yearColumn + " = '" + year + "'";
+
+            invokeTimeAndLog( sql, String.format( "Merge incremental data into %s", partitionName ) );
+        }
+
+        return merged;
+    }
+
+    /**
+     * Saves the start time of the given incremental update as the watermark of
+     * this table type if all data was merged. Otherwise the watermark is kept,
+     * so that the skipped data is merged again by the next update.
+     *
+     * @param params the {@link AnalyticsTableUpdateParams}.
+     * @param merged whether all data was merged into existing partitions.
+     */
+    protected void saveIncrementalUpdateWatermark( AnalyticsTableUpdateParams params, boolean merged )
+    {
+        if ( merged )
+        {
+            systemSettingManager.saveSystemSetting( getIncrementalUpdateKey(), params.getStartTime() );
+        }
+        else
+        {
+            log.warn( String.format( "Incremental update watermark not advanced for table type: '%s', full update required",
+                getAnalyticsTableType().getTableName() ) );
+        }
+    }
+
     /**
      * Returns the analytics table name.
      */
@@ -406,28 +586,59 @@ public abstract class AbstractJdbcTableManager
      */
     protected void createTempTablePartitions( AnalyticsTable table )
     {
-        for ( AnalyticsTablePartition partition : table.getTablePartitions() )
+        table.getTablePartitions().forEach( this::createTempTablePartition );
+    }
+
+    /**
+     * Creates the given table partition, inheriting from the temporary master
+     * table.
+     *
+     * @param partition the {@link AnalyticsTablePartition}.
+     */
+    protected void createTempTablePartition( AnalyticsTablePartition partition )
+    {
+        final String tableName = partition.getTempTableName();
+        final List<String> checks = getPartitionChecks( partition );
+
+        String sqlCreate = "create table " + tableName + " (";
+
+        if ( !checks.isEmpty() )
         {
-            final String tableName = partition.getTempTableName();
-            final List<String> checks = getPartitionChecks( partition );
+            StringBuilder sqlCheck = new StringBuilder();
+            checks.stream().forEach( check -> sqlCheck.append( "check (" + check + "), " ) );
+            sqlCreate += TextUtils.removeLastComma( sqlCheck.toString() );
+        }
 
-            String sqlCreate = "create table " + tableName + " (";
+        sqlCreate += ") inherits (" + partition.getMasterTable().getTempTableName() + ") " + getTableOptions();
 
-            if ( !checks.isEmpty() )
-            {
-                StringBuilder sqlCheck = new StringBuilder();
-                checks.stream().forEach( check -> sqlCheck.append( "check (" + check + "), " ) );
-                sqlCreate += TextUtils.removeLastComma( sqlCheck.toString() );
-            }
+        log.info( String.format( "Creating partition table: %s", tableName ) );
 
-            sqlCreate += ") inherits (" + table.getTempTableName() + ") " + getTableOptions();
+        log.debug( "Create SQL: " + sqlCreate );
 
-            log.info( String.format( "Creating partition table: %s", tableName ) );
+        jdbcTemplate.execute( sqlCreate );
+    }
 
-            log.debug( "Create SQL: " + sqlCreate );
+    /**
+     * Returns the completion marker of the given partition for the given update.
+     * The marker is derived from the start time of the update, the time range of
+     * the partition and the columns of the analytics table, so that a partition
+     * is only reused by an update producing the same table.
+     *
+     * @param params the {@link AnalyticsTableUpdateParams}.
+     * @param partition the {@link AnalyticsTablePartition}.
+     */
+    private String getCompletionMarker( AnalyticsTableUpdateParams params, AnalyticsTablePartition partition )
+    {
+        AnalyticsTable table = partition.getMasterTable();
 
-            jdbcTemplate.execute( sqlCreate );
-        }
+        String columns = ListUtils.union( table.getDimensionColumns(), table.getValueColumns() ).stream()
+            .map( col -> col.getName() + " " + col.getDataType().getValue() )
+            .collect( Collectors.joining( "," ) );
+
+        String signature = params.getStartTime().getTime() + ":" +
+            getLongDateString( partition.getStartDate() ) + ":" + getLongDateString( partition.getEndDate() ) + ":" + columns;
+
+        return "complete:" + DigestUtils.md5Hex( signature );
     }
 
     /**
@@ -464,7 +675,8 @@ public abstract class AbstractJdbcTableManager
 
     /**
      * Creates a {@link AnalyticsTable} with a partition for the "latest" data. The start date
-     * of the partition is the time of the last successful full analytics table update. The
+     * of the partition is the time of the last successful full analytics table update, or
+     * for incremental updates the time of the last successful incremental update. The
      * end date of the partition is the start time of this analytics table update process.
      *
      * @param params the {@link AnalyticsTableUpdateParams}.
@@ -475,11 +687,9 @@ public abstract class AbstractJdbcTableManager
     {
         Date lastFullTableUpdate = (Date) systemSettingManager.getSystemSetting( SettingKey.LAST_SUCCESSFUL_ANALYTICS_TABLES_UPDATE );
         Date lastLatestPartitionUpdate = (Date) systemSettingManager.getSystemSetting( SettingKey.LAST_SUCCESSFUL_LATEST_ANALYTICS_PARTITION_UPDATE );
-        Date lastAnyTableUpdate = DateUtils.getLatest( lastLatestPartitionUpdate, lastFullTableUpdate );
-
-        Assert.notNull( lastFullTableUpdate, "A full analytics table update process must be run prior to a latest partition update process" );
 
-        Date startDate = lastFullTableUpdate;
+        Date startDate = getLatestStartDate( params );
+        Date lastAnyTableUpdate = DateUtils.getLatest( lastLatestPartitionUpdate, lastFullTableUpdate, startDate );
         Date endDate = params.getStartTime();
         boolean hasUpdatedData = hasUpdatedLatestData( lastAnyTableUpdate, endDate );
 
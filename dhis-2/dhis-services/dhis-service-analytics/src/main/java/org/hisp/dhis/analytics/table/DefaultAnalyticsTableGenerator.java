@@ -112,6 +112,11 @@ public class DefaultAnalyticsTableGenerator
             .withLastSuccessfulUpdate( lastSuccessfulUpdate )
             .build();
 
+        if ( !params.isLatestUpdate() )
+        {
+            params = withResumeStartTime( params );
+        }
+
         log.info( String.format( "Found %d analytics table types: %s", availableTypes.size(), availableTypes ) );
         log.info( String.format( "Analytics table update: %s", params ) );
         log.info( String.format( "Last successful analytics table update: '%s'", getLongDateString( lastSuccessfulUpdate ) ) );
@@ -162,6 +167,7 @@ public class DefaultAnalyticsTableGenerator
         {
             systemSettingManager.saveSystemSetting( SettingKey.LAST_SUCCESSFUL_ANALYTICS_TABLES_UPDATE, params.getStartTime() );
             systemSettingManager.saveSystemSetting( SettingKey.LAST_SUCCESSFUL_ANALYTICS_TABLES_RUNTIME, DateUtils.getPrettyInterval( clock.getSplitTime() ) );
+            systemSettingManager.deleteSystemSetting( SettingKey.ANALYTICS_TABLE_UPDATE_RESUME_START_TIME );
         }
     }
 
@@ -201,6 +207,34 @@ public class DefaultAnalyticsTableGenerator
     // Supportive methods
     // -------------------------------------------------------------------------
 
+    /**
+     * Returns parameters for resuming a previously failed full update, if any.
+     * The start time of the failed update is kept, so that temporary table
+     * partitions completed by it can be reused, and data changed since is
+     * picked up by subsequent updates. If no update failed, the start time of
+     * this update is stored until the update completes.
+     *
+     * @param params the {@link AnalyticsTableUpdateParams}.
+     * @return the {@link AnalyticsTableUpdateParams} to use.
+     */
+    private AnalyticsTableUpdateParams withResumeStartTime( AnalyticsTableUpdateParams params )
+    {
+        final Date resumeStartTime = (Date) systemSettingManager.getSystemSetting( SettingKey.ANALYTICS_TABLE_UPDATE_RESUME_START_TIME );
+
+        if ( resumeStartTime == null )
+        {
+            systemSettingManager.saveSystemSetting( SettingKey.ANALYTICS_TABLE_UPDATE_RESUME_START_TIME, params.getStartTime() );
+
+            return params;
+        }
+
+        log.info( String.format( "Resuming failed analytics table update with start time: '%s'", getLongDateString( resumeStartTime ) ) );
+
+        return AnalyticsTableUpdateParams.newBuilder( params )
+            .withStartTime( resumeStartTime )
+            .build();
+    }
+
     private void generateResourceTables()
     {
         final Date startTime = new Date();
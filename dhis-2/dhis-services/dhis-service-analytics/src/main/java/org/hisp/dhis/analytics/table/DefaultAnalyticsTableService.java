@@ -37,6 +37,7 @@ import org.hisp.dhis.analytics.AnalyticsTablePartition;
 import org.hisp.dhis.analytics.AnalyticsTableService;
 import org.hisp.dhis.analytics.AnalyticsTableType;
 import org.hisp.dhis.analytics.AnalyticsTableUpdateParams;
+import org.hisp.dhis.analytics.cache.AnalyticsSubQueryCache;
 import org.hisp.dhis.common.IdentifiableObjectUtils;
 import org.hisp.dhis.commons.util.ConcurrentUtils;
 import org.hisp.dhis.commons.util.SystemUtils;
@@ -55,8 +56,14 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 import static org.hisp.dhis.util.DateUtils.getLongDateString;
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -80,9 +87,12 @@ public class DefaultAnalyticsTableService
 
     private SystemSettingManager systemSettingManager;
 
+    private AnalyticsSubQueryCache subQueryCache;
+
     public DefaultAnalyticsTableService( AnalyticsTableManager tableManager,
         OrganisationUnitService organisationUnitService, DataElementService dataElementService,
-        ResourceTableService resourceTableService, Notifier notifier, SystemSettingManager systemSettingManager )
+        ResourceTableService resourceTableService, Notifier notifier, SystemSettingManager systemSettingManager,
+        AnalyticsSubQueryCache subQueryCache )
     {
         checkNotNull( tableManager );
         checkNotNull( organisationUnitService );
@@ -90,6 +100,7 @@ public class DefaultAnalyticsTableService
         checkNotNull( resourceTableService );
         checkNotNull( notifier );
         checkNotNull( systemSettingManager );
+        checkNotNull( subQueryCache );
 
         this.tableManager = tableManager;
         this.organisationUnitService = organisationUnitService;
@@ -97,6 +108,7 @@ public class DefaultAnalyticsTableService
         this.resourceTableService = resourceTableService;
         this.notifier = notifier;
         this.systemSettingManager = systemSettingManager;
+        this.subQueryCache = subQueryCache;
     }
 
     // -------------------------------------------------------------------------
@@ -116,8 +128,6 @@ public class DefaultAnalyticsTableService
 
         final int processNo = getProcessNo();
 
-        int tableUpdates = 0;
-
         log.info( String.format( "Analytics table update parameters: %s", params ) );
 
         AnalyticsTableType tableType = tableManager.getAnalyticsTableType();
@@ -151,49 +161,60 @@ public class DefaultAnalyticsTableService
         tableManager.preCreateTables( params );
 
         clock.logTime( "Performed pre-create table work" );
-        notifier.notify( jobId, "Dropping temp tables" );
-
-        dropTempTables( tables );
-
-        clock.logTime( "Dropped temp tables" );
         notifier.notify( jobId, "Creating analytics tables" );
 
-        createTables( tables );
+        final List<AnalyticsTablePartition> partitions = createTables( params, tables );
 
-        clock.logTime( "Created analytics tables" );
+        clock.logTime( String.format( "Created analytics tables, partitions to populate: %d", partitions.size() ) );
         notifier.notify( jobId, "Populating analytics tables" );
 
-        populateTables( params, tables );
+        final boolean incremental = params.isIncrementalUpdate() && tableManager.isIncrementalUpdateSupported();
+        final Map<Integer, Collection<String>> aggregationLevels = getDataElementsByAggregationLevel();
 
-        clock.logTime( "Populated analytics tables" );
-        notifier.notify( jobId, "Invoking analytics table hooks" );
+        if ( tableManager.hasAnalyticsTableSqlHooks() )
+        {
+            // Hooks operate on fully populated tables, hence populate is a barrier
 
-        tableUpdates += tableManager.invokeAnalyticsTableSqlHooks();
+            processPartitions( partitions, partition -> tableManager.populateTablePartition( params, partition ) );
 
-        clock.logTime( "Invoked analytics table hooks" );
-        notifier.notify( jobId, "Applying aggregation levels" );
+            clock.logTime( "Populated analytics tables" );
+            notifier.notify( jobId, "Invoking analytics table hooks" );
 
-        tableUpdates += applyAggregationLevels( tables );
+            tableManager.invokeAnalyticsTableSqlHooks();
 
-        clock.logTime( "Applied aggregation levels" );
+            clock.logTime( "Invoked analytics table hooks" );
+            notifier.notify( jobId, "Processing analytics tables" );
 
-        if ( tableUpdates > 0 )
+            processPartitions( partitions, partition -> processPartition(
+                params, partition, aggregationLevels, true, incremental, partitions.size() ) );
+        }
+        else
         {
-            notifier.notify( jobId, "Vacuuming tables" );
-            vacuumTables( tables );
-            clock.logTime( "Tables vacuumed" );
+            processPartitions( partitions, partition -> {
+                tableManager.populateTablePartition( params, partition );
+                processPartition( params, partition, aggregationLevels, false, incremental, partitions.size() );
+            } );
         }
 
-        notifier.notify( jobId, "Creating indexes" );
+        clock.logTime( "Populated and processed analytics tables" );
 
-        createIndexes( tables );
+        if ( incremental )
+        {
+            notifier.notify( jobId, "Merging incremental data into analytics tables" );
+
+            tableManager.mergeIncrementalData( params, tables );
+
+            tables.forEach( subQueryCache::invalidate );
 
-        clock.logTime( "Created indexes" );
-        notifier.notify( jobId, "Analyzing analytics tables" );
+            clock.logTime( "Merged incremental data" );
 
-        analyzeTables( tables );
+            dropTempTables( tables );
+
+            clock.logTime( "Table update done: " + tableType.getTableName() );
+            notifier.notify( jobId, "Table update done" );
+            return;
+        }
 
-        clock.logTime( "Analyzed tables" );
         notifier.notify( jobId, "Removing updated and deleted data" );
 
         tableManager.removeUpdatedData( params, tables );
@@ -242,135 +263,185 @@ public class DefaultAnalyticsTableService
     }
 
     /**
-     * Creates the given analytics tables.
+     * Creates the given analytics tables. Temporary table partitions which were
+     * completed by a previous, failed run of this update are kept, so that the
+     * update resumes at partition granularity. Resume does not apply to "latest"
+     * updates.
      *
+     * @param params the {@link AnalyticsTableUpdateParams}.
      * @param tables the list of {@link AnalyticsTable}.
+     * @return the list of {@link AnalyticsTablePartition} to populate.
      */
-    private void createTables( List<AnalyticsTable> tables )
+    private List<AnalyticsTablePartition> createTables( AnalyticsTableUpdateParams params, List<AnalyticsTable> tables )
     {
-        tables.forEach( table -> tableManager.createTable( table ) );
+        List<AnalyticsTablePartition> partitions = new ArrayList<>();
+
+        for ( AnalyticsTable table : tables )
+        {
+            List<AnalyticsTablePartition> tablePartitions = PartitionUtils.getTablePartitions( Lists.newArrayList( table ) );
+
+            List<AnalyticsTablePartition> completed = params.isLatestUpdate() ? new ArrayList<>() :
+                tablePartitions.stream()
+                    .filter( partition -> tableManager.isTablePartitionComplete( params, partition ) )
+                    .collect( Collectors.toList() );
+
+            if ( completed.isEmpty() )
+            {
+                tableManager.dropTempTable( table );
+                tableManager.createTable( table );
+
+                partitions.addAll( tablePartitions );
+            }
+            else
+            {
+                log.info( String.format( "Resuming table: %s, completed partitions: %s", table.getTableName(), completed ) );
+
+                for ( AnalyticsTablePartition partition : tablePartitions )
+                {
+                    if ( !completed.contains( partition ) )
+                    {
+                        tableManager.createTablePartition( partition );
+
+                        partitions.add( partition );
+                    }
+                }
+            }
+        }
+
+        return partitions;
     }
 
     /**
-     * Populates the given analytics tables.
+     * Runs the given work for each of the given partitions, with at most as many
+     * partitions in parallel as the number of available cores. Each partition
+     * moves through the work on its own, without waiting for other partitions.
+     * If the work fails for a partition, partitions which have not started are
+     * skipped.
      *
-     * @param tables the list of {@link AnalyticsTable}.
+     * @param partitions the list of {@link AnalyticsTablePartition}.
+     * @param work the work to run for each partition.
      */
-    private void populateTables( AnalyticsTableUpdateParams params, List<AnalyticsTable> tables )
+    private void processPartitions( List<AnalyticsTablePartition> partitions, Consumer<AnalyticsTablePartition> work )
     {
-        List<AnalyticsTablePartition> partitions = PartitionUtils.getTablePartitions( tables );
+        if ( partitions.isEmpty() )
+        {
+            return;
+        }
 
         int taskNo = Math.min( getProcessNo(), partitions.size() );
 
-        log.info( "Populate table task number: " + taskNo );
+        log.info( "Analytics table partition task number: " + taskNo );
 
-        ConcurrentLinkedQueue<AnalyticsTablePartition> partitionQ = new ConcurrentLinkedQueue<>( partitions );
+        ExecutorService executor = Executors.newFixedThreadPool( taskNo );
 
         List<Future<?>> futures = new ArrayList<>();
 
-        for ( int i = 0; i < taskNo; i++ )
+        try
         {
-            futures.add( tableManager.populateTablesAsync( params, partitionQ ) );
+            partitions.forEach( partition -> futures.add( executor.submit( () -> work.accept( partition ) ) ) );
+
+            ConcurrentUtils.waitForCompletion( futures );
         }
+        finally
+        {
+            futures.forEach( future -> future.cancel( false ) );
 
-        ConcurrentUtils.waitForCompletion( futures );
+            executor.shutdown();
+        }
     }
 
     /**
-     * Applies aggregation levels to the given analytics tables.
+     * Applies aggregation levels to, vacuums, indexes and analyzes the given
+     * populated partition, and marks it as complete. Indexes and analyze are
+     * skipped for incremental updates, as the partition is merged into the
+     * existing analytics tables.
      *
-     * @param tables the list of {@link AnalyticsTable}.
-     * @return the number of aggregation levels applied for data elements.
+     * @param params the {@link AnalyticsTableUpdateParams}.
+     * @param partition the {@link AnalyticsTablePartition}.
+     * @param aggregationLevels the data elements by aggregation level.
+     * @param updated whether the partition was updated after being populated.
+     * @param incremental whether this is an incremental update.
+     * @param partitionNo the number of partitions being processed.
      */
-    private int applyAggregationLevels( List<AnalyticsTable> tables )
+    private void processPartition( AnalyticsTableUpdateParams params, AnalyticsTablePartition partition,
+        Map<Integer, Collection<String>> aggregationLevels, boolean updated, boolean incremental, int partitionNo )
     {
-        List<AnalyticsTablePartition> partitions = PartitionUtils.getTablePartitions( tables );
-
-        int maxLevels = organisationUnitService.getNumberOfOrganisationalLevels();
+        aggregationLevels.forEach( ( level, dataElements ) ->
+            tableManager.applyAggregationLevels( partition, dataElements, level ) );
 
-        int aggLevels = 0;
-
-        levelLoop : for ( int i = 0; i < maxLevels; i++ )
+        if ( updated || !aggregationLevels.isEmpty() )
         {
-            int level = maxLevels - i;
-
-            Collection<String> dataElements = IdentifiableObjectUtils.getUids(
-                dataElementService.getDataElementsByAggregationLevel( level ) );
-
-            if ( dataElements.isEmpty() )
-            {
-                continue levelLoop;
-            }
-
-            ConcurrentLinkedQueue<AnalyticsTablePartition> partitionQ = new ConcurrentLinkedQueue<>( partitions );
+            tableManager.vacuumTable( partition );
+        }
 
-            List<Future<?>> futures = new ArrayList<>();
+        if ( incremental )
+        {
+            return;
+        }
 
-            for ( int j = 0; j < getProcessNo(); j++ )
-            {
-                futures.add( tableManager.applyAggregationLevels( partitionQ, dataElements, level ) );
-            }
+        createIndexes( partition, Math.max( 1, getProcessNo() / partitionNo ) );
 
-            aggLevels += dataElements.size();
+        tableManager.analyzeTable( partition.getTempTableName() );
 
-            ConcurrentUtils.waitForCompletion( futures );
-        }
+        tableManager.setTablePartitionComplete( params, partition );
 
-        return aggLevels;
+        log.info( String.format( "Analytics table partition done: %s", partition.getTempTableName() ) );
     }
 
     /**
-     * Vacuums the given analytics tables.
+     * Returns the identifiers of data elements by aggregation level, ordered from
+     * the highest to the lowest level. Levels without data elements are
+     * excluded.
      *
-     * @param tables the list of {@link AnalyticsTable}.
+     * @return a mapping between aggregation level and data element identifiers.
      */
-    private void vacuumTables( List<AnalyticsTable> tables )
+    private Map<Integer, Collection<String>> getDataElementsByAggregationLevel()
     {
-        List<AnalyticsTablePartition> partitions = PartitionUtils.getTablePartitions( tables );
-
-        ConcurrentLinkedQueue<AnalyticsTablePartition> partitionQ = new ConcurrentLinkedQueue<>( partitions );
+        Map<Integer, Collection<String>> aggregationLevels = new LinkedHashMap<>();
 
-        List<Future<?>> futures = new ArrayList<>();
+        int maxLevels = organisationUnitService.getNumberOfOrganisationalLevels();
 
-        for ( int i = 0; i < getProcessNo(); i++ )
+        for ( int level = maxLevels; level > 0; level-- )
         {
-            tableManager.vacuumTablesAsync( partitionQ );
+            Collection<String> dataElements = IdentifiableObjectUtils.getUids(
+                dataElementService.getDataElementsByAggregationLevel( level ) );
+
+            if ( !dataElements.isEmpty() )
+            {
+                aggregationLevels.put( level, dataElements );
+            }
         }
 
-        ConcurrentUtils.waitForCompletion( futures );
+        return aggregationLevels;
     }
 
     /**
-     * Creates indexes on the given analytics tables.
+     * Creates indexes on the given analytics table partition.
      *
-     * @param tables the list of {@link AnalyticsTable}.
+     * @param partition the {@link AnalyticsTablePartition}.
+     * @param taskNo the number of indexes to create in parallel.
      */
-    private void createIndexes( List<AnalyticsTable> tables )
+    private void createIndexes( AnalyticsTablePartition partition, int taskNo )
     {
-        List<AnalyticsTablePartition> partitions = PartitionUtils.getTablePartitions( tables );
-
         ConcurrentLinkedQueue<AnalyticsIndex> indexes = new ConcurrentLinkedQueue<>();
 
-        for ( AnalyticsTablePartition partition : partitions )
-        {
-            List<AnalyticsTableColumn> columns = partition.getMasterTable().getDimensionColumns();
+        List<AnalyticsTableColumn> columns = partition.getMasterTable().getDimensionColumns();
 
-            for ( AnalyticsTableColumn col : columns )
+        for ( AnalyticsTableColumn col : columns )
+        {
+            if ( !col.isSkipIndex() )
             {
-                if ( !col.isSkipIndex() )
-                {
-                    List<String> indexColumns = col.hasIndexColumns() ? col.getIndexColumns() : Lists.newArrayList( col.getName() );
+                List<String> indexColumns = col.hasIndexColumns() ? col.getIndexColumns() : Lists.newArrayList( col.getName() );
 
-                    indexes.add( new AnalyticsIndex( partition.getTempTableName(), indexColumns, col.getIndexType() ) );
-                }
+                indexes.add( new AnalyticsIndex( partition.getTempTableName(), indexColumns, col.getIndexType() ) );
             }
         }
 
-        log.info( "No of analytics table indexes: " + indexes.size() );
+        log.debug( String.format( "No of analytics table indexes: %d, partition: %s", indexes.size(), partition.getTempTableName() ) );
 
         List<Future<?>> futures = new ArrayList<>();
 
-        for ( int i = 0; i < getProcessNo(); i++ )
+        for ( int i = 0; i < taskNo; i++ )
         {
             futures.add( tableManager.createIndexesAsync( indexes ) );
         }
@@ -378,18 +449,6 @@ public class DefaultAnalyticsTableService
         ConcurrentUtils.waitForCompletion( futures );
     }
 
-    /**
-     * Analyzes the given analytics tables.
-     *
-     * @param tables the list of {@link AnalyticsTable}.
-     */
-    private void analyzeTables( List<AnalyticsTable> tables )
-    {
-        List<AnalyticsTablePartition> partitions = PartitionUtils.getTablePartitions( tables );
-
-        partitions.forEach( table -> tableManager.analyzeTable( table.getTempTableName() ) );
-    }
-
     /**
      * Swaps the given analytics tables.
      *
@@ -400,7 +459,10 @@ public class DefaultAnalyticsTableService
     {
         resourceTableService.dropAllSqlViews();
 
-        tables.forEach( table -> tableManager.swapTable( params, table ) );
+        tables.forEach( table -> {
+            tableManager.swapTable( params, table );
+            subQueryCache.invalidate( table );
+        } );
 
         resourceTableService.createAllSqlViews();
     }
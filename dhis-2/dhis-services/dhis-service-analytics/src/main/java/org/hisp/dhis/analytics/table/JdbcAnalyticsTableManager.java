@@ -41,8 +41,6 @@ import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.Future;
 
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
@@ -63,7 +61,6 @@ import org.hisp.dhis.category.CategoryService;
 import org.hisp.dhis.common.IdentifiableObjectManager;
 import org.hisp.dhis.common.ValueType;
 import org.hisp.dhis.commons.collection.ListUtils;
-import org.hisp.dhis.commons.util.ConcurrentUtils;
 import org.hisp.dhis.commons.util.TextUtils;
 import org.hisp.dhis.dataapproval.DataApprovalLevelService;
 import org.hisp.dhis.dataelement.DataElementGroupSet;
@@ -79,7 +76,6 @@ import org.hisp.dhis.system.util.MathUtils;
 import org.hisp.dhis.util.DateUtils;
 import org.hisp.dhis.util.ObjectUtils;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -222,6 +218,30 @@ public class JdbcAnalyticsTableManager
         invokeTimeAndLog( sql, "Remove updated data values" );
     }
 
+    @Override
+    @Transactional
+    public void mergeIncrementalData( AnalyticsTableUpdateParams params, List<AnalyticsTable> tables )
+    {
+        if ( !params.isIncrementalUpdate() )
+        {
+            return;
+        }
+
+        removeUpdatedData( params, tables );
+
+        AnalyticsTablePartition partition = PartitionUtils.getLatestTablePartition( tables );
+
+        boolean merged = insertIntoExistingPartitions( partition.getMasterTable(), partition, quote( "year" ) );
+
+        saveIncrementalUpdateWatermark( params, merged );
+    }
+
+    @Override
+    protected SettingKey getIncrementalUpdateKey()
+    {
+        return SettingKey.LAST_SUCCESSFUL_INCREMENTAL_ANALYTICS_TABLE_UPDATE;
+    }
+
     @Override
     protected List<String> getPartitionChecks( AnalyticsTablePartition partition )
     {
@@ -482,65 +502,37 @@ public class JdbcAnalyticsTableManager
     }
 
     @Override
-    @Async
-    public Future<?> applyAggregationLevels( ConcurrentLinkedQueue<AnalyticsTablePartition> partitions, Collection<String> dataElements, int aggregationLevel )
+    public void applyAggregationLevels( AnalyticsTablePartition partition, Collection<String> dataElements, int aggregationLevel )
     {
-        taskLoop:
-        while ( true )
-        {
-            AnalyticsTablePartition partition = partitions.poll();
+        StringBuilder sql = new StringBuilder( "update " + partition.getTempTableName() + " set " );
 
-            if ( partition == null )
-            {
-                break taskLoop;
-            }
-
-            StringBuilder sql = new StringBuilder( "update " + partition.getTempTableName() + " set " );
-
-            for ( int i = 0; i < aggregationLevel; i++ )
-            {
-                int level = i + 1;
+        for ( int i = 0; i < aggregationLevel; i++ )
+        {
+            int level = i + 1;
 
-                String column = quote( DataQueryParams.LEVEL_PREFIX + level );
+            String column = quote( DataQueryParams.LEVEL_PREFIX + level );
 
-                sql.append( column + " = null," );
-            }
+            sql.append( column + " = null," );
+        }
 
-            sql.deleteCharAt( sql.length() - ",".length() );
+        sql.deleteCharAt( sql.length() - ",".length() );
 
-            sql.append( " where level > " + aggregationLevel );
-            sql.append( " and dx in (" + getQuotedCommaDelimitedString( dataElements ) + ")" );
+        sql.append( " where level > " + aggregationLevel );
+        sql.append( " and dx in (" + getQuotedCommaDelimitedString( dataElements ) + ")" );
 
-            log.debug( "Aggregation level SQL: " + sql.toString() );
+        log.debug( "Aggregation level SQL: " + sql.toString() );
 
-            jdbcTemplate.execute( sql.toString() );
-        }
-
-        return ConcurrentUtils.getImmediateFuture();
+        jdbcTemplate.execute( sql.toString() );
     }
 
     @Override
-    @Async
-    public Future<?> vacuumTablesAsync( ConcurrentLinkedQueue<AnalyticsTablePartition> partitions )
+    public void vacuumTable( AnalyticsTablePartition partition )
     {
-        taskLoop:
-        while ( true )
-        {
-            AnalyticsTablePartition partition = partitions.poll();
-
-            if ( partition == null )
-            {
-                break taskLoop;
-            }
-
-            final String sql = statementBuilder.getVacuum( partition.getTempTableName() );
+        final String sql = statementBuilder.getVacuum( partition.getTempTableName() );
 
-            log.debug( "Vacuum SQL: " + sql );
-
-            jdbcTemplate.execute( sql );
-        }
+        log.debug( "Vacuum SQL: " + sql );
 
-        return ConcurrentUtils.getImmediateFuture();
+        jdbcTemplate.execute( sql );
     }
 
     @Override
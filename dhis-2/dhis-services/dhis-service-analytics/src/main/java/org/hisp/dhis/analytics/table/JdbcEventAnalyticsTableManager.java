@@ -75,7 +75,6 @@ import org.hisp.dhis.util.DateUtils;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.util.Assert;
 
 import com.google.common.collect.Lists;
 
@@ -181,7 +180,8 @@ public class JdbcEventAnalyticsTableManager
 
     /**
      * Creates a list of {@link AnalyticsTable} with a partition each or the "latest" data. The
-     * start date of the partition is the time of the last successful full analytics table update.
+     * start date of the partition is the time of the last successful full analytics table update,
+     * or for incremental updates the time of the last successful incremental update.
      * The end date of the partition is the start time of this analytics table update process.
      *
      * @param params the {@link AnalyticsTableUpdateParams}.
@@ -191,11 +191,9 @@ public class JdbcEventAnalyticsTableManager
     {
         Date lastFullTableUpdate = (Date) systemSettingManager.getSystemSetting( SettingKey.LAST_SUCCESSFUL_ANALYTICS_TABLES_UPDATE );
         Date lastLatestPartitionUpdate = (Date) systemSettingManager.getSystemSetting( SettingKey.LAST_SUCCESSFUL_LATEST_ANALYTICS_PARTITION_UPDATE );
-        Date lastAnyTableUpdate = DateUtils.getLatest( lastLatestPartitionUpdate, lastFullTableUpdate );
 
-        Assert.notNull( lastFullTableUpdate, "A full analytics table update process must be run prior to a latest partition update process" );
-
-        Date startDate = lastFullTableUpdate;
+        Date startDate = getLatestStartDate( params );
+        Date lastAnyTableUpdate = DateUtils.getLatest( lastLatestPartitionUpdate, lastFullTableUpdate, startDate );
         Date endDate = params.getStartTime();
 
         List<AnalyticsTable> tables = new ArrayList<>();
@@ -274,6 +272,33 @@ public class JdbcEventAnalyticsTableManager
         }
     }
 
+    @Override
+    @Transactional
+    public void mergeIncrementalData( AnalyticsTableUpdateParams params, List<AnalyticsTable> tables )
+    {
+        if ( !params.isIncrementalUpdate() )
+        {
+            return;
+        }
+
+        removeUpdatedData( params, tables );
+
+        boolean merged = true;
+
+        for ( AnalyticsTable table : tables )
+        {
+            merged = insertIntoExistingPartitions( table, table.getLatestPartition(), quote( "yearly" ) ) && merged;
+        }
+
+        saveIncrementalUpdateWatermark( params, merged );
+    }
+
+    @Override
+    protected SettingKey getIncrementalUpdateKey()
+    {
+        return SettingKey.LAST_SUCCESSFUL_INCREMENTAL_EVENT_ANALYTICS_TABLE_UPDATE;
+    }
+
     @Override
     public List<AnalyticsTableColumn> getFixedColumns()
     {
@@ -120,10 +120,20 @@ public class ContinuousAnalyticsTableJob
         }
         else
         {
-            log.info( "Performing latest analytics table partition update" );
+            log.info( String.format( "Performing latest analytics table partition update, incremental: %b", parameters.isIncrementalUpdate() ) );
 
-            AnalyticsTableUpdateParams params = AnalyticsTableUpdateParams.newBuilder()
-                .withLatestPartition()
+            AnalyticsTableUpdateParams.Builder builder = AnalyticsTableUpdateParams.newBuilder();
+
+            if ( parameters.isIncrementalUpdate() )
+            {
+                builder.withIncrementalUpdate();
+            }
+            else
+            {
+                builder.withLatestPartition();
+            }
+
+            AnalyticsTableUpdateParams params = builder
                 .withSkipResourceTables( true )
                 .withSkipTableTypes( parameters.getSkipTableTypes() )
                 .withJobId( jobConfiguration )
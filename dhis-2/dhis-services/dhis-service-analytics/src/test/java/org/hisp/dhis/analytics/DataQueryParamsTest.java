@@ -619,6 +619,23 @@ public class DataQueryParamsTest
         assertNotEquals(paramsA.getKey(), paramsB.getKey()); // No collision
     }
 
+    @Test
+    public void testGetKeyWithDataApprovalLevels()
+    {
+        DataQueryParams paramsA = DataQueryParams.newBuilder()
+            .addDimension( new BaseDimensionalObject( DimensionalObject.DATA_X_DIM_ID, DimensionType.DATA_X, Lists.newArrayList( deA ) ) )
+            .addDimension( new BaseDimensionalObject( DimensionalObject.PERIOD_DIM_ID, DimensionType.PERIOD, Lists.newArrayList( peA ) ) ).build();
+
+        DataQueryParams paramsB = DataQueryParams.newBuilder( paramsA ).build();
+        paramsB.setDataApprovalLevels( new HashMap<>( Collections.singletonMap( ouA, 2 ) ) );
+
+        DataQueryParams paramsC = DataQueryParams.newBuilder( paramsA ).build();
+        paramsC.setDataApprovalLevels( new HashMap<>( Collections.singletonMap( ouA, 3 ) ) );
+
+        assertNotEquals( paramsA.getKey(), paramsB.getKey() );
+        assertNotEquals( paramsB.getKey(), paramsC.getKey() );
+    }
+
     @Test
     @SuppressWarnings("unchecked")
     public void testFinancialYearPeriodResultsInTwoAggregationYears() {
@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.dhis.analytics.cache;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.hisp.dhis.analytics.AnalyticsCacheTtlMode.FIXED;
+import static org.hisp.dhis.common.cache.CacheStrategy.CACHE_10_MINUTES;
+import static org.hisp.dhis.setting.SettingKey.ANALYTICS_CACHE_STALE_WHILE_REVALIDATE_TTL;
+import static org.hisp.dhis.setting.SettingKey.ANALYTICS_CACHE_TTL_MODE;
+import static org.hisp.dhis.setting.SettingKey.CACHE_STRATEGY;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.junit.MockitoJUnit.rule;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hisp.dhis.analytics.DataQueryParams;
+import org.hisp.dhis.cache.CacheProvider;
+import org.hisp.dhis.cache.SimpleCacheBuilder;
+import org.hisp.dhis.common.Grid;
+import org.hisp.dhis.setting.SystemSettingManager;
+import org.hisp.dhis.system.grid.ListGrid;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoRule;
+import org.springframework.core.env.Environment;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class AnalyticsCacheTest
+{
+    @Mock
+    private SystemSettingManager systemSettingManager;
+
+    @Mock
+    private CacheProvider cacheProvider;
+
+    @Mock
+    private Environment environment;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Rule
+    public MockitoRule mockitoRule = rule();
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private AnalyticsCache analyticsCache;
+
+    @Before
+    public void setUp()
+    {
+        when( systemSettingManager.getSystemSetting( ANALYTICS_CACHE_TTL_MODE ) ).thenReturn( FIXED );
+        when( systemSettingManager.getSystemSetting( CACHE_STRATEGY ) ).thenReturn( CACHE_10_MINUTES );
+        when( systemSettingManager.getSystemSetting( ANALYTICS_CACHE_STALE_WHILE_REVALIDATE_TTL ) ).thenReturn( 60 );
+        when( cacheProvider.newCacheBuilder( AnalyticsCacheEntry.class ) ).thenReturn( new SimpleCacheBuilder<>() );
+        when( environment.getActiveProfiles() ).thenReturn( new String[0] );
+
+        meterRegistry = new SimpleMeterRegistry();
+
+        analyticsCache = new AnalyticsCache( cacheProvider, environment,
+            new AnalyticsCacheSettings( systemSettingManager ), meterRegistry, new TransactionTemplate( transactionManager ) );
+        analyticsCache.init();
+    }
+
+    @After
+    public void tearDown()
+    {
+        analyticsCache.destroy();
+    }
+
+    @Test
+    public void testConcurrentMissesAreCoalesced()
+        throws Exception
+    {
+        // Given
+        final DataQueryParams params = DataQueryParams.newBuilder().build();
+        final Grid grid = new ListGrid();
+        final AtomicInteger fetches = new AtomicInteger();
+        final CountDownLatch fetchStarted = new CountDownLatch( 1 );
+        final CountDownLatch releaseFetch = new CountDownLatch( 1 );
+
+        final ExecutorService executor = Executors.newFixedThreadPool( 2 );
+
+        // When
+        final Future<Grid> first = executor.submit( () -> analyticsCache.getOrFetch( params, p -> {
+            fetches.incrementAndGet();
+            fetchStarted.countDown();
+            await( releaseFetch );
+            return grid;
+        } ) );
+
+        assertTrue( fetchStarted.await( 5, SECONDS ) );
+
+        final Future<Grid> second = executor.submit( () -> analyticsCache.getOrFetch( params, p -> {
+            fetches.incrementAndGet();
+            return new ListGrid();
+        } ) );
+
+        while ( meterRegistry.counter( "analytics.cache.requests", "result", "coalesced" ).count() == 0 )
+        {
+            Thread.sleep( 10 );
+        }
+
+        releaseFetch.countDown();
+
+        // Then
+        assertThat( first.get( 5, SECONDS ), is( sameInstance( grid ) ) );
+        assertThat( second.get( 5, SECONDS ), is( sameInstance( grid ) ) );
+        assertThat( fetches.get(), is( 1 ) );
+        assertThat( meterRegistry.counter( "analytics.cache.requests", "result", "miss" ).count(), is( 1.0 ) );
+
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testStaleGridIsServedWhileRefreshing()
+        throws Exception
+    {
+        // Given
+        final DataQueryParams params = DataQueryParams.newBuilder().build();
+        final Grid staleGrid = new ListGrid();
+        final Grid freshGrid = new ListGrid();
+        final CountDownLatch refreshed = new CountDownLatch( 1 );
+
+        analyticsCache.put( params.getKey(), staleGrid, 0 );
+
+        // When
+        final Grid result = analyticsCache.getOrFetch( params, p -> {
+            refreshed.countDown();
+            return freshGrid;
+        } );
+
+        // Then
+        assertThat( result, is( sameInstance( staleGrid ) ) );
+        assertTrue( refreshed.await( 5, SECONDS ) );
+
+        while ( analyticsCache.get( params.getKey() ).get() != freshGrid )
+        {
+            Thread.sleep( 10 );
+        }
+
+        assertThat( meterRegistry.counter( "analytics.cache.refreshes" ).count(), is( 1.0 ) );
+        verify( transactionManager ).getTransaction( any( TransactionDefinition.class ) );
+    }
+
+    @Test
+    public void testFetchStartedBeforeInvalidationIsNotCached()
+        throws Exception
+    {
+        // Given
+        final DataQueryParams params = DataQueryParams.newBuilder().build();
+        final Grid grid = new ListGrid();
+        final CountDownLatch fetchStarted = new CountDownLatch( 1 );
+        final CountDownLatch releaseFetch = new CountDownLatch( 1 );
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        // When
+        final Future<Grid> result = executor.submit( () -> analyticsCache.getOrFetch( params, p -> {
+            fetchStarted.countDown();
+            await( releaseFetch );
+            return grid;
+        } ) );
+
+        assertTrue( fetchStarted.await( 5, SECONDS ) );
+
+        analyticsCache.invalidateAll();
+
+        releaseFetch.countDown();
+
+        // Then
+        assertThat( result.get( 5, SECONDS ), is( sameInstance( grid ) ) );
+        assertFalse( analyticsCache.get( params.getKey() ).isPresent() );
+
+        executor.shutdownNow();
+    }
+
+    private void await( CountDownLatch latch )
+    {
+        try
+        {
+            latch.await( 5, SECONDS );
+        }
+        catch ( InterruptedException ex )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
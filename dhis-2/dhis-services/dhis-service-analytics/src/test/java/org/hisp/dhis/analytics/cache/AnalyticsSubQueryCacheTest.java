@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.hisp.dhis.analytics.cache;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hisp.dhis.analytics.AnalyticsTableType.DATA_VALUE;
+import static org.hisp.dhis.analytics.AnalyticsTablePartition.LATEST_PARTITION;
+import static org.hisp.dhis.external.conf.ConfigurationKey.REDIS_ENABLED;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+import static org.mockito.junit.MockitoJUnit.rule;
+
+import java.util.Map;
+
+import org.hisp.dhis.analytics.AnalyticsTable;
+import org.hisp.dhis.analytics.DataQueryParams;
+import org.hisp.dhis.analytics.Partitions;
+import org.hisp.dhis.cache.CacheProvider;
+import org.hisp.dhis.cache.ExtendedCacheBuilder;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoRule;
+import org.springframework.core.env.Environment;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Sets;
+
+public class AnalyticsSubQueryCacheTest
+{
+    @Mock
+    private CacheProvider cacheProvider;
+
+    @Mock
+    private Environment environment;
+
+    @Mock
+    private AnalyticsCacheSettings analyticsCacheSettings;
+
+    @Mock
+    private DhisConfigurationProvider configurationProvider;
+
+    @Rule
+    public MockitoRule mockitoRule = rule();
+
+    private AnalyticsSubQueryCache subQueryCache;
+
+    private final Map<String, Object> values = ImmutableMap.of( "a-b", 1d );
+
+    @Before
+    public void setUp()
+    {
+        when( configurationProvider.getProperty( REDIS_ENABLED ) ).thenReturn( "false" );
+        when( cacheProvider.newCacheBuilder( String.class, Object.class ) )
+            .thenReturn( new ExtendedCacheBuilder<>( null, configurationProvider ) );
+        when( cacheProvider.newCacheBuilder( String.class ) )
+            .thenReturn( new ExtendedCacheBuilder<>( null, configurationProvider ) );
+        when( environment.getActiveProfiles() ).thenReturn( new String[0] );
+        when( analyticsCacheSettings.isCachingEnabled() ).thenReturn( true );
+        when( analyticsCacheSettings.fixedExpirationTimeOrDefault() ).thenReturn( 600L );
+
+        subQueryCache = new AnalyticsSubQueryCache( cacheProvider, environment, analyticsCacheSettings );
+        subQueryCache.init();
+    }
+
+    @Test
+    public void testGetCachedSubQuery()
+    {
+        DataQueryParams query = getQuery( 2019 );
+
+        assertFalse( subQueryCache.get( query, DATA_VALUE, 0 ).isPresent() );
+
+        subQueryCache.put( query, DATA_VALUE, 0, values );
+
+        assertThat( subQueryCache.get( query, DATA_VALUE, 0 ).get(), is( values ) );
+        assertFalse( subQueryCache.get( query, DATA_VALUE, 100 ).isPresent() );
+        assertFalse( subQueryCache.get( getQuery( 2020 ), DATA_VALUE, 0 ).isPresent() );
+    }
+
+    @Test
+    public void testInvalidateSwappedPartition()
+    {
+        DataQueryParams query2019 = getQuery( 2019 );
+        DataQueryParams query2020 = getQuery( 2020 );
+
+        subQueryCache.put( query2019, DATA_VALUE, 0, values );
+        subQueryCache.put( query2020, DATA_VALUE, 0, values );
+
+        AnalyticsTable table = new AnalyticsTable( DATA_VALUE, newArrayList(), newArrayList() );
+        table.addPartitionTable( 2019, null, null );
+
+        subQueryCache.invalidate( table );
+
+        assertFalse( subQueryCache.get( query2019, DATA_VALUE, 0 ).isPresent() );
+        assertTrue( subQueryCache.get( query2020, DATA_VALUE, 0 ).isPresent() );
+    }
+
+    @Test
+    public void testInvalidateLatestPartition()
+    {
+        DataQueryParams query2019 = getQuery( 2019 );
+        DataQueryParams query2020 = getQuery( 2020 );
+
+        subQueryCache.put( query2019, DATA_VALUE, 0, values );
+        subQueryCache.put( query2020, DATA_VALUE, 0, values );
+
+        AnalyticsTable table = new AnalyticsTable( DATA_VALUE, newArrayList(), newArrayList() );
+        table.addPartitionTable( LATEST_PARTITION, null, null );
+
+        subQueryCache.invalidate( table );
+
+        assertFalse( subQueryCache.get( query2019, DATA_VALUE, 0 ).isPresent() );
+        assertFalse( subQueryCache.get( query2020, DATA_VALUE, 0 ).isPresent() );
+    }
+
+    private DataQueryParams getQuery( int year )
+    {
+        return DataQueryParams.newBuilder()
+            .withTableName( DATA_VALUE.getTableName() )
+            .withPartitions( new Partitions( Sets.newHashSet( year ) ) )
+            .withPeriodType( "Monthly" )
+            .build();
+    }
+}
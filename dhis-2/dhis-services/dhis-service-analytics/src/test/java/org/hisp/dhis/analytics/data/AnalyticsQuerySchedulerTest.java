@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.hisp.dhis.analytics.data;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hisp.dhis.external.conf.ConfigurationKey.ANALYTICS_QUERY_TIMEOUT;
+import static org.hisp.dhis.setting.SettingKey.DATABASE_SERVER_CPUS;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.junit.MockitoJUnit.rule;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.hisp.dhis.setting.SystemSettingManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoRule;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class AnalyticsQuerySchedulerTest
+{
+    @Mock
+    private SystemSettingManager systemSettingManager;
+
+    @Mock
+    private DhisConfigurationProvider dhisConfig;
+
+    @Rule
+    public MockitoRule mockitoRule = rule();
+
+    private AnalyticsQueryScheduler queryScheduler;
+
+    @Before
+    public void setUp()
+    {
+        when( systemSettingManager.getSystemSetting( DATABASE_SERVER_CPUS ) ).thenReturn( 4 );
+
+        queryScheduler = new AnalyticsQueryScheduler( systemSettingManager, dhisConfig, new SimpleMeterRegistry() );
+        queryScheduler.init();
+    }
+
+    @After
+    public void tearDown()
+    {
+        queryScheduler.destroy();
+    }
+
+    @Test
+    public void testParallelismIsCappedPerBatch()
+        throws Exception
+    {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        List<Callable<Integer>> tasks = new ArrayList<>();
+
+        for ( int i = 0; i < 10; i++ )
+        {
+            final int value = i;
+
+            tasks.add( () -> {
+                maxRunning.accumulateAndGet( running.incrementAndGet(), Math::max );
+                Thread.sleep( 5 );
+                running.decrementAndGet();
+                return value;
+            } );
+        }
+
+        List<Future<Integer>> futures = queryScheduler.submit( tasks, 2 );
+
+        for ( int i = 0; i < 10; i++ )
+        {
+            assertThat( futures.get( i ).get( 5, SECONDS ), is( i ) );
+        }
+
+        assertTrue( maxRunning.get() <= 2 );
+    }
+
+    @Test
+    public void testCancelledQueriesAreNotRun()
+        throws Exception
+    {
+        CountDownLatch started = new CountDownLatch( 1 );
+        CountDownLatch release = new CountDownLatch( 1 );
+        AtomicInteger runs = new AtomicInteger();
+
+        List<Callable<Integer>> tasks = new ArrayList<>();
+
+        tasks.add( () -> {
+            started.countDown();
+            release.await( 5, SECONDS );
+            return runs.incrementAndGet();
+        } );
+
+        tasks.add( () -> runs.incrementAndGet() );
+
+        List<Future<Integer>> futures = queryScheduler.submit( tasks, 1 );
+
+        assertTrue( started.await( 5, SECONDS ) );
+
+        futures.get( 1 ).cancel( true );
+        release.countDown();
+
+        assertThat( futures.get( 0 ).get( 5, SECONDS ), is( 1 ) );
+        assertTrue( futures.get( 1 ).isCancelled() );
+        assertThat( runs.get(), is( 1 ) );
+    }
+
+    @Test
+    public void testCancelRunningQueryCancelsStatement()
+        throws Exception
+    {
+        Statement statement = mock( Statement.class );
+        CountDownLatch started = new CountDownLatch( 1 );
+        CountDownLatch release = new CountDownLatch( 1 );
+
+        List<Callable<Integer>> tasks = new ArrayList<>();
+
+        tasks.add( () -> {
+            AnalyticsQueryScheduler.setCurrentStatement( statement );
+            started.countDown();
+            release.await( 5, SECONDS );
+            AnalyticsQueryScheduler.setCurrentStatement( null );
+            return 1;
+        } );
+
+        List<Future<Integer>> futures = queryScheduler.submit( tasks, 1 );
+
+        assertTrue( started.await( 5, SECONDS ) );
+
+        futures.get( 0 ).cancel( true );
+        release.countDown();
+
+        verify( statement, timeout( 5000 ) ).cancel();
+        assertTrue( futures.get( 0 ).isCancelled() );
+    }
+
+    @Test
+    public void testQueryTimeout()
+    {
+        when( dhisConfig.getProperty( ANALYTICS_QUERY_TIMEOUT ) ).thenReturn( "30" );
+
+        AnalyticsQueryScheduler scheduler = new AnalyticsQueryScheduler( systemSettingManager, dhisConfig,
+            new SimpleMeterRegistry() );
+        scheduler.init();
+
+        try
+        {
+            assertThat( scheduler.getQueryTimeout(), is( 30000L ) );
+            assertThat( queryScheduler.getQueryTimeout(), is( 0L ) );
+        }
+        finally
+        {
+            scheduler.destroy();
+        }
+    }
+}
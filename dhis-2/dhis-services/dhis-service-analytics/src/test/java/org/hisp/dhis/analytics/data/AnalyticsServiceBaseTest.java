@@ -42,6 +42,7 @@ import org.hisp.dhis.analytics.QueryPlannerParams;
 import org.hisp.dhis.analytics.RawAnalyticsManager;
 import org.hisp.dhis.analytics.cache.AnalyticsCache;
 import org.hisp.dhis.analytics.cache.AnalyticsCacheSettings;
+import org.hisp.dhis.analytics.cache.AnalyticsSubQueryCache;
 import org.hisp.dhis.analytics.data.handling.DataAggregator;
 import org.hisp.dhis.analytics.data.handling.DataHandler;
 import org.hisp.dhis.analytics.data.handling.HeaderHandler;
@@ -60,6 +61,8 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 /**
  * @author Luciano Fiandesio
  */
@@ -106,6 +109,9 @@ public abstract class AnalyticsServiceBaseTest
     @Mock
     private AnalyticsCacheSettings analyticsCacheSettings;
 
+    @Mock
+    private AnalyticsSubQueryCache subQueryCache;
+
     @Mock
     private ExpressionResolver resolver;
 
@@ -120,11 +126,15 @@ public abstract class AnalyticsServiceBaseTest
         DefaultQueryValidator queryValidator = new DefaultQueryValidator( systemSettingManager,
             nestedIndicatorCyclicDependencyInspector );
 
+        AnalyticsQueryScheduler queryScheduler = new AnalyticsQueryScheduler( systemSettingManager, dhisConfig,
+            new SimpleMeterRegistry() );
+        queryScheduler.init();
+
         HeaderHandler headerHandler = new HeaderHandler();
         MetadataHandler metadataHandler = new MetadataHandler( dataQueryService );
         DataHandler dataHandler = new DataHandler( eventAnalyticsService, rawAnalyticsManager, constantService,
             resolver, expressionService, queryPlanner, queryValidator, systemSettingManager, analyticsManager,
-            organisationUnitService );
+            organisationUnitService, subQueryCache, queryScheduler );
 
         target = new DataAggregator( headerHandler, metadataHandler, dataHandler );
         target.feedHandlers();
@@ -33,8 +33,17 @@ import static org.hisp.dhis.DhisConvenienceTest.*;
 import static org.hisp.dhis.common.DimensionalObject.*;
 import static org.hisp.dhis.common.DimensionalObjectUtils.getList;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
 import org.hisp.dhis.analytics.*;
 import org.hisp.dhis.analytics.partition.PartitionManager;
 import org.hisp.dhis.common.BaseDimensionalObject;
@@ -53,8 +62,8 @@ import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
 
 /**
  * @author Luciano Fiandesio
@@ -73,9 +82,6 @@ public class JdbcAnalyticsManagerTest
     @Mock
     private JdbcTemplate jdbcTemplate;
 
-    @Mock
-    private SqlRowSet rowSet;
-
     @Mock
     private NestedIndicatorCyclicDependencyInspector nestedIndicatorCyclicDependencyInspector;
 
@@ -91,15 +97,12 @@ public class JdbcAnalyticsManagerTest
             new DefaultQueryValidator( this.systemSettingManager, nestedIndicatorCyclicDependencyInspector ),
             partitionManager );
 
-        mockRowSet();
-
-        when( jdbcTemplate.queryForRowSet( sql.capture() ) ).thenReturn( rowSet );
-
         subject = new JdbcAnalyticsManager( queryPlanner, jdbcTemplate );
     }
 
     @Test
     public void verifyQueryGeneratedWhenDataElementHasLastAggregationType()
+        throws SQLException
     {
         DataQueryParams params = createParams( AggregationType.LAST );
 
@@ -110,6 +113,7 @@ public class JdbcAnalyticsManagerTest
 
     @Test
     public void verifyQueryGeneratedWhenDataElementHasLastAvgOrgUnitAggregationType()
+        throws SQLException
     {
         DataQueryParams params = createParams( AggregationType.LAST_AVERAGE_ORG_UNIT );
 
@@ -120,6 +124,7 @@ public class JdbcAnalyticsManagerTest
 
     @Test
     public void verifyQueryGeneratedWhenDataElementHasLastInPeriodAggregationType()
+        throws SQLException
     {
         DataQueryParams params = createParams( AggregationType.LAST_IN_PERIOD );
 
@@ -130,6 +135,7 @@ public class JdbcAnalyticsManagerTest
 
     @Test
     public void verifyQueryGeneratedWhenDataElementHasLastInPeriodAvgOrgUnitAggregationType()
+        throws SQLException
     {
         DataQueryParams params = createParams( AggregationType.LAST_IN_PERIOD_AVERAGE_ORG_UNIT );
 
@@ -138,12 +144,6 @@ public class JdbcAnalyticsManagerTest
         assertExpectedLastSql( "desc" );
     }
 
-    private void mockRowSet()
-    {
-        // Simulate no rows
-        when( rowSet.next() ).thenReturn( false );
-    }
-
     private DataQueryParams createParams(AggregationType aggregationType) {
 
         DataElement deA = createDataElement( 'A', ValueType.INTEGER, aggregationType );
@@ -158,7 +158,7 @@ public class JdbcAnalyticsManagerTest
             .addDimension( new BaseDimensionalObject( PERIOD_DIM_ID, DimensionType.PERIOD, getList( peA ) ) ).build();
     }
 
-    private void assertExpectedSql(String sortOrder) {
+    private void assertExpectedSql(String sortOrder) throws SQLException {
 
         String lastAggregationTypeSql = "(select \"year\",\"pestartdate\",\"peenddate\",\"level\",\"daysxvalue\","
             + "\"daysno\",\"value\",\"textvalue\",\"dx\",cast('201501' as text) as \"pe\",\"ou\","
@@ -167,10 +167,10 @@ public class JdbcAnalyticsManagerTest
             + "from analytics as ax where pestartdate >= '2005-01-31' and pestartdate <= '2015-01-31' "
             + "and (value is not null or textvalue is not null))";
 
-        assertThat( sql.getValue(), containsString( lastAggregationTypeSql ) );
+        assertThat( getExecutedSql(), containsString( lastAggregationTypeSql ) );
     }
 
-    private void assertExpectedLastSql(String sortOrder) {
+    private void assertExpectedLastSql(String sortOrder) throws SQLException {
 
         String lastAggregationTypeSql = "(select \"year\",\"pestartdate\",\"peenddate\",\"level\",\"daysxvalue\","
             + "\"daysno\",\"value\",\"textvalue\",\"dx\",cast('201501' as text) as \"pe\",\"ou\","
@@ -179,7 +179,32 @@ public class JdbcAnalyticsManagerTest
             + "from analytics as ax where pestartdate >= '2015-01-01' and pestartdate <= '2015-01-31' "
             + "and (value is not null or textvalue is not null))";
 
-        assertThat( sql.getValue(), containsString( lastAggregationTypeSql ) );
+        assertThat( getExecutedSql(), containsString( lastAggregationTypeSql ) );
     }
 
-}
\ No newline at end of file
+    /**
+     * Runs the connection callback passed to the JDBC template against a mock
+     * connection and returns the SQL of the prepared statement.
+     */
+    @SuppressWarnings( { "unchecked", "rawtypes" } )
+    private String getExecutedSql() throws SQLException
+    {
+        ArgumentCaptor<ConnectionCallback> callback = ArgumentCaptor.forClass( ConnectionCallback.class );
+
+        verify( jdbcTemplate ).execute( callback.capture() );
+
+        Connection connection = mock( Connection.class );
+        PreparedStatement statement = mock( PreparedStatement.class );
+
+        when( connection.prepareStatement( anyString(), anyInt(), anyInt() ) ).thenReturn( statement );
+        when( statement.executeQuery() ).thenReturn( mock( ResultSet.class ) );
+
+        callback.getValue().doInConnection( connection );
+
+        verify( connection ).setAutoCommit( false );
+        verify( statement ).setFetchSize( anyInt() );
+        verify( connection ).prepareStatement( sql.capture(), anyInt(), anyInt() );
+
+        return sql.getValue();
+    }
+}
@@ -28,28 +28,29 @@ package org.hisp.dhis.analytics.table;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
-import org.junit.Before;
-import org.junit.Rule;
-import org.junit.Test;
-import org.mockito.ArgumentMatchers;
-import org.mockito.Mock;
-import org.mockito.Mockito;
-import org.mockito.junit.MockitoJUnit;
-import org.mockito.junit.MockitoRule;
-import org.springframework.jdbc.core.JdbcTemplate;
-
-import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Lists;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
 import org.hisp.dhis.analytics.AnalyticsTable;
+import org.hisp.dhis.analytics.AnalyticsTableColumn;
 import org.hisp.dhis.analytics.AnalyticsTableHookService;
 import org.hisp.dhis.analytics.AnalyticsTableManager;
 import org.hisp.dhis.analytics.AnalyticsTablePartition;
+import org.hisp.dhis.analytics.AnalyticsTableType;
 import org.hisp.dhis.analytics.AnalyticsTableUpdateParams;
+import org.hisp.dhis.analytics.ColumnDataType;
 import org.hisp.dhis.analytics.partition.PartitionManager;
 import org.hisp.dhis.category.CategoryService;
 import org.hisp.dhis.common.IdentifiableObjectManager;
@@ -61,13 +62,19 @@ import org.hisp.dhis.setting.SettingKey;
 import org.hisp.dhis.setting.SystemSettingManager;
 import org.hisp.dhis.system.database.DatabaseInfo;
 import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.jdbc.core.JdbcTemplate;
 
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
-
-import static org.junit.Assert.assertNotNull;
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertTrue;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
 
 /**
 * @author Lars Helge Overland
@@ -80,6 +87,9 @@ public class JdbcAnalyticsTableManagerTest
     @Mock
     private JdbcTemplate jdbcTemplate;
 
+    @Mock
+    private PartitionManager partitionManager;
+
     @Rule
     public MockitoRule mockitoRule = MockitoJUnit.rule();
 
@@ -91,7 +101,7 @@ public class JdbcAnalyticsTableManagerTest
         subject = new JdbcAnalyticsTableManager( mock( IdentifiableObjectManager.class ), mock( OrganisationUnitService.class ),
             mock( CategoryService.class ), systemSettingManager, mock( DataApprovalLevelService.class ),
             mock( ResourceTableService.class ), mock( AnalyticsTableHookService.class ), mock( StatementBuilder.class ),
-            mock( PartitionManager.class ), mock( DatabaseInfo.class ), jdbcTemplate );
+            partitionManager, mock( DatabaseInfo.class ), jdbcTemplate );
     }
 
     @Test
@@ -167,6 +177,42 @@ public class JdbcAnalyticsTableManagerTest
         assertEquals( startTime, partition.getEndDate() );
     }
 
+    @Test
+    public void testGetIncrementalAnalyticsTable()
+    {
+        Date lastFullTableUpdate = new DateTime( 2019, 3, 1, 2, 0 ).toDate();
+        Date lastLatestPartitionUpdate = new DateTime( 2019, 3, 1, 9, 0 ).toDate();
+        Date lastIncrementalUpdate = new DateTime( 2019, 3, 1, 9, 30 ).toDate();
+        Date startTime = new DateTime( 2019, 3, 1, 10, 0 ).toDate();
+
+        AnalyticsTableUpdateParams params = AnalyticsTableUpdateParams.newBuilder()
+            .withStartTime( startTime )
+            .withIncrementalUpdate()
+            .build();
+
+        List<Map<String, Object>> queryResp = Lists.newArrayList();
+        queryResp.add( ImmutableMap.of( "dataelementid", 1 ) );
+
+        when( systemSettingManager.getSystemSetting( SettingKey.LAST_SUCCESSFUL_ANALYTICS_TABLES_UPDATE ) ).thenReturn( lastFullTableUpdate );
+        when( systemSettingManager.getSystemSetting( SettingKey.LAST_SUCCESSFUL_LATEST_ANALYTICS_PARTITION_UPDATE ) ).thenReturn( lastLatestPartitionUpdate );
+        when( systemSettingManager.getSystemSetting( SettingKey.LAST_SUCCESSFUL_INCREMENTAL_ANALYTICS_TABLE_UPDATE ) ).thenReturn( lastIncrementalUpdate );
+        when( jdbcTemplate.queryForList( Mockito.anyString() ) ).thenReturn( queryResp );
+
+        assertTrue( params.isLatestUpdate() );
+        assertTrue( subject.isIncrementalUpdateSupported() );
+
+        List<AnalyticsTable> tables = subject.getAnalyticsTables( params );
+
+        assertEquals( 1, tables.size() );
+
+        AnalyticsTablePartition partition = tables.get( 0 ).getLatestPartition();
+
+        assertNotNull( partition );
+        assertTrue( partition.isLatestPartition() );
+        assertEquals( lastIncrementalUpdate, partition.getStartDate() );
+        assertEquals( startTime, partition.getEndDate() );
+    }
+
     @Test(expected=IllegalArgumentException.class)
     public void testGetLatestAnalyticsTableNoFullTableUpdate()
     {
@@ -183,4 +229,92 @@ public class JdbcAnalyticsTableManagerTest
 
         subject.getAnalyticsTables( params );
     }
+
+    @Test
+    public void testTablePartitionCompleteMarker()
+    {
+        AnalyticsTableUpdateParams params = AnalyticsTableUpdateParams.newBuilder()
+            .withStartTime( new DateTime( 2019, 3, 1, 10, 0 ).toDate() )
+            .build();
+
+        AnalyticsTable table = new AnalyticsTable( AnalyticsTableType.DATA_VALUE,
+            Lists.newArrayList( new AnalyticsTableColumn( "dx", ColumnDataType.CHARACTER_11, "dx" ) ),
+            Lists.newArrayList( new AnalyticsTableColumn( "value", ColumnDataType.DOUBLE, "value" ) ) );
+
+        table.addPartitionTable( 2018, new DateTime( 2018, 1, 1, 0, 0 ).toDate(), new DateTime( 2018, 12, 31, 0, 0 ).toDate() );
+
+        AnalyticsTablePartition partition = table.getTablePartitions().get( 0 );
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass( String.class );
+
+        subject.setTablePartitionComplete( params, partition );
+
+        verify( jdbcTemplate ).execute( sql.capture() );
+
+        String marker = sql.getValue().replaceAll( ".* is '(.*)'$", "$1" );
+
+        when( jdbcTemplate.queryForList( Mockito.anyString(), ArgumentMatchers.<Class<String>>any() ) ).thenReturn( Lists.newArrayList( marker ) );
+
+        assertTrue( subject.isTablePartitionComplete( params, partition ) );
+
+        AnalyticsTableUpdateParams otherParams = AnalyticsTableUpdateParams.newBuilder()
+            .withStartTime( new DateTime( 2019, 3, 2, 10, 0 ).toDate() )
+            .build();
+
+        assertFalse( subject.isTablePartitionComplete( otherParams, partition ) );
+    }
+
+    @Test
+    public void testMergeIncrementalData()
+    {
+        Date startTime = new DateTime( 2019, 3, 1, 10, 0 ).toDate();
+
+        AnalyticsTableUpdateParams params = AnalyticsTableUpdateParams.newBuilder()
+            .withStartTime( startTime )
+            .withIncrementalUpdate()
+            .build();
+
+        when( jdbcTemplate.queryForList( Mockito.anyString(), eq( Integer.class ) ) ).thenReturn( Lists.newArrayList( 2018, 2019 ) );
+        when( jdbcTemplate.queryForList( Mockito.anyString(), eq( String.class ) ) ).thenReturn( Lists.newArrayList( "dx", "value" ) );
+        when( partitionManager.tableExists( any() ) ).thenReturn( true );
+
+        subject.mergeIncrementalData( params, Lists.newArrayList( getIncrementalTable( startTime ) ) );
+
+        verify( jdbcTemplate ).execute( Mockito.startsWith( "insert into analytics_2018 " ) );
+        verify( jdbcTemplate ).execute( Mockito.startsWith( "insert into analytics_2019 " ) );
+        verify( systemSettingManager ).saveSystemSetting( SettingKey.LAST_SUCCESSFUL_INCREMENTAL_ANALYTICS_TABLE_UPDATE, startTime );
+    }
+
+    @Test
+    public void testMergeIncrementalDataMissingPartition()
+    {
+        Date startTime = new DateTime( 2019, 3, 1, 10, 0 ).toDate();
+
+        AnalyticsTableUpdateParams params = AnalyticsTableUpdateParams.newBuilder()
+            .withStartTime( startTime )
+            .withIncrementalUpdate()
+            .build();
+
+        when( jdbcTemplate.queryForList( Mockito.anyString(), eq( Integer.class ) ) ).thenReturn( Lists.newArrayList( 2018, 2019 ) );
+        when( jdbcTemplate.queryForList( Mockito.anyString(), eq( String.class ) ) ).thenReturn( Lists.newArrayList( "dx", "value" ) );
+        when( partitionManager.tableExists( "analytics_2018" ) ).thenReturn( true );
+        when( partitionManager.tableExists( "analytics_2019" ) ).thenReturn( false );
+
+        subject.mergeIncrementalData( params, Lists.newArrayList( getIncrementalTable( startTime ) ) );
+
+        verify( jdbcTemplate ).execute( Mockito.startsWith( "insert into analytics_2018 " ) );
+        verify( jdbcTemplate, never() ).execute( Mockito.startsWith( "insert into analytics_2019 " ) );
+        verify( systemSettingManager, never() ).saveSystemSetting( eq( SettingKey.LAST_SUCCESSFUL_INCREMENTAL_ANALYTICS_TABLE_UPDATE ), any() );
+    }
+
+    private AnalyticsTable getIncrementalTable( Date startTime )
+    {
+        AnalyticsTable table = new AnalyticsTable( AnalyticsTableType.DATA_VALUE,
+            Lists.newArrayList( new AnalyticsTableColumn( "dx", ColumnDataType.CHARACTER_11, "dx" ) ),
+            Lists.newArrayList( new AnalyticsTableColumn( "value", ColumnDataType.DOUBLE, "value" ) ) );
+
+        table.addPartitionTable( AnalyticsTablePartition.LATEST_PARTITION, new DateTime( 2019, 3, 1, 9, 0 ).toDate(), startTime );
+
+        return table;
+    }
 }
@@ -42,6 +42,7 @@ public abstract class AbstractAuditConsumer
     implements AuditConsumer
 {
     protected AuditService auditService;
+    protected AuditBatchWriter auditBatchWriter;
     protected ObjectMapper objectMapper;
 
     protected boolean isAuditLogEnabled;
@@ -67,7 +68,16 @@ public abstract class AbstractAuditConsumer
 
             if ( isAuditDatabaseEnabled )
             {
-                auditService.addAudit( audit );
+                if ( auditBatchWriter != null && auditBatchWriter.isEnabled() )
+                {
+                    // the message is acknowledged once queued, see AuditBatchWriter
+
+                    auditBatchWriter.add( audit );
+                }
+                else
+                {
+                    auditService.addAudit( audit );
+                }
             }
         }
         catch ( IOException e )
@@ -0,0 +1,277 @@
+package org.hisp.dhis.audit;
+
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Collects audits received by the audit consumers and writes them to the
+ * database in batches, when enabled through
+ * {@link ConfigurationKey#AUDIT_CONSUMER_BATCH_ENABLED}.
+ * <p>
+ * A batch is written when it reaches the configured size, or when the oldest
+ * audit in it has waited for the configured window. Pending audits are held
+ * in a bounded queue of ten batches. When the queue is full, consumers block
+ * until the writer catches up, so that further messages wait in the broker
+ * instead of in memory.
+ * <p>
+ * Messages are acknowledged when their audit is queued, not when it is
+ * written. Audits waiting in the queue, up to ten batches, are lost if the
+ * server stops abruptly. Audit messages are sent as non-persistent, so the
+ * broker does not keep them across a crash either.
+ *
+ * @see ConfigurationKey#AUDIT_CONSUMER_BATCH_SIZE
+ * @see ConfigurationKey#AUDIT_CONSUMER_BATCH_WINDOW
+ */
+@Slf4j
+@Component
+public class AuditBatchWriter
+{
+    private final AuditService auditService;
+
+    private final boolean enabled;
+
+    private final int batchSize;
+
+    private final long window;
+
+    private final BlockingQueue<PendingAudit> queue;
+
+    private volatile boolean running;
+
+    private Thread writer;
+
+    public AuditBatchWriter( AuditService auditService, DhisConfigurationProvider dhisConfig )
+    {
+        checkNotNull( auditService );
+        checkNotNull( dhisConfig );
+
+        this.auditService = auditService;
+        this.enabled = dhisConfig.isEnabled( ConfigurationKey.AUDIT_CONSUMER_BATCH_ENABLED );
+        this.batchSize = Math.max( 1, Integer.parseInt( dhisConfig.getProperty( ConfigurationKey.AUDIT_CONSUMER_BATCH_SIZE ) ) );
+        this.window = Math.max( 1, Long.parseLong( dhisConfig.getProperty( ConfigurationKey.AUDIT_CONSUMER_BATCH_WINDOW ) ) );
+        this.queue = new LinkedBlockingQueue<>( batchSize * 10 );
+    }
+
+    @PostConstruct
+    public void init()
+    {
+        if ( !enabled )
+        {
+            return;
+        }
+
+        running = true;
+
+        writer = new Thread( this::run, "AUDIT-BATCH-WRITER" );
+        writer.setDaemon( true );
+        writer.start();
+
+        log.info( String.format( "Audit batch writer started with batch size %d and window %d ms", batchSize, window ) );
+    }
+
+    @PreDestroy
+    public void destroy() throws InterruptedException
+    {
+        if ( writer == null )
+        {
+            return;
+        }
+
+        running = false;
+        writer.interrupt();
+        writer.join( TimeUnit.SECONDS.toMillis( 30 ) );
+
+        List<PendingAudit> remaining = new ArrayList<>();
+        queue.drainTo( remaining );
+        write( remaining );
+    }
+
+    /**
+     * Indicates whether audits are written in batches.
+     */
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Adds an audit to be written with the next batch. Blocks while the queue
+     * of pending audits is full. If the writer is not running, or the calling
+     * thread is interrupted, the audit is written directly.
+     *
+     * @param audit the audit.
+     */
+    public void add( Audit audit )
+    {
+        if ( running )
+        {
+            try
+            {
+                queue.put( new PendingAudit( audit ) );
+                return;
+            }
+            catch ( InterruptedException ex )
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        auditService.addAudit( audit );
+    }
+
+    /**
+     * Returns the number of audits waiting to be written.
+     */
+    public int getQueueSize()
+    {
+        return queue.size();
+    }
+
+    /**
+     * Returns the time in milliseconds the oldest pending audit has been
+     * waiting to be written, or 0 if there are none.
+     */
+    public long getLag()
+    {
+        PendingAudit oldest = queue.peek();
+
+        return oldest != null ? System.currentTimeMillis() - oldest.received : 0L;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void run()
+    {
+        List<PendingAudit> batch = new ArrayList<>( batchSize );
+
+        while ( running )
+        {
+            try
+            {
+                PendingAudit first = queue.poll( window, TimeUnit.MILLISECONDS );
+
+                if ( first == null )
+                {
+                    continue;
+                }
+
+                batch.add( first );
+                queue.drainTo( batch, batchSize - batch.size() );
+
+                long deadline = first.received + window;
+
+                while ( batch.size() < batchSize )
+                {
+                    long remaining = deadline - System.currentTimeMillis();
+                    PendingAudit next = remaining > 0 ? queue.poll( remaining, TimeUnit.MILLISECONDS ) : null;
+
+                    if ( next == null )
+                    {
+                        break;
+                    }
+
+                    batch.add( next );
+                    queue.drainTo( batch, batchSize - batch.size() );
+                }
+            }
+            catch ( InterruptedException ex )
+            {
+                Thread.currentThread().interrupt();
+            }
+            finally
+            {
+                write( batch );
+                batch.clear();
+            }
+        }
+    }
+
+    private void write( List<PendingAudit> batch )
+    {
+        if ( batch.isEmpty() )
+        {
+            return;
+        }
+
+        List<Audit> audits = batch.stream().map( pending -> pending.audit ).collect( Collectors.toList() );
+
+        try
+        {
+            auditService.addAudits( audits );
+        }
+        catch ( Exception ex )
+        {
+            log.error( String.format( "Writing batch of %d audits failed, writing audits one by one", audits.size() ), ex );
+
+            for ( Audit audit : audits )
+            {
+                try
+                {
+                    auditService.addAudit( audit );
+                }
+                catch ( Exception e )
+                {
+                    log.error( "An error occurred persisting an Audit message", e );
+                }
+            }
+        }
+    }
+
+    private static final class PendingAudit
+    {
+        private final Audit audit;
+
+        private final long received = System.currentTimeMillis();
+
+        PendingAudit( Audit audit )
+        {
+            this.audit = audit;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package org.hisp.dhis.audit;
+
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import javax.annotation.PostConstruct;
+
+import org.hisp.dhis.artemis.audit.AuditScheduler;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Registers gauges for the depth and lag of the audit queues.
+ */
+@Component
+public class AuditQueueMetrics
+{
+    private static final String METRIC_QUEUE = "audit.queue";
+
+    private static final String METRIC_LAG = "audit.queue.lag";
+
+    private final AuditScheduler auditScheduler;
+
+    private final AuditBatchWriter auditBatchWriter;
+
+    private final MeterRegistry meterRegistry;
+
+    public AuditQueueMetrics( AuditScheduler auditScheduler, AuditBatchWriter auditBatchWriter,
+        MeterRegistry meterRegistry )
+    {
+        checkNotNull( auditScheduler );
+        checkNotNull( auditBatchWriter );
+        checkNotNull( meterRegistry );
+
+        this.auditScheduler = auditScheduler;
+        this.auditBatchWriter = auditBatchWriter;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init()
+    {
+        Gauge.builder( METRIC_QUEUE, auditScheduler, AuditScheduler::getQueueSize )
+            .description( "Audits delayed by the audit scheduler before being published" )
+            .tag( "stage", "scheduler" )
+            .register( meterRegistry );
+
+        Gauge.builder( METRIC_QUEUE, auditBatchWriter, AuditBatchWriter::getQueueSize )
+            .description( "Consumed audits waiting to be written in a batch" )
+            .tag( "stage", "consumer" )
+            .register( meterRegistry );
+
+        Gauge.builder( METRIC_LAG, auditBatchWriter, AuditBatchWriter::getLag )
+            .description( "Milliseconds the oldest consumed audit has been waiting to be written" )
+            .tag( "stage", "consumer" )
+            .register( meterRegistry );
+    }
+}
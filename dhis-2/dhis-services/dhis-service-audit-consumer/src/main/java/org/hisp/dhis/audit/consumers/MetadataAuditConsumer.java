@@ -31,6 +31,7 @@ package org.hisp.dhis.audit.consumers;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.hisp.dhis.artemis.Topics;
 import org.hisp.dhis.audit.AbstractAuditConsumer;
+import org.hisp.dhis.audit.AuditBatchWriter;
 import org.hisp.dhis.audit.AuditService;
 import org.hisp.dhis.external.conf.ConfigurationKey;
 import org.hisp.dhis.external.conf.DhisConfigurationProvider;
@@ -50,10 +51,12 @@ public class MetadataAuditConsumer
 {
     public MetadataAuditConsumer(
         AuditService auditService,
+        AuditBatchWriter auditBatchWriter,
         ObjectMapper objectMapper,
         DhisConfigurationProvider dhisConfig )
     {
         this.auditService = auditService;
+        this.auditBatchWriter = auditBatchWriter;
         this.objectMapper = objectMapper;
 
         this.isAuditLogEnabled = dhisConfig.isEnabled( ConfigurationKey.AUDIT_LOGGER );
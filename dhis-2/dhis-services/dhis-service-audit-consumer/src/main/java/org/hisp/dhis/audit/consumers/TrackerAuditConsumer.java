@@ -31,6 +31,7 @@ package org.hisp.dhis.audit.consumers;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.hisp.dhis.artemis.Topics;
 import org.hisp.dhis.audit.AbstractAuditConsumer;
+import org.hisp.dhis.audit.AuditBatchWriter;
 import org.hisp.dhis.audit.AuditService;
 import org.hisp.dhis.external.conf.ConfigurationKey;
 import org.hisp.dhis.external.conf.DhisConfigurationProvider;
@@ -51,10 +52,12 @@ public class TrackerAuditConsumer
 {
     public TrackerAuditConsumer(
         AuditService auditService,
+        AuditBatchWriter auditBatchWriter,
         ObjectMapper objectMapper,
         DhisConfigurationProvider dhisConfig )
     {
         this.auditService = auditService;
+        this.auditBatchWriter = auditBatchWriter;
         this.objectMapper = objectMapper;
 
         // for legacy reasons we are overriding the default here and using "off" for tracking logger (we don't have a specific key for tracker logger)
@@ -37,6 +37,8 @@ import java.util.Calendar;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import org.hisp.dhis.category.CategoryOptionCombo;
 import org.hisp.dhis.category.CategoryService;
@@ -356,6 +358,13 @@ public class DefaultDataValueService
         return dataValueStore.getDeflatedDataValues( params );
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public void getDeflatedDataValues( DataExportParams params, Consumer<DeflatedDataValue> consumer )
+    {
+        dataValueStore.getDeflatedDataValues( params, consumer );
+    }
+
     @Override
     @Transactional(readOnly = true)
     public int getDataValueCount( int days )
@@ -379,4 +388,11 @@ public class DefaultDataValueService
     {
         return dataValueStore.getDataValueCountLastUpdatedBetween( startDate, endDate, includeDeleted );
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Long, Integer> getDataValueCountBySource( Collection<Period> periods )
+    {
+        return dataValueStore.getDataValueCountBySource( periods );
+    }
 }
@@ -33,6 +33,7 @@ import static org.hisp.dhis.commons.util.TextUtils.getCommaDelimitedString;
 import static org.hisp.dhis.commons.util.TextUtils.removeLastOr;
 
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -58,7 +59,6 @@ import org.hisp.dhis.period.PeriodStore;
 import org.hisp.dhis.util.DateUtils;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Repository;
 
 import com.google.common.collect.Sets;
@@ -73,6 +73,8 @@ import lombok.extern.slf4j.Slf4j;
 public class HibernateDataValueStore extends HibernateGenericStore<DataValue>
     implements DataValueStore
 {
+    private static final int FETCH_SIZE = 10000;
+
     // -------------------------------------------------------------------------
     // Dependencies
     // -------------------------------------------------------------------------
@@ -329,6 +331,18 @@ public class HibernateDataValueStore extends HibernateGenericStore<DataValue>
 
     @Override
     public List<DeflatedDataValue> getDeflatedDataValues( DataExportParams params )
+    {
+        List<DeflatedDataValue> result = new ArrayList<>();
+
+        getDeflatedDataValues( params, result::add );
+
+        log.debug( result.size() + " DeflatedDataValues returned" );
+
+        return result;
+    }
+
+    @Override
+    public void getDeflatedDataValues( DataExportParams params, Consumer<DeflatedDataValue> consumer )
     {
         SqlHelper sqlHelper = new SqlHelper( true );
 
@@ -447,33 +461,26 @@ public class HibernateDataValueStore extends HibernateGenericStore<DataValue>
 
         sql += where;
 
-        SqlRowSet rowSet = jdbcTemplate.queryForRowSet( sql );
-
-        List<DeflatedDataValue> result = new ArrayList<>();
-
-        while ( rowSet.next() )
-        {
-            Integer dataElementId = rowSet.getInt( 1 );
-            Integer periodId = rowSet.getInt( 2 );
-            Integer organisationUnitId = rowSet.getInt( 3 );
-            Integer categoryOptionComboId = rowSet.getInt( 4 );
-            Integer attributeOptionComboId = rowSet.getInt( 5 );
-            String value = rowSet.getString( 6 );
-            String storedBy = rowSet.getString( 7 );
-            Date created = rowSet.getDate( 8 );
-            Date lastUpdated = rowSet.getDate( 9 );
-            String comment = rowSet.getString( 10 );
-            boolean followup = rowSet.getBoolean( 11 );
-            boolean deleted = rowSet.getBoolean( 12 );
-
-            result.add( new DeflatedDataValue( dataElementId, periodId,
+        log.debug( "DeflatedDataValues SQL: " + sql );
+
+        jdbcTemplate.query( sql, ps -> ps.setFetchSize( FETCH_SIZE ), rs -> {
+            Integer dataElementId = rs.getInt( 1 );
+            Integer periodId = rs.getInt( 2 );
+            Integer organisationUnitId = rs.getInt( 3 );
+            Integer categoryOptionComboId = rs.getInt( 4 );
+            Integer attributeOptionComboId = rs.getInt( 5 );
+            String value = rs.getString( 6 );
+            String storedBy = rs.getString( 7 );
+            Date created = rs.getDate( 8 );
+            Date lastUpdated = rs.getDate( 9 );
+            String comment = rs.getString( 10 );
+            boolean followup = rs.getBoolean( 11 );
+            boolean deleted = rs.getBoolean( 12 );
+
+            consumer.accept( new DeflatedDataValue( dataElementId, periodId,
                 organisationUnitId, categoryOptionComboId, attributeOptionComboId,
                 value, storedBy, created, lastUpdated, comment, followup, deleted ) );
-        }
-
-        log.debug( result.size() + " DeflatedDataValues returned from: " + sql );
-
-        return result;
+        } );
     }
 
     @Override
@@ -509,6 +516,35 @@ public class HibernateDataValueStore extends HibernateGenericStore<DataValue>
             .intValue();
     }
 
+    @Override
+    public Map<Long, Integer> getDataValueCountBySource( Collection<Period> periods )
+    {
+        Map<Long, Integer> countMap = new HashMap<>();
+
+        List<Long> periodIds = periods.stream()
+            .map( periodStore::reloadPeriod )
+            .filter( Objects::nonNull )
+            .map( Period::getId )
+            .collect( Collectors.toList() );
+
+        if ( periodIds.isEmpty() )
+        {
+            return countMap;
+        }
+
+        final String sql =
+            "select dv.sourceid, count(*) from datavalue dv " +
+            "where dv.periodid in (" + getCommaDelimitedString( periodIds ) + ") " +
+            "and dv.deleted is false " +
+            "group by dv.sourceid";
+
+        jdbcTemplate.query( sql, rs -> {
+            countMap.put( rs.getLong( 1 ), rs.getInt( 2 ) );
+        } );
+
+        return countMap;
+    }
+
     // -------------------------------------------------------------------------
     // Supportive methods
     // -------------------------------------------------------------------------
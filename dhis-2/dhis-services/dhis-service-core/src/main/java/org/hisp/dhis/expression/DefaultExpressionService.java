@@ -31,7 +31,6 @@ package org.hisp.dhis.expression;
 import com.google.common.collect.ImmutableMap;
 import lombok.extern.slf4j.Slf4j;
 import org.hisp.dhis.analytics.DataType;
-import org.hisp.dhis.antlr.Parser;
 import org.hisp.dhis.antlr.ParserException;
 import org.hisp.dhis.category.CategoryService;
 import org.hisp.dhis.common.DimensionService;
@@ -56,6 +55,7 @@ import org.hisp.dhis.indicator.Indicator;
 import org.hisp.dhis.indicator.IndicatorValue;
 import org.hisp.dhis.organisationunit.OrganisationUnitGroup;
 import org.hisp.dhis.organisationunit.OrganisationUnitGroupService;
+import org.hisp.dhis.parser.expression.CachingParser;
 import org.hisp.dhis.parser.expression.CommonExpressionVisitor;
 import org.hisp.dhis.parser.expression.ExpressionItem;
 import org.hisp.dhis.parser.expression.ExpressionItemMethod;
@@ -525,11 +525,62 @@ public class DefaultExpressionService
             return null;
         }
 
+        return getExpressionValueInternal( expression, parseType, convertToIdentifierMap( valueMap ),
+            constantMap, orgUnitCountMap, days, missingValueStrategy, samplePeriods,
+            convertToIdentifierPeriodMap( periodValueMap ) );
+    }
+
+    @Override
+    public Double getExpressionValueForItemIds( String expression, ParseType parseType,
+        Map<String, Double> itemValueMap, Map<String, Constant> constantMap,
+        Map<String, Integer> orgUnitCountMap, Integer days,
+        MissingValueStrategy missingValueStrategy )
+    {
+        if ( isEmpty( expression ) )
+        {
+            return null;
+        }
+
+        return castDouble( getExpressionValueInternal( expression, parseType, itemValueMap,
+            constantMap, orgUnitCountMap, days, missingValueStrategy, DEFAULT_SAMPLE_PERIODS,
+            new MapMap<>() ) );
+    }
+
+    @Override
+    public Object getExpressionValueForItemIds( String expression, ParseType parseType,
+        Map<String, Double> itemValueMap, Map<String, Constant> constantMap,
+        Map<String, Integer> orgUnitCountMap, Integer days,
+        MissingValueStrategy missingValueStrategy,
+        List<Period> samplePeriods, MapMap<Period, String, Double> periodItemValueMap )
+    {
+        if ( isEmpty( expression ) )
+        {
+            return null;
+        }
+
+        return getExpressionValueInternal( expression, parseType, itemValueMap,
+            constantMap, orgUnitCountMap, days, missingValueStrategy, samplePeriods,
+            periodItemValueMap );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Evaluates an expression with values given by item identifier.
+     */
+    private Object getExpressionValueInternal( String expression, ParseType parseType,
+        Map<String, Double> itemValueMap, Map<String, Constant> constantMap,
+        Map<String, Integer> orgUnitCountMap, Integer days,
+        MissingValueStrategy missingValueStrategy,
+        List<Period> samplePeriods, MapMap<Period, String, Double> periodItemValueMap )
+    {
         CommonExpressionVisitor visitor = newVisitor( parseType, ITEM_EVALUATE,
             samplePeriods, constantMap, missingValueStrategy );
 
-        visitor.setItemValueMap( convertToIdentifierMap( valueMap ) );
-        visitor.setPeriodItemValueMap( convertToIdentifierPeriodMap( periodValueMap ) );
+        visitor.setItemValueMap( itemValueMap );
+        visitor.setPeriodItemValueMap( periodItemValueMap );
         visitor.setOrgUnitCountMap( orgUnitCountMap );
 
         if ( days != null )
@@ -576,10 +627,6 @@ public class DefaultExpressionService
         return value;
     }
 
-    // -------------------------------------------------------------------------
-    // Supportive methods
-    // -------------------------------------------------------------------------
-
     /**
      * Creates a new ExpressionItemsVisitor object.
      */
@@ -638,7 +685,7 @@ public class DefaultExpressionService
     {
         try
         {
-            Object result = Parser.visit( expression, visitor );
+            Object result = CachingParser.visit( expression, visitor );
 
             switch( dataType )
             {
@@ -38,6 +38,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -127,6 +128,13 @@ public class DefaultOrganisationUnitGroupService
         return organisationUnitGroupStore.getOrganisationUnitGroupsWithGroupSets();
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, List<String>> getOrganisationUnitGroupMemberUids( Collection<String> groupUids )
+    {
+        return organisationUnitGroupStore.getMemberUids( groupUids );
+    }
+
     // -------------------------------------------------------------------------
     // OrganisationUnitGroupSet
     // -------------------------------------------------------------------------
@@ -29,18 +29,19 @@ package org.hisp.dhis.organisationunit;
  */
 
 import static com.google.common.base.Preconditions.checkNotNull;
-import static org.hisp.dhis.commons.util.TextUtils.joinHyphen;
 
 import java.awt.geom.Point2D;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
-import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 import org.apache.commons.lang3.ObjectUtils;
-import org.hisp.dhis.cache.Cache;
-import org.hisp.dhis.cache.CacheProvider;
 import org.hisp.dhis.common.SortProperty;
 import org.hisp.dhis.commons.collection.ListUtils;
 import org.hisp.dhis.commons.filter.FilterUtils;
@@ -63,10 +64,14 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import lombok.extern.slf4j.Slf4j;
 
 /**
  * @author Torgeir Lorange Ostby
  */
+@Slf4j
 @Service( "org.hisp.dhis.organisationunit.OrganisationUnitService" )
 public class DefaultOrganisationUnitService
     implements
@@ -74,9 +79,33 @@ public class DefaultOrganisationUnitService
 {
     private static final String LEVEL_PREFIX = "Level ";
 
-    private static Cache<Boolean> IN_USER_ORG_UNIT_HIERARCHY_CACHE;
+    /**
+     * Maximum age of the hierarchy index. Changes to the hierarchy made in
+     * this instance invalidate the index immediately, the maximum age bounds
+     * the staleness of the index with respect to changes made by other
+     * instances of a cluster. This is why only the cached hierarchy checks,
+     * which tolerate stale results, are answered from the index.
+     */
+    private static final long HIERARCHY_INDEX_MAX_AGE = TimeUnit.HOURS.toMillis( 1 );
+
+    private volatile OrganisationUnitHierarchyIndex hierarchyIndex;
+
+    private volatile long hierarchyIndexCreated;
 
-    private static Cache<Boolean> IN_USER_ORG_UNIT_SEARCH_HIERARCHY_CACHE;
+    /**
+     * Incremented when the hierarchy changes, so that an index built
+     * concurrently with a change is not retained.
+     */
+    private final AtomicLong hierarchyVersion = new AtomicLong();
+
+    private final AtomicBoolean hierarchyIndexBuildPending = new AtomicBoolean();
+
+    /**
+     * Builds the hierarchy index in the background, so that no request waits
+     * for the hierarchy to be loaded.
+     */
+    private final ExecutorService hierarchyIndexExecutor = Executors.newSingleThreadExecutor(
+        new ThreadFactoryBuilder().setNameFormat( "ORG-UNIT-HIERARCHY-INDEX-%d" ).setDaemon( true ).build() );
 
     // -------------------------------------------------------------------------
     // Dependencies
@@ -96,12 +125,10 @@ public class DefaultOrganisationUnitService
 
     private final UserSettingService userSettingService;
 
-    private final CacheProvider cacheProvider;
-
     public DefaultOrganisationUnitService( Environment env, OrganisationUnitStore organisationUnitStore,
         DataSetService dataSetService, OrganisationUnitLevelStore organisationUnitLevelStore,
         CurrentUserService currentUserService, ConfigurationService configurationService,
-        UserSettingService userSettingService, CacheProvider cacheProvider )
+        UserSettingService userSettingService )
     {
         checkNotNull( env );
         checkNotNull( organisationUnitStore );
@@ -118,7 +145,12 @@ public class DefaultOrganisationUnitService
         this.currentUserService = currentUserService;
         this.configurationService = configurationService;
         this.userSettingService = userSettingService;
-        this.cacheProvider = cacheProvider;
+    }
+
+    @PreDestroy
+    public void destroy()
+    {
+        hierarchyIndexExecutor.shutdownNow();
     }
 
     /**
@@ -130,18 +162,6 @@ public class DefaultOrganisationUnitService
         this.currentUserService = currentUserService;
     }
 
-    @PostConstruct
-    public void init()
-    {
-        IN_USER_ORG_UNIT_HIERARCHY_CACHE = cacheProvider.newCacheBuilder( Boolean.class )
-            .forRegion( "inUserOuHierarchy" ).expireAfterWrite( 3, TimeUnit.HOURS ).withInitialCapacity( 1000 )
-            .forceInMemory().withMaximumSize( SystemUtils.isTestRun( env.getActiveProfiles() ) ? 0 : 20000 ).build();
-
-        IN_USER_ORG_UNIT_SEARCH_HIERARCHY_CACHE = cacheProvider.newCacheBuilder( Boolean.class )
-            .forRegion( "inUserSearchOuHierarchy" ).expireAfterWrite( 3, TimeUnit.HOURS ).withInitialCapacity( 1000 )
-            .forceInMemory().withMaximumSize( SystemUtils.isTestRun( env.getActiveProfiles() ) ? 0 : 20000 ).build();
-    }
-
     // -------------------------------------------------------------------------
     // OrganisationUnit
     // -------------------------------------------------------------------------
@@ -466,10 +486,12 @@ public class DefaultOrganisationUnitService
     @Transactional( readOnly = true )
     public boolean isInUserHierarchyCached( User user, OrganisationUnit organisationUnit )
     {
-        String cacheKey = joinHyphen( user.getUsername(), organisationUnit.getUid() );
+        if ( user == null || user.getOrganisationUnits() == null || user.getOrganisationUnits().isEmpty() )
+        {
+            return false;
+        }
 
-        return IN_USER_ORG_UNIT_HIERARCHY_CACHE.get( cacheKey, ou -> isInUserHierarchy( user, organisationUnit ) )
-            .orElse( false );
+        return isDescendant( organisationUnit, user.getOrganisationUnits() );
     }
 
     @Override
@@ -502,10 +524,13 @@ public class DefaultOrganisationUnitService
     @Transactional( readOnly = true )
     public boolean isInUserSearchHierarchyCached( User user, OrganisationUnit organisationUnit )
     {
-        String cacheKey = joinHyphen( user.getUsername(), organisationUnit.getUid() );
+        if ( user == null || user.getTeiSearchOrganisationUnitsWithFallback() == null
+            || user.getTeiSearchOrganisationUnitsWithFallback().isEmpty() )
+        {
+            return false;
+        }
 
-        return IN_USER_ORG_UNIT_SEARCH_HIERARCHY_CACHE
-            .get( cacheKey, ou -> isInUserSearchHierarchy( user, organisationUnit ) ).orElse( false );
+        return isDescendant( organisationUnit, user.getTeiSearchOrganisationUnitsWithFallback() );
     }
 
     @Override
@@ -530,6 +555,29 @@ public class DefaultOrganisationUnitService
         return organisationUnit != null && organisationUnit.isDescendant( organisationUnits );
     }
 
+    @Override
+    @Transactional( readOnly = true )
+    public boolean isDescendant( OrganisationUnit organisationUnit, Set<OrganisationUnit> ancestors )
+    {
+        if ( ancestors == null || ancestors.isEmpty() )
+        {
+            return false;
+        }
+
+        OrganisationUnitHierarchyIndex index = getOrganisationUnitHierarchyIndex();
+
+        // Fall back to the parent graph while the index is being built, and for units created
+        // after the index was built
+
+        if ( index != null && index.contains( organisationUnit.getId() )
+            && ancestors.stream().allMatch( ancestor -> index.contains( ancestor.getId() ) ) )
+        {
+            return index.isDescendant( organisationUnit.getId(), ancestors );
+        }
+
+        return organisationUnit.isDescendant( ancestors );
+    }
+
     // -------------------------------------------------------------------------
     // OrganisationUnitHierarchy
     // -------------------------------------------------------------------------
@@ -546,6 +594,66 @@ public class DefaultOrganisationUnitService
     public void updateOrganisationUnitParent( long organisationUnitId, long parentId )
     {
         organisationUnitStore.updateOrganisationUnitParent( organisationUnitId, parentId );
+
+        invalidateOrganisationUnitHierarchyIndex();
+    }
+
+    @Override
+    public OrganisationUnitHierarchyIndex getOrganisationUnitHierarchyIndex()
+    {
+        if ( SystemUtils.isTestRun( env.getActiveProfiles() ) )
+        {
+            return null;
+        }
+
+        OrganisationUnitHierarchyIndex index = hierarchyIndex;
+
+        if ( index == null || System.currentTimeMillis() - hierarchyIndexCreated > HIERARCHY_INDEX_MAX_AGE )
+        {
+            if ( hierarchyIndexBuildPending.compareAndSet( false, true ) )
+            {
+                hierarchyIndexExecutor.execute( this::buildOrganisationUnitHierarchyIndex );
+            }
+
+            return null;
+        }
+
+        return index;
+    }
+
+    @Override
+    public void invalidateOrganisationUnitHierarchyIndex()
+    {
+        hierarchyVersion.incrementAndGet();
+        hierarchyIndex = null;
+    }
+
+    private void buildOrganisationUnitHierarchyIndex()
+    {
+        try
+        {
+            long version = hierarchyVersion.get();
+
+            OrganisationUnitHierarchyIndex index = organisationUnitStore.getOrganisationUnitHierarchyIndex();
+
+            // Discard the index if the hierarchy changed while it was built
+
+            if ( version == hierarchyVersion.get() )
+            {
+                hierarchyIndexCreated = System.currentTimeMillis();
+                hierarchyIndex = index;
+
+                log.info( "Built organisation unit hierarchy index: " + index );
+            }
+        }
+        catch ( RuntimeException ex )
+        {
+            log.error( "Failed to build organisation unit hierarchy index", ex );
+        }
+        finally
+        {
+            hierarchyIndexBuildPending.set( false );
+        }
     }
 
     // -------------------------------------------------------------------------
@@ -28,9 +28,17 @@
 
 package org.hisp.dhis.organisationunit.hibernate;
 
+import static org.hisp.dhis.commons.util.TextUtils.getQuotedCommaDelimitedString;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import org.hibernate.SessionFactory;
+import org.hisp.dhis.common.CodeGenerator;
 import org.hisp.dhis.common.hibernate.HibernateIdentifiableObjectStore;
 import org.hisp.dhis.organisationunit.OrganisationUnitGroup;
 import org.hisp.dhis.organisationunit.OrganisationUnitGroupStore;
@@ -59,4 +67,31 @@ public class HibernateOrganisationUnitGroupStore
     {
         return getQuery( "from OrganisationUnitGroup o where o.groupSet is not null" ).list();
     }
+
+    @Override
+    public Map<String, List<String>> getMemberUids( Collection<String> groupUids )
+    {
+        Map<String, List<String>> members = new HashMap<>();
+
+        List<String> uids = groupUids.stream().filter( CodeGenerator::isValidUid ).collect( Collectors.toList() );
+
+        if ( uids.isEmpty() )
+        {
+            return members;
+        }
+
+        final String sql =
+            "select oug.uid as groupuid, ou.uid as orgunituid " +
+            "from orgunitgroupmembers ougm " +
+            "inner join orgunitgroup oug on ougm.orgunitgroupid = oug.orgunitgroupid " +
+            "inner join organisationunit ou on ougm.organisationunitid = ou.organisationunitid " +
+            "where oug.uid in (" + getQuotedCommaDelimitedString( uids ) + ")";
+
+        jdbcTemplate.query( sql, rs -> {
+            members.computeIfAbsent( rs.getString( "groupuid" ), k -> new ArrayList<>() )
+                .add( rs.getString( "orgunituid" ) );
+        } );
+
+        return members;
+    }
 }
@@ -51,6 +51,7 @@ import org.hisp.dhis.dataset.DataSet;
 import org.hisp.dhis.dbms.DbmsManager;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.organisationunit.OrganisationUnitHierarchy;
+import org.hisp.dhis.organisationunit.OrganisationUnitHierarchyIndex;
 import org.hisp.dhis.organisationunit.OrganisationUnitQueryParams;
 import org.hisp.dhis.organisationunit.OrganisationUnitStore;
 import org.hisp.dhis.security.acl.AclService;
@@ -298,6 +299,25 @@ public class HibernateOrganisationUnitStore
         return new OrganisationUnitHierarchy( jdbcTemplate.query( sql, new OrganisationUnitRelationshipRowMapper() ) );
     }
 
+    @Override
+    public OrganisationUnitHierarchyIndex getOrganisationUnitHierarchyIndex()
+    {
+        final String sql = "select organisationunitid, parentid from organisationunit";
+
+        List<long[]> rows = jdbcTemplate.query( sql, ( rs, rowNum ) -> new long[] { rs.getLong( 1 ), rs.getLong( 2 ) } );
+
+        long[] ids = new long[rows.size()];
+        long[] parentIds = new long[rows.size()];
+
+        for ( int i = 0; i < rows.size(); i++ )
+        {
+            ids[i] = rows.get( i )[0];
+            parentIds[i] = rows.get( i )[1];
+        }
+
+        return new OrganisationUnitHierarchyIndex( ids, parentIds );
+    }
+
     @Override
     public void updateOrganisationUnitParent( long organisationUnitId, long parentId )
     {
@@ -171,8 +171,8 @@ public class DefaultPatchService implements PatchService
     @SuppressWarnings( "unchecked" )
     private List<Mutation> calculateMutation( String path, Property property, Object source, Object target )
     {
-        Object sourceValue = ReflectionUtils.invokeMethod( source, property.getGetterMethod() );
-        Object targetValue = ReflectionUtils.invokeMethod( target, property.getGetterMethod() );
+        Object sourceValue = ReflectionUtils.getPropertyValue( source, property );
+        Object targetValue = ReflectionUtils.getPropertyValue( target, property );
         List<Mutation> mutations = new ArrayList<>();
 
         if ( sourceValue == null && targetValue == null )
@@ -368,7 +368,7 @@ public class DefaultPatchService implements PatchService
 
             if ( i < (paths.length - 1) )
             {
-                currentTarget = ReflectionUtils.invokeMethod( currentTarget, currentProperty.getGetterMethod() );
+                currentTarget = ReflectionUtils.getPropertyValue( currentTarget, currentProperty );
             }
         }
 
@@ -385,7 +385,7 @@ public class DefaultPatchService implements PatchService
 
         if ( property.isCollection() )
         {
-            Collection<Object> collection = ReflectionUtils.invokeMethod( target, property.getGetterMethod() );
+            Collection<Object> collection = ReflectionUtils.getPropertyValue( target, property );
             Collection<Object> sourceCollection = Collection.class.isInstance( value ) ? (Collection<Object>) value : Lists.newArrayList( value );
 
             if ( collection == null )
@@ -441,7 +441,7 @@ public class DefaultPatchService implements PatchService
                 }
             }
 
-            ReflectionUtils.invokeMethod( target, property.getSetterMethod(), collection );
+            ReflectionUtils.setPropertyValue( target, property, collection );
         }
         else if ( property.isIdentifiableObject() && !property.isEmbeddedObject() )
         {
@@ -470,7 +470,7 @@ public class DefaultPatchService implements PatchService
                 return;
             }
 
-            ReflectionUtils.invokeMethod( target, property.getSetterMethod(), value );
+            ReflectionUtils.setPropertyValue( target, property, value );
         }
         else
         {
@@ -482,7 +482,7 @@ public class DefaultPatchService implements PatchService
                 return;
             }
 
-            ReflectionUtils.invokeMethod( target, property.getSetterMethod(), value );
+            ReflectionUtils.setPropertyValue( target, property, value );
         }
     }
 
@@ -544,7 +544,7 @@ public class DefaultPreheatService implements PreheatService
                         if ( !uidMap.containsKey( itemKlass ) ) uidMap.put( itemKlass, new HashSet<>() );
                         if ( !codeMap.containsKey( itemKlass ) ) codeMap.put( itemKlass, new HashSet<>() );
 
-                        Object reference = ReflectionUtils.invokeMethod( object, p.getGetterMethod() );
+                        Object reference = ReflectionUtils.getPropertyValue( object, p );
 
                         if ( reference != null )
                         {
@@ -554,7 +554,7 @@ public class DefaultPreheatService implements PreheatService
                     }
                     else
                     {
-                        Collection<IdentifiableObject> reference = ReflectionUtils.invokeMethod( object, p.getGetterMethod() );
+                        Collection<IdentifiableObject> reference = ReflectionUtils.getPropertyValue( object, p );
                         reference.forEach( identifiableObject -> addIdentifiers( map, identifiableObject ) );
 
                         if ( DataElementOperand.class.isAssignableFrom( p.getItemKlass() ) )
@@ -727,7 +727,7 @@ public class DefaultPreheatService implements PreheatService
                 {
                     if ( !p.isCollection() )
                     {
-                        IdentifiableObject reference = ReflectionUtils.invokeMethod( object, p.getGetterMethod() );
+                        IdentifiableObject reference = ReflectionUtils.getPropertyValue( object, p );
 
                         if ( reference != null )
                         {
@@ -745,7 +745,7 @@ public class DefaultPreheatService implements PreheatService
                     else
                     {
                         Collection<IdentifiableObject> refObjects = ReflectionUtils.newCollectionInstance( p.getKlass() );
-                        Collection<IdentifiableObject> references = ReflectionUtils.invokeMethod( object, p.getGetterMethod() );
+                        Collection<IdentifiableObject> references = ReflectionUtils.getPropertyValue( object, p );
 
                         if ( references != null )
                         {
@@ -815,7 +815,7 @@ public class DefaultPreheatService implements PreheatService
                         list.addAll( targets.get( property.getItemKlass() ) );
                     }
 
-                    objects.forEach( o -> list.addAll( ReflectionUtils.invokeMethod( o, property.getGetterMethod() ) ) );
+                    objects.forEach( o -> list.addAll( ReflectionUtils.getPropertyValue( o, property ) ) );
                     targets.put( property.getItemKlass(), list );
                 }
                 else
@@ -827,7 +827,7 @@ public class DefaultPreheatService implements PreheatService
                         list.addAll( targets.get( property.getKlass() ) );
                     }
 
-                    objects.forEach( o -> list.add( ReflectionUtils.invokeMethod( o, property.getGetterMethod() ) ) );
+                    objects.forEach( o -> list.add( ReflectionUtils.getPropertyValue( o, property ) ) );
                     targets.put( property.getKlass(), list );
                 }
             }
@@ -878,24 +878,24 @@ public class DefaultPreheatService implements PreheatService
 
             if ( !property.isCollection() )
             {
-                IdentifiableObject refObject = ReflectionUtils.invokeMethod( object, property.getGetterMethod() );
+                IdentifiableObject refObject = ReflectionUtils.getPropertyValue( object, property );
                 IdentifiableObject ref = getPersistedObject( preheat, identifier, refObject );
 
                 ref = connectDefaults( preheat, property, object, refObject, ref );
 
                 if ( ref != null && ref.getId() == 0 )
                 {
-                    ReflectionUtils.invokeMethod( object, property.getSetterMethod(), (Object) null );
+                    ReflectionUtils.setPropertyValue( object, property, null );
                 }
                 else
                 {
-                    ReflectionUtils.invokeMethod( object, property.getSetterMethod(), ref );
+                    ReflectionUtils.setPropertyValue( object, property, ref );
                 }
             }
             else
             {
                 Collection<IdentifiableObject> objects = ReflectionUtils.newCollectionInstance( property.getKlass() );
-                Collection<IdentifiableObject> refObjects = ReflectionUtils.invokeMethod( object, property.getGetterMethod() );
+                Collection<IdentifiableObject> refObjects = ReflectionUtils.getPropertyValue( object, property );
 
                 for ( IdentifiableObject refObject : refObjects )
                 {
@@ -903,7 +903,7 @@ public class DefaultPreheatService implements PreheatService
                     if ( ref != null && ref.getId() != 0 ) objects.add( ref );
                 }
 
-                ReflectionUtils.invokeMethod( object, property.getSetterMethod(), objects );
+                ReflectionUtils.setPropertyValue( object, property, objects );
             }
         }
     }
@@ -982,7 +982,7 @@ public class DefaultPreheatService implements PreheatService
             uniqueProperties.forEach( property ->
             {
                 if ( !map.containsKey( property.getName() ) ) map.put( property.getName(), new HashMap<>() );
-                Object value = ReflectionUtils.invokeMethod( object, property.getGetterMethod() );
+                Object value = ReflectionUtils.getPropertyValue( object, property );
                 if ( value != null ) map.get( property.getName() ).put( value, identifier.getIdentifier( object ) );
             } );
         }
@@ -30,7 +30,6 @@ package org.hisp.dhis.program;
 
 import com.google.common.collect.ImmutableMap;
 import org.apache.commons.lang.StringUtils;
-import org.hisp.dhis.antlr.Parser;
 import org.hisp.dhis.antlr.ParserException;
 import org.hisp.dhis.cache.Cache;
 import org.hisp.dhis.cache.SimpleCacheBuilder;
@@ -40,6 +39,7 @@ import org.hisp.dhis.constant.ConstantService;
 import org.hisp.dhis.dataelement.DataElementService;
 import org.hisp.dhis.i18n.I18nManager;
 import org.hisp.dhis.jdbc.StatementBuilder;
+import org.hisp.dhis.parser.expression.CachingParser;
 import org.hisp.dhis.parser.expression.CommonExpressionVisitor;
 import org.hisp.dhis.parser.expression.ExpressionItem;
 import org.hisp.dhis.parser.expression.ExpressionItemMethod;
@@ -295,7 +295,7 @@ public class DefaultProgramIndicatorService
     {
         CommonExpressionVisitor visitor = newVisitor( ITEM_GET_DESCRIPTIONS );
 
-        castClass( clazz, Parser.visit( expression, visitor ) );
+        castClass( clazz, CachingParser.visit( expression, visitor ) );
 
         itemDescriptions.putAll( visitor.getItemDescriptions() );
     }
@@ -348,7 +348,7 @@ public class DefaultProgramIndicatorService
         visitor.setReportingEndDate( endDate );
         visitor.setDataElementAndAttributeIdentifiers( uids );
 
-        String sql =  castString( Parser.visit( expression, visitor ) );
+        String sql =  castString( CachingParser.visit( expression, visitor ) );
         return (tableAlias != null ? sql.replaceAll( ANALYTICS_TBL_ALIAS + "\\.", tableAlias + "\\." ) : sql);
     }
 
@@ -492,7 +492,7 @@ public class DefaultProgramIndicatorService
 
         ProgramElementsAndAttributesCollecter listener = new ProgramElementsAndAttributesCollecter( items, analyticsType );
 
-        Parser.listen( expression, listener );
+        CachingParser.listen( expression, listener );
 
         return items;
     }
@@ -33,6 +33,7 @@ import org.hisp.dhis.common.BaseIdentifiableObject;
 import org.hisp.dhis.common.IdentifiableObject;
 import org.hisp.dhis.common.PagerUtils;
 import org.hisp.dhis.hibernate.HibernateUtils;
+import org.hisp.dhis.query.operators.Operator;
 import org.hisp.dhis.schema.Property;
 import org.hisp.dhis.schema.Schema;
 import org.hisp.dhis.schema.SchemaService;
@@ -44,8 +45,12 @@ import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -72,6 +77,7 @@ public class InMemoryQueryEngine<T extends IdentifiableObject>
         this.currentUserService = currentUserService;
     }
 
+
     @Override
     public List<T> query( Query query )
     {
@@ -112,195 +118,288 @@ public class InMemoryQueryEngine<T extends IdentifiableObject>
     @SuppressWarnings( "unchecked" )
     private List<T> runQuery( Query query )
     {
+        if ( query.getObjects().isEmpty() )
+        {
+            return new ArrayList<>();
+        }
+
+        Predicate<Object> predicate = compile( query );
+
         return query.getObjects().stream()
-            .filter( object -> test( query, (T) object ) )
+            .filter( predicate )
             .map( object -> (T) object )
             .collect( Collectors.toList() );
     }
 
+    /**
+     * Sorts the objects by the orders of the query. The values to order by
+     * are read once per object. When the query is paged, only the objects up
+     * to the end of the requested page are kept and sorted.
+     */
     private List<T> runSorter( Query query, List<T> objects )
     {
-        List<T> sorted = new ArrayList<>( objects );
+        List<Order> orders = query.getOrders();
+
+        if ( orders.isEmpty() || objects.size() < 2 )
+        {
+            return objects;
+        }
+
+        Object[][] values = new Object[objects.size()][orders.size()];
+
+        for ( int i = 0; i < objects.size(); i++ )
+        {
+            for ( int j = 0; j < orders.size(); j++ )
+            {
+                values[i][j] = orders.get( j ).getValue( objects.get( i ) );
+            }
+        }
 
-        sorted.sort( ( o1, o2 ) ->
+        Comparator<Integer> comparator = ( i1, i2 ) ->
         {
-            for ( Order order : query.getOrders() )
+            for ( int j = 0; j < orders.size(); j++ )
             {
-                int result = order.compare( o1, o2 );
+                int result = orders.get( j ).compareValues( values[i1][j], values[i2][j] );
                 if ( result != 0 ) return result;
             }
 
-            return 0;
-        } );
+            return Integer.compare( i1, i2 );
+        };
+
+        long limit = (long) query.getFirstResult() + query.getMaxResults();
+        List<Integer> indexes;
+
+        if ( query.getMaxResults() > 0 && limit < objects.size() )
+        {
+            PriorityQueue<Integer> top = new PriorityQueue<>( (int) limit + 1, comparator.reversed() );
+
+            for ( int i = 0; i < objects.size(); i++ )
+            {
+                top.add( i );
+
+                if ( top.size() > limit )
+                {
+                    top.poll();
+                }
+            }
+
+            indexes = new ArrayList<>( top );
+        }
+        else
+        {
+            indexes = IntStream.range( 0, objects.size() ).boxed().collect( Collectors.toList() );
+        }
 
-        return sorted;
+        indexes.sort( comparator );
+
+        return indexes.stream().map( objects::get ).collect( Collectors.toList() );
     }
 
-    private boolean test( Query query, T object )
+    // -------------------------------------------------------------------------
+    // Compiled criteria
+    // -------------------------------------------------------------------------
+
+    /**
+     * Compiles the criteria of the query into a predicate. Restriction paths
+     * are resolved against the schema once, instead of once per object.
+     */
+    private Predicate<Object> compile( Query query )
     {
-        List<Boolean> testResults = new ArrayList<>();
+        List<Predicate<Object>> predicates = new ArrayList<>();
 
         for ( Criterion criterion : query.getCriterions() )
         {
-            Boolean testResult = false;
-
             // normal Restriction, just assume Conjunction
             if ( Restriction.class.isInstance( criterion ) )
             {
-                Restriction restriction = (Restriction) criterion;
-                testResult = testAnd( query, object, Lists.newArrayList( restriction ) );
+                predicates.add( compileAnd( query, Lists.newArrayList( criterion ) ) );
             }
             else if ( Conjunction.class.isInstance( criterion ) )
             {
-                Conjunction conjunction = (Conjunction) criterion;
-                testResult = testAnd( query, object, conjunction.getCriterions() );
+                predicates.add( compileAnd( query, ((Conjunction) criterion).getCriterions() ) );
             }
             else if ( Disjunction.class.isInstance( criterion ) )
             {
-                Disjunction disjunction = (Disjunction) criterion;
-                testResult = testOr( query, object, disjunction.getCriterions() );
+                predicates.add( compileOr( query, ((Disjunction) criterion).getCriterions() ) );
+            }
+            else
+            {
+                predicates.add( object -> false );
             }
-
-            testResults.add( testResult );
         }
 
         if ( query.getRootJunctionType() == Junction.Type.OR )
         {
-            return testResults.contains( Boolean.TRUE );
+            return object -> predicates.stream().anyMatch( predicate -> predicate.test( object ) );
         }
 
-        return !testResults.contains( Boolean.FALSE );
+        return object -> predicates.stream().allMatch( predicate -> predicate.test( object ) );
     }
 
-    private boolean testAnd( Query query, T object, List<Criterion> criterions )
+    private Predicate<Object> compileAnd( Query query, List<Criterion> criterions )
     {
-        for ( Criterion criterion : criterions )
-        {
-            if ( Restriction.class.isInstance( criterion ) )
+        List<CompiledRestriction> restrictions = compileRestrictions( query, criterions );
+
+        return object -> {
+            for ( CompiledRestriction restriction : restrictions )
             {
-                Restriction restriction = (Restriction) criterion;
-                Object value = getValue( query, object, restriction.getPath() );
+                Object value = restriction.getValue( object );
 
                 if ( !Collection.class.isInstance( value ) )
                 {
-                    if ( !restriction.getOperator().test( value ) )
+                    if ( !restriction.operator.test( value ) )
                     {
                         return false;
                     }
                 }
                 else
                 {
-                    Collection<?> collection = (Collection<?>) value;
-
-                    for ( Object item : collection )
-                    {
-                        if ( restriction.getOperator().test( item ) )
-                        {
-                            return true;
-                        }
-                    }
-
-                    return false;
+                    return restriction.testAny( (Collection<?>) value );
                 }
             }
-        }
 
-        return true;
+            return true;
+        };
     }
 
-    private boolean testOr( Query query, T object, List<Criterion> criterions )
+    private Predicate<Object> compileOr( Query query, List<Criterion> criterions )
     {
-        for ( Criterion criterion : criterions )
-        {
-            if ( Restriction.class.isInstance( criterion ) )
+        List<CompiledRestriction> restrictions = compileRestrictions( query, criterions );
+
+        return object -> {
+            for ( CompiledRestriction restriction : restrictions )
             {
-                Restriction restriction = (Restriction) criterion;
-                Object value = getValue( query, object, restriction.getPath() );
+                Object value = restriction.getValue( object );
 
                 if ( !Collection.class.isInstance( value ) )
                 {
-                    if ( restriction.getOperator().test( value ) )
+                    if ( restriction.operator.test( value ) )
                     {
                         return true;
                     }
                 }
-                else
+                else if ( restriction.testAny( (Collection<?>) value ) )
                 {
-                    Collection<?> collection = (Collection<?>) value;
-
-                    for ( Object item : collection )
-                    {
-                        if ( restriction.getOperator().test( item ) )
-                        {
-                            return true;
-                        }
-                    }
+                    return true;
                 }
             }
-        }
 
-        return false;
+            return false;
+        };
     }
 
-    @SuppressWarnings( "unchecked" )
-    private Object getValue( Query query, Object object, String path )
+    private List<CompiledRestriction> compileRestrictions( Query query, List<Criterion> criterions )
     {
-        String[] paths = path.split( "\\." );
-        Schema currentSchema = query.getSchema();
+        return criterions.stream()
+            .filter( Restriction.class::isInstance )
+            .map( criterion -> new CompiledRestriction( query, (Restriction) criterion ) )
+            .collect( Collectors.toList() );
+    }
 
-        if ( path.contains( "access" ) && query.getSchema().isIdentifiableObject() )
-        {
-            ((BaseIdentifiableObject) object).setAccess( aclService.getAccess( (T) object, query.getUser() ) );
-        }
+    /**
+     * A restriction with its path resolved to the properties to collect.
+     */
+    private final class CompiledRestriction
+    {
+        private final Query query;
 
-        for ( int i = 0; i < paths.length; i++ )
+        private final Operator operator;
+
+        private final String path;
+
+        private final Property[] properties;
+
+        private final boolean access;
+
+        CompiledRestriction( Query query, Restriction restriction )
         {
-            Property property = currentSchema.getProperty( paths[i] );
+            this.query = query;
+            this.operator = restriction.getOperator();
+            this.path = restriction.getPath();
+            this.access = path.contains( "access" );
 
-            if ( property == null )
-            {
-                throw new QueryException( "No property found for path " + path );
-            }
+            String[] paths = path.split( "\\." );
+            Schema currentSchema = query.getSchema();
 
-            if ( property.isCollection() )
-            {
-                currentSchema = schemaService.getDynamicSchema( property.getItemKlass() );
-            }
-            else
+            this.properties = new Property[paths.length];
+
+            for ( int i = 0; i < paths.length; i++ )
             {
-                currentSchema = schemaService.getDynamicSchema( property.getKlass() );
-            }
+                Property property = currentSchema.getProperty( paths[i] );
 
-            object = collect( object, property );
+                if ( property == null )
+                {
+                    throw new QueryException( "No property found for path " + path );
+                }
 
-            if ( path.contains( "access" ) && property.isIdentifiableObject() )
-            {
                 if ( property.isCollection() )
                 {
-                    for ( Object item : ((Collection<?>) object) )
-                    {
-                        ((BaseIdentifiableObject) item).setAccess( aclService.getAccess( (T) item, query.getUser() ) );
-                    }
+                    currentSchema = schemaService.getDynamicSchema( property.getItemKlass() );
                 }
                 else
                 {
-                    ((BaseIdentifiableObject) object).setAccess( aclService.getAccess( (T) object, query.getUser() ) );
+                    currentSchema = schemaService.getDynamicSchema( property.getKlass() );
                 }
+
+                properties[i] = property;
             }
+        }
 
-            if ( i == (paths.length - 1) )
+        boolean testAny( Collection<?> collection )
+        {
+            for ( Object item : collection )
             {
-                if ( property.isCollection() )
+                if ( operator.test( item ) )
                 {
-                    return Lists.newArrayList( object );
+                    return true;
                 }
-
-                return object;
             }
 
+            return false;
         }
 
-        throw new QueryException( "No values found for path " + path );
+        @SuppressWarnings( "unchecked" )
+        Object getValue( Object object )
+        {
+            if ( access && query.getSchema().isIdentifiableObject() )
+            {
+                ((BaseIdentifiableObject) object).setAccess( aclService.getAccess( (T) object, query.getUser() ) );
+            }
+
+            for ( int i = 0; i < properties.length; i++ )
+            {
+                Property property = properties[i];
+
+                object = collect( object, property );
+
+                if ( access && property.isIdentifiableObject() )
+                {
+                    if ( property.isCollection() )
+                    {
+                        for ( Object item : ((Collection<?>) object) )
+                        {
+                            ((BaseIdentifiableObject) item).setAccess( aclService.getAccess( (T) item, query.getUser() ) );
+                        }
+                    }
+                    else
+                    {
+                        ((BaseIdentifiableObject) object).setAccess( aclService.getAccess( (T) object, query.getUser() ) );
+                    }
+                }
+
+                if ( i == (properties.length - 1) )
+                {
+                    if ( property.isCollection() )
+                    {
+                        return Lists.newArrayList( object );
+                    }
+
+                    return object;
+                }
+            }
+
+            throw new QueryException( "No values found for path " + path );
+        }
     }
 
     @SuppressWarnings( { "unchecked", "rawtypes" } )
@@ -330,6 +429,6 @@ public class InMemoryQueryEngine<T extends IdentifiableObject>
             return items;
         }
 
-        return ReflectionUtils.invokeMethod( object, property.getGetterMethod() );
+        return ReflectionUtils.getPropertyValue( object, property );
     }
 }
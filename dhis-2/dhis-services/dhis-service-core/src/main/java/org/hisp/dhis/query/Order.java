@@ -86,9 +86,30 @@ public class Order
 
     public int compare( Object lside, Object rside )
     {
-        Object o1 = ReflectionUtils.invokeMethod( lside, property.getGetterMethod() );
-        Object o2 = ReflectionUtils.invokeMethod( rside, property.getGetterMethod() );
+        return compareValues( getValue( lside ), getValue( rside ) );
+    }
 
+    /**
+     * Returns the value of the order property for the given object.
+     *
+     * @param object the object.
+     * @return the property value.
+     */
+    public Object getValue( Object object )
+    {
+        return ReflectionUtils.getPropertyValue( object, property );
+    }
+
+    /**
+     * Compares two values of the order property, as returned by
+     * {@link #getValue(Object)}.
+     *
+     * @param o1 the first value.
+     * @param o2 the second value.
+     * @return the comparison result in the direction of this order.
+     */
+    public int compareValues( Object o1, Object o2 )
+    {
         if ( o1 == o2 )
         {
             return 0;
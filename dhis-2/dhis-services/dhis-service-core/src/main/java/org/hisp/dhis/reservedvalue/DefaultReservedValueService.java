@@ -43,9 +43,12 @@ import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
 import java.util.concurrent.TimeoutException;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -68,16 +71,20 @@ public class DefaultReservedValueService
 
     private SequentialNumberCounterStore sequentialNumberCounterStore;
 
+    private ReservedValuePool reservedValuePool;
+
     public DefaultReservedValueService( TextPatternService textPatternService, ReservedValueStore reservedValueStore,
-        SequentialNumberCounterStore sequentialNumberCounterStore )
+        SequentialNumberCounterStore sequentialNumberCounterStore, ReservedValuePool reservedValuePool )
     {
         checkNotNull( textPatternService );
         checkNotNull( reservedValueStore );
         checkNotNull( sequentialNumberCounterStore );
+        checkNotNull( reservedValuePool );
 
         this.textPatternService = textPatternService;
         this.reservedValueStore = reservedValueStore;
         this.sequentialNumberCounterStore = sequentialNumberCounterStore;
+        this.reservedValuePool = reservedValuePool;
     }
 
     @Override
@@ -117,9 +124,23 @@ public class DefaultReservedValueService
             return reservedValueStore.reserveValues( reservedValue, Lists.newArrayList( key ) );
         }
 
-        List<String> usedGeneratedValues = new ArrayList<>();
+        Set<String> usedGeneratedValues = new HashSet<>();
+
+        if ( reservedValuePool.isPooled( generatedSegment ) )
+        {
+            List<String> pooledValues = reservedValuePool.claim( textPattern, generatedSegment, values,
+                reservedValue, numberOfReservations );
+
+            if ( !pooledValues.isEmpty() )
+            {
+                usedGeneratedValues.addAll( pooledValues );
+
+                resultList.addAll( reservedValueStore.reserveValues( reservedValue,
+                    resolvePatterns( textPattern, generatedSegment, values, pooledValues ) ) );
+            }
+        }
 
-        int numberOfValuesLeftToGenerate = numberOfReservations;
+        int numberOfValuesLeftToGenerate = numberOfReservations - resultList.size();
 
         try
         {
@@ -130,31 +151,24 @@ public class DefaultReservedValueService
                     throw new TimeoutException( "Generation and reservation of values took too long" );
                 }
 
-                List<String> resolvedPatterns = new ArrayList<>();
-
-                List<String> generatedValues = new ArrayList<>();
+                Set<String> generatedValues = new LinkedHashSet<>();
 
                 int maxGenerateAttempts = 10;
 
                 while ( generatedValues.size() < numberOfValuesLeftToGenerate && maxGenerateAttempts-- > 0 )
                 {
-                    generatedValues.addAll( generateValues( textPattern, key, numberOfReservations - resultList.size() ) );
-                    generatedValues.removeAll( usedGeneratedValues );
+                    generatedValues.addAll( generateValues( textPattern, key, numberOfValuesLeftToGenerate ) );
+                    generatedValues.removeIf( usedGeneratedValues::contains );
                 }
 
                 usedGeneratedValues.addAll( generatedValues );
 
-                // Get a list of resolved patterns
-                for ( int i = 0; i < numberOfReservations - resultList.size(); i++ )
-                {
-                    resolvedPatterns.add( textPatternService.resolvePattern( textPattern,
-                        ImmutableMap.<String, String>builder()
-                            .putAll( values )
-                            .put( generatedSegment.getMethod().name(), generatedValues.get( i ) )
-                            .build() ) );
-                }
+                List<String> valuesToResolve = generatedValues.stream()
+                    .limit( numberOfValuesLeftToGenerate )
+                    .collect( Collectors.toList() );
 
-                resultList.addAll( reservedValueStore.reserveValues( reservedValue, resolvedPatterns ) );
+                resultList.addAll( reservedValueStore.reserveValues( reservedValue,
+                    resolvePatterns( textPattern, generatedSegment, values, valuesToResolve ) ) );
 
                 numberOfValuesLeftToGenerate = numberOfReservations - resultList.size();
             }
@@ -210,6 +224,24 @@ public class DefaultReservedValueService
             .orElse( null );
     }
 
+    private List<String> resolvePatterns( TextPattern textPattern, TextPatternSegment generatedSegment,
+        Map<String, String> values, List<String> generatedValues )
+        throws TextPatternGenerationException
+    {
+        List<String> resolvedPatterns = new ArrayList<>();
+
+        for ( String generatedValue : generatedValues )
+        {
+            resolvedPatterns.add( textPatternService.resolvePattern( textPattern,
+                ImmutableMap.<String, String>builder()
+                    .putAll( values )
+                    .put( generatedSegment.getMethod().name(), generatedValue )
+                    .build() ) );
+        }
+
+        return resolvedPatterns;
+    }
+
     private List<String> generateValues( TextPattern textPattern, String key, int numberOfValues )
     {
         List<String> generatedValues = new ArrayList<>();
@@ -225,9 +257,11 @@ public class DefaultReservedValueService
         }
         else if ( segment.getMethod().equals( TextPatternMethod.RANDOM ) )
         {
+            Random random = new Random();
+
             for ( int i = 0; i < numberOfValues; i++ )
             {
-                generatedValues.add( TextPatternMethodUtils.generateRandom( new Random(), segment.getParameter() ) );
+                generatedValues.add( TextPatternMethodUtils.generateRandom( random, segment.getParameter() ) );
             }
         }
 
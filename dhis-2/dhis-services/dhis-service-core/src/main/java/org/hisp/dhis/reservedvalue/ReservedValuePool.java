@@ -0,0 +1,374 @@
+package org.hisp.dhis.reservedvalue;
+
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.hisp.dhis.commons.util.SystemUtils;
+import org.hisp.dhis.textpattern.TextPattern;
+import org.hisp.dhis.textpattern.TextPatternGenerationException;
+import org.hisp.dhis.textpattern.TextPatternMethod;
+import org.hisp.dhis.textpattern.TextPatternMethodUtils;
+import org.hisp.dhis.textpattern.TextPatternSegment;
+import org.hisp.dhis.textpattern.TextPatternService;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.google.common.collect.ImmutableMap;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Pools of pre-generated values for text patterns with a random segment, one
+ * per owner and resolved pattern key. Values in a pool have been checked
+ * against reserved and used values when generated, so that reservations can
+ * be served with a single batched claim instead of repeated rounds of
+ * generation and collision checks. Pools are topped up in the background when
+ * they drop below a threshold.
+ * <p>
+ * Pooled values are not reserved, and are checked again when the claimed
+ * values are reserved. Pools are kept in memory on each instance and are
+ * disabled in test runs.
+ */
+@Slf4j
+@Component( "org.hisp.dhis.reservedvalue.ReservedValuePool" )
+public class ReservedValuePool
+{
+    private static final int POOL_SIZE = 1000;
+
+    private static final int MAX_POOL_SIZE = 50000;
+
+    private static final int REFILL_THRESHOLD_DIVISOR = 4;
+
+    private static final int MAX_REFILL_ATTEMPTS = 10;
+
+    private static final long MAX_IDLE_TIME = TimeUnit.HOURS.toMillis( 1 );
+
+    private static final String METRIC_POOL = "reserved.value.pool";
+
+    private static final String METRIC_POOL_EXHAUSTED = "reserved.value.pool.exhausted";
+
+    private final Map<String, Pool> pools = new ConcurrentHashMap<>();
+
+    private final Random random = new Random();
+
+    private final Environment env;
+
+    private final TextPatternService textPatternService;
+
+    private final ReservedValueStore reservedValueStore;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final MeterRegistry meterRegistry;
+
+    private ExecutorService executor;
+
+    private Counter exhaustedCounter;
+
+    private boolean enabled;
+
+    public ReservedValuePool( Environment env, TextPatternService textPatternService,
+        ReservedValueStore reservedValueStore, TransactionTemplate transactionTemplate, MeterRegistry meterRegistry )
+    {
+        checkNotNull( env );
+        checkNotNull( textPatternService );
+        checkNotNull( reservedValueStore );
+        checkNotNull( transactionTemplate );
+        checkNotNull( meterRegistry );
+
+        this.env = env;
+        this.textPatternService = textPatternService;
+        this.reservedValueStore = reservedValueStore;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init()
+    {
+        enabled = !SystemUtils.isTestRun( env.getActiveProfiles() );
+
+        executor = Executors.newSingleThreadExecutor( r -> {
+            Thread thread = new Thread( r, "RESERVED-VALUE-POOL" );
+            thread.setDaemon( true );
+            return thread;
+        } );
+
+        Gauge.builder( METRIC_POOL, pools, p -> p.values().stream().mapToInt( Pool::size ).sum() )
+            .description( "Number of pre-generated values in reserved value pools" )
+            .register( meterRegistry );
+
+        exhaustedCounter = Counter.builder( METRIC_POOL_EXHAUSTED )
+            .description( "Number of reservations which could not be served in full from reserved value pools" )
+            .register( meterRegistry );
+    }
+
+    @PreDestroy
+    public void destroy()
+    {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Indicates whether values for the given generated segment can be pooled.
+     * Only random segments are pooled, as sequential values are unique by
+     * their counter and pooling them would skip numbers.
+     *
+     * @param segment the generated segment of the text pattern.
+     */
+    public boolean isPooled( TextPatternSegment segment )
+    {
+        return enabled && segment != null && TextPatternMethod.RANDOM.equals( segment.getMethod() );
+    }
+
+    /**
+     * Claims up to the given number of generated segment values from the pool
+     * of the reserved value owner and key, and schedules a refill of the pool
+     * if it drops below the threshold.
+     *
+     * @param textPattern the text pattern.
+     * @param segment the generated segment of the text pattern.
+     * @param values the values of the other segments of the text pattern.
+     * @param reservedValue the reserved value holding the owner and key.
+     * @param numberOfValues the number of values to claim.
+     * @return the claimed values of the generated segment, which may be fewer
+     *         than requested.
+     */
+    public List<String> claim( TextPattern textPattern, TextPatternSegment segment, Map<String, String> values,
+        ReservedValue reservedValue, int numberOfValues )
+    {
+        String poolKey = reservedValue.getOwnerUid() + ":" + reservedValue.getKey();
+
+        if ( !pools.containsKey( poolKey ) )
+        {
+            removeIdlePools();
+        }
+
+        Pool pool = pools.computeIfAbsent( poolKey, k -> new Pool( textPattern, segment, values, reservedValue ) );
+
+        List<String> claimed = pool.take( numberOfValues );
+
+        if ( claimed.size() < numberOfValues )
+        {
+            exhaustedCounter.increment();
+        }
+
+        pool.ensureTarget( numberOfValues );
+
+        if ( pool.size() < pool.getTarget() / REFILL_THRESHOLD_DIVISOR && pool.refilling.compareAndSet( false, true ) )
+        {
+            executor.execute( () -> refill( pool ) );
+        }
+
+        return claimed;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void refill( Pool pool )
+    {
+        try
+        {
+            int attemptsLeft = MAX_REFILL_ATTEMPTS;
+
+            while ( pool.size() < pool.getTarget() && attemptsLeft-- > 0 )
+            {
+                Map<String, String> candidates = generateCandidates( pool, pool.getTarget() - pool.size() );
+
+                if ( candidates.isEmpty() )
+                {
+                    continue;
+                }
+
+                List<String> available = transactionTemplate.execute( status -> reservedValueStore
+                    .getAvailableValues( pool.reservedValue, new ArrayList<>( candidates.keySet() ) ) );
+
+                List<String> generated = new ArrayList<>();
+
+                available.forEach( value -> generated.add( candidates.get( value ) ) );
+
+                pool.addAll( generated );
+            }
+        }
+        catch ( Exception ex )
+        {
+            log.warn( String.format( "Refill of reserved value pool for %s with uid %s failed: %s",
+                pool.reservedValue.getOwnerObject(), pool.reservedValue.getOwnerUid(), ex.getMessage() ) );
+        }
+        finally
+        {
+            pool.refilling.set( false );
+        }
+    }
+
+    /**
+     * Generates distinct candidate values which are not already in the pool.
+     *
+     * @return a mapping of resolved value to generated segment value.
+     */
+    private Map<String, String> generateCandidates( Pool pool, int numberOfValues )
+        throws TextPatternGenerationException
+    {
+        Set<String> generated = new HashSet<>();
+
+        for ( int i = 0; i < numberOfValues; i++ )
+        {
+            generated.add( TextPatternMethodUtils.generateRandom( random, pool.segment.getParameter() ) );
+        }
+
+        pool.removeContained( generated );
+
+        Map<String, String> candidates = new HashMap<>();
+
+        for ( String value : generated )
+        {
+            candidates.put( textPatternService.resolvePattern( pool.textPattern, ImmutableMap.<String, String>builder()
+                .putAll( pool.values )
+                .put( pool.segment.getMethod().name(), value )
+                .build() ), value );
+        }
+
+        return candidates;
+    }
+
+    private void removeIdlePools()
+    {
+        long now = System.currentTimeMillis();
+
+        pools.values().removeIf( p -> now - p.lastAccess > MAX_IDLE_TIME && !p.refilling.get() );
+    }
+
+    /**
+     * Pool of generated segment values for a reserved value owner and key.
+     */
+    private static class Pool
+    {
+        private final TextPattern textPattern;
+
+        private final TextPatternSegment segment;
+
+        private final Map<String, String> values;
+
+        private final ReservedValue reservedValue;
+
+        private final Set<String> pooled = new LinkedHashSet<>();
+
+        private final AtomicBoolean refilling = new AtomicBoolean();
+
+        private volatile int target = POOL_SIZE;
+
+        private volatile long lastAccess = System.currentTimeMillis();
+
+        Pool( TextPattern textPattern, TextPatternSegment segment, Map<String, String> values,
+            ReservedValue reservedValue )
+        {
+            this.textPattern = textPattern;
+            this.segment = segment;
+            this.values = ImmutableMap.copyOf( values );
+            this.reservedValue = new ReservedValue( reservedValue.getOwnerObject(), reservedValue.getOwnerUid(),
+                reservedValue.getKey(), reservedValue.getValue(), null );
+        }
+
+        synchronized List<String> take( int numberOfValues )
+        {
+            lastAccess = System.currentTimeMillis();
+
+            List<String> taken = new ArrayList<>();
+
+            Iterator<String> iterator = pooled.iterator();
+
+            while ( taken.size() < numberOfValues && iterator.hasNext() )
+            {
+                taken.add( iterator.next() );
+                iterator.remove();
+            }
+
+            return taken;
+        }
+
+        synchronized void addAll( Collection<String> generated )
+        {
+            pooled.addAll( generated );
+        }
+
+        synchronized void removeContained( Set<String> generated )
+        {
+            generated.removeIf( pooled::contains );
+        }
+
+        synchronized int size()
+        {
+            return pooled.size();
+        }
+
+        /**
+         * Raises the target size of the pool so that a claim of the given
+         * size can be served in full next time.
+         */
+        void ensureTarget( int numberOfValues )
+        {
+            if ( numberOfValues > target )
+            {
+                target = Math.min( numberOfValues, MAX_POOL_SIZE );
+            }
+        }
+
+        int getTarget()
+        {
+            return target;
+        }
+    }
+}
@@ -43,7 +43,9 @@ import org.springframework.stereotype.Repository;
 
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -139,6 +141,12 @@ public class HibernateReservedValueStore
             .getResultList();
     }
 
+    @Override
+    public List<String> getAvailableValues( ReservedValue reservedValue, List<String> values )
+    {
+        return getIfAvailable( reservedValue, new ArrayList<>( values ) );
+    }
+
     @Override
     public int getNumberOfUsedValues( ReservedValue reservedValue )
     {
@@ -212,11 +220,11 @@ public class HibernateReservedValueStore
 
     private List<String> getIfAvailable( ReservedValue reservedValue, List<String> values )
     {
-        List<String> reservedValues = getIfReservedValues( reservedValue, values ).stream()
+        Set<String> reservedValues = getIfReservedValues( reservedValue, values ).stream()
             .map( ReservedValue::getValue )
-            .collect( Collectors.toList() );
+            .collect( Collectors.toSet() );
 
-        values.removeAll( reservedValues );
+        values.removeIf( reservedValues::contains );
 
         // All values supplied is unavailable
         if ( values.isEmpty() )
@@ -226,11 +234,13 @@ public class HibernateReservedValueStore
 
         if ( Objects.valueOf( reservedValue.getOwnerObject() ).equals( TRACKEDENTITYATTRIBUTE ) )
         {
-            values.removeAll( getUntypedSqlQuery(
+            Set<Object> usedValues = new HashSet<>( getUntypedSqlQuery(
                 "SELECT value FROM trackedentityattributevalue WHERE trackedentityattributeid = (SELECT trackedentityattributeid FROM trackedentityattribute WHERE uid = ?1) AND value IN ?2" )
                 .setParameter( 1, reservedValue.getOwnerUid() )
                 .setParameter( 2, values )
                 .list() );
+
+            values.removeIf( usedValues::contains );
         }
 
         return values;
@@ -30,10 +30,17 @@ package org.hisp.dhis.sqlview.hibernate;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 import org.hibernate.SessionFactory;
 import org.hisp.dhis.common.Grid;
+import org.hisp.dhis.common.GridHeader;
 import org.hisp.dhis.common.hibernate.HibernateIdentifiableObjectStore;
 import org.hisp.dhis.jdbc.StatementBuilder;
 import org.hisp.dhis.security.acl.AclService;
@@ -47,6 +54,7 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.jdbc.BadSqlGrammarException;
 import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Repository;
@@ -70,6 +78,8 @@ public class HibernateSqlViewStore
     private static final Map<SqlViewType, String> TYPE_DROP_PREFIX_MAP =
         ImmutableMap.of( SqlViewType.VIEW, "DROP VIEW ", SqlViewType.MATERIALIZED_VIEW, "DROP MATERIALIZED VIEW " );
 
+    private static final int STREAM_FETCH_SIZE = 1000;
+
     private final StatementBuilder statementBuilder;
 
     private final JdbcTemplate readOnlyJdbcTemplate;
@@ -145,6 +155,61 @@ public class HibernateSqlViewStore
         grid.addRows( rs, maxLimit );
     }
 
+    @Override
+    public void streamSqlViewRows( String sql, Consumer<List<GridHeader>> headerConsumer, Consumer<List<Object>> rowConsumer )
+    {
+        // The max limit is not applied, as rows are written before the limit could be exceeded
+
+        log.debug( "Stream view SQL: " + sql );
+
+        readOnlyJdbcTemplate.execute( (ConnectionCallback<Void>) connection -> {
+
+            // The driver only fetches rows in batches outside auto-commit mode
+
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit( false );
+
+            try ( PreparedStatement statement = connection.prepareStatement( sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY ) )
+            {
+                statement.setFetchSize( STREAM_FETCH_SIZE );
+
+                try ( ResultSet rs = statement.executeQuery() )
+                {
+                    ResultSetMetaData rsmd = rs.getMetaData();
+
+                    int cols = rsmd.getColumnCount();
+
+                    List<GridHeader> headers = new ArrayList<>( cols );
+
+                    for ( int i = 1; i <= cols; i++ )
+                    {
+                        headers.add( new GridHeader( rsmd.getColumnLabel( i ), false, false ) );
+                    }
+
+                    headerConsumer.accept( headers );
+
+                    while ( rs.next() )
+                    {
+                        List<Object> row = new ArrayList<>( cols );
+
+                        for ( int i = 1; i <= cols; i++ )
+                        {
+                            row.add( rs.getObject( i ) );
+                        }
+
+                        rowConsumer.accept( row );
+                    }
+                }
+            }
+            finally
+            {
+                connection.setAutoCommit( autoCommit );
+            }
+
+            return null;
+        } );
+    }
+
     @Override
     public String testSqlGrammar( String sql )
     {
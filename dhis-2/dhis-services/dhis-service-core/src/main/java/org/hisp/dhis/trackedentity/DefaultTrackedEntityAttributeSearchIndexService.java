@@ -0,0 +1,205 @@
+package org.hisp.dhis.trackedentity;
+
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.List;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Builds partial pg_trgm GIN indexes on {@code lower(value)} of the
+ * trackedentityattributevalue table, one per attribute. The index predicate
+ * matches the attribute id restriction which the tracked entity instance
+ * store puts on attribute value joins and subqueries, so that the planner
+ * can use the index for {@code like} and case insensitive regular expression
+ * matches.
+ */
+@Slf4j
+@Service( "org.hisp.dhis.trackedentity.TrackedEntityAttributeSearchIndexService" )
+public class DefaultTrackedEntityAttributeSearchIndexService
+    implements TrackedEntityAttributeSearchIndexService
+{
+    private static final String INDEX_PREFIX = "in_teav_trgm_";
+
+    private static final String SEARCHABLE_ATTRIBUTES_SQL =
+        "select trackedentityattributeid from trackedentitytypeattribute where searchable = true " +
+        "union select trackedentityattributeid from program_attributes where searchable = true " +
+        "union select trackedentityattributeid from trackedentityattribute " +
+        "where uniquefield = true and (orgunitscope is null or orgunitscope = false)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public DefaultTrackedEntityAttributeSearchIndexService( JdbcTemplate jdbcTemplate )
+    {
+        checkNotNull( jdbcTemplate );
+
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // -------------------------------------------------------------------------
+    // TrackedEntityAttributeSearchIndexService implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public boolean hasSearchIndex( TrackedEntityAttribute attribute )
+    {
+        return hasSearchIndex( attribute.getId() );
+    }
+
+    @Override
+    public void createSearchIndex( TrackedEntityAttribute attribute )
+    {
+        if ( !hasSearchIndex( attribute.getId() ) )
+        {
+            createSearchIndex( attribute.getId() );
+        }
+    }
+
+    @Override
+    public void rebuildSearchIndex( TrackedEntityAttribute attribute )
+    {
+        createSearchIndex( attribute.getId() );
+    }
+
+    @Override
+    public void dropSearchIndex( TrackedEntityAttribute attribute )
+    {
+        jdbcTemplate.execute( "drop index concurrently if exists " + getIndexName( attribute.getId() ) );
+
+        log.info( "Dropped search index for tracked entity attribute: " + attribute.getUid() );
+    }
+
+    @Override
+    public int createSearchIndexes()
+    {
+        List<Long> attributeIds = jdbcTemplate.queryForList( SEARCHABLE_ATTRIBUTES_SQL, Long.class );
+
+        int created = 0;
+
+        for ( Long attributeId : attributeIds )
+        {
+            if ( !hasSearchIndex( attributeId ) )
+            {
+                createSearchIndex( attributeId );
+                created++;
+            }
+        }
+
+        log.info( String.format( "Created %d search indexes for %d searchable tracked entity attributes",
+            created, attributeIds.size() ) );
+
+        return created;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private static String getIndexName( long attributeId )
+    {
+        return INDEX_PREFIX + attributeId;
+    }
+
+    /**
+     * Indicates whether a valid search index exists for the given attribute.
+     * An index left behind by a failed or interrupted concurrent build is
+     * marked invalid, is not used by the planner and is treated as missing.
+     */
+    private boolean hasSearchIndex( long attributeId )
+    {
+        List<Boolean> valid = jdbcTemplate.queryForList(
+            "select i.indisvalid from pg_index i inner join pg_class c on c.oid = i.indexrelid where c.relname = ?",
+            Boolean.class, getIndexName( attributeId ) );
+
+        return !valid.isEmpty() && Boolean.TRUE.equals( valid.get( 0 ) );
+    }
+
+    private void createSearchIndex( long attributeId )
+    {
+        createTrigramExtension();
+
+        String indexName = getIndexName( attributeId );
+
+        // Replaces any existing index, including an invalid index left behind by an interrupted build
+
+        jdbcTemplate.execute( "drop index concurrently if exists " + indexName );
+
+        try
+        {
+            jdbcTemplate.execute( "create index concurrently " + indexName + " on trackedentityattributevalue " +
+                "using gin (lower(value) gin_trgm_ops) where trackedentityattributeid = " + attributeId );
+        }
+        catch ( DataAccessException ex )
+        {
+            // A failed concurrent build leaves an invalid index which is still maintained on writes
+
+            jdbcTemplate.execute( "drop index concurrently if exists " + indexName );
+
+            throw ex;
+        }
+
+        log.info( "Created search index: " + indexName );
+    }
+
+    /**
+     * Creates the pg_trgm extension if it is not installed. Creating an
+     * extension requires a database superuser, hence a failure is reported
+     * with instructions rather than as a plain SQL error.
+     */
+    private void createTrigramExtension()
+    {
+        Integer installed = jdbcTemplate.queryForObject(
+            "select count(*) from pg_extension where extname = 'pg_trgm'", Integer.class );
+
+        if ( installed != null && installed > 0 )
+        {
+            return;
+        }
+
+        try
+        {
+            jdbcTemplate.execute( "create extension if not exists pg_trgm" );
+        }
+        catch ( DataAccessException ex )
+        {
+            log.error( "Could not create the pg_trgm extension", ex );
+
+            throw new IllegalStateException( "The pg_trgm database extension is not installed and could not be " +
+                "created by the DHIS 2 database user. A database superuser must run " +
+                "'create extension pg_trgm;' before search indexes can be built." );
+        }
+    }
+}
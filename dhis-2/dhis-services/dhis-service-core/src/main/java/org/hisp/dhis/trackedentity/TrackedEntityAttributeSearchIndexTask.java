@@ -0,0 +1,98 @@
+package org.hisp.dhis.trackedentity;
+
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.system.notification.NotificationLevel.ERROR;
+import static org.hisp.dhis.system.notification.NotificationLevel.INFO;
+
+import org.hisp.dhis.scheduling.JobConfiguration;
+import org.hisp.dhis.security.SecurityContextRunnable;
+import org.hisp.dhis.system.notification.Notifier;
+import org.hisp.dhis.system.util.Clock;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Builds search indexes outside of the request thread, as a concurrent index
+ * build scans the whole trackedentityattributevalue table. Builds the index
+ * of the given attribute, or all missing indexes if no attribute is given.
+ */
+@Slf4j
+public class TrackedEntityAttributeSearchIndexTask
+    extends SecurityContextRunnable
+{
+    private final TrackedEntityAttributeSearchIndexService searchIndexService;
+
+    private final Notifier notifier;
+
+    private final TrackedEntityAttribute attribute;
+
+    private final JobConfiguration jobId;
+
+    public TrackedEntityAttributeSearchIndexTask( TrackedEntityAttributeSearchIndexService searchIndexService,
+        Notifier notifier, TrackedEntityAttribute attribute, JobConfiguration jobId )
+    {
+        this.searchIndexService = searchIndexService;
+        this.notifier = notifier;
+        this.attribute = attribute;
+        this.jobId = jobId;
+    }
+
+    @Override
+    public void call()
+    {
+        Clock clock = new Clock( log ).startClock();
+
+        notifier.clear( jobId ).notify( jobId, "Building search indexes" );
+
+        try
+        {
+            if ( attribute != null )
+            {
+                searchIndexService.rebuildSearchIndex( attribute );
+
+                notifier.notify( jobId, INFO, "Search index built for attribute: " + attribute.getUid() +
+                    ", in " + clock.time(), true );
+            }
+            else
+            {
+                int created = searchIndexService.createSearchIndexes();
+
+                notifier.notify( jobId, INFO, "Search indexes built: " + created + ", in " + clock.time(), true );
+            }
+        }
+        catch ( RuntimeException ex )
+        {
+            log.error( "Search index build failed", ex );
+
+            notifier.notify( jobId, ERROR, "Process failed: " + ex.getMessage(), true );
+        }
+    }
+}
@@ -296,7 +296,9 @@ public class HibernateTrackedEntityInstanceStore
                     hql += hlp.whereAnd()
                         + " exists (from TrackedEntityAttributeValue teav where teav.entityInstance=tei";
 
-                    hql += " and teav.attribute.uid='" + queryItem.getItemId() + "'";
+                    // Restrict by id to match the predicate of the attribute search index
+
+                    hql += " and teav.attribute.id=" + queryItem.getItem().getId();
 
                     hql += addConditionally( queryItem.isNumeric(),
                         " and teav.plainValue " + queryFilter.getSqlOperator() + encodedFilter + ")",
@@ -650,7 +652,7 @@ public class HibernateTrackedEntityInstanceStore
                 {
                     final String col = statementBuilder.columnQuote( item.getItemId() );
 
-                    sql += col + ".value " + regexp + " '" + start + StringUtils.lowerCase( query ) + end + "' or ";
+                    sql += "lower(" + col + ".value) " + regexp + " '" + start + StringUtils.lowerCase( query ) + end + "' or ";
                 }
 
                 sql = removeLastOr( sql ) + ") and ";
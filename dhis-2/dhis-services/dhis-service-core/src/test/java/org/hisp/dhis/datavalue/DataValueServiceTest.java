@@ -35,6 +35,7 @@ import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 
 import java.util.List;
+import java.util.Map;
 
 import org.hisp.dhis.DhisSpringTest;
 import org.hisp.dhis.category.CategoryOptionCombo;
@@ -472,6 +473,34 @@ public class DataValueServiceTest
         assertEquals( 1, dataValueService.getDataValueCountLastUpdatedBetween( getDate( 1970, 1, 1 ), null, false ) );
     }
 
+    @Test
+    public void testGetDataValueCountBySource()
+    {
+        DataValue dataValueA = new DataValue( dataElementA, periodA, sourceA, optionCombo, optionCombo, "1" );
+        DataValue dataValueB = new DataValue( dataElementA, periodA, sourceB, optionCombo, optionCombo, "2" );
+        DataValue dataValueC = new DataValue( dataElementB, periodA, sourceB, optionCombo, optionCombo, "3" );
+        DataValue dataValueD = new DataValue( dataElementB, periodB, sourceC, optionCombo, optionCombo, "4" );
+
+        dataValueService.addDataValue( dataValueA );
+        dataValueService.addDataValue( dataValueB );
+        dataValueService.addDataValue( dataValueC );
+        dataValueService.addDataValue( dataValueD );
+
+        Map<Long, Integer> counts = dataValueService.getDataValueCountBySource( Lists.newArrayList( periodA ) );
+
+        assertEquals( 2, counts.size() );
+        assertEquals( Integer.valueOf( 1 ), counts.get( sourceA.getId() ) );
+        assertEquals( Integer.valueOf( 2 ), counts.get( sourceB.getId() ) );
+
+        dataValueService.deleteDataValue( dataValueC );
+
+        counts = dataValueService.getDataValueCountBySource( Lists.newArrayList( periodA, periodB ) );
+
+        assertEquals( 3, counts.size() );
+        assertEquals( Integer.valueOf( 1 ), counts.get( sourceB.getId() ) );
+        assertEquals( Integer.valueOf( 1 ), counts.get( sourceC.getId() ) );
+    }
+
     @Test
     public void testGetDataValues()
     {
@@ -43,12 +43,14 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 import java.util.*;
 
 import com.google.common.collect.ImmutableMap;
 import org.apache.commons.math3.util.Precision;
 import org.hamcrest.collection.IsIterableContainingInAnyOrder;
+import org.hisp.dhis.antlr.ParserException;
 import org.hisp.dhis.category.*;
 import org.hisp.dhis.common.*;
 import org.hisp.dhis.constant.Constant;
@@ -631,6 +633,93 @@ public class ExpressionService2Test
                 NEVER_SKIP ), DELTA );
     }
 
+    @Test
+    public void testGetExpressionValueFromCachedParseTree()
+    {
+        Map<DimensionalItemObject, Double> valueMap = new HashMap<>();
+        valueMap.put( new DataElementOperand( deA, coc ), 12d );
+        valueMap.put( new DataElementOperand( deB, coc ), 34d );
+
+        assertEquals( 46d, target
+            .getExpressionValue( expressionA, INDICATOR_EXPRESSION, valueMap, constantMap(), null, null, NEVER_SKIP ),
+            DELTA );
+
+        valueMap.put( new DataElementOperand( deA, coc ), 22d );
+
+        assertEquals( 56d, target
+            .getExpressionValue( expressionA, INDICATOR_EXPRESSION, valueMap, constantMap(), null, null, NEVER_SKIP ),
+            DELTA );
+    }
+
+    @Test
+    public void testGetExpressionDescriptionSyntaxErrorIsNotCached()
+    {
+        ParserException first = assertThrows( ParserException.class,
+            () -> target.getExpressionDescription( "1 +", SIMPLE_TEST ) );
+
+        ParserException second = assertThrows( ParserException.class,
+            () -> target.getExpressionDescription( "1 +", SIMPLE_TEST ) );
+
+        assertEquals( first.getMessage(), second.getMessage() );
+    }
+
+    @Test
+    public void testGetPredictorExpressionValueForItemIds()
+    {
+        DataElementOperand operand = new DataElementOperand( deA, coc );
+        String expression = "avg(#{" + operand.getDimensionItem() + "})+percentileCont(0.5,#{" + operand.getDimensionItem() + "})";
+
+        List<Period> samplePeriods = Lists.newArrayList( createPeriod( "200001" ), createPeriod( "200002" ),
+            createPeriod( "200003" ), createPeriod( "200004" ) );
+
+        MapMap<Period, DimensionalItemObject, Double> periodValueMap = new MapMap<>();
+        periodValueMap.putEntry( samplePeriods.get( 0 ), operand, 2d );
+        periodValueMap.putEntry( samplePeriods.get( 1 ), operand, 4d );
+        periodValueMap.putEntry( samplePeriods.get( 2 ), operand, 9d );
+
+        MapMap<Period, String, Double> periodItemValueMap = new MapMap<>();
+        periodItemValueMap.putEntry( samplePeriods.get( 0 ), operand.getDimensionItem(), 2d );
+        periodItemValueMap.putEntry( samplePeriods.get( 1 ), operand.getDimensionItem(), 4d );
+        periodItemValueMap.putEntry( samplePeriods.get( 2 ), operand.getDimensionItem(), 9d );
+
+        Object value = target.getExpressionValueForItemIds( expression, PREDICTOR_EXPRESSION, new HashMap<>(),
+            constantMap(), null, null, NEVER_SKIP, samplePeriods, periodItemValueMap );
+
+        assertEquals( 9d, (Double) value, DELTA );
+        assertEquals( value, target.getExpressionValue( expression, PREDICTOR_EXPRESSION, new HashMap<>(),
+            constantMap(), null, null, NEVER_SKIP, samplePeriods, periodValueMap ) );
+    }
+
+    @Test
+    public void testGetPredictorExpressionValueForItemIdsOverManyPeriods()
+    {
+        DataElementOperand operand = new DataElementOperand( deA, coc );
+        String expression = "avg(#{" + operand.getDimensionItem() + "})+1.5*stddev(#{" + operand.getDimensionItem() + "})";
+
+        List<Period> samplePeriods = new ArrayList<>();
+        MapMap<Period, DimensionalItemObject, Double> periodValueMap = new MapMap<>();
+        MapMap<Period, String, Double> periodItemValueMap = new MapMap<>();
+
+        for ( int year = 2000; year < 2010; year++ )
+        {
+            for ( int month = 1; month <= 12; month++ )
+            {
+                Period p = createPeriod( String.format( "%d%02d", year, month ) );
+
+                samplePeriods.add( p );
+                periodValueMap.putEntry( p, operand, (double) month );
+                periodItemValueMap.putEntry( p, operand.getDimensionItem(), (double) month );
+            }
+        }
+
+        Object value = target.getExpressionValue( expression, PREDICTOR_EXPRESSION, new HashMap<>(), constantMap(),
+            null, null, NEVER_SKIP, samplePeriods, periodValueMap );
+
+        assertNotNull( value );
+        assertEquals( value, target.getExpressionValueForItemIds( expression, PREDICTOR_EXPRESSION, new HashMap<>(),
+            constantMap(), null, null, NEVER_SKIP, samplePeriods, periodItemValueMap ) );
+    }
+
     @Test
     public void testGetIndicatorValueObject()
     {
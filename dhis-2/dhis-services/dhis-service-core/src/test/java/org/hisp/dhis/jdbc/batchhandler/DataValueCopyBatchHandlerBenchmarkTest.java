@@ -0,0 +1,216 @@
+package org.hisp.dhis.jdbc.batchhandler;
+
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.hisp.dhis.IntegrationTestBase;
+import org.hisp.dhis.category.CategoryOptionCombo;
+import org.hisp.dhis.category.CategoryService;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.dataelement.DataElementService;
+import org.hisp.dhis.datavalue.DataValue;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.organisationunit.OrganisationUnitService;
+import org.hisp.dhis.period.Period;
+import org.hisp.dhis.period.PeriodService;
+import org.hisp.quick.BatchHandler;
+import org.hisp.quick.BatchHandlerFactory;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Compares the throughput of {@link DataValueCopyBatchHandler} with
+ * {@link DataValueBatchHandler} for inserts and updates of data values. Each
+ * handler runs a warm-up round followed by a number of measured rounds, and
+ * the best and average elapsed times are logged. Run manually against the
+ * PostgreSQL integration test database, as timings are not asserted.
+ */
+@Slf4j
+@Ignore( "Test to run manually" )
+public class DataValueCopyBatchHandlerBenchmarkTest
+    extends IntegrationTestBase
+{
+    private static final int ORG_UNITS = 500;
+
+    private static final int MONTHS = 120;
+
+    private static final int ROUNDS = 5;
+
+    @Autowired
+    private BatchHandlerFactory batchHandlerFactory;
+
+    @Autowired
+    private DataElementService dataElementService;
+
+    @Autowired
+    private PeriodService periodService;
+
+    @Autowired
+    private OrganisationUnitService organisationUnitService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private List<DataValue> dataValues;
+
+    private List<DataValue> updatedValues;
+
+    // -------------------------------------------------------------------------
+    // Fixture
+    // -------------------------------------------------------------------------
+
+    @Override
+    public void setUpTest()
+    {
+        DataElement dataElementA = createDataElement( 'A' );
+
+        dataElementService.addDataElement( dataElementA );
+
+        CategoryOptionCombo categoryOptionComboA = categoryService.getDefaultCategoryOptionCombo();
+
+        List<Period> periods = new ArrayList<>();
+
+        for ( int i = 0; i < MONTHS; i++ )
+        {
+            Period period = createPeriod( String.format( "%d%02d", 2001 + i / 12, 1 + i % 12 ) );
+            periodService.addPeriod( period );
+            periods.add( period );
+        }
+
+        dataValues = new ArrayList<>();
+        updatedValues = new ArrayList<>();
+
+        for ( int i = 0; i < ORG_UNITS; i++ )
+        {
+            OrganisationUnit unit = createOrganisationUnit( "OrgUnit" + i );
+            organisationUnitService.addOrganisationUnit( unit );
+
+            for ( Period period : periods )
+            {
+                dataValues.add( createDataValue( dataElementA, period, unit, categoryOptionComboA, categoryOptionComboA, String.valueOf( i ) ) );
+                updatedValues.add( createDataValue( dataElementA, period, unit, categoryOptionComboA, categoryOptionComboA, String.valueOf( i + 1 ) ) );
+            }
+        }
+    }
+
+    @Override
+    public boolean emptyDatabaseAfterTest()
+    {
+        return true;
+    }
+
+    // -------------------------------------------------------------------------
+    // Tests
+    // -------------------------------------------------------------------------
+
+    @Test
+    public void testAddObjects()
+    {
+        benchmark( "Add", DataValueBatchHandler.class, false );
+        benchmark( "Add", DataValueCopyBatchHandler.class, false );
+    }
+
+    @Test
+    public void testUpdateObjects()
+    {
+        benchmark( "Update", DataValueBatchHandler.class, true );
+        benchmark( "Update", DataValueCopyBatchHandler.class, true );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void benchmark( String operation, Class<? extends BatchHandler<DataValue>> batchHandlerClass, boolean update )
+    {
+        long total = 0;
+        long best = Long.MAX_VALUE;
+
+        for ( int round = 0; round <= ROUNDS; round++ )
+        {
+            jdbcTemplate.execute( "delete from datavalue" );
+
+            if ( update )
+            {
+                write( DataValueBatchHandler.class, dataValues, false );
+            }
+
+            long millis = write( batchHandlerClass, update ? updatedValues : dataValues, update );
+
+            assertEquals( dataValues.size(), jdbcTemplate.queryForObject( "select count(*) from datavalue", Integer.class ).intValue() );
+
+            // First round is warm-up
+
+            if ( round > 0 )
+            {
+                total += millis;
+                best = Math.min( best, millis );
+            }
+        }
+
+        log.info( String.format( "%s %d data values with %s: best %d ms, average %d ms over %d rounds",
+            operation, dataValues.size(), batchHandlerClass.getSimpleName(), best, total / ROUNDS, ROUNDS ) );
+    }
+
+    private long write( Class<? extends BatchHandler<DataValue>> batchHandlerClass, List<DataValue> values, boolean update )
+    {
+        long start = System.nanoTime();
+
+        BatchHandler<DataValue> batchHandler = batchHandlerFactory.createBatchHandler( batchHandlerClass ).init();
+
+        for ( DataValue value : values )
+        {
+            if ( update )
+            {
+                batchHandler.updateObject( value );
+            }
+            else
+            {
+                batchHandler.addObject( value );
+            }
+        }
+
+        batchHandler.flush();
+
+        return TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start );
+    }
+}
@@ -0,0 +1,285 @@
+package org.hisp.dhis.jdbc.batchhandler;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.hisp.dhis.IntegrationTestBase;
+import org.hisp.dhis.category.CategoryOptionCombo;
+import org.hisp.dhis.category.CategoryService;
+import org.hisp.dhis.common.AuditType;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.dataelement.DataElementService;
+import org.hisp.dhis.datavalue.DataValue;
+import org.hisp.dhis.datavalue.DataValueAudit;
+import org.hisp.dhis.datavalue.DataValueAuditService;
+import org.hisp.dhis.datavalue.DataValueService;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.organisationunit.OrganisationUnitService;
+import org.hisp.dhis.period.Period;
+import org.hisp.dhis.period.PeriodService;
+import org.hisp.quick.BatchHandler;
+import org.hisp.quick.BatchHandlerFactory;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+public class DataValueCopyBatchHandlerTest
+    extends IntegrationTestBase
+{
+    @Autowired
+    private BatchHandlerFactory batchHandlerFactory;
+
+    @Autowired
+    private DataValueService dataValueService;
+
+    @Autowired
+    private DataValueAuditService auditService;
+
+    @Autowired
+    private DataElementService dataElementService;
+
+    @Autowired
+    private PeriodService periodService;
+
+    @Autowired
+    private OrganisationUnitService organisationUnitService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private DataElement dataElementA;
+
+    private CategoryOptionCombo categoryOptionComboA;
+
+    private Period periodA;
+    private Period periodB;
+
+    private OrganisationUnit unitA;
+    private OrganisationUnit unitB;
+
+    // -------------------------------------------------------------------------
+    // Fixture
+    // -------------------------------------------------------------------------
+
+    @Override
+    public void setUpTest()
+    {
+        dataElementA = createDataElement( 'A' );
+
+        dataElementService.addDataElement( dataElementA );
+
+        categoryOptionComboA = categoryService.getDefaultCategoryOptionCombo();
+
+        periodA = createPeriod( "200001" );
+        periodB = createPeriod( "200002" );
+
+        periodService.addPeriod( periodA );
+        periodService.addPeriod( periodB );
+
+        unitA = createOrganisationUnit( 'A' );
+        unitB = createOrganisationUnit( 'B' );
+
+        organisationUnitService.addOrganisationUnit( unitA );
+        organisationUnitService.addOrganisationUnit( unitB );
+    }
+
+    @Override
+    public boolean emptyDatabaseAfterTest()
+    {
+        return true;
+    }
+
+    // -------------------------------------------------------------------------
+    // Tests
+    // -------------------------------------------------------------------------
+
+    @Test
+    public void testAddObject()
+    {
+        DataValue dataValueA = createDataValue( dataElementA, periodA, unitA, categoryOptionComboA, categoryOptionComboA, "10" );
+        DataValue dataValueB = createDataValue( dataElementA, periodA, unitB, categoryOptionComboA, categoryOptionComboA, "11" );
+        DataValue dataValueC = createDataValue( dataElementA, periodA, unitB, categoryOptionComboA, categoryOptionComboA, "12" ); // Duplicate with 2nd
+
+        dataValueA.setComment( "Comment with \"quotes\", commas and\nnew lines" );
+        dataValueB.setComment( null );
+
+        BatchHandler<DataValue> batchHandler = batchHandlerFactory.createBatchHandler( DataValueCopyBatchHandler.class ).init();
+
+        assertTrue( batchHandler.addObject( dataValueA ) );
+        assertTrue( batchHandler.addObject( dataValueB ) );
+        assertFalse( batchHandler.addObject( dataValueC ) );
+
+        batchHandler.flush();
+
+        DataValue retrievedA = dataValueService.getDataValue( dataElementA, periodA, unitA, categoryOptionComboA, categoryOptionComboA );
+        DataValue retrievedB = dataValueService.getDataValue( dataElementA, periodA, unitB, categoryOptionComboA, categoryOptionComboA );
+
+        assertEquals( "10", retrievedA.getValue() );
+        assertEquals( dataValueA.getComment(), retrievedA.getComment() );
+        assertEquals( "11", retrievedB.getValue() );
+        assertNull( retrievedB.getComment() );
+    }
+
+    @Test
+    public void testAddExistingObject()
+    {
+        dataValueService.addDataValue( createDataValue( dataElementA, periodA, unitA, categoryOptionComboA, categoryOptionComboA, "10" ) );
+
+        BatchHandler<DataValue> batchHandler = batchHandlerFactory.createBatchHandler( DataValueCopyBatchHandler.class ).init();
+
+        batchHandler.addObject( createDataValue( dataElementA, periodA, unitA, categoryOptionComboA, categoryOptionComboA, "20" ) );
+        batchHandler.addObject( createDataValue( dataElementA, periodB, unitA, categoryOptionComboA, categoryOptionComboA, "21" ) );
+
+        batchHandler.flush();
+
+        assertEquals( "10", dataValueService.getDataValue( dataElementA, periodA, unitA, categoryOptionComboA, categoryOptionComboA ).getValue() );
+        assertEquals( "21", dataValueService.getDataValue( dataElementA, periodB, unitA, categoryOptionComboA, categoryOptionComboA ).getValue() );
+    }
+
+    @Test
+    public void testUpdateObject()
+    {
+        DataValue dataValueA = createDataValue( dataElementA, periodA, unitA, categoryOptionComboA, categoryOptionComboA, "10" );
+
+        dataValueService.addDataValue( dataValueA );
+
+        BatchHandler<DataValue> batchHandler = batchHandlerFactory.createBatchHandler( DataValueCopyBatchHandler.class ).init();
+
+        DataValue updateA = createDataValue( dataElementA, periodA, unitA, categoryOptionComboA, categoryOptionComboA, "20" );
+        DataValue updateB = createDataValue( dataElementA, periodA, unitA, categoryOptionComboA, categoryOptionComboA, "30" );
+
+        updateB.setDeleted( true );
+
+        batchHandler.updateObject( updateA );
+        batchHandler.updateObject( updateB );
+
+        batchHandler.flush();
+
+        Integer count = jdbcTemplate.queryForObject( "select count(*) from datavalue where value = '30' and deleted = true", Integer.class );
+
+        assertEquals( 1, count.intValue() );
+    }
+
+    @Test
+    public void testAddAudit()
+    {
+        DataValue dataValueA = createDataValue( dataElementA, periodA, unitA, categoryOptionComboA, categoryOptionComboA, "10" );
+
+        dataValueService.addDataValue( dataValueA );
+
+        BatchHandler<DataValueAudit> batchHandler = batchHandlerFactory.createBatchHandler( DataValueAuditCopyBatchHandler.class ).init();
+
+        batchHandler.addObject( new DataValueAudit( dataValueA, "11", "johndoe", AuditType.UPDATE ) );
+        batchHandler.addObject( new DataValueAudit( dataValueA, "12", "johndoe", AuditType.UPDATE ) );
+
+        batchHandler.flush();
+
+        assertEquals( 2, auditService.getDataValueAudits( dataValueA ).size() );
+    }
+
+    /**
+     * Writes the same data values through the regular batch handler and the
+     * COPY batch handler and verifies that both produce the same rows.
+     */
+    @Test
+    public void testAddObjectsEqualToBatchHandler()
+    {
+        List<DataValue> dataValues = createDataValues( 20, 12 );
+
+        write( DataValueBatchHandler.class, dataValues );
+
+        List<Map<String, Object>> batchRows = getDataValueRows();
+
+        assertEquals( dataValues.size(), batchRows.size() );
+
+        jdbcTemplate.execute( "delete from datavalue" );
+
+        write( DataValueCopyBatchHandler.class, dataValues );
+
+        assertEquals( batchRows, getDataValueRows() );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private List<DataValue> createDataValues( int orgUnits, int months )
+    {
+        List<Period> periods = new ArrayList<>();
+
+        for ( int i = 0; i < months; i++ )
+        {
+            Period period = createPeriod( String.format( "%d%02d", 2001 + i / 12, 1 + i % 12 ) );
+            periodService.addPeriod( period );
+            periods.add( period );
+        }
+
+        List<DataValue> dataValues = new ArrayList<>();
+
+        for ( int i = 0; i < orgUnits; i++ )
+        {
+            OrganisationUnit unit = createOrganisationUnit( "OrgUnit" + i );
+            organisationUnitService.addOrganisationUnit( unit );
+
+            for ( Period period : periods )
+            {
+                dataValues.add( createDataValue( dataElementA, period, unit, categoryOptionComboA, categoryOptionComboA, String.valueOf( i ) ) );
+            }
+        }
+
+        return dataValues;
+    }
+
+    private void write( Class<? extends BatchHandler<DataValue>> batchHandlerClass, List<DataValue> dataValues )
+    {
+        BatchHandler<DataValue> batchHandler = batchHandlerFactory.createBatchHandler( batchHandlerClass ).init();
+
+        dataValues.forEach( batchHandler::addObject );
+
+        batchHandler.flush();
+    }
+
+    private List<Map<String, Object>> getDataValueRows()
+    {
+        return jdbcTemplate.queryForList( "select dataelementid, periodid, sourceid, categoryoptioncomboid, " +
+            "attributeoptioncomboid, value, storedby, comment, followup, deleted from datavalue " +
+            "order by dataelementid, periodid, sourceid" );
+    }
+}
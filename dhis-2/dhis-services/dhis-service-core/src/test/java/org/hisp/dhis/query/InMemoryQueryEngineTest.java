@@ -510,6 +510,24 @@ public class InMemoryQueryEngineTest
         assertEquals( "deabcdefghF", objects.get( 5 ).getUid() );
     }
 
+    @Test
+    public void sortNameDescPaged()
+    {
+        Schema schema = schemaService.getDynamicSchema( DataElement.class );
+
+        Query query = Query.from( schema );
+        query.setObjects( dataElements );
+        query.addOrder( new Order( schema.getProperty( "name" ), Direction.DESCENDING ) );
+        query.setFirstResult( 1 );
+        query.setMaxResults( 2 );
+        List<? extends IdentifiableObject> objects = queryEngine.query( query );
+
+        assertEquals( 2, objects.size() );
+
+        assertEquals( "deabcdefghE", objects.get( 0 ).getUid() );
+        assertEquals( "deabcdefghD", objects.get( 1 ).getUid() );
+    }
+
     @Test( expected = QueryException.class )
     public void testInvalidDeepPath()
     {
@@ -0,0 +1,161 @@
+package org.hisp.dhis.reservedvalue;
+
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.hisp.dhis.common.Objects;
+import org.hisp.dhis.textpattern.TextPattern;
+import org.hisp.dhis.textpattern.TextPatternMethod;
+import org.hisp.dhis.textpattern.TextPatternParser;
+import org.hisp.dhis.textpattern.TextPatternSegment;
+import org.hisp.dhis.textpattern.TextPatternService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.core.env.Environment;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class ReservedValuePoolTest
+{
+    @Mock
+    private Environment env;
+
+    @Mock
+    private TextPatternService textPatternService;
+
+    @Mock
+    private ReservedValueStore reservedValueStore;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Rule
+    public MockitoRule rule = MockitoJUnit.rule();
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ReservedValuePool pool;
+
+    private TextPattern textPattern;
+
+    private TextPatternSegment segment;
+
+    private ReservedValue reservedValue;
+
+    @Before
+    @SuppressWarnings( "unchecked" )
+    public void setUp()
+        throws Exception
+    {
+        when( env.getActiveProfiles() ).thenReturn( new String[0] );
+        when( transactionTemplate.execute( any() ) )
+            .thenAnswer( invocation -> invocation.getArgument( 0, TransactionCallback.class ).doInTransaction( null ) );
+        when( textPatternService.resolvePattern( any(), anyMap() ) )
+            .thenAnswer( invocation -> "TEST-" + invocation.getArgument( 1, Map.class ).get( "RANDOM" ) );
+        when( reservedValueStore.getAvailableValues( any(), anyList() ) )
+            .thenAnswer( invocation -> invocation.getArgument( 1 ) );
+
+        meterRegistry = new SimpleMeterRegistry();
+
+        pool = new ReservedValuePool( env, textPatternService, reservedValueStore, transactionTemplate,
+            meterRegistry );
+        pool.init();
+
+        textPattern = TextPatternParser.parse( "\"TEST-\"+RANDOM(XXXXXX)" );
+        textPattern.setOwnerObject( Objects.TRACKEDENTITYATTRIBUTE );
+        textPattern.setOwnerUid( "AttributeAA" );
+
+        segment = textPattern.getSegments().stream()
+            .filter( s -> s.getMethod().isGenerated() ).findFirst().orElse( null );
+
+        reservedValue = new ReservedValue( Objects.TRACKEDENTITYATTRIBUTE.name(), "AttributeAA",
+            "TEST-RANDOM(XXXXXX)", "TEST-%", null );
+    }
+
+    @After
+    public void tearDown()
+    {
+        pool.destroy();
+    }
+
+    @Test
+    public void testIsPooled()
+        throws Exception
+    {
+        assertTrue( pool.isPooled( segment ) );
+        assertFalse( pool.isPooled( null ) );
+
+        TextPattern sequential = TextPatternParser.parse( "\"TEST-\"+SEQUENTIAL(###)" );
+
+        assertFalse( pool.isPooled( sequential.getSegments().stream()
+            .filter( s -> s.getMethod() == TextPatternMethod.SEQUENTIAL ).findFirst().orElse( null ) ) );
+    }
+
+    @Test
+    public void testClaimAfterRefill()
+        throws Exception
+    {
+        assertTrue( pool.claim( textPattern, segment, new HashMap<>(), reservedValue, 10 ).isEmpty() );
+        assertEquals( 1.0, meterRegistry.get( "reserved.value.pool.exhausted" ).counter().count(), 0.0 );
+
+        long timeout = System.currentTimeMillis() + 10000;
+
+        while ( meterRegistry.get( "reserved.value.pool" ).gauge().value() < 1000
+            && System.currentTimeMillis() < timeout )
+        {
+            Thread.sleep( 10 );
+        }
+
+        List<String> claimed = pool.claim( textPattern, segment, new HashMap<>(), reservedValue, 10 );
+
+        assertEquals( 10, claimed.size() );
+        assertEquals( 10, new HashSet<>( claimed ).size() );
+        assertEquals( 1.0, meterRegistry.get( "reserved.value.pool.exhausted" ).counter().count(), 0.0 );
+    }
+}
@@ -0,0 +1,200 @@
+package org.hisp.dhis.trackedentity;
+
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+public class TrackedEntityAttributeSearchIndexServiceTest
+{
+    private static final String CREATE_INDEX_SQL = "create index concurrently in_teav_trgm_42 on " +
+        "trackedentityattributevalue using gin (lower(value) gin_trgm_ops) where trackedentityattributeid = 42";
+
+    private static final String DROP_INDEX_SQL = "drop index concurrently if exists in_teav_trgm_42";
+
+    private static final String CREATE_EXTENSION_SQL = "create extension if not exists pg_trgm";
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Rule
+    public MockitoRule rule = MockitoJUnit.rule();
+
+    private TrackedEntityAttributeSearchIndexService subject;
+
+    private TrackedEntityAttribute attribute;
+
+    @Before
+    public void setUp()
+    {
+        subject = new DefaultTrackedEntityAttributeSearchIndexService( jdbcTemplate );
+
+        attribute = new TrackedEntityAttribute();
+        attribute.setId( 42 );
+
+        when( jdbcTemplate.queryForObject( contains( "pg_extension" ), eq( Integer.class ) ) ).thenReturn( 1 );
+    }
+
+    @Test
+    public void testRebuildSearchIndexReplacesIndex()
+    {
+        subject.rebuildSearchIndex( attribute );
+
+        InOrder inOrder = inOrder( jdbcTemplate );
+        inOrder.verify( jdbcTemplate ).execute( DROP_INDEX_SQL );
+        inOrder.verify( jdbcTemplate ).execute( CREATE_INDEX_SQL );
+        verify( jdbcTemplate, never() ).execute( CREATE_EXTENSION_SQL );
+    }
+
+    @Test
+    public void testCreateSearchIndexWhenValidIndexExists()
+    {
+        mockIndex( true );
+
+        assertTrue( subject.hasSearchIndex( attribute ) );
+
+        subject.createSearchIndex( attribute );
+
+        verify( jdbcTemplate, never() ).execute( anyString() );
+    }
+
+    @Test
+    public void testCreateSearchIndexReplacesInvalidIndex()
+    {
+        mockIndex( false );
+
+        assertFalse( subject.hasSearchIndex( attribute ) );
+
+        subject.createSearchIndex( attribute );
+
+        InOrder inOrder = inOrder( jdbcTemplate );
+        inOrder.verify( jdbcTemplate ).execute( DROP_INDEX_SQL );
+        inOrder.verify( jdbcTemplate ).execute( CREATE_INDEX_SQL );
+    }
+
+    @Test
+    public void testCreateSearchIndexCreatesMissingExtension()
+    {
+        when( jdbcTemplate.queryForObject( contains( "pg_extension" ), eq( Integer.class ) ) ).thenReturn( 0 );
+
+        subject.createSearchIndex( attribute );
+
+        InOrder inOrder = inOrder( jdbcTemplate );
+        inOrder.verify( jdbcTemplate ).execute( CREATE_EXTENSION_SQL );
+        inOrder.verify( jdbcTemplate ).execute( CREATE_INDEX_SQL );
+    }
+
+    @Test
+    public void testCreateSearchIndexWithoutPermissionToCreateExtension()
+    {
+        when( jdbcTemplate.queryForObject( contains( "pg_extension" ), eq( Integer.class ) ) ).thenReturn( 0 );
+        doThrow( new DataAccessResourceFailureException( "permission denied to create extension" ) )
+            .when( jdbcTemplate ).execute( CREATE_EXTENSION_SQL );
+
+        try
+        {
+            subject.createSearchIndex( attribute );
+            fail( "Expected IllegalStateException" );
+        }
+        catch ( IllegalStateException ex )
+        {
+            assertTrue( ex.getMessage().contains( "create extension pg_trgm" ) );
+        }
+
+        verify( jdbcTemplate, never() ).execute( CREATE_INDEX_SQL );
+    }
+
+    @Test
+    public void testFailedBuildDropsInvalidIndex()
+    {
+        DataAccessResourceFailureException failure = new DataAccessResourceFailureException( "canceled" );
+        doThrow( failure ).when( jdbcTemplate ).execute( CREATE_INDEX_SQL );
+
+        try
+        {
+            subject.createSearchIndex( attribute );
+            fail( "Expected DataAccessResourceFailureException" );
+        }
+        catch ( DataAccessResourceFailureException ex )
+        {
+            assertEquals( failure, ex );
+        }
+
+        verify( jdbcTemplate, times( 2 ) ).execute( DROP_INDEX_SQL );
+    }
+
+    @Test
+    public void testCreateSearchIndexes()
+    {
+        when( jdbcTemplate.queryForList( anyString(), eq( Long.class ) ) ).thenReturn( Arrays.asList( 1L, 2L, 3L ) );
+        when( jdbcTemplate.queryForList( anyString(), eq( Boolean.class ), eq( "in_teav_trgm_1" ) ) )
+            .thenReturn( Collections.singletonList( true ) );
+        when( jdbcTemplate.queryForList( anyString(), eq( Boolean.class ), eq( "in_teav_trgm_2" ) ) )
+            .thenReturn( Collections.singletonList( false ) );
+
+        assertEquals( 2, subject.createSearchIndexes() );
+
+        verify( jdbcTemplate, never() ).execute( "drop index concurrently if exists in_teav_trgm_1" );
+        verify( jdbcTemplate ).execute( "create index concurrently in_teav_trgm_2 on trackedentityattributevalue " +
+            "using gin (lower(value) gin_trgm_ops) where trackedentityattributeid = 2" );
+        verify( jdbcTemplate ).execute( "create index concurrently in_teav_trgm_3 on trackedentityattributevalue " +
+            "using gin (lower(value) gin_trgm_ops) where trackedentityattributeid = 3" );
+    }
+
+    private void mockIndex( boolean valid )
+    {
+        when( jdbcTemplate.queryForList( anyString(), eq( Boolean.class ), eq( "in_teav_trgm_42" ) ) )
+            .thenReturn( Collections.singletonList( valid ) );
+    }
+}
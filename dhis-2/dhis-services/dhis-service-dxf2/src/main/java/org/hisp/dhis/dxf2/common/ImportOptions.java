@@ -73,6 +73,20 @@ public class ImportOptions
 
     private boolean skipAudit;
 
+    /**
+     * Indicates whether to write data values through bulk COPY into a
+     * staging table, merged into the target table with set-based statements.
+     * Only applies to PostgreSQL.
+     */
+    private boolean bulkCopy;
+
+    /**
+     * Indicates whether to write data values on a number of workers, each
+     * handling the values of a partition of organisation units. Values are
+     * still read and validated on the importing thread.
+     */
+    private boolean parallel;
+
     private boolean datasetAllowsPeriods;
 
     private boolean strictPeriods;
@@ -138,6 +152,8 @@ public class ImportOptions
         options.importStrategy = this.importStrategy;
         options.mergeMode = this.mergeMode;
         options.skipExistingCheck = this.skipExistingCheck;
+        options.bulkCopy = this.bulkCopy;
+        options.parallel = this.parallel;
         options.sharing = this.sharing;
         options.skipNotifications = this.skipNotifications;
         options.datasetAllowsPeriods = this.datasetAllowsPeriods;
@@ -303,6 +319,20 @@ public class ImportOptions
         return skipAudit;
     }
 
+    @JsonProperty
+    @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
+    public boolean isBulkCopy()
+    {
+        return bulkCopy;
+    }
+
+    @JsonProperty
+    @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
+    public boolean isParallel()
+    {
+        return parallel;
+    }
+
     @JsonProperty
     @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
     public boolean isStrictPeriods()
@@ -544,6 +574,18 @@ public class ImportOptions
         this.skipAudit = skipAudit;
     }
 
+    public ImportOptions setBulkCopy( boolean bulkCopy )
+    {
+        this.bulkCopy = bulkCopy;
+        return this;
+    }
+
+    public ImportOptions setParallel( boolean parallel )
+    {
+        this.parallel = parallel;
+        return this;
+    }
+
     public ImportOptions setStrictPeriods( boolean strictPeriods )
     {
         this.strictPeriods = strictPeriods;
@@ -649,6 +691,8 @@ public class ImportOptions
             .add( "importStrategy", importStrategy )
             .add( "mergeMode", mergeMode )
             .add( "skipExistingCheck", skipExistingCheck )
+            .add( "bulkCopy", bulkCopy )
+            .add( "parallel", parallel )
             .add( "ignoreEmptyCollection", ignoreEmptyCollection )
             .add( "sharing", sharing )
             .add( "skipNotifications", skipNotifications )
@@ -0,0 +1,516 @@
+package org.hisp.dhis.dxf2.datavalueset;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import org.hisp.dhis.common.AuditType;
+import org.hisp.dhis.commons.util.ConcurrentUtils;
+import org.hisp.dhis.datavalue.DataValue;
+import org.hisp.dhis.datavalue.DataValueAudit;
+import org.hisp.dhis.importexport.ImportStrategy;
+import org.hisp.quick.BatchHandler;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Writes validated data values through batch handlers, which check for
+ * existing values and insert, update and audit values. Values can be written
+ * by a number of workers, each owning its own batch handlers and hence its
+ * own database connections. Values are partitioned by organisation unit, so
+ * that all values of a data value key are written in order by the same
+ * worker. File resources are not touched by workers, instead the values
+ * referring to file resources are collected and handed back to the caller,
+ * which holds the Hibernate session.
+ *
+ * Callers must invoke {@link #flush()} after the last value, or
+ * {@link #abort()} if the import fails, so that workers are stopped and batch
+ * handlers release their database connections.
+ */
+@Slf4j
+class DataValueSetWriter
+{
+    private static final int QUEUE_SIZE = 5000;
+
+    private static final Entry END = new Entry( null, false, null, null );
+
+    private final ImportStrategy strategy;
+
+    private final boolean dryRun;
+
+    private final boolean skipExistingCheck;
+
+    private final List<Partition> partitions = new ArrayList<>();
+
+    private final List<BlockingQueue<Entry>> queues = new ArrayList<>();
+
+    private final List<Future<?>> futures = new ArrayList<>();
+
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+    private ExecutorService executor;
+
+    private boolean closed;
+
+    /**
+     * @param strategy the import strategy.
+     * @param dryRun whether this is a dry run.
+     * @param skipExistingCheck whether to skip the check for existing values.
+     * @param workerNo the number of workers, where 1 implies writing on the
+     *        calling thread.
+     * @param dataValueBatchHandler supplier of initialized data value batch
+     *        handlers.
+     * @param auditBatchHandler supplier of initialized audit batch handlers,
+     *        null if audits should be skipped.
+     */
+    DataValueSetWriter( ImportStrategy strategy, boolean dryRun, boolean skipExistingCheck, int workerNo,
+        Supplier<BatchHandler<DataValue>> dataValueBatchHandler, Supplier<BatchHandler<DataValueAudit>> auditBatchHandler )
+    {
+        this.strategy = strategy;
+        this.dryRun = dryRun;
+        this.skipExistingCheck = skipExistingCheck;
+
+        try
+        {
+            for ( int i = 0; i < workerNo; i++ )
+            {
+                partitions.add( new Partition( dataValueBatchHandler.get(), auditBatchHandler != null ? auditBatchHandler.get() : null ) );
+            }
+        }
+        catch ( RuntimeException ex )
+        {
+            partitions.forEach( Partition::flush );
+
+            throw ex;
+        }
+
+        if ( workerNo > 1 )
+        {
+            executor = Executors.newFixedThreadPool( workerNo );
+
+            for ( Partition partition : partitions )
+            {
+                BlockingQueue<Entry> queue = new ArrayBlockingQueue<>( QUEUE_SIZE );
+
+                queues.add( queue );
+                futures.add( executor.submit( () -> run( partition, queue ) ) );
+            }
+        }
+    }
+
+    /**
+     * Writes the given data value, on the calling thread if there is a single
+     * worker or else on the worker of the organisation unit of the value.
+     *
+     * @param value the data value.
+     * @param fileType whether the data element of the value is of file type.
+     * @param storedBy the user to store in audits.
+     * @param actualValue the value referring to the file resource to update on
+     *        delete, can be null.
+     */
+    void write( DataValue value, boolean fileType, String storedBy, String actualValue )
+    {
+        Entry entry = new Entry( value, fileType, storedBy, actualValue );
+
+        if ( executor == null )
+        {
+            partitions.get( 0 ).write( entry );
+            return;
+        }
+
+        throwIfFailed();
+
+        int index = Math.floorMod( Long.hashCode( value.getSource().getId() ), queues.size() );
+
+        try
+        {
+            queues.get( index ).put( entry );
+        }
+        catch ( InterruptedException ex )
+        {
+            Thread.currentThread().interrupt();
+
+            throw new RuntimeException( "Interrupted while writing data values", ex );
+        }
+    }
+
+    /**
+     * Flushes all batch handlers and waits for workers to complete. Must be
+     * invoked before counts and file resource values are read.
+     */
+    void flush()
+    {
+        closed = true;
+
+        if ( executor == null )
+        {
+            partitions.get( 0 ).flush();
+            return;
+        }
+
+        stopWorkers();
+
+        throwIfFailed();
+    }
+
+    /**
+     * Stops the workers after the caller failed, discarding entries which are
+     * not yet written, and flushes all batch handlers. Does nothing if the
+     * writer was already flushed. Never throws, so that the failure of the
+     * caller is not masked.
+     */
+    void abort()
+    {
+        if ( closed )
+        {
+            return;
+        }
+
+        closed = true;
+
+        failure.compareAndSet( null, new RuntimeException( "Data value import was aborted" ) );
+
+        try
+        {
+            if ( executor == null )
+            {
+                partitions.get( 0 ).flush();
+            }
+            else
+            {
+                stopWorkers();
+            }
+        }
+        catch ( RuntimeException ex )
+        {
+            log.warn( "Failed to release data value writer after aborted import", ex );
+        }
+    }
+
+    /**
+     * Waits for all worker threads to terminate after a flush or abort.
+     *
+     * @return true if all worker threads terminated within the timeout.
+     */
+    boolean awaitTermination( long timeout, TimeUnit unit )
+        throws InterruptedException
+    {
+        return executor == null || executor.awaitTermination( timeout, unit );
+    }
+
+    int getImportCount()
+    {
+        return partitions.stream().mapToInt( p -> p.importCount ).sum();
+    }
+
+    int getUpdateCount()
+    {
+        return partitions.stream().mapToInt( p -> p.updateCount ).sum();
+    }
+
+    int getDeleteCount()
+    {
+        return partitions.stream().mapToInt( p -> p.deleteCount ).sum();
+    }
+
+    /**
+     * Returns the values referring to file resources to mark as assigned.
+     */
+    List<String> getAssignedFileResources()
+    {
+        List<String> values = new ArrayList<>();
+        partitions.forEach( p -> values.addAll( p.assignedFileResources ) );
+        return values;
+    }
+
+    /**
+     * Returns the values referring to file resources of deleted values.
+     */
+    List<String> getDeletedFileResources()
+    {
+        List<String> values = new ArrayList<>();
+        partitions.forEach( p -> values.addAll( p.deletedFileResources ) );
+        return values;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Writes entries from the given queue until the end entry is taken. After
+     * a failure in any worker, remaining entries are drained without being
+     * written so that the reading thread never blocks on a full queue.
+     */
+    private void run( Partition partition, BlockingQueue<Entry> queue )
+    {
+        try
+        {
+            Entry entry;
+
+            while ( ( entry = queue.take() ) != END )
+            {
+                if ( failure.get() == null )
+                {
+                    try
+                    {
+                        partition.write( entry );
+                    }
+                    catch ( RuntimeException ex )
+                    {
+                        failure.compareAndSet( null, ex );
+                    }
+                }
+            }
+        }
+        catch ( InterruptedException ex )
+        {
+            Thread.currentThread().interrupt();
+
+            failure.compareAndSet( null, new RuntimeException( "Interrupted while writing data values", ex ) );
+        }
+        finally
+        {
+            partition.flush();
+        }
+    }
+
+    /**
+     * Sends the end entry to every worker and waits for the workers to flush
+     * their batch handlers and complete.
+     */
+    private void stopWorkers()
+    {
+        try
+        {
+            for ( BlockingQueue<Entry> queue : queues )
+            {
+                queue.put( END );
+            }
+
+            ConcurrentUtils.waitForCompletion( futures );
+        }
+        catch ( InterruptedException ex )
+        {
+            Thread.currentThread().interrupt();
+
+            futures.forEach( future -> future.cancel( true ) );
+
+            throw new RuntimeException( "Interrupted while writing data values", ex );
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    private void throwIfFailed()
+    {
+        RuntimeException ex = failure.get();
+
+        if ( ex != null )
+        {
+            throw ex;
+        }
+    }
+
+    private static class Entry
+    {
+        final DataValue value;
+
+        final boolean fileType;
+
+        final String storedBy;
+
+        final String actualValue;
+
+        Entry( DataValue value, boolean fileType, String storedBy, String actualValue )
+        {
+            this.value = value;
+            this.fileType = fileType;
+            this.storedBy = storedBy;
+            this.actualValue = actualValue;
+        }
+    }
+
+    /**
+     * Writes the values of one partition sequentially.
+     */
+    private class Partition
+    {
+        final BatchHandler<DataValue> dataValueBatchHandler;
+
+        final BatchHandler<DataValueAudit> auditBatchHandler;
+
+        final List<String> assignedFileResources = new ArrayList<>();
+
+        final List<String> deletedFileResources = new ArrayList<>();
+
+        int importCount;
+
+        int updateCount;
+
+        int deleteCount;
+
+        Partition( BatchHandler<DataValue> dataValueBatchHandler, BatchHandler<DataValueAudit> auditBatchHandler )
+        {
+            this.dataValueBatchHandler = dataValueBatchHandler;
+            this.auditBatchHandler = auditBatchHandler;
+        }
+
+        void write( Entry entry )
+        {
+            DataValue internalValue = entry.value;
+
+            DataValue existingValue = !skipExistingCheck ? dataValueBatchHandler.findObject( internalValue ) : null;
+
+            // -----------------------------------------------------------------
+            // Check soft deleted data values on update and import
+            // -----------------------------------------------------------------
+
+            if ( !skipExistingCheck && existingValue != null && !existingValue.isDeleted() )
+            {
+                if ( strategy.isCreateAndUpdate() || strategy.isUpdate() )
+                {
+                    AuditType auditType = AuditType.UPDATE;
+
+                    if ( internalValue.isNullValue() || internalValue.isDeleted() )
+                    {
+                        internalValue.setDeleted( true );
+
+                        auditType = AuditType.DELETE;
+
+                        deleteCount++;
+                    }
+                    else
+                    {
+                        updateCount++;
+                    }
+
+                    if ( !dryRun )
+                    {
+                        dataValueBatchHandler.updateObject( internalValue );
+
+                        if ( auditBatchHandler != null )
+                        {
+                            auditBatchHandler.addObject( new DataValueAudit( internalValue, existingValue.getValue(), entry.storedBy, auditType ) );
+                        }
+
+                        if ( entry.fileType )
+                        {
+                            assignedFileResources.add( internalValue.getValue() );
+                        }
+                    }
+                }
+                else if ( strategy.isDelete() )
+                {
+                    internalValue.setDeleted( true );
+
+                    deleteCount++;
+
+                    if ( !dryRun )
+                    {
+                        if ( entry.fileType && entry.actualValue != null )
+                        {
+                            deletedFileResources.add( entry.actualValue );
+                        }
+
+                        dataValueBatchHandler.updateObject( internalValue );
+
+                        if ( auditBatchHandler != null )
+                        {
+                            auditBatchHandler.addObject( new DataValueAudit( internalValue, existingValue.getValue(), entry.storedBy, AuditType.DELETE ) );
+                        }
+                    }
+                }
+            }
+            else
+            {
+                if ( strategy.isCreateAndUpdate() || strategy.isCreate() )
+                {
+                    if ( !internalValue.isNullValue() ) // Ignore null values
+                    {
+                        if ( existingValue != null && existingValue.isDeleted() )
+                        {
+                            importCount++;
+
+                            if ( !dryRun )
+                            {
+                                dataValueBatchHandler.updateObject( internalValue );
+
+                                if ( entry.fileType )
+                                {
+                                    assignedFileResources.add( internalValue.getValue() );
+                                }
+                            }
+                        }
+                        else
+                        {
+                            boolean added = false;
+
+                            if ( !dryRun )
+                            {
+                                added = dataValueBatchHandler.addObject( internalValue );
+
+                                if ( added && entry.fileType )
+                                {
+                                    assignedFileResources.add( internalValue.getValue() );
+                                }
+                            }
+
+                            if ( dryRun || added )
+                            {
+                                importCount++;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        void flush()
+        {
+            dataValueBatchHandler.flush();
+
+            if ( auditBatchHandler != null )
+            {
+                auditBatchHandler.flush();
+            }
+        }
+    }
+}
@@ -35,7 +35,6 @@ import org.apache.commons.lang3.BooleanUtils;
 import org.hisp.dhis.calendar.CalendarService;
 import org.hisp.dhis.category.CategoryOptionCombo;
 import org.hisp.dhis.category.CategoryService;
-import org.hisp.dhis.common.AuditType;
 import org.hisp.dhis.common.DateRange;
 import org.hisp.dhis.common.DxfNamespaces;
 import org.hisp.dhis.common.IdScheme;
@@ -46,6 +45,7 @@ import org.hisp.dhis.common.IllegalQueryException;
 import org.hisp.dhis.commons.collection.CachingMap;
 import org.hisp.dhis.commons.util.DebugUtils;
 import org.hisp.dhis.commons.util.StreamUtils;
+import org.hisp.dhis.commons.util.SystemUtils;
 import org.hisp.dhis.dataapproval.DataApproval;
 import org.hisp.dhis.dataapproval.DataApprovalService;
 import org.hisp.dhis.dataapproval.DataApprovalWorkflow;
@@ -58,7 +58,6 @@ import org.hisp.dhis.dataset.LockExceptionStore;
 import org.hisp.dhis.datavalue.AggregateAccessManager;
 import org.hisp.dhis.datavalue.DataExportParams;
 import org.hisp.dhis.datavalue.DataValue;
-import org.hisp.dhis.datavalue.DataValueAudit;
 import org.hisp.dhis.datavalue.DataValueService;
 import org.hisp.dhis.dxf2.common.ImportOptions;
 import org.hisp.dhis.dxf2.importsummary.ImportConflict;
@@ -76,7 +75,9 @@ import org.hisp.dhis.i18n.I18n;
 import org.hisp.dhis.i18n.I18nManager;
 import org.hisp.dhis.importexport.ImportStrategy;
 import org.hisp.dhis.jdbc.batchhandler.DataValueAuditBatchHandler;
+import org.hisp.dhis.jdbc.batchhandler.DataValueAuditCopyBatchHandler;
 import org.hisp.dhis.jdbc.batchhandler.DataValueBatchHandler;
+import org.hisp.dhis.jdbc.batchhandler.DataValueCopyBatchHandler;
 import org.hisp.dhis.node.types.CollectionNode;
 import org.hisp.dhis.node.types.ComplexNode;
 import org.hisp.dhis.node.types.RootNode;
@@ -104,7 +105,6 @@ import org.hisp.dhis.user.CurrentUserService;
 import org.hisp.dhis.user.User;
 import org.hisp.dhis.util.DateUtils;
 import org.hisp.dhis.util.ObjectUtils;
-import org.hisp.quick.BatchHandler;
 import org.hisp.quick.BatchHandlerFactory;
 import org.hisp.staxwax.factory.XMLFactory;
 import org.springframework.stereotype.Service;
@@ -141,6 +141,12 @@ public class DefaultDataValueSetService
     private static final String ERROR_OBJECT_NEEDED_TO_COMPLETE = "Must be provided to complete data set";
     private static final int CACHE_MISS_THRESHOLD = 250;
 
+    /**
+     * Maximum number of data value import workers. Each worker opens two
+     * database connections outside of the connection pool.
+     */
+    private static final int MAX_WORKER_NO = 4;
+
     private final IdentifiableObjectManager identifiableObjectManager;
 
     private final CategoryService categoryService;
@@ -846,7 +852,7 @@ public class DefaultDataValueSetService
         // Heat caches
         // ---------------------------------------------------------------------
 
-        if ( importOptions.isPreheatCacheDefaultFalse() )
+        if ( importOptions.isPreheatCacheDefaultFalse() || importOptions.isParallel() )
         {
             dataElementMap.load( identifiableObjectManager.getAll( DataElement.class ), o -> o.getPropertyValue( dataElementIdScheme ) );
             orgUnitMap.load( identifiableObjectManager.getAll( OrganisationUnit.class ), o -> o.getPropertyValue( orgUnitIdScheme ) );
@@ -935,12 +941,17 @@ public class DefaultDataValueSetService
 
         final Set<OrganisationUnit> currentOrgUnits = currentUserService.getCurrentUserOrganisationUnits();
 
-        BatchHandler<DataValue> dataValueBatchHandler = batchHandlerFactory.createBatchHandler( DataValueBatchHandler.class ).init();
-        BatchHandler<DataValueAudit> auditBatchHandler = skipAudit ? null : batchHandlerFactory.createBatchHandler( DataValueAuditBatchHandler.class ).init();
+        final boolean bulkCopy = importOptions.isBulkCopy();
+        final int workerNo = importOptions.isParallel() ? getWorkerNo() : 1;
+
+        log.info( String.format( "Bulk copy: %b, workers: %d", bulkCopy, workerNo ) );
+
+        DataValueSetWriter writer = new DataValueSetWriter( strategy, dryRun, skipExistingCheck, workerNo,
+            () -> batchHandlerFactory.createBatchHandler( bulkCopy ?
+                DataValueCopyBatchHandler.class : DataValueBatchHandler.class ).init(),
+            skipAudit ? null : () -> batchHandlerFactory.createBatchHandler( bulkCopy ?
+                DataValueAuditCopyBatchHandler.class : DataValueAuditBatchHandler.class ).init() );
 
-        int importCount = 0;
-        int updateCount = 0;
-        int deleteCount = 0;
         int totalCount = 0;
 
         // ---------------------------------------------------------------------
@@ -952,483 +963,382 @@ public class DefaultDataValueSetService
         clock.logTime( "Validated outer meta-data" );
         notifier.notify( id, notificationLevel, "Importing data values" );
 
-        while ( dataValueSet.hasNextDataValue() )
+        try
         {
-            org.hisp.dhis.dxf2.datavalue.DataValue dataValue = dataValueSet.getNextDataValue();
-
-            totalCount++;
-
-            final DataElement dataElement =
-                dataElementMap.get( trimToNull( dataValue.getDataElement() ), dataElementCallable.setId( trimToNull( dataValue.getDataElement() ) ) );
-            final Period period = outerPeriod != null ? outerPeriod :
-                periodMap.get( trimToNull( dataValue.getPeriod() ), periodCallable.setId( trimToNull( dataValue.getPeriod() ) ) );
-            final OrganisationUnit orgUnit = outerOrgUnit != null ? outerOrgUnit :
-                orgUnitMap.get( trimToNull( dataValue.getOrgUnit() ), orgUnitCallable.setId( trimToNull( dataValue.getOrgUnit() ) ) );
-            CategoryOptionCombo categoryOptionCombo =
-                optionComboMap.get( trimToNull( dataValue.getCategoryOptionCombo() ), categoryOptionComboCallable.setId( trimToNull( dataValue.getCategoryOptionCombo() ) ) );
-            CategoryOptionCombo attrOptionCombo = outerAttrOptionCombo != null ? outerAttrOptionCombo :
-                optionComboMap.get( trimToNull( dataValue.getAttributeOptionCombo() ), attributeOptionComboCallable.setId( trimToNull( dataValue.getAttributeOptionCombo() ) ) );
-
-            // -----------------------------------------------------------------
-            // Potentially heat caches
-            // -----------------------------------------------------------------
-
-            if ( !dataElementMap.isCacheLoaded() && dataElementMap.getCacheMissCount() > CACHE_MISS_THRESHOLD )
-            {
-                dataElementMap.load( identifiableObjectManager.getAll( DataElement.class ), o -> o.getPropertyValue( dataElementIdScheme ) );
-
-                log.info( "Data element cache heated after cache miss threshold reached" );
-            }
-
-            if ( !orgUnitMap.isCacheLoaded() && orgUnitMap.getCacheMissCount() > CACHE_MISS_THRESHOLD )
-            {
-                orgUnitMap.load( identifiableObjectManager.getAll( OrganisationUnit.class ), o -> o.getPropertyValue( orgUnitIdScheme ) );
-
-                log.info( "Org unit cache heated after cache miss threshold reached" );
-            }
-
-            if ( !optionComboMap.isCacheLoaded() && optionComboMap.getCacheMissCount() > CACHE_MISS_THRESHOLD )
+            while ( dataValueSet.hasNextDataValue() )
             {
-                optionComboMap.load( identifiableObjectManager.getAll( CategoryOptionCombo.class ), o -> o.getPropertyValue(
-                    categoryOptComboIdScheme ) );
-
-                log.info( "Category Option Combo cache heated after cache miss threshold reached" );
-            }
+                org.hisp.dhis.dxf2.datavalue.DataValue dataValue = dataValueSet.getNextDataValue();
+
+                totalCount++;
+
+                final DataElement dataElement =
+                    dataElementMap.get( trimToNull( dataValue.getDataElement() ), dataElementCallable.setId( trimToNull( dataValue.getDataElement() ) ) );
+                final Period period = outerPeriod != null ? outerPeriod :
+                    periodMap.get( trimToNull( dataValue.getPeriod() ), periodCallable.setId( trimToNull( dataValue.getPeriod() ) ) );
+                final OrganisationUnit orgUnit = outerOrgUnit != null ? outerOrgUnit :
+                    orgUnitMap.get( trimToNull( dataValue.getOrgUnit() ), orgUnitCallable.setId( trimToNull( dataValue.getOrgUnit() ) ) );
+                CategoryOptionCombo categoryOptionCombo =
+                    optionComboMap.get( trimToNull( dataValue.getCategoryOptionCombo() ), categoryOptionComboCallable.setId( trimToNull( dataValue.getCategoryOptionCombo() ) ) );
+                CategoryOptionCombo attrOptionCombo = outerAttrOptionCombo != null ? outerAttrOptionCombo :
+                    optionComboMap.get( trimToNull( dataValue.getAttributeOptionCombo() ), attributeOptionComboCallable.setId( trimToNull( dataValue.getAttributeOptionCombo() ) ) );
+
+                // -----------------------------------------------------------------
+                // Potentially heat caches
+                // -----------------------------------------------------------------
+
+                if ( !dataElementMap.isCacheLoaded() && dataElementMap.getCacheMissCount() > CACHE_MISS_THRESHOLD )
+                {
+                    dataElementMap.load( identifiableObjectManager.getAll( DataElement.class ), o -> o.getPropertyValue( dataElementIdScheme ) );
 
-            // -----------------------------------------------------------------
-            // Validation
-            // -----------------------------------------------------------------
+                    log.info( "Data element cache heated after cache miss threshold reached" );
+                }
 
-            if ( dataElement == null )
-            {
-                summary.getConflicts().add( new ImportConflict( dataValue.getDataElement(), "Data element not found or not accessible" ) );
-                continue;
-            }
+                if ( !orgUnitMap.isCacheLoaded() && orgUnitMap.getCacheMissCount() > CACHE_MISS_THRESHOLD )
+                {
+                    orgUnitMap.load( identifiableObjectManager.getAll( OrganisationUnit.class ), o -> o.getPropertyValue( orgUnitIdScheme ) );
 
-            if ( period == null )
-            {
-                summary.getConflicts().add( new ImportConflict( dataValue.getPeriod(), "Period not valid" ) );
-                continue;
-            }
+                    log.info( "Org unit cache heated after cache miss threshold reached" );
+                }
 
-            if ( orgUnit == null )
-            {
-                summary.getConflicts().add( new ImportConflict( dataValue.getOrgUnit(), "Organisation unit not found or not accessible" ) );
-                continue;
-            }
+                if ( !optionComboMap.isCacheLoaded() && optionComboMap.getCacheMissCount() > CACHE_MISS_THRESHOLD )
+                {
+                    optionComboMap.load( identifiableObjectManager.getAll( CategoryOptionCombo.class ), o -> o.getPropertyValue(
+                        categoryOptComboIdScheme ) );
 
-            if ( categoryOptionCombo == null && trimToNull( dataValue.getCategoryOptionCombo() ) != null )
-            {
-                summary.getConflicts().add( new ImportConflict( dataValue.getCategoryOptionCombo(), "Category option combo not found or not accessible for writing data" ) );
-                continue;
-            }
+                    log.info( "Category Option Combo cache heated after cache miss threshold reached" );
+                }
 
-            if ( categoryOptionCombo != null )
-            {
-                List<String> errors = accessManager.canWrite( currentUser, categoryOptionCombo );
+                // -----------------------------------------------------------------
+                // Validation
+                // -----------------------------------------------------------------
 
-                if ( !errors.isEmpty() )
+                if ( dataElement == null )
                 {
-                    summary.getConflicts().addAll( errors.stream().map( s -> new ImportConflict( "dataValueSet", s ) ).collect( Collectors.toList() ) );
+                    summary.getConflicts().add( new ImportConflict( dataValue.getDataElement(), "Data element not found or not accessible" ) );
                     continue;
                 }
-            }
-
-            if ( attrOptionCombo == null && trimToNull( dataValue.getAttributeOptionCombo() ) != null )
-            {
-                summary.getConflicts().add( new ImportConflict( dataValue.getAttributeOptionCombo(), "Attribute option combo not found or not accessible for writing data" ) );
-                continue;
-            }
 
-            if ( attrOptionCombo != null )
-            {
-                List<String> errors = accessManager.canWrite( currentUser, attrOptionCombo );
-
-                if ( !errors.isEmpty() )
+                if ( period == null )
                 {
-                    summary.getConflicts().addAll( errors.stream().map( s -> new ImportConflict( "dataValueSet", s ) ).collect( Collectors.toList() ) );
+                    summary.getConflicts().add( new ImportConflict( dataValue.getPeriod(), "Period not valid" ) );
                     continue;
                 }
-            }
-
-            boolean inUserHierarchy = orgUnitInHierarchyMap.get( orgUnit.getUid(), () -> orgUnit.isDescendant( currentOrgUnits ) );
-
-            if ( !inUserHierarchy )
-            {
-                summary.getConflicts().add( new ImportConflict( orgUnit.getUid(), "Organisation unit not in hierarchy of current user: " + currentUserName ) );
-                continue;
-            }
-
-            if ( dataValue.isNullValue() && !dataValue.isDeletedValue() )
-            {
-                summary.getConflicts().add( new ImportConflict( "Value", "Data value or comment not specified for data element: " + dataElement.getUid() ) );
-                continue;
-            }
-
-            dataValue.setValueForced(
-                ValidationUtils.normalizeBoolean( dataValue.getValue(), dataElement.getValueType() ) );
-
-            String valueValid = ValidationUtils.dataValueIsValid( dataValue.getValue(), dataElement );
-
-            if ( valueValid != null )
-            {
-                summary.getConflicts().add( new ImportConflict( dataValue.getValue(), i18n.getString( valueValid ) + ", must match data element type: " + dataElement.getUid() ) );
-                continue;
-            }
-
-            String commentValid = ValidationUtils.commentIsValid( dataValue.getComment() );
-
-            if ( commentValid != null )
-            {
-                summary.getConflicts().add( new ImportConflict( "Comment", i18n.getString( commentValid ) ) );
-                continue;
-            }
-
-            Optional<Set<String>> optionCodes = dataElementOptionsMap.get( dataElement.getUid(), () -> dataElement.hasOptionSet() ?
-                Optional.of( dataElement.getOptionSet().getOptionCodesAsSet() ) : Optional.empty() );
 
-            if ( optionCodes.isPresent() && !optionCodes.get().contains( dataValue.getValue() ) )
-            {
-                summary.getConflicts().add( new ImportConflict( dataValue.getValue(), "Data value is not a valid option of the data element option set: " + dataElement.getUid() ) );
-                continue;
-            }
-
-            // -----------------------------------------------------------------
-            // Constraints
-            // -----------------------------------------------------------------
+                if ( orgUnit == null )
+                {
+                    summary.getConflicts().add( new ImportConflict( dataValue.getOrgUnit(), "Organisation unit not found or not accessible" ) );
+                    continue;
+                }
 
-            if ( categoryOptionCombo == null )
-            {
-                if ( requireCategoryOptionCombo )
+                if ( categoryOptionCombo == null && trimToNull( dataValue.getCategoryOptionCombo() ) != null )
                 {
-                    summary.getConflicts().add( new ImportConflict( dataValue.getValue(), "Category option combo is required but is not specified" ) );
+                    summary.getConflicts().add( new ImportConflict( dataValue.getCategoryOptionCombo(), "Category option combo not found or not accessible for writing data" ) );
                     continue;
                 }
-                else
+
+                if ( categoryOptionCombo != null )
                 {
-                    categoryOptionCombo = fallbackCategoryOptionCombo;
+                    List<String> errors = accessManager.canWrite( currentUser, categoryOptionCombo );
+
+                    if ( !errors.isEmpty() )
+                    {
+                        summary.getConflicts().addAll( errors.stream().map( s -> new ImportConflict( "dataValueSet", s ) ).collect( Collectors.toList() ) );
+                        continue;
+                    }
                 }
-            }
 
-            if ( attrOptionCombo == null )
-            {
-                if ( requireAttrOptionCombo )
+                if ( attrOptionCombo == null && trimToNull( dataValue.getAttributeOptionCombo() ) != null )
                 {
-                    summary.getConflicts().add( new ImportConflict( dataValue.getValue(), "Attribute option combo is required but is not specified" ) );
+                    summary.getConflicts().add( new ImportConflict( dataValue.getAttributeOptionCombo(), "Attribute option combo not found or not accessible for writing data" ) );
                     continue;
                 }
-                else
+
+                if ( attrOptionCombo != null )
                 {
-                    attrOptionCombo = fallbackCategoryOptionCombo;
-                }
-            }
+                    List<String> errors = accessManager.canWrite( currentUser, attrOptionCombo );
 
-            if ( strictPeriods && !dataElementPeriodTypesMap.get( dataElement.getUid(),
-                dataElement::getPeriodTypes ).contains( period.getPeriodType() ) )
-            {
-                summary.getConflicts().add( new ImportConflict( dataValue.getPeriod(),
-                    "Period type of period: " + period.getIsoDate() + " not valid for data element: " + dataElement.getUid() ) );
-                continue;
-            }
+                    if ( !errors.isEmpty() )
+                    {
+                        summary.getConflicts().addAll( errors.stream().map( s -> new ImportConflict( "dataValueSet", s ) ).collect( Collectors.toList() ) );
+                        continue;
+                    }
+                }
 
-            if ( strictDataElements && !dataSetDataElements.contains( dataElement ) )
-            {
-                summary.getConflicts().add( new ImportConflict( "DATA_IMPORT_STRICT_DATA_ELEMENTS",
-                    "Data element: " + dataValue.getDataElement() + " is not part of dataset: " + dataSet.getUid() ) );
-                continue;
-            }
+                boolean inUserHierarchy = orgUnitInHierarchyMap.get( orgUnit.getUid(), () -> orgUnit.isDescendant( currentOrgUnits ) );
 
-            if ( strictCategoryOptionCombos && !dataElementCategoryOptionComboMap.get( dataElement.getUid(),
-                dataElement::getCategoryOptionCombos ).contains( categoryOptionCombo ) )
-            {
-                summary.getConflicts().add( new ImportConflict( categoryOptionCombo.getUid(),
-                    "Category option combo: " + categoryOptionCombo.getUid() + " must be part of category combo of data element: " + dataElement.getUid() ) );
-                continue;
-            }
+                if ( !inUserHierarchy )
+                {
+                    summary.getConflicts().add( new ImportConflict( orgUnit.getUid(), "Organisation unit not in hierarchy of current user: " + currentUserName ) );
+                    continue;
+                }
 
-            if ( strictAttrOptionCombos && !dataElementAttrOptionComboMap.get( dataElement.getUid(),
-                dataElement::getDataSetCategoryOptionCombos ).contains( attrOptionCombo ) )
-            {
-                summary.getConflicts().add( new ImportConflict( attrOptionCombo.getUid(),
-                    "Attribute option combo: " + attrOptionCombo.getUid() + " must be part of category combo of data sets of data element: " + dataElement.getUid() ) );
-                continue;
-            }
+                if ( dataValue.isNullValue() && !dataValue.isDeletedValue() )
+                {
+                    summary.getConflicts().add( new ImportConflict( "Value", "Data value or comment not specified for data element: " + dataElement.getUid() ) );
+                    continue;
+                }
 
-            if ( strictOrgUnits && BooleanUtils.isFalse( dataElementOrgUnitMap.get( dataElement.getUid() + orgUnit.getUid(),
-                () -> orgUnit.hasDataElement( dataElement ) ) ) )
-            {
-                summary.getConflicts().add( new ImportConflict( orgUnit.getUid(),
-                    "Data element: " + dataElement.getUid() + " must be assigned through data sets to organisation unit: " + orgUnit.getUid() ) );
-                continue;
-            }
+                dataValue.setValueForced(
+                    ValidationUtils.normalizeBoolean( dataValue.getValue(), dataElement.getValueType() ) );
 
-            boolean zeroAndInsignificant = ValidationUtils.dataValueIsZeroAndInsignificant( dataValue.getValue(), dataElement );
+                String valueValid = ValidationUtils.dataValueIsValid( dataValue.getValue(), dataElement );
 
-            if ( zeroAndInsignificant )
-            {
-                continue; // Ignore value
-            }
+                if ( valueValid != null )
+                {
+                    summary.getConflicts().add( new ImportConflict( dataValue.getValue(), i18n.getString( valueValid ) + ", must match data element type: " + dataElement.getUid() ) );
+                    continue;
+                }
 
-            String storedByValid = ValidationUtils.storedByIsValid( dataValue.getStoredBy() );
+                String commentValid = ValidationUtils.commentIsValid( dataValue.getComment() );
 
-            if ( storedByValid != null )
-            {
-                summary.getConflicts().add( new ImportConflict( dataValue.getStoredBy(), i18n.getString( storedByValid ) ) );
-                continue;
-            }
+                if ( commentValid != null )
+                {
+                    summary.getConflicts().add( new ImportConflict( "Comment", i18n.getString( commentValid ) ) );
+                    continue;
+                }
 
-            String storedBy = dataValue.getStoredBy() == null || dataValue.getStoredBy().trim().isEmpty() ? currentUserName : dataValue.getStoredBy();
+                Optional<Set<String>> optionCodes = dataElementOptionsMap.get( dataElement.getUid(), () -> dataElement.hasOptionSet() ?
+                    Optional.of( dataElement.getOptionSet().getOptionCodesAsSet() ) : Optional.empty() );
 
-            final CategoryOptionCombo aoc = attrOptionCombo;
+                if ( optionCodes.isPresent() && !optionCodes.get().contains( dataValue.getValue() ) )
+                {
+                    summary.getConflicts().add( new ImportConflict( dataValue.getValue(), "Data value is not a valid option of the data element option set: " + dataElement.getUid() ) );
+                    continue;
+                }
 
-            DateRange aocDateRange = dataSet != null
-                ? attrOptionComboDateRangeMap.get( attrOptionCombo.getUid() + dataSet.getUid(), () -> aoc.getDateRange( dataSet ) )
-                : attrOptionComboDateRangeMap.get( attrOptionCombo.getUid() + dataElement.getUid(), () -> aoc.getDateRange( dataElement ) );
+                // -----------------------------------------------------------------
+                // Constraints
+                // -----------------------------------------------------------------
 
-            if ( ( aocDateRange.getStartDate() != null && aocDateRange.getStartDate().after( period.getEndDate() ) )
-                || ( aocDateRange.getEndDate() != null && aocDateRange.getEndDate().before( period.getStartDate() ) ) )
-            {
-                summary.getConflicts().add( new ImportConflict( orgUnit.getUid(),
-                    "Period: " + period.getIsoDate() + " is not within date range of attribute option combo: " + attrOptionCombo.getUid() ) );
-                continue;
-            }
-
-            if ( !attrOptionComboOrgUnitMap.get( attrOptionCombo.getUid() + orgUnit.getUid(), () ->
-            {
-                Set<OrganisationUnit> aocOrgUnits = aoc.getOrganisationUnits();
-                return aocOrgUnits == null || orgUnit.isDescendant( aocOrgUnits );
-            } ) )
-            {
-                summary.getConflicts().add( new ImportConflict( orgUnit.getUid(),
-                    "Organisation unit: " + orgUnit.getUid() + " is not valid for attribute option combo: " + attrOptionCombo.getUid() ) );
-                continue;
-            }
+                if ( categoryOptionCombo == null )
+                {
+                    if ( requireCategoryOptionCombo )
+                    {
+                        summary.getConflicts().add( new ImportConflict( dataValue.getValue(), "Category option combo is required but is not specified" ) );
+                        continue;
+                    }
+                    else
+                    {
+                        categoryOptionCombo = fallbackCategoryOptionCombo;
+                    }
+                }
 
-            final DataSet approvalDataSet = dataSet != null ? dataSet : dataElementDataSetMap.get( dataElement.getUid(),
-                dataElement::getApprovalDataSet );
+                if ( attrOptionCombo == null )
+                {
+                    if ( requireAttrOptionCombo )
+                    {
+                        summary.getConflicts().add( new ImportConflict( dataValue.getValue(), "Attribute option combo is required but is not specified" ) );
+                        continue;
+                    }
+                    else
+                    {
+                        attrOptionCombo = fallbackCategoryOptionCombo;
+                    }
+                }
 
-            if ( approvalDataSet != null && !forceDataInput ) // Data element is assigned to at least one data set
-            {
-                if ( dataSetLockedMap.get( approvalDataSet.getUid() + period.getUid() + orgUnit.getUid(),
-                    () -> isLocked( currentUser, approvalDataSet, period, orgUnit, skipLockExceptionCheck ) ) )
+                if ( strictPeriods && !dataElementPeriodTypesMap.get( dataElement.getUid(),
+                    dataElement::getPeriodTypes ).contains( period.getPeriodType() ) )
                 {
-                    summary.getConflicts().add( new ImportConflict( period.getIsoDate(), "Current date is past expiry days for period " +
-                        period.getIsoDate() + " and data set: " + approvalDataSet.getUid() ) );
+                    summary.getConflicts().add( new ImportConflict( dataValue.getPeriod(),
+                        "Period type of period: " + period.getIsoDate() + " not valid for data element: " + dataElement.getUid() ) );
                     continue;
                 }
 
-                Period latestFuturePeriod = dataElementLatestFuturePeriodMap.get( dataElement.getUid(), dataElement::getLatestOpenFuturePeriod );
+                if ( strictDataElements && !dataSetDataElements.contains( dataElement ) )
+                {
+                    summary.getConflicts().add( new ImportConflict( "DATA_IMPORT_STRICT_DATA_ELEMENTS",
+                        "Data element: " + dataValue.getDataElement() + " is not part of dataset: " + dataSet.getUid() ) );
+                    continue;
+                }
 
-                if ( period.isAfter( latestFuturePeriod ) && isIso8601 )
+                if ( strictCategoryOptionCombos && !dataElementCategoryOptionComboMap.get( dataElement.getUid(),
+                    dataElement::getCategoryOptionCombos ).contains( categoryOptionCombo ) )
                 {
-                    summary.getConflicts().add( new ImportConflict( period.getIsoDate(), "Period: " +
-                        period.getIsoDate() + " is after latest open future period: " + latestFuturePeriod.getIsoDate() + " for data element: " + dataElement.getUid() ) );
+                    summary.getConflicts().add( new ImportConflict( categoryOptionCombo.getUid(),
+                        "Category option combo: " + categoryOptionCombo.getUid() + " must be part of category combo of data element: " + dataElement.getUid() ) );
                     continue;
                 }
 
-                DataApprovalWorkflow workflow = approvalDataSet.getWorkflow();
+                if ( strictAttrOptionCombos && !dataElementAttrOptionComboMap.get( dataElement.getUid(),
+                    dataElement::getDataSetCategoryOptionCombos ).contains( attrOptionCombo ) )
+                {
+                    summary.getConflicts().add( new ImportConflict( attrOptionCombo.getUid(),
+                        "Attribute option combo: " + attrOptionCombo.getUid() + " must be part of category combo of data sets of data element: " + dataElement.getUid() ) );
+                    continue;
+                }
 
-                if ( workflow != null )
+                if ( strictOrgUnits && BooleanUtils.isFalse( dataElementOrgUnitMap.get( dataElement.getUid() + orgUnit.getUid(),
+                    () -> orgUnit.hasDataElement( dataElement ) ) ) )
                 {
-                    final String workflowPeriodAoc = workflow.getUid() + period.getUid() + attrOptionCombo.getUid();
+                    summary.getConflicts().add( new ImportConflict( orgUnit.getUid(),
+                        "Data element: " + dataElement.getUid() + " must be assigned through data sets to organisation unit: " + orgUnit.getUid() ) );
+                    continue;
+                }
 
-                    if ( approvalMap.get( orgUnit.getUid() + workflowPeriodAoc, () ->
-                    {
-                        DataApproval lowestApproval = DataApproval.getLowestApproval( new DataApproval( null, workflow, period, orgUnit, aoc ) );
+                boolean zeroAndInsignificant = ValidationUtils.dataValueIsZeroAndInsignificant( dataValue.getValue(), dataElement );
 
-                        return lowestApproval != null && lowestApprovalLevelMap.get(
-                            lowestApproval.getDataApprovalLevel().getUid()
-                                + lowestApproval.getOrganisationUnit().getUid() + workflowPeriodAoc,
-                            () -> approvalService.getDataApproval( lowestApproval ) != null );
-                    } ) )
-                    {
-                        summary.getConflicts().add( new ImportConflict( orgUnit.getUid(),
-                            "Data is already approved for data set: " + approvalDataSet.getUid() + " period: " + period.getIsoDate()
-                                + " organisation unit: " + orgUnit.getUid() + " attribute option combo: " + attrOptionCombo.getUid() ) );
-                        continue;
-                    }
+                if ( zeroAndInsignificant )
+                {
+                    continue; // Ignore value
                 }
-            }
 
-            if ( approvalDataSet != null && !forceDataInput && !approvalDataSet.isDataInputPeriodAndDateAllowed( period, new Date() ) )
-            {
-                summary.getConflicts().add( new ImportConflict( orgUnit.getUid(),
-                    "Period: " + period.getIsoDate() + " is not open for this data set at this time: " + approvalDataSet.getUid() ) );
-                continue;
-            }
+                String storedByValid = ValidationUtils.storedByIsValid( dataValue.getStoredBy() );
 
-            if ( !forceDataInput && !periodOpenForDataElement.get( dataElement.getUid() + period.getIsoDate(), () -> dataElement.isDataInputAllowedForPeriodAndDate( period, new Date() ) ) )
-            {
-                summary.getConflicts().add( new ImportConflict( orgUnit.getUid(), "Period " + period.getName() + " does not conform to the open periods of associated data sets" ) );
-                continue;
-            }
-
-            DataValue actualDataValue = null;
-            if ( strategy.isDelete() && dataElement.isFileType() )
-            {
-                actualDataValue = dataValueService.getDataValue( dataElement, period, orgUnit, categoryOptionCombo, attrOptionCombo );
-                if ( actualDataValue == null )
+                if ( storedByValid != null )
                 {
-                    summary.getConflicts().add( new ImportConflict( dataElement.getUid(), "No data value for file resource exist for the given combination" ) );
+                    summary.getConflicts().add( new ImportConflict( dataValue.getStoredBy(), i18n.getString( storedByValid ) ) );
                     continue;
                 }
-            }
 
-            // -----------------------------------------------------------------
-            // Create data value
-            // -----------------------------------------------------------------
+                String storedBy = dataValue.getStoredBy() == null || dataValue.getStoredBy().trim().isEmpty() ? currentUserName : dataValue.getStoredBy();
 
-            DataValue internalValue = new DataValue();
+                final CategoryOptionCombo aoc = attrOptionCombo;
 
-            internalValue.setDataElement( dataElement );
-            internalValue.setPeriod( period );
-            internalValue.setSource( orgUnit );
-            internalValue.setCategoryOptionCombo( categoryOptionCombo );
-            internalValue.setAttributeOptionCombo( attrOptionCombo );
-            internalValue.setValue( trimToNull( dataValue.getValue() ) );
-            internalValue.setStoredBy( storedBy );
-            internalValue.setCreated( dataValue.hasCreated() ? parseDate( dataValue.getCreated() ) : now );
-            internalValue.setLastUpdated( dataValue.hasLastUpdated() ? parseDate( dataValue.getLastUpdated() ) : now );
-            internalValue.setComment( trimToNull( dataValue.getComment() ) );
-            internalValue.setFollowup( dataValue.getFollowup() );
-            internalValue.setDeleted( BooleanUtils.isTrue( dataValue.getDeleted() ) );
+                DateRange aocDateRange = dataSet != null
+                    ? attrOptionComboDateRangeMap.get( attrOptionCombo.getUid() + dataSet.getUid(), () -> aoc.getDateRange( dataSet ) )
+                    : attrOptionComboDateRangeMap.get( attrOptionCombo.getUid() + dataElement.getUid(), () -> aoc.getDateRange( dataElement ) );
 
-            // -----------------------------------------------------------------
-            // Save, update or delete data value
-            // -----------------------------------------------------------------
+                if ( ( aocDateRange.getStartDate() != null && aocDateRange.getStartDate().after( period.getEndDate() ) )
+                    || ( aocDateRange.getEndDate() != null && aocDateRange.getEndDate().before( period.getStartDate() ) ) )
+                {
+                    summary.getConflicts().add( new ImportConflict( orgUnit.getUid(),
+                        "Period: " + period.getIsoDate() + " is not within date range of attribute option combo: " + attrOptionCombo.getUid() ) );
+                    continue;
+                }
 
-            DataValue existingValue = !skipExistingCheck ? dataValueBatchHandler.findObject( internalValue ) : null;
+                if ( !attrOptionComboOrgUnitMap.get( attrOptionCombo.getUid() + orgUnit.getUid(), () ->
+                {
+                    Set<OrganisationUnit> aocOrgUnits = aoc.getOrganisationUnits();
+                    return aocOrgUnits == null || orgUnit.isDescendant( aocOrgUnits );
+                } ) )
+                {
+                    summary.getConflicts().add( new ImportConflict( orgUnit.getUid(),
+                        "Organisation unit: " + orgUnit.getUid() + " is not valid for attribute option combo: " + attrOptionCombo.getUid() ) );
+                    continue;
+                }
 
-            // -----------------------------------------------------------------
-            // Check soft deleted data values on update and import
-            // -----------------------------------------------------------------
+                final DataSet approvalDataSet = dataSet != null ? dataSet : dataElementDataSetMap.get( dataElement.getUid(),
+                    dataElement::getApprovalDataSet );
 
-            if ( !skipExistingCheck && existingValue != null && !existingValue.isDeleted() )
-            {
-                if ( strategy.isCreateAndUpdate() || strategy.isUpdate() )
+                if ( approvalDataSet != null && !forceDataInput ) // Data element is assigned to at least one data set
                 {
-                    AuditType auditType = AuditType.UPDATE;
-
-                    if ( internalValue.isNullValue() || internalValue.isDeleted() )
+                    if ( dataSetLockedMap.get( approvalDataSet.getUid() + period.getUid() + orgUnit.getUid(),
+                        () -> isLocked( currentUser, approvalDataSet, period, orgUnit, skipLockExceptionCheck ) ) )
                     {
-                        internalValue.setDeleted( true );
+                        summary.getConflicts().add( new ImportConflict( period.getIsoDate(), "Current date is past expiry days for period " +
+                            period.getIsoDate() + " and data set: " + approvalDataSet.getUid() ) );
+                        continue;
+                    }
 
-                        auditType = AuditType.DELETE;
+                    Period latestFuturePeriod = dataElementLatestFuturePeriodMap.get( dataElement.getUid(), dataElement::getLatestOpenFuturePeriod );
 
-                        deleteCount++;
-                    }
-                    else
+                    if ( period.isAfter( latestFuturePeriod ) && isIso8601 )
                     {
-                        updateCount++;
+                        summary.getConflicts().add( new ImportConflict( period.getIsoDate(), "Period: " +
+                            period.getIsoDate() + " is after latest open future period: " + latestFuturePeriod.getIsoDate() + " for data element: " + dataElement.getUid() ) );
+                        continue;
                     }
 
-                    if ( !dryRun )
+                    DataApprovalWorkflow workflow = approvalDataSet.getWorkflow();
+
+                    if ( workflow != null )
                     {
-                        dataValueBatchHandler.updateObject( internalValue );
+                        final String workflowPeriodAoc = workflow.getUid() + period.getUid() + attrOptionCombo.getUid();
 
-                        if ( !skipAudit )
+                        if ( approvalMap.get( orgUnit.getUid() + workflowPeriodAoc, () ->
                         {
-                            DataValueAudit auditValue = new DataValueAudit( internalValue, existingValue.getValue(), storedBy, auditType );
+                            DataApproval lowestApproval = DataApproval.getLowestApproval( new DataApproval( null, workflow, period, orgUnit, aoc ) );
 
-                            auditBatchHandler.addObject( auditValue );
-                        }
-
-                        if ( dataElement.isFileType() )
+                            return lowestApproval != null && lowestApprovalLevelMap.get(
+                                lowestApproval.getDataApprovalLevel().getUid()
+                                    + lowestApproval.getOrganisationUnit().getUid() + workflowPeriodAoc,
+                                () -> approvalService.getDataApproval( lowestApproval ) != null );
+                        } ) )
                         {
-                            FileResource fr = fileResourceService.getFileResource( internalValue.getValue() );
-
-                            fr.setAssigned( true );
-
-                            fileResourceService.updateFileResource( fr );
+                            summary.getConflicts().add( new ImportConflict( orgUnit.getUid(),
+                                "Data is already approved for data set: " + approvalDataSet.getUid() + " period: " + period.getIsoDate()
+                                    + " organisation unit: " + orgUnit.getUid() + " attribute option combo: " + attrOptionCombo.getUid() ) );
+                            continue;
                         }
-
                     }
                 }
-                else if ( strategy.isDelete() )
+
+                if ( approvalDataSet != null && !forceDataInput && !approvalDataSet.isDataInputPeriodAndDateAllowed( period, new Date() ) )
                 {
-                    internalValue.setDeleted( true );
+                    summary.getConflicts().add( new ImportConflict( orgUnit.getUid(),
+                        "Period: " + period.getIsoDate() + " is not open for this data set at this time: " + approvalDataSet.getUid() ) );
+                    continue;
+                }
 
-                    deleteCount++;
+                if ( !forceDataInput && !periodOpenForDataElement.get( dataElement.getUid() + period.getIsoDate(), () -> dataElement.isDataInputAllowedForPeriodAndDate( period, new Date() ) ) )
+                {
+                    summary.getConflicts().add( new ImportConflict( orgUnit.getUid(), "Period " + period.getName() + " does not conform to the open periods of associated data sets" ) );
+                    continue;
+                }
 
-                    if ( !dryRun )
+                DataValue actualDataValue = null;
+                if ( strategy.isDelete() && dataElement.isFileType() )
+                {
+                    actualDataValue = dataValueService.getDataValue( dataElement, period, orgUnit, categoryOptionCombo, attrOptionCombo );
+                    if ( actualDataValue == null )
                     {
-                        if ( dataElement.isFileType() && actualDataValue != null )
-                        {
-                            FileResource fr = fileResourceService.getFileResource( actualDataValue.getValue() );
-
-                            fileResourceService.updateFileResource( fr );
-                        }
-
-                        dataValueBatchHandler.updateObject( internalValue );
-
-                        if ( !skipAudit )
-                        {
-                            DataValueAudit auditValue = new DataValueAudit( internalValue, existingValue.getValue(), storedBy, AuditType.DELETE );
-
-                            auditBatchHandler.addObject( auditValue );
-                        }
+                        summary.getConflicts().add( new ImportConflict( dataElement.getUid(), "No data value for file resource exist for the given combination" ) );
+                        continue;
                     }
                 }
-            }
-            else
-            {
-                if ( strategy.isCreateAndUpdate() || strategy.isCreate() )
-                {
-                    if ( !internalValue.isNullValue() ) // Ignore null values
-                    {
-                        if ( existingValue != null && existingValue.isDeleted() )
-                        {
-                            importCount++;
-
-                            if ( !dryRun )
-                            {
-                                dataValueBatchHandler.updateObject( internalValue );
-
-                                if ( dataElement.isFileType() )
-                                {
-                                    FileResource fr = fileResourceService.getFileResource( internalValue.getValue() );
-
-                                    fr.setAssigned( true );
-
-                                    fileResourceService.updateFileResource( fr );
-                                }
-                            }
-                        }
-                        else
-                        {
-                            boolean added = false;
 
-                            if ( !dryRun )
-                            {
-                                added = dataValueBatchHandler.addObject( internalValue );
+                // -----------------------------------------------------------------
+                // Create data value
+                // -----------------------------------------------------------------
+
+                DataValue internalValue = new DataValue();
+
+                internalValue.setDataElement( dataElement );
+                internalValue.setPeriod( period );
+                internalValue.setSource( orgUnit );
+                internalValue.setCategoryOptionCombo( categoryOptionCombo );
+                internalValue.setAttributeOptionCombo( attrOptionCombo );
+                internalValue.setValue( trimToNull( dataValue.getValue() ) );
+                internalValue.setStoredBy( storedBy );
+                internalValue.setCreated( dataValue.hasCreated() ? parseDate( dataValue.getCreated() ) : now );
+                internalValue.setLastUpdated( dataValue.hasLastUpdated() ? parseDate( dataValue.getLastUpdated() ) : now );
+                internalValue.setComment( trimToNull( dataValue.getComment() ) );
+                internalValue.setFollowup( dataValue.getFollowup() );
+                internalValue.setDeleted( BooleanUtils.isTrue( dataValue.getDeleted() ) );
+
+                // -----------------------------------------------------------------
+                // Save, update or delete data value
+                // -----------------------------------------------------------------
+
+                writer.write( internalValue, dataElement.isFileType(), storedBy,
+                    actualDataValue != null ? actualDataValue.getValue() : null );
+            }
 
-                                if ( added && dataElement.isFileType() )
-                                {
-                                    FileResource fr = fileResourceService.getFileResource( internalValue.getValue() );
+            writer.flush();
+        }
+        finally
+        {
+            writer.abort();
+        }
 
-                                    fr.setAssigned( true );
+        for ( String value : writer.getAssignedFileResources() )
+        {
+            FileResource fr = fileResourceService.getFileResource( value );
 
-                                    fileResourceService.updateFileResource( fr );
-                                }
-                            }
+            fr.setAssigned( true );
 
-                            if ( dryRun || added )
-                            {
-                                importCount++;
-                            }
-                        }
-                    }
-                }
-            }
+            fileResourceService.updateFileResource( fr );
         }
 
-        dataValueBatchHandler.flush();
-
-        if ( !skipAudit )
+        for ( String value : writer.getDeletedFileResources() )
         {
-            auditBatchHandler.flush();
+            fileResourceService.updateFileResource( fileResourceService.getFileResource( value ) );
         }
 
+        int importCount = writer.getImportCount();
+        int updateCount = writer.getUpdateCount();
+        int deleteCount = writer.getDeleteCount();
+
         int ignores = totalCount - importCount - updateCount - deleteCount;
 
         summary.setImportCount( new ImportCount( importCount, updateCount, ignores, deleteCount ) );
@@ -1447,6 +1357,20 @@ public class DefaultDataValueSetService
     // Supportive methods
     // -------------------------------------------------------------------------
 
+    /**
+     * Gets the number of import workers. Uses the explicit number of database
+     * server cores from system setting if available, or else the number of
+     * cores of the current server, limited to {@link #MAX_WORKER_NO}.
+     */
+    private int getWorkerNo()
+    {
+        Integer cores = (Integer) systemSettingManager.getSystemSetting( SettingKey.DATABASE_SERVER_CPUS );
+
+        int workerNo = ( cores == null || cores == 0 ) ? SystemUtils.getCpuCores() : cores;
+
+        return Math.max( 1, Math.min( workerNo, MAX_WORKER_NO ) );
+    }
+
     private void handleComplete( DataSet dataSet, Date completeDate, Period period, OrganisationUnit orgUnit,
         CategoryOptionCombo attributeOptionCombo, String currentUserName, ImportSummary summary )
     {
@@ -34,6 +34,7 @@ import static org.hisp.dhis.util.DateUtils.getMediumDateString;
 
 import java.util.*;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import lombok.extern.slf4j.Slf4j;
@@ -156,6 +157,8 @@ public abstract class AbstractEventService implements EventService
 
     private static final int FLUSH_FREQUENCY = 100;
 
+    private static final int STREAM_BATCH_SIZE = 1000;
+
     // -------------------------------------------------------------------------
     // Caches
     // -------------------------------------------------------------------------
@@ -179,6 +182,13 @@ public abstract class AbstractEventService implements EventService
         return eventImporter.importAll( events, importOptions, jobConfiguration );
     }
 
+    @Override
+    public ImportSummaries processEventImport( Iterator<Event> events, ImportOptions importOptions,
+                                               JobConfiguration jobConfiguration )
+    {
+        return eventImporter.importAll( events, updateImportOptions( importOptions ), jobConfiguration );
+    }
+
     @Transactional
     @Override
     public ImportSummaries addEvents( List<Event> events, ImportOptions importOptions, boolean clearSession )
@@ -250,7 +260,7 @@ public abstract class AbstractEventService implements EventService
 
         Events events = new Events();
 
-        if ( params.isPaging() )
+        if ( params.isPaging() && !params.isCursorPaging() )
         {
             int count = 0;
 
@@ -275,9 +285,84 @@ public abstract class AbstractEventService implements EventService
             }
         }
 
+        if ( params.isCursorPaging() && params.getNextCursor() != null )
+        {
+            events.setNextCursor( params.getNextCursor().toString() );
+        }
+
         return events;
     }
 
+    @Transactional( readOnly = true )
+    @Override
+    public void streamEvents( EventSearchParams params, Consumer<Event> consumer )
+    {
+        validate( params );
+
+        List<OrganisationUnit> organisationUnits = getOrganisationUnits( params );
+
+        User user = currentUserService.getCurrentUser();
+
+        params.handleCurrentUserSelectionMode( user );
+        params.setPage( null ).setPageSize( null ).setSkipPaging( true );
+
+        List<Event> batch = new ArrayList<>( STREAM_BATCH_SIZE );
+
+        eventStore.streamEvents( params, organisationUnits, event -> {
+            batch.add( event );
+
+            if ( batch.size() >= STREAM_BATCH_SIZE )
+            {
+                acceptOwnedEvents( batch, consumer );
+                batch.clear();
+            }
+        } );
+
+        acceptOwnedEvents( batch, consumer );
+    }
+
+    /**
+     * Passes the given events on to the consumer if the current user has
+     * ownership access to them. Programs and tracked entity instances are
+     * loaded once for the batch, and the session is cleared afterwards so that
+     * it does not grow with the number of streamed events.
+     */
+    private void acceptOwnedEvents( List<Event> events, Consumer<Event> consumer )
+    {
+        if ( events.isEmpty() )
+        {
+            return;
+        }
+
+        User user = currentUserService.getCurrentUser();
+
+        Map<String, Program> programs = new HashMap<>();
+
+        events.stream().map( Event::getProgram ).filter( Objects::nonNull ).distinct()
+            .forEach( uid -> programs.put( uid, programService.getProgram( uid ) ) );
+
+        Set<String> teiUids = events.stream().map( Event::getTrackedEntityInstance ).filter( Objects::nonNull )
+            .collect( Collectors.toSet() );
+
+        Map<String, TrackedEntityInstance> teis = manager.getByUid( TrackedEntityInstance.class, teiUids ).stream()
+            .collect( Collectors.toMap( TrackedEntityInstance::getUid, tei -> tei ) );
+
+        for ( Event event : events )
+        {
+            TrackedEntityInstance tei = event.getTrackedEntityInstance() != null ?
+                teis.get( event.getTrackedEntityInstance() ) : null;
+
+            Program program = event.getProgram() != null ? programs.get( event.getProgram() ) : null;
+
+            if ( trackerOwnershipAccessManager.hasAccess( user, tei, program ) )
+            {
+                consumer.accept( event );
+            }
+        }
+
+        dbmsManager.clearSession();
+    }
+
     @Transactional( readOnly = true )
     @Override
     public Grid getEventsGrid( EventSearchParams params )
@@ -0,0 +1,132 @@
+package org.hisp.dhis.dxf2.events.event;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.sql.Timestamp;
+import java.util.Objects;
+
+import org.hisp.dhis.common.IllegalQueryException;
+
+/**
+ * Position in a list of events ordered by last updated and event id, both
+ * descending, used for keyset (cursor) paging. The next page holds the events
+ * which come after the cursor in this order. Unlike offset paging, the
+ * database can start reading the next page directly from the index instead
+ * of skipping all events of the previous pages.
+ * <p>
+ * The cursor is passed to and from clients as an opaque string holding the
+ * last updated timestamp in microseconds and the event id.
+ */
+public class EventCursor
+{
+    private static final String SEPARATOR = "_";
+
+    private final Timestamp lastUpdated;
+
+    private final long id;
+
+    public EventCursor( Timestamp lastUpdated, long id )
+    {
+        this.lastUpdated = lastUpdated;
+        this.id = id;
+    }
+
+    /**
+     * Parses a cursor string as created by {@link #toString()}.
+     *
+     * @param cursor the cursor string.
+     * @return the cursor.
+     * @throws IllegalQueryException if the cursor string is invalid.
+     */
+    public static EventCursor of( String cursor )
+    {
+        String[] parts = cursor != null ? cursor.split( SEPARATOR ) : new String[0];
+
+        if ( parts.length != 2 )
+        {
+            throw new IllegalQueryException( "Cursor is invalid: " + cursor );
+        }
+
+        try
+        {
+            long micros = Long.parseLong( parts[0] );
+
+            Timestamp lastUpdated = new Timestamp( Math.floorDiv( micros, 1000L ) );
+            lastUpdated.setNanos( (int) Math.floorMod( micros, 1_000_000L ) * 1000 );
+
+            return new EventCursor( lastUpdated, Long.parseLong( parts[1] ) );
+        }
+        catch ( NumberFormatException ex )
+        {
+            throw new IllegalQueryException( "Cursor is invalid: " + cursor );
+        }
+    }
+
+    public Timestamp getLastUpdated()
+    {
+        return lastUpdated;
+    }
+
+    public long getId()
+    {
+        return id;
+    }
+
+    @Override
+    public boolean equals( Object o )
+    {
+        if ( this == o )
+        {
+            return true;
+        }
+
+        if ( o == null || getClass() != o.getClass() )
+        {
+            return false;
+        }
+
+        EventCursor that = (EventCursor) o;
+
+        return id == that.id && Objects.equals( lastUpdated, that.lastUpdated );
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash( lastUpdated, id );
+    }
+
+    @Override
+    public String toString()
+    {
+        long micros = Math.floorDiv( lastUpdated.getTime(), 1000L ) * 1_000_000L + lastUpdated.getNanos() / 1000;
+
+        return micros + SEPARATOR + id;
+    }
+}
@@ -168,6 +168,24 @@ public class EventSearchParams
      */
     private Date skipChangedBefore;
 
+    /**
+     * Indicates whether to page by cursor on last updated and event id rather
+     * than by page number.
+     */
+    private boolean cursorPaging;
+
+    /**
+     * Position after which to return events when paging by cursor, or null
+     * for the first page.
+     */
+    private EventCursor cursor;
+
+    /**
+     * Position of the last event read when paging by cursor, set by the event
+     * store, or null if there are no more events.
+     */
+    private EventCursor nextCursor;
+
     // -------------------------------------------------------------------------
     // Constructors
     // -------------------------------------------------------------------------
@@ -210,6 +228,14 @@ public class EventSearchParams
         this.skipPaging = false;
     }
 
+    /**
+     * Indicates whether this parameters specifies a cursor to page from.
+     */
+    public boolean hasCursor()
+    {
+        return cursor != null;
+    }
+
     public boolean hasProgram()
     {
     	return program != null;
@@ -701,6 +727,39 @@ public class EventSearchParams
         return this;
     }
 
+    public boolean isCursorPaging()
+    {
+        return cursorPaging;
+    }
+
+    public EventSearchParams setCursorPaging( boolean cursorPaging )
+    {
+        this.cursorPaging = cursorPaging;
+        return this;
+    }
+
+    public EventCursor getCursor()
+    {
+        return cursor;
+    }
+
+    public EventSearchParams setCursor( EventCursor cursor )
+    {
+        this.cursor = cursor;
+        return this;
+    }
+
+    public EventCursor getNextCursor()
+    {
+        return nextCursor;
+    }
+
+    public EventSearchParams setNextCursor( EventCursor nextCursor )
+    {
+        this.nextCursor = nextCursor;
+        return this;
+    }
+
     public void handleCurrentUserSelectionMode( User currentUser )
     {
         if ( AssignedUserSelectionMode.CURRENT.equals( this.assignedUserSelectionMode ) && currentUser != null )
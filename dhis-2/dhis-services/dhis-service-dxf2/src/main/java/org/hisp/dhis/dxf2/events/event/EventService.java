@@ -31,9 +31,11 @@ package org.hisp.dhis.dxf2.events.event;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import org.hisp.dhis.common.Grid;
 import org.hisp.dhis.dxf2.common.ImportOptions;
@@ -54,6 +56,15 @@ public interface EventService
 
     Events getEvents( EventSearchParams params );
 
+    /**
+     * Streams the events matching the given parameters to the consumer as
+     * they are read, without paging and without holding all events in memory.
+     *
+     * @param params the event search parameters.
+     * @param consumer the consumer of the events.
+     */
+    void streamEvents( EventSearchParams params, Consumer<Event> consumer );
+
     EventRows getEventRows( EventSearchParams params );
 
     Grid getEventsGrid( EventSearchParams params );
@@ -142,6 +153,20 @@ public interface EventService
 
     ImportSummaries processEventImport( List<Event> events, ImportOptions importOptions, JobConfiguration jobId );
 
+    /**
+     * Imports the events in batches as they are read from the given iterator,
+     * without holding all events in memory. The import is not atomic: batches
+     * are committed as they are imported, and if an event cannot be read the
+     * import stops with an error summary, leaving the events read before it
+     * imported.
+     *
+     * @param events the events to import.
+     * @param importOptions the import options, can be null.
+     * @param jobId the job configuration, can be null.
+     * @return the import summaries.
+     */
+    ImportSummaries processEventImport( Iterator<Event> events, ImportOptions importOptions, JobConfiguration jobId );
+
     // -------------------------------------------------------------------------
     // DELETE
     // -------------------------------------------------------------------------
@@ -34,6 +34,7 @@ import org.hisp.dhis.organisationunit.OrganisationUnit;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import org.hisp.dhis.program.ProgramStageInstance;
 import org.hisp.dhis.user.User;
@@ -66,6 +67,18 @@ public interface EventStore
     List<Event> getEvents( EventSearchParams params, List<OrganisationUnit> organisationUnits,
         Map<String, Set<String>> psdesWithSkipSyncTrue );
 
+    /**
+     * Streams the events matching the given parameters to the consumer as
+     * they are read from a database cursor, without holding all events in
+     * memory. Events are passed in order of last updated and event id, both
+     * descending.
+     *
+     * @param params the event search parameters.
+     * @param organisationUnits the organisation units to search.
+     * @param consumer the consumer of the events.
+     */
+    void streamEvents( EventSearchParams params, List<OrganisationUnit> organisationUnits, Consumer<Event> consumer );
+
     List<Map<String, String>> getEventsGrid( EventSearchParams params, List<OrganisationUnit> organisationUnits );
 
     List<EventRow> getEventRows( EventSearchParams params, List<OrganisationUnit> organisationUnits );
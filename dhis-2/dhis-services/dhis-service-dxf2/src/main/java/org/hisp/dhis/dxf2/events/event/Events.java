@@ -56,6 +56,8 @@ public class Events
     private Map<Object, Object> metaData;
 
     private Pager pager;
+
+    private String nextCursor;
     
     public Events()
     {
@@ -124,6 +126,19 @@ public class Events
         this.pager = pager;
     }
 
+    @JsonProperty
+    @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
+    public String getNextCursor()
+    {
+        return nextCursor;
+    }
+
+    @JsonIgnore
+    public void setNextCursor( String nextCursor )
+    {
+        this.nextCursor = nextCursor;
+    }
+
     @Override
     public String toString()
     {
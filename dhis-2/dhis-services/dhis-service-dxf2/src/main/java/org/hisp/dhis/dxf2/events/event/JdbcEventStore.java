@@ -79,6 +79,8 @@ import org.springframework.core.env.Environment;
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.support.rowset.ResultSetWrappingSqlRowSet;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Repository;
 
@@ -89,6 +91,7 @@ import java.sql.Timestamp;
 import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
@@ -96,6 +99,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -169,6 +173,8 @@ public class JdbcEventStore implements EventStore
 
     private static final String DOT_NAME = ".name)";
 
+    private static final int FETCH_SIZE = 1000;
+
     private static final Map<String, String> QUERY_PARAM_COL_MAP = ImmutableMap.<String, String> builder()
         .put( "event", "psi_uid" ).put( "program", "p_uid" ).put( "programStage", "ps_uid" )
         .put( "enrollment", "pi_uid" ).put( "enrollmentStatus", "pi_status" ).put( "orgUnit", "ou_uid" )
@@ -300,188 +306,317 @@ public class JdbcEventStore implements EventStore
         Map<String, Event> eventUidToEventMap = new HashMap<>( params.getPageSizeWithDefault() );
         List<Event> events = new ArrayList<>();
 
-        String sql = buildSql( params, organisationUnits, user );
+        String sql = buildSql( params, organisationUnits, user, params.isCursorPaging() );
         SqlRowSet rowSet = jdbcTemplate.queryForRowSet( sql );
 
         log.debug( "Event query SQL: " + sql );
 
         Set<String> notes = new HashSet<>();
 
+        int eventCount = 0;
+        EventCursor lastCursor = null;
+
         while ( rowSet.next() )
         {
-            if ( rowSet.getString( "psi_uid" ) == null
-                || ( params.getCategoryOptionCombo() == null && !isSuper( user ) && !userHasAccess( rowSet ) ) )
+            Event event = readEventRow( rowSet, params, user, psdesWithSkipSyncTrue, eventUidToEventMap, notes );
+
+            if ( event != null )
             {
-                continue;
+                events.add( event );
             }
 
-            String psiUid = rowSet.getString( "psi_uid" );
-
-            Event event;
-
-            if ( !eventUidToEventMap.containsKey( psiUid ) )
+            if ( params.isCursorPaging() )
             {
-                validateIdentifiersPresence( rowSet, params.getIdSchemes(), true );
-
-                event = new Event();
-                eventUidToEventMap.put( psiUid, event );
+                EventCursor rowCursor = new EventCursor( rowSet.getTimestamp( "psi_lastupdated" ),
+                    rowSet.getLong( "psi_id" ) );
 
-                if ( !params.isSkipEventId() )
+                if ( !rowCursor.equals( lastCursor ) )
                 {
-                    event.setUid( psiUid );
-                    event.setEvent( psiUid );
+                    eventCount++;
                 }
 
-                event.setTrackedEntityInstance( rowSet.getString( "tei_uid" ) );
-                event.setStatus( EventStatus.valueOf( rowSet.getString( "psi_status" ) ) );
+                lastCursor = rowCursor;
+            }
+        }
 
-                event.setProgram( rowSet.getString( "p_identifier" ) );
-                event.setProgramStage( rowSet.getString( "ps_identifier" ) );
-                event.setOrgUnit( rowSet.getString( "ou_identifier" ) );
-                event.setDeleted( rowSet.getBoolean( "psi_deleted" ) );
+        if ( params.isCursorPaging() )
+        {
+            // The page limit applies to distinct events, so the page holds all
+            // rows of its last event and the next page starts after it
 
-                ProgramType programType = ProgramType.fromValue( rowSet.getString( "p_type" ) );
+            params.setNextCursor( eventCount < params.getPageSizeWithDefault() ? null : lastCursor );
+        }
 
-                if ( programType != ProgramType.WITHOUT_REGISTRATION )
-                {
-                    event.setEnrollment( rowSet.getString( "pi_uid" ) );
-                    event.setEnrollmentStatus( EnrollmentStatus
-                        .fromProgramStatus( ProgramStatus.valueOf( rowSet.getString( "pi_status" ) ) ) );
-                    event.setFollowup( rowSet.getBoolean( "pi_followup" ) );
-                }
+        convertDataValueIdentifiers( params, events, new CachingMap<>() );
 
-                if ( params.getCategoryOptionCombo() == null && !isSuper( user ) )
-                {
-                    event.setOptionSize( rowSet.getInt( "option_size" ) );
-                }
+        if ( params.getCategoryOptionCombo() == null && !isSuper( user ) )
+        {
+            return events.stream().filter( this::hasAllAttributeCategoryOptions )
+                .collect( Collectors.toList() );
+        }
+
+        return events;
+    }
 
-                event.setAttributeOptionCombo( rowSet.getString( "coc_identifier" ) );
-                event.setAttributeCategoryOptions( rowSet.getString( "deco_uid" ) );
-                event.setTrackedEntityInstance( rowSet.getString( "tei_uid" ) );
+    @Override
+    public void streamEvents( EventSearchParams params, List<OrganisationUnit> organisationUnits,
+        Consumer<Event> consumer )
+    {
+        User user = currentUserService.getCurrentUser();
 
-                event.setStoredBy( rowSet.getString( "psi_storedby" ) );
-                event.setOrgUnitName( rowSet.getString( "ou_name" ) );
-                event.setDueDate( DateUtils.getIso8601NoTz( rowSet.getDate( "psi_duedate" ) ) );
-                event.setEventDate( DateUtils.getIso8601NoTz( rowSet.getDate( "psi_executiondate" ) ) );
-                event.setCreated( DateUtils.getIso8601NoTz( rowSet.getDate( "psi_created" ) ) );
-                event.setCreatedByUserInfo( jsonToUserInfo( rowSet.getString( "psi_createdbyuserinfo" ), jsonMapper ) );
-                event.setLastUpdated( DateUtils.getIso8601NoTz( rowSet.getDate( "psi_lastupdated" ) ) );
-                event.setLastUpdatedByUserInfo( jsonToUserInfo( rowSet.getString( "psi_lastupdatedbyuserinfo" ), jsonMapper ) );
+        setAccessiblePrograms( user, params );
 
-                event.setCompletedBy( rowSet.getString( "psi_completedby" ) );
-                event.setCompletedDate( DateUtils.getIso8601NoTz( rowSet.getDate( "psi_completeddate" ) ) );
+        // Ordered by event id within last updated, so that the rows of an
+        // event are adjacent and each event can be passed on once read
 
-                if ( rowSet.getObject( "psi_geometry" ) != null )
-                {
-                    try
-                    {
-                        Geometry geom = new WKTReader().read( rowSet.getString( "psi_geometry" ) );
+        String sql = buildSql( params, organisationUnits, user, true );
 
-                        event.setGeometry( geom );
-                    }
-                    catch ( ParseException e )
+        log.debug( "Event stream query SQL: " + sql );
+
+        boolean filterByOptionSize = params.getCategoryOptionCombo() == null && !isSuper( user );
+        CachingMap<String, String> dataElementUidToIdentifierCache = new CachingMap<>();
+
+        Consumer<Event> eventConsumer = event -> {
+            convertDataValueIdentifiers( params, Collections.singletonList( event ), dataElementUidToIdentifierCache );
+
+            if ( !filterByOptionSize || hasAllAttributeCategoryOptions( event ) )
+            {
+                consumer.accept( event );
+            }
+        };
+
+        jdbcTemplate.query( sql, ps -> ps.setFetchSize( FETCH_SIZE ), (ResultSetExtractor<Void>) rs -> {
+            SqlRowSet rowSet = new ResultSetWrappingSqlRowSet( rs );
+            Map<String, Event> eventUidToEventMap = new HashMap<>();
+            Set<String> notes = new HashSet<>();
+            Event current = null;
+
+            while ( rowSet.next() )
+            {
+                Event event = readEventRow( rowSet, params, user, Collections.emptyMap(), eventUidToEventMap, notes );
+
+                if ( event != null )
+                {
+                    if ( current != null )
                     {
-                        log.error( "Unable to read geometry for event '" + event.getUid() + "': ", e );
+                        eventConsumer.accept( current );
+                        eventUidToEventMap.clear();
+                        notes.clear();
                     }
-                }
 
-                if ( rowSet.getObject( "user_assigned" ) != null )
-                {
-                    event.setAssignedUser( rowSet.getString( "user_assigned" ) );
-                    event.setAssignedUserUsername( rowSet.getString( "user_assigned_username" ) );
-                    event.setAssignedUserDisplayName( rowSet.getString( "user_assigned_name" ) );
+                    eventUidToEventMap.put( rowSet.getString( "psi_uid" ), event );
+                    current = event;
                 }
+            }
 
-                events.add( event );
+            if ( current != null )
+            {
+                eventConsumer.accept( current );
             }
-            else
+
+            return null;
+        } );
+    }
+
+    /**
+     * Reads a row of the event query into the event it belongs to. An event
+     * spans one row for each category option of its attribute option combo
+     * and each note.
+     *
+     * @return the event if the row is the first row of the event, otherwise
+     *         null.
+     */
+    private Event readEventRow( SqlRowSet rowSet, EventSearchParams params, User user,
+        Map<String, Set<String>> psdesWithSkipSyncTrue, Map<String, Event> eventUidToEventMap, Set<String> notes )
+    {
+        Event newEvent = null;
+
+        if ( rowSet.getString( "psi_uid" ) == null
+            || ( params.getCategoryOptionCombo() == null && !isSuper( user ) && !userHasAccess( rowSet ) ) )
+        {
+            return null;
+        }
+
+        String psiUid = rowSet.getString( "psi_uid" );
+
+        Event event;
+
+        if ( !eventUidToEventMap.containsKey( psiUid ) )
+        {
+            validateIdentifiersPresence( rowSet, params.getIdSchemes(), true );
+
+            event = new Event();
+            eventUidToEventMap.put( psiUid, event );
+
+            if ( !params.isSkipEventId() )
             {
-                event = eventUidToEventMap.get( psiUid );
-                String attributeCategoryCombination = event.getAttributeCategoryOptions();
-                String currentAttributeCategoryCombination = rowSet.getString( "deco_uid" );
+                event.setUid( psiUid );
+                event.setEvent( psiUid );
+            }
 
-                if ( !attributeCategoryCombination.contains( currentAttributeCategoryCombination ) )
-                {
-                    event.setAttributeCategoryOptions(
-                        attributeCategoryCombination + ";" + currentAttributeCategoryCombination );
-                }
+            event.setTrackedEntityInstance( rowSet.getString( "tei_uid" ) );
+            event.setStatus( EventStatus.valueOf( rowSet.getString( "psi_status" ) ) );
+
+            event.setProgram( rowSet.getString( "p_identifier" ) );
+            event.setProgramStage( rowSet.getString( "ps_identifier" ) );
+            event.setOrgUnit( rowSet.getString( "ou_identifier" ) );
+            event.setDeleted( rowSet.getBoolean( "psi_deleted" ) );
+
+            ProgramType programType = ProgramType.fromValue( rowSet.getString( "p_type" ) );
+
+            if ( programType != ProgramType.WITHOUT_REGISTRATION )
+            {
+                event.setEnrollment( rowSet.getString( "pi_uid" ) );
+                event.setEnrollmentStatus( EnrollmentStatus
+                    .fromProgramStatus( ProgramStatus.valueOf( rowSet.getString( "pi_status" ) ) ) );
+                event.setFollowup( rowSet.getBoolean( "pi_followup" ) );
             }
 
-            if ( !org.springframework.util.StringUtils.isEmpty( rowSet.getString( "psi_eventdatavalues" ) ) )
+            if ( params.getCategoryOptionCombo() == null && !isSuper( user ) )
             {
-                Set<EventDataValue> eventDataValues = convertEventDataValueJsonIntoSet(
-                    rowSet.getString( "psi_eventdatavalues" ) );
+                event.setOptionSize( rowSet.getInt( "option_size" ) );
+            }
 
-                for ( EventDataValue dv : eventDataValues )
-                {
-                    DataValue dataValue = convertEventDataValueIntoDtoDataValue( dv );
+            event.setAttributeOptionCombo( rowSet.getString( "coc_identifier" ) );
+            event.setAttributeCategoryOptions( rowSet.getString( "deco_uid" ) );
+            event.setTrackedEntityInstance( rowSet.getString( "tei_uid" ) );
 
-                    if ( params.isSynchronizationQuery() )
-                    {
-                        if ( psdesWithSkipSyncTrue.containsKey( rowSet.getString( "ps_uid" ) ) && psdesWithSkipSyncTrue
-                            .get( rowSet.getString( "ps_uid" ) ).contains( dv.getDataElement() ) )
-                        {
-                            dataValue.setSkipSynchronization( true );
-                        }
-                        else
-                        {
-                            dataValue.setSkipSynchronization( false );
-                        }
-                    }
+            event.setStoredBy( rowSet.getString( "psi_storedby" ) );
+            event.setOrgUnitName( rowSet.getString( "ou_name" ) );
+            event.setDueDate( DateUtils.getIso8601NoTz( rowSet.getDate( "psi_duedate" ) ) );
+            event.setEventDate( DateUtils.getIso8601NoTz( rowSet.getDate( "psi_executiondate" ) ) );
+            event.setCreated( DateUtils.getIso8601NoTz( rowSet.getDate( "psi_created" ) ) );
+            event.setCreatedByUserInfo( jsonToUserInfo( rowSet.getString( "psi_createdbyuserinfo" ), jsonMapper ) );
+            event.setLastUpdated( DateUtils.getIso8601NoTz( rowSet.getDate( "psi_lastupdated" ) ) );
+            event.setLastUpdatedByUserInfo( jsonToUserInfo( rowSet.getString( "psi_lastupdatedbyuserinfo" ), jsonMapper ) );
 
-                    event.getDataValues().add( dataValue );
+            event.setCompletedBy( rowSet.getString( "psi_completedby" ) );
+            event.setCompletedDate( DateUtils.getIso8601NoTz( rowSet.getDate( "psi_completeddate" ) ) );
+
+            if ( rowSet.getObject( "psi_geometry" ) != null )
+            {
+                try
+                {
+                    Geometry geom = new WKTReader().read( rowSet.getString( "psi_geometry" ) );
+
+                    event.setGeometry( geom );
+                }
+                catch ( ParseException e )
+                {
+                    log.error( "Unable to read geometry for event '" + event.getUid() + "': ", e );
                 }
             }
 
-            if ( rowSet.getString( "psinote_value" ) != null && !notes.contains( rowSet.getString( "psinote_id" ) ) )
+            if ( rowSet.getObject( "user_assigned" ) != null )
             {
-                Note note = new Note();
-                note.setNote( rowSet.getString( "psinote_uid" ) );
-                note.setValue( rowSet.getString( "psinote_value" ) );
-                note.setStoredDate( DateUtils.getIso8601NoTz( rowSet.getDate( "psinote_storeddate" ) ) );
-                note.setStoredBy( rowSet.getString( "psinote_storedby" ) );
+                event.setAssignedUser( rowSet.getString( "user_assigned" ) );
+                event.setAssignedUserUsername( rowSet.getString( "user_assigned_username" ) );
+                event.setAssignedUserDisplayName( rowSet.getString( "user_assigned_name" ) );
+            }
 
-                if ( rowSet.getObject( "usernote_id" ) != null )
-                {
+            newEvent = event;
+        }
+        else
+        {
+            event = eventUidToEventMap.get( psiUid );
+            String attributeCategoryCombination = event.getAttributeCategoryOptions();
+            String currentAttributeCategoryCombination = rowSet.getString( "deco_uid" );
 
-                    note.setLastUpdatedBy(
-                        UserInfoSnapshot.of(
-                            rowSet.getLong( "usernote_id" ),
-                            rowSet.getString( "usernote_code" ),
-                            rowSet.getString( "usernote_uid" ),
-                            rowSet.getString( "usernote_username" ),
-                            rowSet.getString( "userinfo_firstname" ),
-                            rowSet.getString( "userinfo_surname" ) ) );
+            if ( !attributeCategoryCombination.contains( currentAttributeCategoryCombination ) )
+            {
+                event.setAttributeCategoryOptions(
+                    attributeCategoryCombination + ";" + currentAttributeCategoryCombination );
+            }
+        }
+
+        if ( !org.springframework.util.StringUtils.isEmpty( rowSet.getString( "psi_eventdatavalues" ) ) )
+        {
+            Set<EventDataValue> eventDataValues = convertEventDataValueJsonIntoSet(
+                rowSet.getString( "psi_eventdatavalues" ) );
+
+            for ( EventDataValue dv : eventDataValues )
+            {
+                DataValue dataValue = convertEventDataValueIntoDtoDataValue( dv );
+
+                if ( params.isSynchronizationQuery() )
+                {
+                    if ( psdesWithSkipSyncTrue.containsKey( rowSet.getString( "ps_uid" ) ) && psdesWithSkipSyncTrue
+                        .get( rowSet.getString( "ps_uid" ) ).contains( dv.getDataElement() ) )
+                    {
+                        dataValue.setSkipSynchronization( true );
+                    }
+                    else
+                    {
+                        dataValue.setSkipSynchronization( false );
+                    }
                 }
 
-                note.setLastUpdated( rowSet.getDate( "psinote_lastupdated" ) );
+                event.getDataValues().add( dataValue );
+            }
+        }
 
-                event.getNotes().add( note );
-                notes.add( rowSet.getString( "psinote_id" ) );
+        if ( rowSet.getString( "psinote_value" ) != null && !notes.contains( rowSet.getString( "psinote_id" ) ) )
+        {
+            Note note = new Note();
+            note.setNote( rowSet.getString( "psinote_uid" ) );
+            note.setValue( rowSet.getString( "psinote_value" ) );
+            note.setStoredDate( DateUtils.getIso8601NoTz( rowSet.getDate( "psinote_storeddate" ) ) );
+            note.setStoredBy( rowSet.getString( "psinote_storedby" ) );
+
+            if ( rowSet.getObject( "usernote_id" ) != null )
+            {
+
+                note.setLastUpdatedBy(
+                    UserInfoSnapshot.of(
+                        rowSet.getLong( "usernote_id" ),
+                        rowSet.getString( "usernote_code" ),
+                        rowSet.getString( "usernote_uid" ),
+                        rowSet.getString( "usernote_username" ),
+                        rowSet.getString( "userinfo_firstname" ),
+                        rowSet.getString( "userinfo_surname" ) ) );
             }
+
+            note.setLastUpdated( rowSet.getDate( "psinote_lastupdated" ) );
+
+            event.getNotes().add( note );
+            notes.add( rowSet.getString( "psinote_id" ) );
         }
 
+        return newEvent;
+    }
+
+    /**
+     * Converts the data element identifiers of the data values of the given
+     * events to the data element id scheme of the parameters. Identifiers
+     * already in the cache are not looked up again.
+     */
+    private void convertDataValueIdentifiers( EventSearchParams params, List<Event> events,
+        CachingMap<String, String> dataElementUidToIdentifierCache )
+    {
         IdSchemes idSchemes = ObjectUtils.firstNonNull( params.getIdSchemes(), new IdSchemes() );
         IdScheme dataElementIdScheme = idSchemes.getDataElementIdScheme();
 
         if ( dataElementIdScheme != IdScheme.ID && dataElementIdScheme != IdScheme.UID )
         {
-            CachingMap<String, String> dataElementUidToIdentifierCache = new CachingMap<>();
-
             List<Collection<DataValue>> dataValuesList = events.stream().map( Event::getDataValues )
                 .collect( Collectors.toList() );
-            populateCache( dataElementIdScheme, dataValuesList, dataElementUidToIdentifierCache );
-            convertDataValuesIdentifiers( dataElementIdScheme, dataValuesList, dataElementUidToIdentifierCache );
-        }
 
-        if ( params.getCategoryOptionCombo() == null && !isSuper( user ) )
-        {
-            return events.stream().filter( ev -> ev.getAttributeCategoryOptions() != null
-                && splitToArray( ev.getAttributeCategoryOptions(), TextUtils.SEMICOLON ).size() == ev.getOptionSize() )
-                .collect( Collectors.toList() );
+            boolean uncached = dataValuesList.stream().flatMap( Collection::stream )
+                .anyMatch( dv -> !dataElementUidToIdentifierCache.containsKey( dv.getDataElement() ) );
+
+            if ( uncached )
+            {
+                populateCache( dataElementIdScheme, dataValuesList, dataElementUidToIdentifierCache );
+            }
+
+            convertDataValuesIdentifiers( dataElementIdScheme, dataValuesList, dataElementUidToIdentifierCache );
         }
+    }
 
-        return events;
+    private boolean hasAllAttributeCategoryOptions( Event event )
+    {
+        return event.getAttributeCategoryOptions() != null
+            && splitToArray( event.getAttributeCategoryOptions(), TextUtils.SEMICOLON ).size() == event.getOptionSize();
     }
 
     public List<ProgramStageInstance> saveEvents(List<ProgramStageInstance> events )
@@ -564,7 +699,7 @@ public class JdbcEventStore implements EventStore
 
         List<EventRow> eventRows = new ArrayList<>();
 
-        String sql = buildSql( params, organisationUnits, user );
+        String sql = buildSql( params, organisationUnits, user, false );
         SqlRowSet rowSet = jdbcTemplate.queryForRowSet( sql );
 
         log.debug( "Event query SQL: " + sql );
@@ -763,18 +898,14 @@ public class JdbcEventStore implements EventStore
 
         if ( params.hasFilters() )
         {
-            sql = buildGridSql( params, organisationUnits );
+            sql = getGridSelectQuery( params, organisationUnits );
         }
         else
         {
             sql = getEventSelectQuery( params, organisationUnits, user );
         }
 
-        sql = sql.replaceFirst( "select .*? from", "select count(*) from" );
-
-        sql = sql.replaceFirst( "order .*? (desc|asc)", "" );
-
-        sql = sql.replaceFirst( "limit \\d+ offset \\d+", "" );
+        sql = "select count(*) from (" + sql + ") as ev";
 
         log.debug( "Event query count SQL: " + sql );
 
@@ -797,6 +928,25 @@ public class JdbcEventStore implements EventStore
     }
 
     private String buildGridSql( EventSearchParams params, List<OrganisationUnit> organisationUnits )
+    {
+        StringBuilder sqlBuilder = new StringBuilder().append( getGridSelectQuery( params, organisationUnits ) );
+
+        // ---------------------------------------------------------------------
+        // Order clause
+        // ---------------------------------------------------------------------
+
+        sqlBuilder.append( getGridOrderQuery( params ) );
+
+        // ---------------------------------------------------------------------
+        // Paging clause
+        // ---------------------------------------------------------------------
+
+        sqlBuilder.append( getEventPagingQuery( params ) );
+
+        return sqlBuilder.toString();
+    }
+
+    private String getGridSelectQuery( EventSearchParams params, List<OrganisationUnit> organisationUnits )
     {
         SqlHelper hlp = new SqlHelper();
 
@@ -836,18 +986,6 @@ public class JdbcEventStore implements EventStore
 
         sqlBuilder.append( getFromWhereClause( params, hlp, organisationUnits ) );
 
-        // ---------------------------------------------------------------------
-        // Order clause
-        // ---------------------------------------------------------------------
-
-        sqlBuilder.append( getGridOrderQuery( params ) );
-
-        // ---------------------------------------------------------------------
-        // Paging clause
-        // ---------------------------------------------------------------------
-
-        sqlBuilder.append( getEventPagingQuery( params ) );
-
         return sqlBuilder.toString();
     }
 
@@ -855,14 +993,27 @@ public class JdbcEventStore implements EventStore
      * Query is based on three sub queries on event, data value and comment, which
      * are joined using program stage instance id. The purpose of the separate
      * queries is to be able to page properly on events.
+     * <p>
+     * If keyset order is requested, events are ordered by last updated and
+     * event id, which is required for cursor paging and streaming.
      */
-    private String buildSql( EventSearchParams params, List<OrganisationUnit> organisationUnits, User user )
+    private String buildSql( EventSearchParams params, List<OrganisationUnit> organisationUnits, User user,
+        boolean keysetOrder )
     {
+        String orderQuery = keysetOrder ? getKeysetOrderQuery() : getOrderQuery( params );
+
         StringBuilder sqlBuilder = new StringBuilder().append( "select * from (" );
 
-        sqlBuilder.append( getEventSelectQuery( params, organisationUnits, user ) );
+        if ( params.isCursorPaging() )
+        {
+            sqlBuilder.append( getKeysetPageQuery( params, organisationUnits, user ) );
+        }
+        else
+        {
+            sqlBuilder.append( getEventSelectQuery( params, organisationUnits, user ) );
+        }
 
-        sqlBuilder.append( getOrderQuery( params ) );
+        sqlBuilder.append( orderQuery );
 
         sqlBuilder.append( getEventPagingQuery( params ) );
 
@@ -879,11 +1030,27 @@ public class JdbcEventStore implements EventStore
 
         sqlBuilder.append( ") as cm on event.psi_id=cm.psic_id " );
 
-        sqlBuilder.append( getOrderQuery( params ) );
+        sqlBuilder.append( orderQuery );
 
         return sqlBuilder.toString();
     }
 
+    /**
+     * Returns the rows of the next page of events by cursor. An event spans one
+     * row for each category option of its attribute option combo, hence the page
+     * limit is applied to the distinct events in a subquery rather than to the
+     * rows.
+     */
+    private String getKeysetPageQuery( EventSearchParams params, List<OrganisationUnit> organisationUnits, User user )
+    {
+        String eventSelectQuery = getEventSelectQuery( params, organisationUnits, user );
+
+        return "select * from (" + eventSelectQuery + ") as pagerows where pagerows.psi_id in (" +
+            "select pageevents.psi_id from (select distinct psi_lastupdated, psi_id from (" + eventSelectQuery +
+            ") as eventrows " + getKeysetOrderQuery() + "limit " + params.getPageSizeWithDefault() +
+            ") as pageevents) ";
+    }
+
     private String getEventSelectQuery( EventSearchParams params, List<OrganisationUnit> organisationUnits, User user )
     {
         List<Long> orgUnitIds = getIdentifiers( organisationUnits );
@@ -1143,6 +1310,13 @@ public class JdbcEventStore implements EventStore
             sqlBuilder.append( hlp.whereAnd() ).append( " psi.lastupdated > psi.lastsynchronized " );
         }
 
+        if ( params.isCursorPaging() && params.hasCursor() )
+        {
+            sqlBuilder.append( hlp.whereAnd() ).append( " (psi.lastupdated, psi.programstageinstanceid) < ('" )
+                .append( params.getCursor().getLastUpdated() ).append( "'::timestamp, " )
+                .append( params.getCursor().getId() ).append( ") " );
+        }
+
         return sqlBuilder.toString();
     }
 
@@ -1398,7 +1572,9 @@ public class JdbcEventStore implements EventStore
     {
         StringBuilder sqlBuilder = new StringBuilder().append( " " );
 
-        if ( params.isPaging() )
+        // Cursor pages are limited by the keyset page query
+
+        if ( !params.isCursorPaging() && params.isPaging() )
         {
             sqlBuilder.append( "limit " ).append( params.getPageSizeWithDefault() ).append( " offset " )
                 .append( params.getOffset() ).append( " " );
@@ -1499,6 +1675,15 @@ public class JdbcEventStore implements EventStore
         }
     }
 
+    /**
+     * Order by last updated and event id, matching the index on these columns
+     * and the comparison of the cursor paging predicate.
+     */
+    private String getKeysetOrderQuery()
+    {
+        return "order by psi_lastupdated desc, psi_id desc ";
+    }
+
     private String getAttributeValueQuery()
     {
         return "select pav.trackedentityinstanceid as pav_id, pav.created as pav_created, pav.lastupdated as pav_lastupdated, "
@@ -29,11 +29,14 @@ package org.hisp.dhis.dxf2.events.event.csv;
  */
 
 import com.vividsolutions.jts.io.ParseException;
+import org.hisp.dhis.dxf2.events.event.Event;
 import org.hisp.dhis.dxf2.events.event.Events;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.function.Consumer;
 
 /**
  * @author Morten Olav Hansen <mortenoh@gmail.com>
@@ -42,6 +45,32 @@ public interface CsvEventService
 {
     void writeEvents( OutputStream outputStream, Events events, boolean withHeader ) throws IOException;
 
+    /**
+     * Writes events to the output stream as they are passed by the given
+     * event source, without holding all events in memory.
+     *
+     * @param outputStream the output stream.
+     * @param eventSource passes the events to write to the given consumer,
+     *        for example an event service stream.
+     * @param withHeader whether to write a header row.
+     */
+    void writeEvents( OutputStream outputStream, Consumer<Consumer<Event>> eventSource, boolean withHeader )
+        throws IOException;
+
     Events readEvents( InputStream inputStream, boolean skipFirst )
         throws IOException, ParseException;
+
+    /**
+     * Reads events from the input stream on demand, one event at a time, so
+     * that large inputs can be imported without holding all events in
+     * memory. The rows of an event must be adjacent. Rows which cannot be
+     * read make the iterator throw an unchecked exception, which lets the
+     * importer stop and report the events imported so far.
+     *
+     * @param inputStream the input stream.
+     * @param skipFirst whether to skip the header row.
+     * @return an iterator of events.
+     */
+    Iterator<Event> iterateEvents( InputStream inputStream, boolean skipFirst )
+        throws IOException;
 }
@@ -31,6 +31,7 @@ package org.hisp.dhis.dxf2.events.event.csv;
 import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import com.fasterxml.jackson.dataformat.csv.CsvMapper;
 import com.fasterxml.jackson.dataformat.csv.CsvParser;
 import com.fasterxml.jackson.dataformat.csv.CsvSchema;
@@ -46,8 +47,12 @@ import org.springframework.stereotype.Service;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
 
 /**
  * @author Morten Olav Hansen <mortenoh@gmail.com>
@@ -71,47 +76,81 @@ public class DefaultCsvEventService
 
         for ( Event event : events.getEvents() )
         {
-            CsvEventDataValue templateDataValue = new CsvEventDataValue();
-            templateDataValue.setEvent( event.getEvent() );
-            templateDataValue.setStatus( event.getStatus() != null ? event.getStatus().name() : null );
-            templateDataValue.setProgram( event.getProgram() );
-            templateDataValue.setProgramStage( event.getProgramStage() );
-            templateDataValue.setEnrollment( event.getEnrollment() );
-            templateDataValue.setOrgUnit( event.getOrgUnit() );
-            templateDataValue.setEventDate( event.getEventDate() );
-            templateDataValue.setDueDate( event.getDueDate() );
-            templateDataValue.setStoredBy( event.getStoredBy() );
-            templateDataValue.setCompletedDate( event.getCompletedDate() );
-            templateDataValue.setCompletedBy( event.getCompletedBy() );
-
-            if ( event.getGeometry() != null )
-            {
-                templateDataValue.setGeometry( event.getGeometry().toText() );
+            dataValues.addAll( getCsvEventDataValues( event ) );
+        }
+
+        writer.writeValue( outputStream, dataValues );
+    }
+
+    @Override
+    public void writeEvents( OutputStream outputStream, Consumer<Consumer<Event>> eventSource, boolean withHeader )
+        throws IOException
+    {
+        ObjectWriter writer = CSV_MAPPER.writer( CSV_SCHEMA.withUseHeader( withHeader ) );
 
-                if ( event.getGeometry().getGeometryType().equals( "Point" ) )
+        try ( SequenceWriter sequenceWriter = writer.writeValues( outputStream ) )
+        {
+            eventSource.accept( event -> {
+                try
                 {
-                    templateDataValue.setLongitude( event.getGeometry().getCoordinate().x );
-                    templateDataValue.setLatitude( event.getGeometry().getCoordinate().y );
+                    sequenceWriter.writeAll( getCsvEventDataValues( event ) );
                 }
-            }
+                catch ( IOException ex )
+                {
+                    throw new UncheckedIOException( ex );
+                }
+            } );
+        }
+        catch ( UncheckedIOException ex )
+        {
+            throw ex.getCause();
+        }
+    }
+
+    private List<CsvEventDataValue> getCsvEventDataValues( Event event )
+    {
+        List<CsvEventDataValue> dataValues = new ArrayList<>();
+
+        CsvEventDataValue templateDataValue = new CsvEventDataValue();
+        templateDataValue.setEvent( event.getEvent() );
+        templateDataValue.setStatus( event.getStatus() != null ? event.getStatus().name() : null );
+        templateDataValue.setProgram( event.getProgram() );
+        templateDataValue.setProgramStage( event.getProgramStage() );
+        templateDataValue.setEnrollment( event.getEnrollment() );
+        templateDataValue.setOrgUnit( event.getOrgUnit() );
+        templateDataValue.setEventDate( event.getEventDate() );
+        templateDataValue.setDueDate( event.getDueDate() );
+        templateDataValue.setStoredBy( event.getStoredBy() );
+        templateDataValue.setCompletedDate( event.getCompletedDate() );
+        templateDataValue.setCompletedBy( event.getCompletedBy() );
 
-            for ( DataValue value : event.getDataValues() )
+        if ( event.getGeometry() != null )
+        {
+            templateDataValue.setGeometry( event.getGeometry().toText() );
+
+            if ( event.getGeometry().getGeometryType().equals( "Point" ) )
             {
-                CsvEventDataValue dataValue = new CsvEventDataValue( templateDataValue );
-                dataValue.setDataElement( value.getDataElement() );
-                dataValue.setValue( value.getValue() );
-                dataValue.setProvidedElsewhere( value.getProvidedElsewhere() );
+                templateDataValue.setLongitude( event.getGeometry().getCoordinate().x );
+                templateDataValue.setLatitude( event.getGeometry().getCoordinate().y );
+            }
+        }
 
-                if ( value.getStoredBy() != null )
-                {
-                    dataValue.setStoredBy( value.getStoredBy() );
-                }
+        for ( DataValue value : event.getDataValues() )
+        {
+            CsvEventDataValue dataValue = new CsvEventDataValue( templateDataValue );
+            dataValue.setDataElement( value.getDataElement() );
+            dataValue.setValue( value.getValue() );
+            dataValue.setProvidedElsewhere( value.getProvidedElsewhere() );
 
-                dataValues.add( dataValue );
+            if ( value.getStoredBy() != null )
+            {
+                dataValue.setStoredBy( value.getStoredBy() );
             }
+
+            dataValues.add( dataValue );
         }
 
-        writer.writeValue( outputStream, dataValues );
+        return dataValues;
     }
 
     @Override
@@ -120,10 +159,7 @@ public class DefaultCsvEventService
     {
         Events events = new Events();
 
-        ObjectReader reader = CSV_MAPPER.readerFor( CsvEventDataValue.class )
-            .with( CSV_SCHEMA.withSkipFirstDataRow( skipFirst ) );
-
-        MappingIterator<CsvEventDataValue> iterator = reader.readValues( inputStream );
+        MappingIterator<CsvEventDataValue> iterator = readDataValues( inputStream, skipFirst );
         Event event = new Event();
         event.setEvent( "not_valid" );
 
@@ -133,40 +169,109 @@ public class DefaultCsvEventService
 
             if ( !event.getEvent().equals( dataValue.getEvent() ) )
             {
-                event = new Event();
-                event.setEvent( dataValue.getEvent() );
-                event.setStatus( StringUtils.isEmpty( dataValue.getStatus() )
-                    ? EventStatus.ACTIVE : Enum.valueOf( EventStatus.class, dataValue.getStatus() ) );
-                event.setProgram( dataValue.getProgram() );
-                event.setProgramStage( dataValue.getProgramStage() );
-                event.setEnrollment( dataValue.getEnrollment() );
-                event.setOrgUnit( dataValue.getOrgUnit() );
-                event.setEventDate( dataValue.getEventDate() );
-                event.setDueDate( dataValue.getDueDate() );
-                event.setCompletedDate( dataValue.getCompletedDate() );
-                event.setCompletedBy( dataValue.getCompletedBy() );
-
-
-                if ( dataValue.getGeometry() != null )
+                event = createEvent( dataValue );
+
+                events.getEvents().add( event );
+            }
+
+            addDataValue( event, dataValue );
+        }
+
+        return events;
+    }
+
+    @Override
+    public Iterator<Event> iterateEvents( InputStream inputStream, boolean skipFirst )
+        throws IOException
+    {
+        MappingIterator<CsvEventDataValue> iterator = readDataValues( inputStream, skipFirst );
+
+        return new Iterator<Event>()
+        {
+            private CsvEventDataValue nextDataValue = iterator.hasNext() ? iterator.next() : null;
+
+            @Override
+            public boolean hasNext()
+            {
+                return nextDataValue != null;
+            }
+
+            @Override
+            public Event next()
+            {
+                if ( nextDataValue == null )
+                {
+                    throw new NoSuchElementException();
+                }
+
+                Event event;
+
+                try
                 {
-                    event.setGeometry( new WKTReader().read( dataValue.getGeometry() ) );
+                    event = createEvent( nextDataValue );
                 }
-                else if ( dataValue.getLongitude() != null && dataValue.getLatitude() != null )
+                catch ( ParseException ex )
                 {
-                    event.setGeometry( new WKTReader()
-                        .read( "Point(" + dataValue.getLongitude() + " " + dataValue.getLatitude() + ")" ) );
+                    throw new IllegalArgumentException( "Invalid geometry for event: " + nextDataValue.getEvent(), ex );
                 }
 
-                events.getEvents().add( event );
+                do
+                {
+                    addDataValue( event, nextDataValue );
+                    nextDataValue = iterator.hasNext() ? iterator.next() : null;
+                }
+                while ( nextDataValue != null && event.getEvent() != null
+                    && event.getEvent().equals( nextDataValue.getEvent() ) );
+
+                return event;
             }
+        };
+    }
+
+    private MappingIterator<CsvEventDataValue> readDataValues( InputStream inputStream, boolean skipFirst )
+        throws IOException
+    {
+        ObjectReader reader = CSV_MAPPER.readerFor( CsvEventDataValue.class )
+            .with( CSV_SCHEMA.withSkipFirstDataRow( skipFirst ) );
+
+        return reader.readValues( inputStream );
+    }
 
-            DataValue value = new DataValue( dataValue.getDataElement(), dataValue.getValue() );
-            value.setStoredBy( dataValue.getStoredBy() );
-            value.setProvidedElsewhere( dataValue.getProvidedElsewhere() );
+    private Event createEvent( CsvEventDataValue dataValue )
+        throws ParseException
+    {
+        Event event = new Event();
+        event.setEvent( dataValue.getEvent() );
+        event.setStatus( StringUtils.isEmpty( dataValue.getStatus() )
+            ? EventStatus.ACTIVE : Enum.valueOf( EventStatus.class, dataValue.getStatus() ) );
+        event.setProgram( dataValue.getProgram() );
+        event.setProgramStage( dataValue.getProgramStage() );
+        event.setEnrollment( dataValue.getEnrollment() );
+        event.setOrgUnit( dataValue.getOrgUnit() );
+        event.setEventDate( dataValue.getEventDate() );
+        event.setDueDate( dataValue.getDueDate() );
+        event.setCompletedDate( dataValue.getCompletedDate() );
+        event.setCompletedBy( dataValue.getCompletedBy() );
 
-            event.getDataValues().add( value );
+        if ( dataValue.getGeometry() != null )
+        {
+            event.setGeometry( new WKTReader().read( dataValue.getGeometry() ) );
+        }
+        else if ( dataValue.getLongitude() != null && dataValue.getLatitude() != null )
+        {
+            event.setGeometry( new WKTReader()
+                .read( "Point(" + dataValue.getLongitude() + " " + dataValue.getLatitude() + ")" ) );
         }
 
-        return events;
+        return event;
+    }
+
+    private void addDataValue( Event event, CsvEventDataValue dataValue )
+    {
+        DataValue value = new DataValue( dataValue.getDataElement(), dataValue.getValue() );
+        value.setStoredBy( dataValue.getStoredBy() );
+        value.setProvidedElsewhere( dataValue.getProvidedElsewhere() );
+
+        event.getDataValues().add( value );
     }
 }
@@ -29,19 +29,22 @@
 package org.hisp.dhis.dxf2.events.importer;
 
 import static com.google.common.base.Preconditions.checkNotNull;
-import static com.google.common.collect.Lists.partition;
 import static java.lang.System.nanoTime;
 import static org.apache.commons.collections4.CollectionUtils.isNotEmpty;
 import static org.hisp.dhis.dxf2.metadata.feedback.ImportReportMode.ERRORS;
 import static org.hisp.dhis.system.notification.NotificationLevel.INFO;
 
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 import org.hisp.dhis.dxf2.common.ImportOptions;
 import org.hisp.dhis.dxf2.events.event.Event;
 import org.hisp.dhis.dxf2.events.importer.context.WorkContext;
 import org.hisp.dhis.dxf2.events.importer.context.WorkContextLoader;
+import org.hisp.dhis.dxf2.importsummary.ImportStatus;
 import org.hisp.dhis.dxf2.importsummary.ImportSummaries;
+import org.hisp.dhis.dxf2.importsummary.ImportSummary;
 import org.hisp.dhis.scheduling.JobConfiguration;
 import org.hisp.dhis.system.notification.Notifier;
 import org.hisp.dhis.system.util.Clock;
@@ -75,35 +78,105 @@ public class EventImporter
 
     public ImportSummaries importAll( final List<Event> events, final ImportOptions importOptions,
         final JobConfiguration jobConfiguration )
+    {
+        return importAll( events.iterator(), importOptions, jobConfiguration );
+    }
+
+    /**
+     * Imports the events in batches as they are read from the given iterator,
+     * so that only one batch of events is held in memory at a time. The
+     * {@link WorkContext} is loaded for each batch, and for the errors report
+     * mode only the import summaries with conflicts are kept. Other report
+     * modes keep one import summary per event, as the full report lists the
+     * reference of every event, so very large inputs should be imported with
+     * the errors report mode.
+     * <p>
+     * The import is not atomic. Each batch is committed as it is imported, and
+     * if the iterator fails to read an event, for instance because the input
+     * is malformed, the import stops there. The events read up to that point
+     * stay imported, and an import summary with status
+     * {@link ImportStatus#ERROR} is added to the returned summaries, whose
+     * counts reflect the events which were imported.
+     *
+     * @param events the events to import, typically parsed on demand from
+     *        the input stream of the request.
+     * @param importOptions the import options.
+     * @param jobConfiguration the job configuration, can be null.
+     * @return the import summaries.
+     */
+    public ImportSummaries importAll( final Iterator<Event> events, final ImportOptions importOptions,
+        final JobConfiguration jobConfiguration )
     {
         assert importOptions != null;
 
         final ImportSummaries importSummaries = new ImportSummaries();
 
-        if ( events.size() == 0 )
+        if ( !events.hasNext() )
         {
             return importSummaries;
         }
-        
+
         notifier.clear( jobConfiguration ).notify( jobConfiguration, "Importing events" );
         final Clock clock = new Clock( log ).startClock();
 
-        long now = nanoTime();
+        int count = 0;
 
-        final WorkContext context = workContextLoader.load( importOptions, events );
+        RuntimeException readError = null;
 
-        log.debug( "::: event tracker import context load took : " + ( nanoTime() - now) );
+        while ( readError == null )
+        {
+            final List<Event> batch = new ArrayList<>( BATCH_SIZE );
 
-        final List<List<Event>> partitions = partition( events, BATCH_SIZE );
+            try
+            {
+                while ( batch.size() < BATCH_SIZE && events.hasNext() )
+                {
+                    batch.add( events.next() );
+                }
+            }
+            catch ( RuntimeException ex )
+            {
+                log.error( "Failed to read events after " + ( count + batch.size() ) + " events", ex );
+
+                readError = ex;
+            }
+
+            if ( batch.isEmpty() )
+            {
+                break;
+            }
+
+            long now = nanoTime();
+
+            final WorkContext context = workContextLoader.load( importOptions, batch );
+
+            log.debug( "::: event tracker import context load took : " + ( nanoTime() - now) );
 
-        for ( final List<Event> batch : partitions )
-        {
             final ImportStrategyAccumulator accumulator = new ImportStrategyAccumulator().partitionEvents( batch,
                 importOptions.getImportStrategy(), context.getProgramStageInstanceMap() );
 
             importSummaries.addImportSummaries( eventManager.addEvents( accumulator.getCreate(), context ) );
             importSummaries.addImportSummaries( eventManager.updateEvents( accumulator.getUpdate(), context ) );
             importSummaries.addImportSummaries( eventManager.deleteEvents( accumulator.getDelete(), context ) );
+
+            if ( ERRORS == importOptions.getReportMode() && isNotEmpty( importSummaries.getImportSummaries() ) )
+            {
+                importSummaries.getImportSummaries().removeIf( is -> is.getConflicts().isEmpty() );
+            }
+
+            count += batch.size();
+
+            if ( jobConfiguration != null )
+            {
+                notifier.notify( jobConfiguration, INFO, "Imported " + count + " events", false );
+            }
+        }
+
+        if ( readError != null )
+        {
+            importSummaries.addImportSummary( new ImportSummary( ImportStatus.ERROR,
+                "Import stopped after " + count + " events, the remaining events could not be read: " +
+                    readError.getMessage() ) );
         }
 
         if ( jobConfiguration != null )
@@ -116,11 +189,6 @@ public class EventImporter
             clock.logTime( "Import done" );
         }
 
-        if ( ERRORS == importOptions.getReportMode() && isNotEmpty( importSummaries.getImportSummaries() ) )
-        {
-            importSummaries.getImportSummaries().removeIf( is -> is.getConflicts().isEmpty() );
-        }
-
         return importSummaries;
     }
 }
@@ -35,6 +35,8 @@ import static org.springframework.util.StreamUtils.copyToString;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 
 import org.hisp.dhis.dxf2.common.ImportOptions;
@@ -46,9 +48,12 @@ import org.hisp.dhis.user.CurrentUserService;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonMappingException;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 
 /**
  * Service responsible for wrapping the event importing process, pre-processing
@@ -92,12 +97,18 @@ public class EventServiceFacade
         return eventImporter.importAll( events, updateImportOptions( importOptions ), jobConfiguration );
     }
 
+    /**
+     * Imports the events of the JSON input stream in batches as they are
+     * parsed. The import is not atomic: if the input turns out to be
+     * malformed partway through, the events parsed before the error stay
+     * imported and the returned summaries have status
+     * {@link org.hisp.dhis.dxf2.importsummary.ImportStatus#ERROR}.
+     */
     public ImportSummaries addEventsJson( final InputStream inputStream, final JobConfiguration jobConfiguration,
         final ImportOptions importOptions )
         throws IOException
     {
-        final String input = copyToString( inputStream, UTF_8 );
-        final List<Event> events = parseJsonEvents( input );
+        final Iterator<Event> events = parseJsonEvents( inputStream );
 
         return eventImporter.importAll( events, updateImportOptions( importOptions ), jobConfiguration );
     }
@@ -136,25 +147,42 @@ public class EventServiceFacade
         return events;
     }
 
-    private List<Event> parseJsonEvents( final String input )
+    /**
+     * Parses the events of the input stream on demand. The input is either an
+     * object with an events array, which is read one event at a time, or a
+     * single event.
+     */
+    private Iterator<Event> parseJsonEvents( final InputStream inputStream )
         throws IOException
     {
-        final List<Event> events = new ArrayList<>( 0 );
+        final JsonParser parser = jsonMapper.getFactory().createParser( inputStream );
 
-        final JsonNode root = jsonMapper.readTree( input );
-
-        if ( root.get( "events" ) != null )
+        if ( parser.nextToken() != JsonToken.START_OBJECT )
         {
-            final Events multiple = fromJson( input, Events.class );
-            events.addAll( multiple.getEvents() );
+            throw new JsonParseException( parser, "Expected an event or an object with an events array" );
         }
-        else
+
+        final ObjectNode single = jsonMapper.createObjectNode();
+
+        while ( parser.nextToken() == JsonToken.FIELD_NAME )
         {
-            final Event single = fromJson( input, Event.class );
-            events.add( single );
+            final String field = parser.getCurrentName();
+            final JsonToken token = parser.nextToken();
+
+            if ( "events".equals( field ) && token == JsonToken.START_ARRAY )
+            {
+                if ( parser.nextToken() == JsonToken.END_ARRAY )
+                {
+                    return Collections.emptyIterator();
+                }
+
+                return jsonMapper.readValues( parser, Event.class );
+            }
+
+            single.set( field, jsonMapper.readTree( parser ) );
         }
 
-        return events;
+        return Collections.singletonList( jsonMapper.treeToValue( single, Event.class ) ).iterator();
     }
 
     @SuppressWarnings( "unchecked" )
@@ -163,11 +191,4 @@ public class EventServiceFacade
     {
         return (T) xmlMapper.readValue( input, clazz );
     }
-
-    @SuppressWarnings( "unchecked" )
-    private <T> T fromJson( final String input, final Class<?> clazz )
-        throws IOException
-    {
-        return (T) jsonMapper.readValue( input, clazz );
-    }
 }
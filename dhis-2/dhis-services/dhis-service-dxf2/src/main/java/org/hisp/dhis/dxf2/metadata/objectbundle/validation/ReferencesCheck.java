@@ -119,7 +119,7 @@ public class ReferencesCheck
 
                 if ( !p.isCollection() )
                 {
-                    IdentifiableObject refObject = ReflectionUtils.invokeMethod( object, p.getGetterMethod() );
+                    IdentifiableObject refObject = ReflectionUtils.getPropertyValue( object, p );
                     IdentifiableObject ref = preheat.get( identifier, refObject );
 
                     if ( ref == null && refObject != null && !preheat.isDefault( refObject ) )
@@ -139,8 +139,7 @@ public class ReferencesCheck
                 else
                 {
                     Collection<IdentifiableObject> objects = ReflectionUtils.newCollectionInstance( p.getKlass() );
-                    Collection<IdentifiableObject> refObjects = ReflectionUtils.invokeMethod( object,
-                        p.getGetterMethod() );
+                    Collection<IdentifiableObject> refObjects = ReflectionUtils.getPropertyValue( object, p );
 
                     for ( IdentifiableObject refObject : refObjects )
                     {
@@ -161,7 +160,7 @@ public class ReferencesCheck
                         }
                     }
 
-                    ReflectionUtils.invokeMethod( object, p.getSetterMethod(), objects );
+                    ReflectionUtils.setPropertyValue( object, p, objects );
                 }
             } );
 
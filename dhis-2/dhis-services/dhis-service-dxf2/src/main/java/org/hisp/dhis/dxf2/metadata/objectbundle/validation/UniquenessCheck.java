@@ -124,7 +124,7 @@ public class UniquenessCheck
                 uniquenessMap.put( property.getName(), new HashMap<>() );
             }
 
-            Object value = ReflectionUtils.invokeMethod( object, property.getGetterMethod() );
+            Object value = ReflectionUtils.getPropertyValue( object, property );
 
             if ( value != null )
             {
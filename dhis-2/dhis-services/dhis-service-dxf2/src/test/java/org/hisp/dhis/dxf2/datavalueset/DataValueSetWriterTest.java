@@ -0,0 +1,234 @@
+package org.hisp.dhis.dxf2.datavalueset;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hisp.dhis.DhisConvenienceTest;
+import org.hisp.dhis.category.CategoryOptionCombo;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.datavalue.DataValue;
+import org.hisp.dhis.datavalue.DataValueAudit;
+import org.hisp.dhis.importexport.ImportStrategy;
+import org.hisp.dhis.mock.batchhandler.MockBatchHandler;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.period.Period;
+import org.junit.Test;
+
+public class DataValueSetWriterTest
+    extends DhisConvenienceTest
+{
+    private final List<MockBatchHandler<DataValue>> dataValueBatchHandlers = Collections.synchronizedList( new ArrayList<>() );
+
+    private final List<MockBatchHandler<DataValueAudit>> auditBatchHandlers = Collections.synchronizedList( new ArrayList<>() );
+
+    @Test
+    public void testWriteSequential()
+    {
+        DataValueSetWriter writer = createWriter( false, 1 );
+
+        List<DataValue> values = createDataValues( 10, 3 );
+
+        values.forEach( value -> writer.write( value, false, "johndoe", null ) );
+
+        writer.flush();
+
+        assertEquals( 30, writer.getImportCount() );
+        assertEquals( 0, writer.getUpdateCount() );
+        assertEquals( 1, dataValueBatchHandlers.size() );
+        assertEquals( values, dataValueBatchHandlers.get( 0 ).getInserts() );
+    }
+
+    @Test
+    public void testWriteParallel()
+    {
+        DataValueSetWriter writer = createWriter( false, 4 );
+
+        List<DataValue> values = createDataValues( 20, 5 );
+
+        values.forEach( value -> writer.write( value, false, "johndoe", null ) );
+
+        writer.flush();
+
+        assertEquals( 100, writer.getImportCount() );
+        assertEquals( 4, dataValueBatchHandlers.size() );
+        assertEquals( 100, dataValueBatchHandlers.stream().mapToInt( h -> h.getInserts().size() ).sum() );
+
+        for ( MockBatchHandler<DataValue> handler : dataValueBatchHandlers )
+        {
+            for ( DataValue value : handler.getInserts() )
+            {
+                assertEquals( 5, handler.getInserts().stream()
+                    .filter( v -> v.getSource().equals( value.getSource() ) )
+                    .count() );
+            }
+        }
+    }
+
+    @Test
+    public void testUpdateParallel()
+    {
+        DataValueSetWriter writer = createWriter( true, 3 );
+
+        List<DataValue> values = createDataValues( 10, 2 );
+
+        values.forEach( value -> writer.write( value, true, "johndoe", null ) );
+
+        writer.flush();
+
+        assertEquals( 0, writer.getImportCount() );
+        assertEquals( 20, writer.getUpdateCount() );
+        assertEquals( 0, writer.getDeleteCount() );
+        assertEquals( 20, dataValueBatchHandlers.stream().mapToInt( h -> h.getUpdates().size() ).sum() );
+        assertEquals( 20, auditBatchHandlers.stream().mapToInt( h -> h.getInserts().size() ).sum() );
+        assertEquals( 20, writer.getAssignedFileResources().size() );
+    }
+
+    @Test
+    public void testAbortStopsWorkers()
+        throws InterruptedException
+    {
+        AtomicInteger flushes = new AtomicInteger();
+
+        DataValueSetWriter writer = new DataValueSetWriter( ImportStrategy.CREATE_AND_UPDATE, false, false, 4,
+            () -> new FlushCountingBatchHandler<DataValue>( flushes ),
+            () -> new FlushCountingBatchHandler<DataValueAudit>( flushes ) );
+
+        List<DataValue> values = createDataValues( 20, 5 );
+
+        try
+        {
+            for ( int i = 0; i < values.size(); i++ )
+            {
+                if ( i == 50 )
+                {
+                    throw new IllegalStateException( "Failed to read data value" );
+                }
+
+                writer.write( values.get( i ), false, "johndoe", null );
+            }
+
+            writer.flush();
+        }
+        catch ( IllegalStateException ex )
+        {
+            // Expected
+        }
+        finally
+        {
+            writer.abort();
+        }
+
+        assertTrue( writer.awaitTermination( 5, TimeUnit.SECONDS ) );
+        assertEquals( 8, flushes.get() );
+    }
+
+    @Test
+    public void testAbortAfterFlush()
+        throws InterruptedException
+    {
+        AtomicInteger flushes = new AtomicInteger();
+
+        DataValueSetWriter writer = new DataValueSetWriter( ImportStrategy.CREATE_AND_UPDATE, false, false, 2,
+            () -> new FlushCountingBatchHandler<DataValue>( flushes ), null );
+
+        createDataValues( 4, 2 ).forEach( value -> writer.write( value, false, "johndoe", null ) );
+
+        writer.flush();
+        writer.abort();
+
+        assertTrue( writer.awaitTermination( 5, TimeUnit.SECONDS ) );
+        assertEquals( 2, flushes.get() );
+        assertEquals( 8, writer.getImportCount() );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private DataValueSetWriter createWriter( boolean findSelf, int workerNo )
+    {
+        return new DataValueSetWriter( ImportStrategy.CREATE_AND_UPDATE, false, false, workerNo,
+            () -> add( dataValueBatchHandlers, new MockBatchHandler<DataValue>().withFindSelf( findSelf ) ),
+            () -> add( auditBatchHandlers, new MockBatchHandler<>() ) );
+    }
+
+    private static <T> MockBatchHandler<T> add( List<MockBatchHandler<T>> handlers, MockBatchHandler<T> handler )
+    {
+        handlers.add( handler );
+        return handler;
+    }
+
+    private List<DataValue> createDataValues( int orgUnits, int periods )
+    {
+        DataElement dataElement = createDataElement( 'A' );
+        CategoryOptionCombo optionCombo = createCategoryOptionCombo( 'A' );
+
+        List<DataValue> values = new ArrayList<>();
+
+        for ( int i = 0; i < orgUnits; i++ )
+        {
+            OrganisationUnit orgUnit = createOrganisationUnit( "OrgUnit" + i );
+            orgUnit.setId( i + 1 );
+
+            for ( int j = 0; j < periods; j++ )
+            {
+                Period period = createPeriod( String.format( "2020%02d", j + 1 ) );
+
+                values.add( createDataValue( dataElement, period, orgUnit, optionCombo, optionCombo, String.valueOf( i ) ) );
+            }
+        }
+
+        return values;
+    }
+
+    private static class FlushCountingBatchHandler<T>
+        extends MockBatchHandler<T>
+    {
+        private final AtomicInteger flushes;
+
+        FlushCountingBatchHandler( AtomicInteger flushes )
+        {
+            this.flushes = flushes;
+        }
+
+        @Override
+        public void flush()
+        {
+            flushes.incrementAndGet();
+        }
+    }
+}
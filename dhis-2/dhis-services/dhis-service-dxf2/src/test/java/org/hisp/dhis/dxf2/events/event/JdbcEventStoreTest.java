@@ -36,6 +36,7 @@ import org.hisp.dhis.user.CurrentUserService;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
@@ -44,11 +45,17 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 
 import javax.sql.DataSource;
+import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
@@ -57,6 +64,8 @@ import static org.mockito.Mockito.*;
  */
 public class JdbcEventStoreTest
 {
+    private static final Timestamp LAST_UPDATED = Timestamp.valueOf( "2020-05-01 10:15:30.123456" );
+
     private JdbcEventStore subject;
 
     @Mock
@@ -100,6 +109,78 @@ public class JdbcEventStoreTest
         verify( rowSet, times( 4 ) ).getString( "psi_eventdatavalues" );
     }
 
+    @Test
+    public void verifyCursorPagingQueryUsesKeysetPredicate()
+    {
+        when( rowSet.next() ).thenReturn( false );
+
+        EventSearchParams eventSearchParams = new EventSearchParams().setCursorPaging( true )
+            .setCursor( new EventCursor( Timestamp.valueOf( "2020-05-01 10:15:30.123456" ), 42L ) ).setPageSize( 50 );
+
+        List<Event> events = subject.getEvents( eventSearchParams, new ArrayList<>(), Collections.emptyMap() );
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass( String.class );
+        verify( jdbcTemplate ).queryForRowSet( sql.capture() );
+
+        assertThat( events, hasSize( 0 ) );
+        assertThat( sql.getValue(), containsString(
+            "(psi.lastupdated, psi.programstageinstanceid) < ('2020-05-01 10:15:30.123456'::timestamp, 42)" ) );
+        assertThat( sql.getValue(), containsString( "select distinct psi_lastupdated, psi_id from (" ) );
+        assertThat( sql.getValue(), containsString( "order by psi_lastupdated desc, psi_id desc limit 50 " ) );
+        assertThat( sql.getValue(), not( containsString( "offset" ) ) );
+        assertThat( eventSearchParams.getNextCursor(), is( nullValue() ) );
+    }
+
+    @Test
+    public void verifyCursorPagingCountsDistinctEvents()
+    {
+        mockCursorRowSet();
+
+        EventSearchParams eventSearchParams = new EventSearchParams().setCursorPaging( true ).setPageSize( 2 );
+
+        List<Event> events = subject.getEvents( eventSearchParams, new ArrayList<>(), Collections.emptyMap() );
+
+        assertThat( events, hasSize( 2 ) );
+        assertThat( events.get( 0 ).getEvent(), is( "iuDUBa26aHN" ) );
+        assertThat( events.get( 1 ).getEvent(), is( "lumVtWwwy0O" ) );
+        assertThat( eventSearchParams.getNextCursor(), is( new EventCursor( LAST_UPDATED, 41L ) ) );
+    }
+
+    @Test
+    public void verifyCursorPagingEndsOnPartialPage()
+    {
+        mockCursorRowSet();
+
+        EventSearchParams eventSearchParams = new EventSearchParams().setCursorPaging( true ).setPageSize( 3 );
+
+        List<Event> events = subject.getEvents( eventSearchParams, new ArrayList<>(), Collections.emptyMap() );
+
+        assertThat( events, hasSize( 2 ) );
+        assertThat( eventSearchParams.getNextCursor(), is( nullValue() ) );
+    }
+
+    /**
+     * Simulates 3 rows of 2 events, where the first event spans 2 rows.
+     */
+    private void mockCursorRowSet()
+    {
+        String[] uids = { "iuDUBa26aHN", "iuDUBa26aHN", "lumVtWwwy0O" };
+        long[] ids = { 42L, 42L, 41L };
+        int[] row = { -1 };
+
+        when( rowSet.next() ).thenAnswer( invocation -> ++row[0] < uids.length );
+        when( rowSet.getString( "psi_uid" ) ).thenAnswer( invocation -> uids[row[0]] );
+        when( rowSet.getLong( "psi_id" ) ).thenAnswer( invocation -> ids[row[0]] );
+        when( rowSet.getTimestamp( "psi_lastupdated" ) ).thenReturn( LAST_UPDATED );
+        when( rowSet.getString( "psi_status" ) ).thenReturn( "ACTIVE" );
+        when( rowSet.getString( "p_type" ) ).thenReturn( "without_registration" );
+        when( rowSet.getString( "p_identifier" ) ).thenReturn( "PrgUID00001" );
+        when( rowSet.getString( "ps_identifier" ) ).thenReturn( "PsUID000001" );
+        when( rowSet.getString( "ou_identifier" ) ).thenReturn( "OuUID000001" );
+        when( rowSet.getString( "coc_identifier" ) ).thenReturn( "CocUID00001" );
+        when( rowSet.getString( "deco_uid" ) ).thenReturn( "DecoUID0001" );
+    }
+
     private void mockRowSet()
     {
         // Simulate 3 rows
@@ -0,0 +1,176 @@
+package org.hisp.dhis.dxf2.events.importer;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.hisp.dhis.common.CodeGenerator;
+import org.hisp.dhis.dxf2.common.ImportOptions;
+import org.hisp.dhis.dxf2.events.event.Event;
+import org.hisp.dhis.dxf2.events.importer.context.WorkContext;
+import org.hisp.dhis.dxf2.events.importer.context.WorkContextLoader;
+import org.hisp.dhis.dxf2.importsummary.ImportStatus;
+import org.hisp.dhis.dxf2.importsummary.ImportSummaries;
+import org.hisp.dhis.importexport.ImportStrategy;
+import org.hisp.dhis.system.notification.Notifier;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+public class EventImporterTest
+{
+    @Mock
+    private EventManager eventManager;
+
+    @Mock
+    private WorkContextLoader workContextLoader;
+
+    @Mock
+    private Notifier notifier;
+
+    @Rule
+    public MockitoRule rule = MockitoJUnit.rule();
+
+    private EventImporter subject;
+
+    private ImportOptions importOptions;
+
+    @Before
+    public void setUp()
+    {
+        subject = new EventImporter( eventManager, workContextLoader, notifier );
+
+        importOptions = ImportOptions.getDefaultImportOptions();
+        importOptions.setImportStrategy( ImportStrategy.CREATE );
+
+        when( notifier.clear( any() ) ).thenReturn( notifier );
+        when( workContextLoader.load( any(), anyList() ) )
+            .thenReturn( WorkContext.builder().programStageInstanceMap( new HashMap<>() ).build() );
+        when( eventManager.addEvents( anyList(), any() ) ).thenReturn( new ImportSummaries() );
+        when( eventManager.updateEvents( anyList(), any() ) ).thenReturn( new ImportSummaries() );
+        when( eventManager.deleteEvents( anyList(), any() ) ).thenReturn( new ImportSummaries() );
+    }
+
+    @Test
+    @SuppressWarnings( "unchecked" )
+    public void verifyEventsAreLoadedAndImportedInBatches()
+    {
+        List<Event> events = createEvents( 250 );
+
+        subject.importAll( events.iterator(), importOptions, null );
+
+        ArgumentCaptor<List<Event>> batches = ArgumentCaptor.forClass( List.class );
+        verify( workContextLoader, times( 3 ) ).load( any(), batches.capture() );
+
+        assertEquals( 100, batches.getAllValues().get( 0 ).size() );
+        assertEquals( 100, batches.getAllValues().get( 1 ).size() );
+        assertEquals( 50, batches.getAllValues().get( 2 ).size() );
+        assertEquals( events, batches.getAllValues().stream().flatMap( List::stream ).collect( Collectors.toList() ) );
+
+        verify( eventManager, times( 3 ) ).addEvents( anyList(), any() );
+    }
+
+    @Test
+    public void verifyNoEventsImportsNothing()
+    {
+        ImportSummaries importSummaries = subject.importAll( new ArrayList<>(), importOptions, null );
+
+        assertTrue( importSummaries.getImportSummaries().isEmpty() );
+        verify( workContextLoader, never() ).load( any(), anyList() );
+    }
+
+    @Test
+    @SuppressWarnings( "unchecked" )
+    public void verifyReadErrorStopsImportAndReturnsError()
+    {
+        List<Event> events = createEvents( 150 );
+        Iterator<Event> iterator = events.iterator();
+
+        Iterator<Event> failingIterator = new Iterator<Event>()
+        {
+            @Override
+            public boolean hasNext()
+            {
+                return true;
+            }
+
+            @Override
+            public Event next()
+            {
+                if ( iterator.hasNext() )
+                {
+                    return iterator.next();
+                }
+
+                throw new IllegalArgumentException( "Malformed event" );
+            }
+        };
+
+        ImportSummaries importSummaries = subject.importAll( failingIterator, importOptions, null );
+
+        ArgumentCaptor<List<Event>> batches = ArgumentCaptor.forClass( List.class );
+        verify( workContextLoader, times( 2 ) ).load( any(), batches.capture() );
+
+        assertEquals( events, batches.getAllValues().stream().flatMap( List::stream ).collect( Collectors.toList() ) );
+        assertEquals( ImportStatus.ERROR, importSummaries.getStatus() );
+        assertEquals( 1, importSummaries.getImportSummaries().size() );
+        assertTrue( importSummaries.getImportSummaries().get( 0 ).getDescription().contains( "Malformed event" ) );
+    }
+
+    private List<Event> createEvents( int size )
+    {
+        List<Event> events = new ArrayList<>();
+
+        for ( int i = 0; i < size; i++ )
+        {
+            Event event = new Event();
+            event.setUid( CodeGenerator.generateUid() );
+            events.add( event );
+        }
+
+        return events;
+    }
+}
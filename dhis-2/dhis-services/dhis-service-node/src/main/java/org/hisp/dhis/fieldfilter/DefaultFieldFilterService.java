@@ -28,6 +28,7 @@ package org.hisp.dhis.fieldfilter;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
@@ -45,9 +46,12 @@ import org.hisp.dhis.node.AbstractNode;
 import org.hisp.dhis.node.Node;
 import org.hisp.dhis.node.NodeTransformer;
 import org.hisp.dhis.node.Preset;
+import org.hisp.dhis.node.config.InclusionStrategy;
+import org.hisp.dhis.node.serializers.Jackson2JsonNodeSerializer;
 import org.hisp.dhis.node.types.CollectionNode;
 import org.hisp.dhis.node.types.ComplexNode;
 import org.hisp.dhis.node.types.SimpleNode;
+import org.hisp.dhis.node.types.StreamingCollectionNode;
 import org.hisp.dhis.period.PeriodType;
 import org.hisp.dhis.preheat.Preheat;
 import org.hisp.dhis.schema.Property;
@@ -70,6 +74,7 @@ import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
@@ -179,8 +184,6 @@ public class DefaultFieldFilterService implements FieldFilterService
     @Override
     public CollectionNode toCollectionNode( Class<?> wrapper, FieldFilterParams params )
     {
-        String fields = params.getFields() == null ? "" : Joiner.on( "," ).join( params.getFields() );
-
         Schema rootSchema = schemaService.getDynamicSchema( wrapper );
 
         CollectionNode collectionNode = new CollectionNode( rootSchema.getCollectionName() );
@@ -188,6 +191,58 @@ public class DefaultFieldFilterService implements FieldFilterService
 
         List<?> objects = params.getObjects();
 
+        if ( params.getObjects().isEmpty() )
+        {
+            return collectionNode;
+        }
+
+        final FieldMap finalFieldMap = getFieldMap( params );
+
+        if ( params.getUser() == null )
+        {
+            params.setUser( currentUserService.getCurrentUser() );
+        }
+
+        objects.forEach( object -> {
+            AbstractNode node = buildNode( finalFieldMap, wrapper, object, params.getUser(), params.getDefaults() );
+
+            if ( node != null )
+            {
+                collectionNode.addChild( node );
+            }
+        } );
+
+        return collectionNode;
+    }
+
+    @Override
+    public CollectionNode toStreamingCollectionNode( Class<?> wrapper, FieldFilterParams params )
+    {
+        if ( params.getObjects().isEmpty() )
+        {
+            return toCollectionNode( wrapper, params );
+        }
+
+        if ( params.getUser() == null )
+        {
+            params.setUser( currentUserService.getCurrentUser() );
+        }
+
+        Schema rootSchema = schemaService.getDynamicSchema( wrapper );
+
+        CollectionNode collectionNode = new StreamingCollectionNode( rootSchema.getCollectionName(),
+            () -> toCollectionNode( wrapper, params ),
+            ( generator, inclusionStrategy, nodeWriter ) -> writeCollection( wrapper, params,
+                new JsonContext( generator, inclusionStrategy, nodeWriter, params.getUser(), params.getDefaults() ) ) );
+        collectionNode.setNamespace( rootSchema.getNamespace() );
+
+        return collectionNode;
+    }
+
+    private FieldMap getFieldMap( FieldFilterParams params )
+    {
+        String fields = params.getFields() == null ? "" : Joiner.on( "," ).join( params.getFields() );
+
         if ( params.getSkipSharing() )
         {
             final List<String> fieldList = CollectionUtils.isEmpty( params.getFields() ) ? Collections.singletonList( "*" ) : params.getFields();
@@ -196,13 +251,8 @@ public class DefaultFieldFilterService implements FieldFilterService
                 .filter( org.apache.commons.lang3.StringUtils::isNotBlank ).distinct().collect( Collectors.joining( "," ) );
         }
 
-        if ( params.getObjects().isEmpty() )
-        {
-            return collectionNode;
-        }
-
         FieldMap fieldMap = new FieldMap();
-        Schema schema = schemaService.getDynamicSchema( objects.get( 0 ).getClass() );
+        Schema schema = schemaService.getDynamicSchema( params.getObjects().get( 0 ).getClass() );
 
         if ( StringUtils.isEmpty( fields ) )
         {
@@ -216,23 +266,7 @@ public class DefaultFieldFilterService implements FieldFilterService
             fieldMap = fieldParser.parse( fields );
         }
 
-        final FieldMap finalFieldMap = fieldMap;
-
-        if ( params.getUser() == null )
-        {
-            params.setUser( currentUserService.getCurrentUser() );
-        }
-
-        objects.forEach( object -> {
-            AbstractNode node = buildNode( finalFieldMap, wrapper, object, params.getUser(), params.getDefaults() );
-
-            if ( node != null )
-            {
-                collectionNode.addChild( node );
-            }
-        } );
-
-        return collectionNode;
+        return fieldMap;
     }
 
     private AbstractNode buildNode( FieldMap fieldMap, Class<?> klass, Object object, User user, Defaults defaults )
@@ -270,6 +304,27 @@ public class DefaultFieldFilterService implements FieldFilterService
             return null;
         }
 
+        prepareObject( fieldMap, schema, object, user );
+
+        for ( String fieldKey : fieldMap.keySet() )
+        {
+            Property property = schema.getProperty( fieldKey );
+
+            if ( property == null || !property.isReadable() )
+            {
+                // throw new FieldFilterException( fieldKey, schema );
+                log.debug( "Unknown field property `" + fieldKey + "`, available fields are " + schema.getPropertyMap().keySet() );
+                continue;
+            }
+
+            complexNode.addChild( buildChildNode( fieldKey, fieldMap.get( fieldKey ), property, klass, object, user, defaults ) );
+        }
+
+        return complexNode;
+    }
+
+    private void prepareObject( FieldMap fieldMap, Schema schema, Object object, User user )
+    {
         updateFields( fieldMap, schema.getKlass() );
 
         if ( fieldMap.containsKey( "access" ) && schema.isIdentifiableObject() )
@@ -282,192 +337,599 @@ public class DefaultFieldFilterService implements FieldFilterService
             AttributeValue attributeValue = (AttributeValue) object;
             attributeValue.setAttribute( attributeService.getAttribute( attributeValue.getAttribute().getUid() ) );
         }
+    }
 
-        for ( String fieldKey : fieldMap.keySet() )
-        {
-            AbstractNode child = null;
-            Property property = schema.getProperty( fieldKey );
-            FieldMap fieldValue = fieldMap.get( fieldKey );
-
-            if ( property == null || !property.isReadable() )
-            {
-                // throw new FieldFilterException( fieldKey, schema );
-                log.debug( "Unknown field property `" + fieldKey + "`, available fields are " + schema.getPropertyMap().keySet() );
-                continue;
-            }
-
-            Object returnValue = ReflectionUtils.invokeMethod( object, property.getGetterMethod() );
+    private Node buildChildNode( String fieldKey, FieldMap fieldValue, Property property, Class<?> klass, Object object,
+        User user, Defaults defaults )
+    {
+        AbstractNode child = null;
 
-            Class<?> propertyClass = property.getKlass();
-            Schema propertySchema = schemaService.getDynamicSchema( propertyClass );
+        Object returnValue = ReflectionUtils.getPropertyValue( object, property );
 
-            if ( property.hasPropertyTransformer() )
-            {
-                Optional<PropertyTransformer> propertyTransformer = TRANSFORMER_CACHE.get( property.getPropertyTransformer().getName(), s -> {
-                    try
-                    {
-                        return property.getPropertyTransformer().newInstance();
-                    }
-                    catch ( InstantiationException | IllegalAccessException e )
-                    {
-                        throw new RuntimeException( e );
-                    }
-                } );
+        Class<?> propertyClass = property.getKlass();
+        Schema propertySchema = schemaService.getDynamicSchema( propertyClass );
 
-                if ( propertyTransformer.isPresent() && returnValue != null )
+        if ( property.hasPropertyTransformer() )
+        {
+            Optional<PropertyTransformer> propertyTransformer = TRANSFORMER_CACHE.get( property.getPropertyTransformer().getName(), s -> {
+                try
                 {
-                    returnValue = propertyTransformer.get().transform( returnValue );
-                    propertyClass = returnValue.getClass();
-                    propertySchema = schemaService.getDynamicSchema( propertyClass );
-                    updateFields( fieldValue, propertyTransformer.get().getKlass() );
+                    return property.getPropertyTransformer().newInstance();
                 }
-            }
+                catch ( InstantiationException | IllegalAccessException e )
+                {
+                    throw new RuntimeException( e );
+                }
+            } );
 
-            if ( returnValue != null
-                && propertySchema.getProperties().isEmpty()
-                && !property.isCollection()
-                && property.getKlass().isInterface()
-                && !property.isIdentifiableObject() )
+            if ( propertyTransformer.isPresent() && returnValue != null )
             {
-                // try to retrieve schema from concrete class
+                returnValue = propertyTransformer.get().transform( returnValue );
                 propertyClass = returnValue.getClass();
                 propertySchema = schemaService.getDynamicSchema( propertyClass );
+                updateFields( fieldValue, propertyTransformer.get().getKlass() );
             }
+        }
 
-            if ( returnValue == null && property.isCollection() )
-            {
-                continue;
-            }
+        if ( returnValue != null
+            && propertySchema.getProperties().isEmpty()
+            && !property.isCollection()
+            && property.getKlass().isInterface()
+            && !property.isIdentifiableObject() )
+        {
+            // try to retrieve schema from concrete class
+            propertyClass = returnValue.getClass();
+            propertySchema = schemaService.getDynamicSchema( propertyClass );
+        }
+
+        if ( returnValue == null && property.isCollection() )
+        {
+            return null;
+        }
+
+        if ( property.isCollection() )
+        {
+            updateFields( fieldValue, property.getItemKlass() );
+        }
+        else
+        {
+            updateFields( fieldValue, propertyClass );
+        }
+
+        if ( fieldValue.isEmpty() )
+        {
+            List<String> fields = Preset.defaultAssociationPreset().getFields();
 
             if ( property.isCollection() )
             {
-                updateFields( fieldValue, property.getItemKlass() );
-            }
-            else
-            {
-                updateFields( fieldValue, propertyClass );
-            }
+                Collection<?> collection = (Collection<?>) returnValue;
 
-            if ( fieldValue.isEmpty() )
-            {
-                List<String> fields = Preset.defaultAssociationPreset().getFields();
+                child = new CollectionNode( property.getCollectionName(), collection.size() );
+                child.setNamespace( property.getNamespace() );
 
-                if ( property.isCollection() )
+                if ( property.isIdentifiableObject() && isProperIdObject( property.getItemKlass() ) )
                 {
-                    Collection<?> collection = (Collection<?>) returnValue;
-
-                    child = new CollectionNode( property.getCollectionName(), collection.size() );
-                    child.setNamespace( property.getNamespace() );
+                    final boolean mayExclude = collection.isEmpty() || mayExclude( property.getItemKlass(), defaults );
 
-                    if ( property.isIdentifiableObject() && isProperIdObject( property.getItemKlass() ) )
+                    for ( Object collectionObject : collection )
                     {
-                        final boolean mayExclude = collection.isEmpty() || mayExclude( property.getItemKlass(), defaults );
-
-                        for ( Object collectionObject : collection )
+                        if ( !mayExclude || !shouldExclude( collectionObject, defaults ) )
                         {
-                            if ( !mayExclude || !shouldExclude( collectionObject, defaults ) )
-                            {
-                                child.addChild( getProperties( property, collectionObject, fields ) );
-                            }
+                            child.addChild( getProperties( property, collectionObject, fields ) );
                         }
                     }
-                    else if ( !property.isSimple() )
-                    {
-                        FieldMap map = getFullFieldMap( schemaService.getDynamicSchema( property.getItemKlass() ) );
-
-                        for ( Object collectionObject : collection )
-                        {
-                            Node node = buildNode( map, property.getItemKlass(), collectionObject, user, defaults );
+                }
+                else if ( !property.isSimple() )
+                {
+                    FieldMap map = getFullFieldMap( schemaService.getDynamicSchema( property.getItemKlass() ) );
 
-                            if ( node != null && !node.getChildren().isEmpty() )
-                            {
-                                child.addChild( node );
-                            }
-                        }
-                    }
-                    else
+                    for ( Object collectionObject : collection )
                     {
-                        for ( Object collectionObject : collection )
+                        Node node = buildNode( map, property.getItemKlass(), collectionObject, user, defaults );
+
+                        if ( node != null && !node.getChildren().isEmpty() )
                         {
-                            SimpleNode simpleNode = child.addChild( new SimpleNode( property.getName(), collectionObject ) );
-                            simpleNode.setProperty( property );
+                            child.addChild( node );
                         }
                     }
                 }
-                else if ( property.isIdentifiableObject() && isProperIdObject( propertyClass ) )
+                else
                 {
-                    if ( !shouldExclude( returnValue, defaults ) )
+                    for ( Object collectionObject : collection )
                     {
-                        child = getProperties( property, returnValue, fields );
+                        SimpleNode simpleNode = child.addChild( new SimpleNode( property.getName(), collectionObject ) );
+                        simpleNode.setProperty( property );
                     }
                 }
+            }
+            else if ( property.isIdentifiableObject() && isProperIdObject( propertyClass ) )
+            {
+                if ( !shouldExclude( returnValue, defaults ) )
+                {
+                    child = getProperties( property, returnValue, fields );
+                }
+            }
+            else
+            {
+                if ( propertySchema.getProperties().isEmpty() )
+                {
+                    SimpleNode simpleNode = new SimpleNode( fieldKey, returnValue );
+                    simpleNode.setAttribute( property.isAttribute() );
+                    simpleNode.setNamespace( property.getNamespace() );
+
+                    child = simpleNode;
+                }
                 else
                 {
-                    if ( propertySchema.getProperties().isEmpty() )
-                    {
-                        SimpleNode simpleNode = new SimpleNode( fieldKey, returnValue );
-                        simpleNode.setAttribute( property.isAttribute() );
-                        simpleNode.setNamespace( property.getNamespace() );
+                    child = buildNode( getFullFieldMap( propertySchema ), propertyClass, returnValue, user, defaults );
+                }
+            }
+        }
+        else
+        {
+            if ( property.isCollection() )
+            {
+                child = new CollectionNode( property.getCollectionName() );
+                child.setNamespace( property.getNamespace() );
+
+                for ( Object collectionObject : (Collection<?>) Objects.requireNonNull( returnValue ) )
+                {
+                    Node node;
 
-                        child = simpleNode;
+                    if ( property.hasPropertyTransformer() )
+                    {
+                        // if it has a transformer, re-get the schema (the item klass has probably changed)
+                        Schema sch = schemaService.getDynamicSchema( collectionObject.getClass() );
+                        node = buildNode( fieldValue, sch.getKlass(), collectionObject, user, property.getName(), defaults );
                     }
                     else
                     {
-                        child = buildNode( getFullFieldMap( propertySchema ), propertyClass, returnValue, user, defaults );
+                        node = buildNode( fieldValue, property.getItemKlass(), collectionObject, user, property.getName(), defaults );
+                    }
+
+                    if ( !Objects.requireNonNull( node ).getChildren().isEmpty() )
+                    {
+                        child.addChild( node );
                     }
                 }
             }
             else
             {
-                if ( property.isCollection() )
+                returnValue = handleJsonbObjectProperties( klass, propertyClass, returnValue );
+                child = buildNode( fieldValue, propertyClass, returnValue, user, defaults );
+            }
+        }
+
+        if ( child != null )
+        {
+            child.setName( fieldKey );
+            child.setProperty( property );
+
+            // TODO fix ugly hack, will be replaced by custom field serializer/deserializer
+            if ( child.isSimple() && (((SimpleNode) child).getValue()) instanceof PeriodType )
+            {
+                child = new SimpleNode( child.getName(), ((PeriodType) ((SimpleNode) child).getValue()).getName() );
+            }
+
+            return fieldValue.getPipeline().process( child );
+        }
+
+        return null;
+    }
+
+    // -------------------------------------------------------------------------
+    // Streaming
+    // -------------------------------------------------------------------------
+
+    /**
+     * Writes the objects to the generator, applying the same field filtering
+     * as {@link #toCollectionNode(Class, FieldFilterParams)} but without
+     * building nodes. Fields with node transformers or property transformers
+     * are built as nodes and written through the node writer.
+     */
+    private void writeCollection( Class<?> wrapper, FieldFilterParams params, JsonContext context ) throws Exception
+    {
+        FieldMap fieldMap = getFieldMap( params );
+
+        for ( Object object : params.getObjects() )
+        {
+            if ( object == null )
+            {
+                if ( context.inclusionStrategy.include( null ) )
                 {
-                    child = new CollectionNode( property.getCollectionName() );
-                    child.setNamespace( property.getNamespace() );
+                    context.generator.writeNull();
+                }
+
+                continue;
+            }
+
+            List<FieldEntry> entries = resolveFields( fieldMap, wrapper, object, context );
 
-                    for ( Object collectionObject : (Collection<?>) Objects.requireNonNull( returnValue ) )
+            if ( entries != null )
+            {
+                writeObject( null, entries, context );
+            }
+        }
+    }
+
+    /**
+     * Resolves the fields of an object in the order in which the node
+     * serializers write them. Returns null if the object is excluded.
+     */
+    private List<FieldEntry> resolveFields( FieldMap fieldMap, Class<?> klass, Object object, JsonContext context )
+    {
+        if ( shouldExclude( object, context.defaults ) )
+        {
+            return null;
+        }
+
+        Schema schema = schemaService.getDynamicSchema( klass );
+
+        prepareObject( fieldMap, schema, object, context.user );
+
+        List<FieldEntry> entries = new ArrayList<>( fieldMap.size() );
+
+        for ( String fieldKey : fieldMap.keySet() )
+        {
+            Property property = schema.getProperty( fieldKey );
+
+            if ( property == null || !property.isReadable() )
+            {
+                continue;
+            }
+
+            FieldMap fieldValue = fieldMap.get( fieldKey );
+
+            FieldEntry entry;
+
+            if ( fieldValue.getPipeline().isEmpty() && !property.hasPropertyTransformer() )
+            {
+                entry = resolveField( fieldKey, fieldValue, property, klass, object, context );
+            }
+            else
+            {
+                Node node = buildChildNode( fieldKey, fieldValue, property, klass, object, context.user, context.defaults );
+                entry = node == null ? null : new FieldEntry( node );
+            }
+
+            if ( entry != null )
+            {
+                entries.add( entry );
+            }
+        }
+
+        // Stable sort, so that fields of the same kind keep their order
+
+        entries.sort( Comparator.comparingInt( entry -> entry.order ) );
+
+        return entries;
+    }
+
+    private FieldEntry resolveField( String fieldKey, FieldMap fieldValue, Property property, Class<?> klass,
+        Object object, JsonContext context )
+    {
+        Object value = ReflectionUtils.getPropertyValue( object, property );
+
+        Class<?> propertyClass = property.getKlass();
+        Schema propertySchema = schemaService.getDynamicSchema( propertyClass );
+
+        if ( value != null
+            && propertySchema.getProperties().isEmpty()
+            && !property.isCollection()
+            && property.getKlass().isInterface()
+            && !property.isIdentifiableObject() )
+        {
+            // try to retrieve schema from concrete class
+            propertyClass = value.getClass();
+            propertySchema = schemaService.getDynamicSchema( propertyClass );
+        }
+
+        if ( property.isCollection() )
+        {
+            if ( value == null )
+            {
+                return null;
+            }
+
+            updateFields( fieldValue, property.getItemKlass() );
+
+            FieldKind kind;
+
+            if ( !fieldValue.isEmpty() )
+            {
+                kind = FieldKind.FILTERED_COLLECTION;
+            }
+            else if ( property.isIdentifiableObject() && isProperIdObject( property.getItemKlass() ) )
+            {
+                kind = FieldKind.REFERENCE_COLLECTION;
+            }
+            else if ( !property.isSimple() )
+            {
+                kind = FieldKind.OBJECT_COLLECTION;
+                fieldValue = getFullFieldMap( schemaService.getDynamicSchema( property.getItemKlass() ) );
+            }
+            else
+            {
+                kind = FieldKind.SIMPLE_COLLECTION;
+            }
+
+            return new FieldEntry( kind, fieldKey, property, fieldValue, property.getItemKlass(), value );
+        }
+
+        updateFields( fieldValue, propertyClass );
+
+        if ( fieldValue.isEmpty() )
+        {
+            if ( property.isIdentifiableObject() && isProperIdObject( propertyClass ) )
+            {
+                return value == null || shouldExclude( value, context.defaults ) ? null :
+                    new FieldEntry( FieldKind.REFERENCE, fieldKey, property, fieldValue, propertyClass, value );
+            }
+
+            if ( propertySchema.getProperties().isEmpty() )
+            {
+                return value instanceof PeriodType ?
+                    new FieldEntry( FieldKind.SIMPLE, fieldKey, property, fieldValue, propertyClass, ((PeriodType) value).getName() ) :
+                    new FieldEntry( property.isAttribute() ? FieldKind.ATTRIBUTE : FieldKind.SIMPLE, fieldKey, property, fieldValue, propertyClass, value );
+            }
+
+            fieldValue = getFullFieldMap( propertySchema );
+        }
+        else
+        {
+            value = handleJsonbObjectProperties( klass, propertyClass, value );
+        }
+
+        if ( value == null )
+        {
+            return new FieldEntry( FieldKind.SIMPLE, fieldKey, property, fieldValue, propertyClass, null );
+        }
+
+        return shouldExclude( value, context.defaults ) ? null :
+            new FieldEntry( FieldKind.OBJECT, fieldKey, property, fieldValue, propertyClass, value );
+    }
+
+    private void writeObject( String name, List<FieldEntry> entries, JsonContext context ) throws Exception
+    {
+        if ( !context.inclusionStrategy.include( entries ) )
+        {
+            return;
+        }
+
+        JsonGenerator generator = context.generator;
+
+        if ( name == null )
+        {
+            generator.writeStartObject();
+        }
+        else
+        {
+            generator.writeObjectFieldStart( name );
+        }
+
+        for ( FieldEntry entry : entries )
+        {
+            writeField( entry, context );
+        }
+
+        generator.writeEndObject();
+    }
+
+    private void writeField( FieldEntry entry, JsonContext context ) throws Exception
+    {
+        JsonGenerator generator = context.generator;
+
+        switch ( entry.kind )
+        {
+            case NODE:
+                context.writeNode( entry.node );
+                break;
+            case ATTRIBUTE:
+            case SIMPLE:
+                writeSimpleValue( entry.name, entry.value, context );
+                break;
+            case REFERENCE:
+                writeReference( entry.name, entry.property, entry.value, context );
+                break;
+            case OBJECT:
+                writeObject( entry.name, resolveFields( entry.fieldMap, entry.klass, entry.value, context ), context );
+                break;
+            case REFERENCE_COLLECTION:
+                Collection<?> references = (Collection<?>) entry.value;
+                boolean mayExclude = references.isEmpty() || mayExclude( entry.klass, context.defaults );
+
+                generator.writeArrayFieldStart( entry.name );
+
+                for ( Object reference : references )
+                {
+                    if ( reference != null && (!mayExclude || !shouldExclude( reference, context.defaults )) )
                     {
-                        Node node;
+                        writeReference( null, entry.property, reference, context );
+                    }
+                }
 
-                        if ( property.hasPropertyTransformer() )
-                        {
-                            // if it has a transformer, re-get the schema (the item klass has probably changed)
-                            Schema sch = schemaService.getDynamicSchema( collectionObject.getClass() );
-                            node = buildNode( fieldValue, sch.getKlass(), collectionObject, user, property.getName(), defaults );
-                        }
-                        else
-                        {
-                            node = buildNode( fieldValue, property.getItemKlass(), collectionObject, user, property.getName(), defaults );
-                        }
+                generator.writeEndArray();
+                break;
+            case OBJECT_COLLECTION:
+            case FILTERED_COLLECTION:
+                generator.writeArrayFieldStart( entry.name );
 
-                        if ( !Objects.requireNonNull( node ).getChildren().isEmpty() )
-                        {
-                            child.addChild( node );
-                        }
+                for ( Object item : (Collection<?>) entry.value )
+                {
+                    List<FieldEntry> itemEntries = item == null ? null : resolveFields( entry.fieldMap, entry.klass, item, context );
+
+                    if ( itemEntries != null && !itemEntries.isEmpty() )
+                    {
+                        writeObject( null, itemEntries, context );
                     }
                 }
-                else
+
+                generator.writeEndArray();
+                break;
+            case SIMPLE_COLLECTION:
+                generator.writeArrayFieldStart( entry.name );
+
+                for ( Object item : (Collection<?>) entry.value )
                 {
-                    returnValue = handleJsonbObjectProperties( klass, propertyClass, returnValue );
-                    child = buildNode( fieldValue, propertyClass, returnValue, user, defaults );
+                    writeSimpleValue( null, item, context );
                 }
-            }
 
-            if ( child != null )
+                generator.writeEndArray();
+                break;
+        }
+    }
+
+    /**
+     * Writes a reference to an identifiable object with the fields of the
+     * default association preset, equal to {@link #getProperties}.
+     */
+    private void writeReference( String name, Property currentProperty, Object object, JsonContext context )
+        throws Exception
+    {
+        JsonGenerator generator = context.generator;
+        List<String> fields = Preset.defaultAssociationPreset().getFields();
+
+        if ( name == null )
+        {
+            generator.writeStartObject();
+        }
+        else
+        {
+            generator.writeObjectFieldStart( name );
+        }
+
+        if ( isBaseIdentifiableObjectIdOnly( object, fields ) )
+        {
+            writeSimpleValue( "id", ((BaseIdentifiableObject) object).getUid(), context );
+        }
+        else
+        {
+            Schema schema = schemaService.getDynamicSchema(
+                currentProperty.isCollection() ? currentProperty.getItemKlass() : currentProperty.getKlass() );
+
+            for ( String field : fields )
             {
-                child.setName( fieldKey );
-                child.setProperty( property );
+                Property property = schema.getProperty( field );
 
-                // TODO fix ugly hack, will be replaced by custom field serializer/deserializer
-                if ( child.isSimple() && (((SimpleNode) child).getValue()) instanceof PeriodType )
+                if ( property != null )
                 {
-                    child = new SimpleNode( child.getName(), ((PeriodType) ((SimpleNode) child).getValue()).getName() );
+                    writeSimpleValue( field, ReflectionUtils.getPropertyValue( object, property ), context );
                 }
+            }
+        }
+
+        generator.writeEndObject();
+    }
+
+    private void writeSimpleValue( String name, Object value, JsonContext context ) throws Exception
+    {
+        if ( !context.inclusionStrategy.include( value ) )
+        {
+            return;
+        }
 
-                complexNode.addChild( fieldValue.getPipeline().process( child ) );
+        if ( value == null )
+        {
+            if ( name != null )
+            {
+                context.generator.writeNullField( name );
             }
+            else
+            {
+                context.generator.writeNull();
+            }
+
+            return;
         }
 
-        return complexNode;
+        Jackson2JsonNodeSerializer.writeSimpleValue( context.generator, name, value );
+    }
+
+    private enum FieldKind
+    {
+        ATTRIBUTE( 10 ), SIMPLE( 20 ), REFERENCE( 30 ), OBJECT( 30 ), REFERENCE_COLLECTION( 40 ),
+        OBJECT_COLLECTION( 40 ), FILTERED_COLLECTION( 40 ), SIMPLE_COLLECTION( 40 ), NODE( 0 );
+
+        /**
+         * Corresponds to {@link AbstractNode#getOrder()}, by which the node
+         * serializers order the children of a complex node.
+         */
+        private final int order;
+
+        FieldKind( int order )
+        {
+            this.order = order;
+        }
+    }
+
+    private static class FieldEntry
+    {
+        private final FieldKind kind;
+
+        private final int order;
+
+        private String name;
+
+        private Property property;
+
+        private FieldMap fieldMap;
+
+        private Class<?> klass;
+
+        private Object value;
+
+        private Node node;
+
+        FieldEntry( FieldKind kind, String name, Property property, FieldMap fieldMap, Class<?> klass, Object value )
+        {
+            this.kind = kind;
+            this.order = kind.order;
+            this.name = name;
+            this.property = property;
+            this.fieldMap = fieldMap;
+            this.klass = klass;
+            this.value = value;
+        }
+
+        FieldEntry( Node node )
+        {
+            this.kind = FieldKind.NODE;
+            this.order = node.getOrder();
+            this.node = node;
+        }
+    }
+
+    private static class JsonContext
+    {
+        private final JsonGenerator generator;
+
+        private final InclusionStrategy inclusionStrategy;
+
+        private final StreamingCollectionNode.NodeWriter nodeWriter;
+
+        private final User user;
+
+        private final Defaults defaults;
+
+        JsonContext( JsonGenerator generator, InclusionStrategy inclusionStrategy,
+            StreamingCollectionNode.NodeWriter nodeWriter, User user, Defaults defaults )
+        {
+            this.generator = generator;
+            this.inclusionStrategy = inclusionStrategy;
+            this.nodeWriter = nodeWriter;
+            this.user = user;
+            this.defaults = defaults;
+        }
+
+        /**
+         * Writes a node as a field of the object being written, by placing it
+         * in a complex node as the node serializers expect.
+         */
+        void writeNode( Node node ) throws Exception
+        {
+            new ComplexNode( "" ).addChild( node );
+            nodeWriter.write( node );
+        }
     }
 
     private void updateFields( FieldMap fieldMap, Class<?> klass )
@@ -648,7 +1110,7 @@ public class DefaultFieldFilterService implements FieldFilterService
                 continue;
             }
 
-            Object returnValue = ReflectionUtils.invokeMethod( object, property.getGetterMethod() );
+            Object returnValue = ReflectionUtils.getPropertyValue( object, property );
 
             SimpleNode simpleNode = new SimpleNode( field, returnValue );
             simpleNode.setAttribute( property.isAttribute() );
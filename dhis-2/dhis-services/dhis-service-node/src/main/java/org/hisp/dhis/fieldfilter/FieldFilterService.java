@@ -51,4 +51,12 @@ public interface FieldFilterService
      * Perform inclusion/exclusion on a list of objects.
      */
     CollectionNode toCollectionNode( Class<?> wrapper, FieldFilterParams params );
+
+    /**
+     * Perform inclusion/exclusion on a list of objects. The JSON serializer
+     * writes the objects of the returned collection node directly, without
+     * building intermediate nodes, while serializers for other formats get
+     * the same nodes as from {@link #toCollectionNode(Class, FieldFilterParams)}.
+     */
+    CollectionNode toStreamingCollectionNode( Class<?> wrapper, FieldFilterParams params );
 }
@@ -75,6 +75,14 @@ public class LinearNodePipeline implements NodePipeline
         return node;
     }
 
+    /**
+     * Indicates whether the pipeline has no transformers.
+     */
+    public boolean isEmpty()
+    {
+        return nodeTransformers.isEmpty();
+    }
+
     public void addTransformer( NodeTransformer nodeTransformer )
     {
         nodeTransformers.add( new NodeTransformerWithArgs( checkNotNull( nodeTransformer ), new ArrayList<>() ) );
@@ -33,14 +33,14 @@ import java.util.Date;
 import java.util.List;
 
 import org.apache.poi.common.usermodel.HyperlinkType;
-import org.apache.poi.xssf.usermodel.XSSFCell;
-import org.apache.poi.xssf.usermodel.XSSFCellStyle;
-import org.apache.poi.xssf.usermodel.XSSFCreationHelper;
-import org.apache.poi.xssf.usermodel.XSSFFont;
-import org.apache.poi.xssf.usermodel.XSSFHyperlink;
-import org.apache.poi.xssf.usermodel.XSSFRow;
-import org.apache.poi.xssf.usermodel.XSSFSheet;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.CreationHelper;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Hyperlink;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.hisp.dhis.node.AbstractNodeSerializer;
 import org.hisp.dhis.node.Node;
 import org.hisp.dhis.node.types.CollectionNode;
@@ -64,26 +64,38 @@ public class ExcelNodeSerializer extends AbstractNodeSerializer
 {
     private static final String[] CONTENT_TYPES = { "application/vnd.ms-excel" };
 
+    /**
+     * Number of rows kept in memory, older rows are flushed to a temporary
+     * file so that large exports do not have to fit in memory.
+     */
+    private static final int ROW_WINDOW = 500;
+
     @Override
     public List<String> contentTypes()
     {
         return Lists.newArrayList( CONTENT_TYPES );
     }
 
-    private XSSFWorkbook workbook;
+    private SXSSFWorkbook workbook;
+
+    private SXSSFSheet sheet;
 
-    private XSSFSheet sheet;
+    private int columns = 0;
 
     @Override
     protected void startSerialize( RootNode rootNode, OutputStream outputStream ) throws Exception
     {
-        workbook = new XSSFWorkbook();
+        workbook = new SXSSFWorkbook( ROW_WINDOW );
+        workbook.setCompressTempFiles( true );
         sheet = workbook.createSheet( "Sheet1" );
+        sheet.trackAllColumnsForAutoSizing();
+
+        columns = 0;
 
-        XSSFFont boldFont = workbook.createFont();
+        Font boldFont = workbook.createFont();
         boldFont.setBold( true );
 
-        XSSFCellStyle boldCellStyle = workbook.createCellStyle();
+        CellStyle boldCellStyle = workbook.createCellStyle();
         boldCellStyle.setFont( boldFont );
 
         // build schema
@@ -95,7 +107,7 @@ public class ExcelNodeSerializer extends AbstractNodeSerializer
                 {
                     Node node = child.getChildren().get( 0 );
 
-                    XSSFRow row = sheet.createRow( 0 );
+                    Row row = sheet.createRow( 0 );
 
                     int cellIdx = 0;
 
@@ -103,11 +115,13 @@ public class ExcelNodeSerializer extends AbstractNodeSerializer
                     {
                         if ( property.isSimple() )
                         {
-                            XSSFCell cell = row.createCell( cellIdx++ );
+                            Cell cell = row.createCell( cellIdx++ );
                             cell.setCellValue( property.getName() );
                             cell.setCellStyle( boldCellStyle );
                         }
                     }
+
+                    columns = cellIdx;
                 }
             }
         }
@@ -116,14 +130,20 @@ public class ExcelNodeSerializer extends AbstractNodeSerializer
     @Override
     protected void endSerialize( RootNode rootNode, OutputStream outputStream ) throws Exception
     {
-        int columns = sheet.getRow( 0 ).getPhysicalNumberOfCells();
+        try
+        {
+            for ( int i = 0; i < columns; i++ )
+            {
+                sheet.autoSizeColumn( i );
+            }
 
-        for ( int i = 0; i < columns; i++ )
+            workbook.write( outputStream );
+        }
+        finally
         {
-            sheet.autoSizeColumn( i );
+            workbook.dispose();
+            workbook.close();
         }
-
-        workbook.write( outputStream );
     }
 
     @Override
@@ -135,7 +155,7 @@ public class ExcelNodeSerializer extends AbstractNodeSerializer
     @Override
     protected void startWriteRootNode( RootNode rootNode ) throws Exception
     {
-        XSSFCreationHelper creationHelper = workbook.getCreationHelper();
+        CreationHelper creationHelper = workbook.getCreationHelper();
 
         int rowIdx = 1;
 
@@ -145,19 +165,19 @@ public class ExcelNodeSerializer extends AbstractNodeSerializer
             {
                 for ( Node complexNode : collectionNode.getChildren() )
                 {
-                    XSSFRow row = sheet.createRow( rowIdx++ );
+                    Row row = sheet.createRow( rowIdx++ );
                     int cellIdx = 0;
 
                     for ( Node node : complexNode.getChildren() )
                     {
                         if ( node.isSimple() )
                         {
-                            XSSFCell cell = row.createCell( cellIdx++ );
+                            Cell cell = row.createCell( cellIdx++ );
                             cell.setCellValue( getValue( (SimpleNode) node ) );
 
                             if ( node.haveProperty() && PropertyType.URL.equals( node.getProperty().getPropertyType() ) )
                             {
-                                XSSFHyperlink hyperlink = creationHelper.createHyperlink( HyperlinkType.URL );
+                                Hyperlink hyperlink = creationHelper.createHyperlink( HyperlinkType.URL );
                                 hyperlink.setAddress( getValue( (SimpleNode) node ) );
                                 hyperlink.setLabel( getValue( (SimpleNode) node ) );
 
@@ -165,7 +185,7 @@ public class ExcelNodeSerializer extends AbstractNodeSerializer
                             }
                             else if ( node.haveProperty() && PropertyType.EMAIL.equals( node.getProperty().getPropertyType() ) )
                             {
-                                XSSFHyperlink hyperlink = creationHelper.createHyperlink( HyperlinkType.EMAIL );
+                                Hyperlink hyperlink = creationHelper.createHyperlink( HyperlinkType.EMAIL );
                                 hyperlink.setAddress( getValue( (SimpleNode) node ) );
                                 hyperlink.setLabel( getValue( (SimpleNode) node ) );
 
@@ -33,15 +33,18 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.Lists;
 import com.vividsolutions.jts.geom.Geometry;
 import org.hisp.dhis.node.AbstractNodeSerializer;
+import org.hisp.dhis.node.config.InclusionStrategy;
 import org.hisp.dhis.node.types.CollectionNode;
 import org.hisp.dhis.node.types.ComplexNode;
 import org.hisp.dhis.node.types.RootNode;
 import org.hisp.dhis.node.types.SimpleNode;
+import org.hisp.dhis.node.types.StreamingCollectionNode;
 import org.hisp.dhis.util.DateUtils;
 import org.springframework.context.annotation.Scope;
 import org.springframework.context.annotation.ScopedProxyMode;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
 import java.io.OutputStream;
 import java.util.Date;
 import java.util.List;
@@ -109,31 +112,48 @@ public class Jackson2JsonNodeSerializer extends AbstractNodeSerializer
     @Override
     protected void startWriteSimpleNode( SimpleNode simpleNode ) throws Exception
     {
-        Object value = simpleNode.getValue();
+        writeSimpleValue( generator, simpleNode.getParent().isCollection() ? null : simpleNode.getName(),
+            simpleNode.getValue() );
+    }
 
-        if ( Date.class.isAssignableFrom( simpleNode.getValue().getClass() ) )
+    /**
+     * Writes a simple value the way simple nodes are written, as a field if a
+     * name is given and as an array element otherwise. Requires a generator
+     * created by an object mapper.
+     *
+     * @param generator the generator.
+     * @param name the field name, or null for an array element.
+     * @param value the value.
+     */
+    public static void writeSimpleValue( JsonGenerator generator, String name, Object value ) throws IOException
+    {
+        if ( value instanceof Date )
         {
             value = DateUtils.getIso8601NoTz( (Date) value );
         }
 
-        if ( Geometry.class.isAssignableFrom( simpleNode.getValue().getClass() ) )
+        if ( value instanceof Geometry )
         {
-            generator.writeFieldName( simpleNode.getName() );
-            generator.writeRawValue( jsonMapper.writeValueAsString( value ) );
+            if ( name != null )
+            {
+                generator.writeFieldName( name );
+            }
+
+            generator.writeRawValue( ((ObjectMapper) generator.getCodec()).writeValueAsString( value ) );
             return;
         }
 
-        if ( simpleNode.getParent().isCollection() )
+        if ( name == null )
         {
             generator.writeObject( value );
         }
         else if ( value instanceof String )
         {
-            generator.writeStringField( simpleNode.getName(), (String) value );
+            generator.writeStringField( name, (String) value );
         }
         else
         {
-            generator.writeObjectField( simpleNode.getName(), value );
+            generator.writeObjectField( name, value );
         }
     }
 
@@ -179,4 +199,19 @@ public class Jackson2JsonNodeSerializer extends AbstractNodeSerializer
     {
         generator.writeEndArray();
     }
+
+    @Override
+    protected void writeCollectionNode( CollectionNode collectionNode ) throws Exception
+    {
+        if ( collectionNode instanceof StreamingCollectionNode
+            && config.getInclusionStrategy() != InclusionStrategy.Include.NON_EMPTY )
+        {
+            startWriteCollectionNode( collectionNode );
+            ((StreamingCollectionNode) collectionNode).write( generator, config.getInclusionStrategy(), this::dispatcher );
+            endWriteCollectionNode( collectionNode );
+            return;
+        }
+
+        super.writeCollectionNode( collectionNode );
+    }
 }
@@ -0,0 +1,109 @@
+package org.hisp.dhis.node.types;
+
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.hisp.dhis.node.Node;
+import org.hisp.dhis.node.config.InclusionStrategy;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Collection node which JSON serializers write directly to the generator
+ * without building the child nodes. For any other use, such as serializers
+ * for other formats, the children are built on first access.
+ */
+public class StreamingCollectionNode extends CollectionNode
+{
+    private final Supplier<CollectionNode> nodeSupplier;
+
+    private final JsonWriter jsonWriter;
+
+    private boolean materialized;
+
+    public StreamingCollectionNode( String name, Supplier<CollectionNode> nodeSupplier, JsonWriter jsonWriter )
+    {
+        super( name );
+        this.nodeSupplier = nodeSupplier;
+        this.jsonWriter = jsonWriter;
+    }
+
+    /**
+     * Writes the elements of the collection to the generator, which must be
+     * positioned within the array of the collection.
+     *
+     * @param generator the generator.
+     * @param inclusionStrategy the inclusion strategy.
+     * @param nodeWriter writer for parts which are written as nodes.
+     */
+    public void write( JsonGenerator generator, InclusionStrategy inclusionStrategy, NodeWriter nodeWriter )
+        throws Exception
+    {
+        jsonWriter.write( generator, inclusionStrategy, nodeWriter );
+    }
+
+    @Override
+    public List<Node> getUnorderedChildren()
+    {
+        materialize();
+        return super.getUnorderedChildren();
+    }
+
+    @Override
+    public List<Node> getChildren()
+    {
+        materialize();
+        return super.getChildren();
+    }
+
+    private void materialize()
+    {
+        if ( !materialized )
+        {
+            materialized = true;
+            addChildren( nodeSupplier.get().getUnorderedChildren() );
+        }
+    }
+
+    @FunctionalInterface
+    public interface JsonWriter
+    {
+        void write( JsonGenerator generator, InclusionStrategy inclusionStrategy, NodeWriter nodeWriter )
+            throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface NodeWriter
+    {
+        void write( Node node ) throws Exception;
+    }
+}
@@ -28,6 +28,7 @@ package org.hisp.dhis.fieldfilter;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.hamcrest.Matchers;
 import org.hibernate.SessionFactory;
 import org.hisp.dhis.attribute.AttributeService;
@@ -35,10 +36,13 @@ import org.hisp.dhis.category.Category;
 import org.hisp.dhis.category.CategoryOption;
 import org.hisp.dhis.node.Node;
 import org.hisp.dhis.node.NodeTransformer;
+import org.hisp.dhis.node.serializers.Jackson2JsonNodeSerializer;
 import org.hisp.dhis.node.transformers.PluckNodeTransformer;
 import org.hisp.dhis.node.types.CollectionNode;
 import org.hisp.dhis.node.types.ComplexNode;
+import org.hisp.dhis.node.types.RootNode;
 import org.hisp.dhis.node.types.SimpleNode;
+import org.hisp.dhis.node.types.StreamingCollectionNode;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.schema.DefaultSchemaService;
 import org.hisp.dhis.schema.Jackson2PropertyIntrospectorService;
@@ -55,6 +59,7 @@ import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 
 import javax.annotation.Nonnull;
+import java.io.ByteArrayOutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -309,6 +314,48 @@ public class DefaultFieldFilterServiceTest
         assertThat( ouNames, Matchers.containsInAnyOrder( "Test 1", "Test 2" ) );
     }
 
+    @Test
+    public void streamingCollectionNodeMatchesCollectionNode() throws Exception
+    {
+        final OrganisationUnit ou1 = new OrganisationUnit();
+        ou1.setUid( "abc1" );
+        ou1.setName( "Test 1" );
+
+        final OrganisationUnit ou2 = new OrganisationUnit();
+        ou2.setUid( "abc2" );
+        ou2.setName( "Test 2" );
+
+        final CategoryOption option1 = new CategoryOption();
+        option1.setUid( "def1" );
+        option1.setName( "Option 1" );
+        option1.getOrganisationUnits().add( ou1 );
+        option1.getOrganisationUnits().add( ou2 );
+
+        final CategoryOption option2 = new CategoryOption();
+        option2.setUid( "def2" );
+
+        final List<String> fields = Arrays.asList( "id", "name", "organisationUnits[id,name]" );
+
+        final String expected = serialize( service.toCollectionNode( CategoryOption.class,
+            new FieldFilterParams( Arrays.asList( option1, option2 ), fields ) ) );
+        final CollectionNode streamingNode = service.toStreamingCollectionNode( CategoryOption.class,
+            new FieldFilterParams( Arrays.asList( option1, option2 ), fields ) );
+
+        Assert.assertTrue( streamingNode instanceof StreamingCollectionNode );
+        Assert.assertEquals( expected, serialize( streamingNode ) );
+    }
+
+    private String serialize( CollectionNode collectionNode ) throws Exception
+    {
+        final RootNode rootNode = new RootNode( "metadata" );
+        rootNode.addChild( collectionNode );
+
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        new Jackson2JsonNodeSerializer( new ObjectMapper() ).serialize( rootNode, outputStream );
+
+        return outputStream.toString( "UTF-8" );
+    }
+
     private Node getNamedNode( @Nonnull Collection<? extends Node> nodes, @Nonnull String name )
     {
         return nodes.stream().filter( n -> name.equals( n.getName() ) ).findFirst().orElse( null );
@@ -28,6 +28,7 @@ package org.hisp.dhis.programrule.config;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import org.hisp.dhis.cache.CacheProvider;
 import org.hisp.dhis.constant.ConstantService;
 import org.hisp.dhis.organisationunit.OrganisationUnitGroupService;
 import org.hisp.dhis.programrule.ProgramRuleVariableService;
@@ -36,6 +37,7 @@ import org.hisp.dhis.user.CurrentUserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 
 /**
  * @author Enrico Colasante
@@ -43,6 +45,12 @@ import org.springframework.context.annotation.Configuration;
 @Configuration( "ruleEngineConfig" )
 public class ProgramRuleConfig
 {
+    @Autowired
+    private Environment env;
+
+    @Autowired
+    private CacheProvider cacheProvider;
+
     @Autowired
     private ProgramRuleEntityMapperService programRuleEntityMapperService;
 
@@ -66,7 +74,7 @@ public class ProgramRuleConfig
     @Bean( "notificationRuleEngine" )
     public ProgramRuleEngine oldRuleEngine( OldImplementableRuleService oldImplementableRuleService )
     {
-        return new ProgramRuleEngine( programRuleEntityMapperService, programRuleVariableService,
+        return new ProgramRuleEngine( env, cacheProvider, programRuleEntityMapperService, programRuleVariableService,
             organisationUnitGroupService, currentUserService, constantService,
             oldImplementableRuleService );
     }
@@ -78,7 +86,7 @@ public class ProgramRuleConfig
     @Bean( "serviceTrackerRuleEngine" )
     public ProgramRuleEngine newRuleEngine( NewImplementableRuleService newImplementableRuleService )
     {
-        return new ProgramRuleEngine( programRuleEntityMapperService, programRuleVariableService,
+        return new ProgramRuleEngine( env, cacheProvider, programRuleEntityMapperService, programRuleVariableService,
             organisationUnitGroupService, currentUserService, constantService,
             newImplementableRuleService );
     }
@@ -31,16 +31,25 @@ package org.hisp.dhis.programrule.engine;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import lombok.extern.slf4j.Slf4j;
 
-import org.hisp.dhis.common.BaseIdentifiableObject;
+import org.hisp.dhis.cache.Cache;
+import org.hisp.dhis.cache.CacheProvider;
+import org.hisp.dhis.common.CodeGenerator;
 import org.hisp.dhis.commons.collection.ListUtils;
 import org.hisp.dhis.commons.util.DebugUtils;
+import org.hisp.dhis.commons.util.SystemUtils;
 import org.hisp.dhis.constant.ConstantService;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.organisationunit.OrganisationUnitGroupService;
@@ -48,13 +57,13 @@ import org.hisp.dhis.program.Program;
 import org.hisp.dhis.program.ProgramInstance;
 import org.hisp.dhis.program.ProgramStageInstance;
 import org.hisp.dhis.programrule.*;
-import org.hisp.dhis.rules.DataItem;
 import org.hisp.dhis.rules.RuleEngine;
 import org.hisp.dhis.rules.RuleEngineContext;
 import org.hisp.dhis.rules.RuleEngineIntent;
 import org.hisp.dhis.rules.models.*;
 import org.hisp.dhis.user.CurrentUserService;
 import org.hisp.dhis.user.UserAuthorityGroup;
+import org.springframework.core.env.Environment;
 
 import com.google.api.client.util.Lists;
 
@@ -66,6 +75,30 @@ public class ProgramRuleEngine
 {
     private static final String USER = "USER";
 
+    private static final String IN_ORG_UNIT_GROUP = "d2:inOrgUnitGroup";
+
+    private static final Pattern IN_ORG_UNIT_GROUP_PATTERN = Pattern.compile( "d2:inOrgUnitGroup\\s*\\(" );
+
+    private static final Pattern IN_ORG_UNIT_GROUP_UID_PATTERN = Pattern
+        .compile( "d2:inOrgUnitGroup\\s*\\(\\s*(['\"])([a-zA-Z][a-zA-Z0-9]{10})\\1\\s*\\)" );
+
+    private static final int MAX_CACHED_PROGRAMS = 1000;
+
+    private static final String VERSION_KEY = "version";
+
+    /**
+     * Mapped program rules per program and cache version. The mapped rules
+     * are not serializable, hence the cache is always held in memory.
+     */
+    private final Cache<ProgramRules> programRulesCache;
+
+    /**
+     * The current version of the program rules cache. The version lives in a
+     * shared cache when a distributed cache is configured, so that invalidating
+     * it on one instance makes every instance of a cluster reload the rules.
+     */
+    private final Cache<String> cacheVersion;
+
     private final ProgramRuleEntityMapperService programRuleEntityMapperService;
 
     private final ProgramRuleVariableService programRuleVariableService;
@@ -78,13 +111,16 @@ public class ProgramRuleEngine
 
     private final ImplementableRuleService implementableRuleService;
 
-    public ProgramRuleEngine( ProgramRuleEntityMapperService programRuleEntityMapperService,
+    public ProgramRuleEngine( Environment env, CacheProvider cacheProvider,
+        ProgramRuleEntityMapperService programRuleEntityMapperService,
         ProgramRuleVariableService programRuleVariableService,
         OrganisationUnitGroupService organisationUnitGroupService,
         CurrentUserService currentUserService,
         ConstantService constantService,
         ImplementableRuleService implementableRuleService )
     {
+        checkNotNull( env );
+        checkNotNull( cacheProvider );
         checkNotNull( programRuleEntityMapperService );
         checkNotNull( programRuleVariableService );
         checkNotNull( organisationUnitGroupService );
@@ -98,6 +134,15 @@ public class ProgramRuleEngine
         this.currentUserService = currentUserService;
         this.constantService = constantService;
         this.implementableRuleService = implementableRuleService;
+
+        boolean nonTestEnv = !SystemUtils.isTestRun( env.getActiveProfiles() );
+
+        this.programRulesCache = cacheProvider.newCacheBuilder( ProgramRules.class )
+            .forRegion( "programRuleEngineRules" ).expireAfterWrite( 1, TimeUnit.HOURS ).forceInMemory()
+            .withMaximumSize( nonTestEnv ? MAX_CACHED_PROGRAMS : 0 ).build();
+
+        this.cacheVersion = cacheProvider.newCacheBuilder( String.class )
+            .forRegion( "programRuleEngineVersion" ).withMaximumSize( nonTestEnv ? 1 : 0 ).build();
     }
 
     public List<RuleEffect> evaluate( ProgramInstance enrollment, Set<ProgramStageInstance> events )
@@ -169,26 +214,131 @@ public class ProgramRuleEngine
         List<ProgramRuleVariable> programRuleVariables = programRuleVariableService.getProgramRuleVariable( program );
 
         RuleEngine ruleEngine = ruleEngineBuilder( ListUtils.newList(), programRuleVariables,
-            RuleEngineIntent.DESCRIPTION ).build();
+            RuleEngineIntent.DESCRIPTION, condition ).build();
 
         return ruleEngine.evaluate( condition );
     }
 
+    /**
+     * Invalidates the cached rules, variables and constants of all programs,
+     * on all instances of a cluster when a distributed cache is configured.
+     */
+    public void invalidate()
+    {
+        cacheVersion.put( VERSION_KEY, CodeGenerator.generateUid() );
+        programRulesCache.invalidateAll();
+    }
+
     private RuleEngineContext getRuleEngineContext( Program program )
+    {
+        ProgramRules programRules = getProgramRules( program );
+
+        return RuleEngineContext.builder()
+            .supplementaryData( getSupplementaryData( programRules.getOrgUnitGroups() ) )
+            .rules( programRules.getRules() )
+            .ruleVariables( programRules.getRuleVariables() )
+            .constantsValue( programRules.getConstants() )
+            .build();
+    }
+
+    private RuleEngine.Builder ruleEngineBuilder( List<ProgramRule> programRules,
+        List<ProgramRuleVariable> programRuleVariables, RuleEngineIntent intent, String condition )
+    {
+        Set<String> orgUnitGroups = new HashSet<>();
+
+        if ( !addOrgUnitGroups( condition, orgUnitGroups ) || !addOrgUnitGroups( programRules, orgUnitGroups ) )
+        {
+            orgUnitGroups = null;
+        }
+
+        RuleEngineContext.Builder builder = RuleEngineContext.builder()
+            .supplementaryData( getSupplementaryData( orgUnitGroups ) )
+            .rules( programRuleEntityMapperService.toMappedProgramRules( programRules ) )
+            .ruleVariables( programRuleEntityMapperService.toMappedProgramRuleVariables( programRuleVariables ) )
+            .constantsValue( getConstantMap() ).ruleEngineItent( intent );
+
+        if ( RuleEngineIntent.DESCRIPTION == intent )
+        {
+            builder.itemStore( programRuleEntityMapperService.getItemStore( programRuleVariables ) );
+        }
+
+        return builder
+            .build()
+            .toEngineBuilder()
+            .triggerEnvironment( TriggerEnvironment.SERVER );
+    }
+
+    /**
+     * Returns the mapped rules, variables and constants of the program. They
+     * are cached under the current cache version, so that a stale load which
+     * raced with an invalidation is never served after it.
+     */
+    ProgramRules getProgramRules( Program program )
+    {
+        String key = program.getUid() + ":" + getCacheVersion();
+
+        return programRulesCache.get( key, k -> loadProgramRules( program ) ).orElse( null );
+    }
+
+    /**
+     * Returns the current version of the cache. A random version is assigned
+     * if there is none, which means that rules cached under an evicted
+     * version are never served.
+     */
+    private String getCacheVersion()
+    {
+        return cacheVersion.get( VERSION_KEY, k -> CodeGenerator.generateUid() ).orElse( null );
+    }
+
+    private ProgramRules loadProgramRules( Program program )
     {
         List<ProgramRuleVariable> programRuleVariables = programRuleVariableService
             .getProgramRuleVariable( program );
         List<ProgramRule> programRules = implementableRuleService
             .getImplementableRules( program );
 
-        Map<String, String> constantMap = constantService.getConstantMap().entrySet()
+        Set<String> orgUnitGroups = new HashSet<>();
+
+        if ( !addOrgUnitGroups( programRules, orgUnitGroups ) )
+        {
+            orgUnitGroups = null;
+        }
+
+        return new ProgramRules( programRuleEntityMapperService.toMappedProgramRules( programRules ),
+            programRuleEntityMapperService.toMappedProgramRuleVariables( programRuleVariables ),
+            getConstantMap(), orgUnitGroups );
+    }
+
+    private Map<String, String> getConstantMap()
+    {
+        return constantService.getConstantMap().entrySet()
             .stream()
             .collect( Collectors.toMap( Map.Entry::getKey, v -> v.getValue().toString() ) );
+    }
 
-        Map<String, List<String>> supplementaryData = organisationUnitGroupService.getAllOrganisationUnitGroups()
-            .stream()
-            .collect( Collectors.toMap( BaseIdentifiableObject::getUid,
-                g -> g.getMembers().stream().map( OrganisationUnit::getUid ).collect( Collectors.toList() ) ) );
+    /**
+     * Builds the supplementary data with the members of the given organisation
+     * unit groups and the user roles of the current user.
+     *
+     * @param orgUnitGroups the UIDs of the organisation unit groups, or null
+     *        for all organisation unit groups.
+     */
+    private Map<String, List<String>> getSupplementaryData( Set<String> orgUnitGroups )
+    {
+        Map<String, List<String>> supplementaryData = new HashMap<>();
+
+        if ( orgUnitGroups == null )
+        {
+            organisationUnitGroupService.getAllOrganisationUnitGroups()
+                .forEach( g -> supplementaryData.put( g.getUid(),
+                    g.getMembers().stream().map( OrganisationUnit::getUid ).collect( Collectors.toList() ) ) );
+        }
+        else if ( !orgUnitGroups.isEmpty() )
+        {
+            supplementaryData.putAll( organisationUnitGroupService.getOrganisationUnitGroupMemberUids( orgUnitGroups ) );
+
+            orgUnitGroups.forEach( uid -> supplementaryData.putIfAbsent( uid, new ArrayList<>() ) );
+        }
 
         if ( currentUserService.getCurrentUser() != null )
         {
@@ -196,55 +346,67 @@ public class ProgramRuleEngine
                 .getUserAuthorityGroups().stream().map( UserAuthorityGroup::getUid ).collect( Collectors.toList() ) );
         }
 
-        return RuleEngineContext.builder()
-            .supplementaryData( supplementaryData )
-            .rules( programRuleEntityMapperService.toMappedProgramRules( programRules ) )
-            .ruleVariables( programRuleEntityMapperService.toMappedProgramRuleVariables( programRuleVariables ) )
-            .constantsValue( constantMap )
-            .build();
+        return supplementaryData;
     }
 
-    private RuleEngine.Builder ruleEngineBuilder( List<ProgramRule> programRules,
-        List<ProgramRuleVariable> programRuleVariables, RuleEngineIntent intent )
+    /**
+     * Adds the organisation unit groups referenced by d2:inOrgUnitGroup in the
+     * conditions and action data of the given program rules.
+     *
+     * @return false if a group is not referenced by a literal UID, in which
+     *         case all organisation unit groups must be supplied.
+     */
+    static boolean addOrgUnitGroups( Collection<ProgramRule> programRules, Set<String> orgUnitGroups )
     {
-        Map<String, String> constantMap = constantService.getConstantMap().entrySet()
-            .stream()
-            .collect( Collectors.toMap( Map.Entry::getKey, v -> v.getValue().toString() ) );
+        for ( ProgramRule programRule : programRules )
+        {
+            if ( !addOrgUnitGroups( programRule.getCondition(), orgUnitGroups ) )
+            {
+                return false;
+            }
+
+            for ( ProgramRuleAction action : programRule.getProgramRuleActions() )
+            {
+                if ( !addOrgUnitGroups( action.getData(), orgUnitGroups ) )
+                {
+                    return false;
+                }
+            }
+        }
 
-        Map<String, List<String>> supplementaryData = organisationUnitGroupService.getAllOrganisationUnitGroups()
-            .stream()
-            .collect( Collectors.toMap( BaseIdentifiableObject::getUid,
-                g -> g.getMembers().stream().map( OrganisationUnit::getUid ).collect( Collectors.toList() ) ) );
+        return true;
+    }
 
-        if ( currentUserService.getCurrentUser() != null )
+    /**
+     * Adds the organisation unit groups referenced by d2:inOrgUnitGroup in the
+     * given expression.
+     *
+     * @return false if a group is not referenced by a literal UID.
+     */
+    static boolean addOrgUnitGroups( String expression, Set<String> orgUnitGroups )
+    {
+        if ( expression == null || !expression.contains( IN_ORG_UNIT_GROUP ) )
         {
-            supplementaryData.put( USER, currentUserService.getCurrentUser().getUserCredentials()
-                .getUserAuthorityGroups().stream().map( UserAuthorityGroup::getUid ).collect( Collectors.toList() ) );
+            return true;
         }
-        if ( RuleEngineIntent.DESCRIPTION == intent )
+
+        Matcher functions = IN_ORG_UNIT_GROUP_PATTERN.matcher( expression );
+        Matcher literals = IN_ORG_UNIT_GROUP_UID_PATTERN.matcher( expression );
+
+        int count = 0;
+
+        while ( functions.find() )
         {
-            Map<String, DataItem> itemStore = programRuleEntityMapperService.getItemStore( programRuleVariables );
-
-            return RuleEngineContext.builder()
-                .supplementaryData( supplementaryData )
-                .rules( programRuleEntityMapperService.toMappedProgramRules( programRules ) )
-                .ruleVariables( programRuleEntityMapperService.toMappedProgramRuleVariables( programRuleVariables ) )
-                .constantsValue( constantMap ).ruleEngineItent( intent ).itemStore( itemStore )
-                .build()
-                .toEngineBuilder()
-                .triggerEnvironment( TriggerEnvironment.SERVER );
+            count++;
         }
-        else
+
+        while ( literals.find() )
         {
-            return RuleEngineContext.builder()
-                .supplementaryData( supplementaryData )
-                .rules( programRuleEntityMapperService.toMappedProgramRules( programRules ) )
-                .ruleVariables( programRuleEntityMapperService.toMappedProgramRuleVariables( programRuleVariables ) )
-                .constantsValue( constantMap ).ruleEngineItent( intent )
-                .build()
-                .toEngineBuilder()
-                .triggerEnvironment( TriggerEnvironment.SERVER );
+            orgUnitGroups.add( literals.group( 2 ) );
+            count--;
         }
+
+        return count == 0;
     }
 
     private RuleEvent getRuleEvent( ProgramStageInstance programStageInstance )
@@ -276,4 +438,48 @@ public class ProgramRuleEngine
             return ruleEngine.evaluate( getRuleEvent( event ) ).call();
         }
     }
+
+    /**
+     * The mapped rules, variables and constants of a program, along with the
+     * organisation unit groups referenced by its rules.
+     */
+    static class ProgramRules
+    {
+        private final List<Rule> rules;
+
+        private final List<RuleVariable> ruleVariables;
+
+        private final Map<String, String> constants;
+
+        private final Set<String> orgUnitGroups;
+
+        ProgramRules( List<Rule> rules, List<RuleVariable> ruleVariables, Map<String, String> constants,
+            Set<String> orgUnitGroups )
+        {
+            this.rules = rules;
+            this.ruleVariables = ruleVariables;
+            this.constants = constants;
+            this.orgUnitGroups = orgUnitGroups;
+        }
+
+        List<Rule> getRules()
+        {
+            return rules;
+        }
+
+        List<RuleVariable> getRuleVariables()
+        {
+            return ruleVariables;
+        }
+
+        Map<String, String> getConstants()
+        {
+            return constants;
+        }
+
+        Set<String> getOrgUnitGroups()
+        {
+            return orgUnitGroups;
+        }
+    }
 }
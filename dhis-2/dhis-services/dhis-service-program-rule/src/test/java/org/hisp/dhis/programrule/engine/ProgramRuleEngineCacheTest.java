@@ -0,0 +1,178 @@
+package org.hisp.dhis.programrule.engine;
+
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+
+import org.hisp.dhis.cache.Cache;
+import org.hisp.dhis.cache.CacheProvider;
+import org.hisp.dhis.cache.SimpleCacheBuilder;
+import org.hisp.dhis.constant.ConstantService;
+import org.hisp.dhis.organisationunit.OrganisationUnitGroupService;
+import org.hisp.dhis.program.Program;
+import org.hisp.dhis.programrule.ProgramRuleVariableService;
+import org.hisp.dhis.user.CurrentUserService;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.core.env.Environment;
+
+public class ProgramRuleEngineCacheTest
+{
+    @Mock
+    private Environment env;
+
+    @Mock
+    private CacheProvider cacheProvider;
+
+    @Mock
+    private ProgramRuleEntityMapperService programRuleEntityMapperService;
+
+    @Mock
+    private ProgramRuleVariableService programRuleVariableService;
+
+    @Mock
+    private OrganisationUnitGroupService organisationUnitGroupService;
+
+    @Mock
+    private CurrentUserService currentUserService;
+
+    @Mock
+    private ConstantService constantService;
+
+    @Mock
+    private ImplementableRuleService implementableRuleService;
+
+    @Rule
+    public MockitoRule rule = MockitoJUnit.rule();
+
+    private Cache<String> cacheVersion;
+
+    private Program programA;
+
+    private Program programB;
+
+    @Before
+    public void setUp()
+    {
+        // The version cache is shared by all engines, as a distributed cache is shared by all instances
+
+        cacheVersion = new SimpleCacheBuilder<String>().withMaximumSize( 1 ).build();
+
+        when( env.getActiveProfiles() ).thenReturn( new String[0] );
+        when( cacheProvider.newCacheBuilder( ProgramRuleEngine.ProgramRules.class ) )
+            .thenAnswer( invocation -> new SimpleCacheBuilder<>() );
+        when( cacheProvider.newCacheBuilder( String.class ) ).thenAnswer( invocation -> new SimpleCacheBuilder<String>()
+        {
+            @Override
+            public Cache<String> build()
+            {
+                return cacheVersion;
+            }
+        } );
+        when( constantService.getConstantMap() ).thenReturn( new HashMap<>() );
+
+        programA = new Program();
+        programA.setUid( "ProgramUidA" );
+
+        programB = new Program();
+        programB.setUid( "ProgramUidB" );
+    }
+
+    @Test
+    public void testProgramRulesAreCachedPerProgram()
+    {
+        ProgramRuleEngine engine = createEngine();
+
+        ProgramRuleEngine.ProgramRules rulesA = engine.getProgramRules( programA );
+
+        assertSame( rulesA, engine.getProgramRules( programA ) );
+        assertNotSame( rulesA, engine.getProgramRules( programB ) );
+
+        verify( implementableRuleService, times( 1 ) ).getImplementableRules( programA );
+        verify( implementableRuleService, times( 1 ) ).getImplementableRules( programB );
+    }
+
+    @Test
+    public void testInvalidateReloadsProgramRules()
+    {
+        ProgramRuleEngine engine = createEngine();
+
+        ProgramRuleEngine.ProgramRules rules = engine.getProgramRules( programA );
+
+        engine.invalidate();
+
+        assertNotSame( rules, engine.getProgramRules( programA ) );
+
+        verify( implementableRuleService, times( 2 ) ).getImplementableRules( programA );
+        verify( programRuleVariableService, times( 2 ) ).getProgramRuleVariable( programA );
+    }
+
+    @Test
+    public void testInvalidateOnOtherInstanceReloadsProgramRules()
+    {
+        ProgramRuleEngine engine = createEngine();
+        ProgramRuleEngine otherEngine = createEngine();
+
+        ProgramRuleEngine.ProgramRules rules = engine.getProgramRules( programA );
+
+        otherEngine.invalidate();
+
+        assertNotSame( rules, engine.getProgramRules( programA ) );
+
+        verify( implementableRuleService, times( 2 ) ).getImplementableRules( programA );
+    }
+
+    @Test
+    public void testTestRunDoesNotCache()
+    {
+        when( env.getActiveProfiles() ).thenReturn( new String[] { "test" } );
+
+        ProgramRuleEngine engine = createEngine();
+
+        assertNotSame( engine.getProgramRules( programA ), engine.getProgramRules( programA ) );
+    }
+
+    private ProgramRuleEngine createEngine()
+    {
+        return new ProgramRuleEngine( env, cacheProvider, programRuleEntityMapperService,
+            programRuleVariableService, organisationUnitGroupService, currentUserService, constantService,
+            implementableRuleService );
+    }
+}
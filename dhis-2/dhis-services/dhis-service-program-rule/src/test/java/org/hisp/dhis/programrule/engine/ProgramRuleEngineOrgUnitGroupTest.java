@@ -0,0 +1,95 @@
+package org.hisp.dhis.programrule.engine;
+
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.hisp.dhis.programrule.ProgramRule;
+import org.hisp.dhis.programrule.ProgramRuleAction;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class ProgramRuleEngineOrgUnitGroupTest
+{
+    @Test
+    public void testNoOrgUnitGroups()
+    {
+        Set<String> groups = new HashSet<>();
+
+        assertTrue( ProgramRuleEngine.addOrgUnitGroups( "#{age} > 10", groups ) );
+        assertTrue( ProgramRuleEngine.addOrgUnitGroups( (String) null, groups ) );
+        assertTrue( groups.isEmpty() );
+    }
+
+    @Test
+    public void testLiteralOrgUnitGroups()
+    {
+        Set<String> groups = new HashSet<>();
+
+        assertTrue( ProgramRuleEngine.addOrgUnitGroups(
+            "d2:inOrgUnitGroup('CXw2yu5fodb') || d2:inOrgUnitGroup( \"RXL3lPSK8oG\" )", groups ) );
+        assertEquals( Sets.newHashSet( "CXw2yu5fodb", "RXL3lPSK8oG" ), groups );
+    }
+
+    @Test
+    public void testNonLiteralOrgUnitGroup()
+    {
+        Set<String> groups = new HashSet<>();
+
+        assertFalse( ProgramRuleEngine.addOrgUnitGroups( "d2:inOrgUnitGroup(#{group})", groups ) );
+        assertFalse( ProgramRuleEngine.addOrgUnitGroups( "d2:inOrgUnitGroup('HOSPITAL')", groups ) );
+    }
+
+    @Test
+    public void testOrgUnitGroupsInProgramRules()
+    {
+        ProgramRuleAction action = new ProgramRuleAction();
+        action.setData( "d2:inOrgUnitGroup('RXL3lPSK8oG')" );
+
+        ProgramRule ruleA = new ProgramRule();
+        ruleA.setCondition( "d2:inOrgUnitGroup('CXw2yu5fodb')" );
+        ruleA.setProgramRuleActions( Sets.newHashSet( action ) );
+
+        ProgramRule ruleB = new ProgramRule();
+        ruleB.setCondition( "true" );
+
+        Set<String> groups = new HashSet<>();
+
+        assertTrue( ProgramRuleEngine.addOrgUnitGroups( Lists.newArrayList( ruleA, ruleB ), groups ) );
+        assertEquals( Sets.newHashSet( "CXw2yu5fodb", "RXL3lPSK8oG" ), groups );
+    }
+}
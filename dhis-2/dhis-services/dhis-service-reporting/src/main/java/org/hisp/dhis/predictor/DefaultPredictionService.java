@@ -39,6 +39,7 @@ import static org.hisp.dhis.system.notification.NotificationLevel.ERROR;
 import static org.hisp.dhis.system.util.ValidationUtils.dataValueIsZeroAndInsignificant;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinTask;
 import java.util.stream.Collectors;
 
 import org.apache.commons.collections4.CollectionUtils;
@@ -69,6 +70,7 @@ import org.hisp.dhis.period.PeriodService;
 import org.hisp.dhis.period.PeriodType;
 import org.hisp.dhis.program.AnalyticsType;
 import org.hisp.dhis.program.ProgramIndicator;
+import org.hisp.dhis.reporting.ReportingTaskPool;
 import org.hisp.dhis.scheduling.JobConfiguration;
 import org.hisp.dhis.scheduling.parameters.PredictorJobParameters;
 import org.hisp.dhis.system.notification.NotificationLevel;
@@ -85,6 +87,8 @@ import org.springframework.transaction.annotation.Transactional;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
+import lombok.Builder;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -120,11 +124,13 @@ public class DefaultPredictionService
 
     private CurrentUserService currentUserService;
 
+    private final ReportingTaskPool taskPool;
+
     public DefaultPredictionService( PredictorService predictorService, ConstantService constantService,
         ExpressionService expressionService, DataValueService dataValueService, CategoryService categoryService,
         OrganisationUnitService organisationUnitService, PeriodService periodService,
         IdentifiableObjectManager idObjectManager, AnalyticsService analyticsService, Notifier notifier,
-        BatchHandlerFactory batchHandlerFactory, CurrentUserService currentUserService )
+        BatchHandlerFactory batchHandlerFactory, CurrentUserService currentUserService, ReportingTaskPool taskPool )
     {
         checkNotNull( predictorService );
         checkNotNull( constantService );
@@ -137,6 +143,7 @@ public class DefaultPredictionService
         checkNotNull( notifier );
         checkNotNull( batchHandlerFactory );
         checkNotNull( currentUserService );
+        checkNotNull( taskPool );
 
         this.predictorService = predictorService;
         this.constantService = constantService;
@@ -150,6 +157,7 @@ public class DefaultPredictionService
         this.notifier = notifier;
         this.batchHandlerFactory = batchHandlerFactory;
         this.currentUserService = currentUserService;
+        this.taskPool = taskPool;
     }
 
     /**
@@ -181,6 +189,38 @@ public class DefaultPredictionService
      */
     private final static String NON_AOC = "x";
 
+    /**
+     * Settings of a predictor run which are the same for all org units.
+     */
+    @Getter
+    @Builder
+    private static class PredictionContext
+    {
+        private final Expression generator;
+
+        private final Expression skipTest;
+
+        private final Map<String, Constant> constantMap;
+
+        private final List<Period> outputPeriods;
+
+        private final ListMap<Period, Period> samplePeriodsMap;
+
+        private final DataElement outputDataElement;
+
+        private final CategoryOptionCombo outputOptionCombo;
+
+        private final Set<String> defaultOptionComboAsSet;
+
+        private final boolean requireData;
+
+        private final String predictionReferenceId;
+
+        private final String storedBy;
+
+        private final Date now;
+    }
+
     @Override
     public PredictionSummary predictJob( PredictorJobParameters params, JobConfiguration jobId )
     {
@@ -306,6 +346,21 @@ public class DefaultPredictionService
 
         predictionSummary.incrementPredictors();
 
+        PredictionContext context = PredictionContext.builder()
+            .generator( generator )
+            .skipTest( skipTest )
+            .constantMap( constantMap )
+            .outputPeriods( outputPeriods )
+            .samplePeriodsMap( samplePeriodsMap )
+            .outputDataElement( outputDataElement )
+            .outputOptionCombo( outputOptionCombo )
+            .defaultOptionComboAsSet( defaultOptionComboAsSet )
+            .requireData( requireData )
+            .predictionReferenceId( predictionReference == null ? null : getItemId( predictionReference, true ) )
+            .storedBy( storedBy )
+            .now( now )
+            .build();
+
         // Do separate predictor processing for each organisation unit level
         // selected. This is because at each level, predictions might be based
         // on data aggregated from all descendant org units. So to prevent
@@ -327,87 +382,152 @@ public class DefaultPredictionService
 
             for ( List<OrganisationUnit> orgUnits : orgUnitLists )
             {
-                Map4<OrganisationUnit, String, Period, DimensionalItemObject, Double> sampleMap4 = sampleItems.isEmpty() ?
-                    new Map4<>() : getDataValues( sampleItems, allSamplePeriods, existingSamplePeriods, orgUnits );
+                Map4<OrganisationUnit, String, Period, String, Double> sampleMap4 = sampleItems.isEmpty() ?
+                    new Map4<>() : getDataValues( sampleItems, true, allSamplePeriods, existingSamplePeriods, orgUnits );
 
-                Map4<OrganisationUnit, String, Period, DimensionalItemObject, Double> valueMap4 = items.isEmpty() ?
-                        new Map4<>() : getDataValues( items, outputPeriodSet, existingOutputPeriods, orgUnits );
+                Map4<OrganisationUnit, String, Period, String, Double> valueMap4 = items.isEmpty() ?
+                        new Map4<>() : getDataValues( items, false, outputPeriodSet, existingOutputPeriods, orgUnits );
 
-                List<DataValue> predictions = new ArrayList<>();
+                // Attribute option combos are looked up here, as the org units
+                // are predicted for on the reporting task pool threads which
+                // must not use the Hibernate session.
 
-                // For each org unit, find its sample data and its non-sample
-                // data values.
-                //
-                // We will make independent predictions for each attribute
-                // option combination, but some analytics data that is not
-                // stored by AOC must be evaluated with every AOC found.
+                Map<String, CategoryOptionCombo> aocMap = getAttributeOptionComboMap(
+                    sampleMap4, valueMap4, defaultOptionComboAsSet, cocMap );
 
-                for ( OrganisationUnit orgUnit : orgUnits )
-                {
-                    MapMapMap<String, Period, DimensionalItemObject, Double> sampleMap3 = firstNonNull( sampleMap4.get( orgUnit ), new MapMapMap<>() );
-                    MapMapMap<String, Period, DimensionalItemObject, Double> valueMap3 = firstNonNull( valueMap4.get( orgUnit ), new MapMapMap<>() );
+                long startTime = System.nanoTime();
+
+                List<DataValue> predictions = taskPool.invoke( ForkJoinTask.adapt( () -> orgUnits.parallelStream()
+                    .flatMap( orgUnit -> predictOrgUnit( context, orgUnit, sampleMap4.get( orgUnit ),
+                        valueMap4.get( orgUnit ), aocMap ).stream() )
+                    .collect( Collectors.toList() ) ) );
 
-                    MapMap<Period, DimensionalItemObject, Double> sampleMapNonAoc = firstNonNull( sampleMap3.get( NON_AOC ), new MapMap<>() );
-                    MapMap<Period, DimensionalItemObject, Double> valueMapNonAoc = firstNonNull( valueMap3.get( NON_AOC ), new MapMap<>() );
+                taskPool.recordTaskTime( "prediction", System.nanoTime() - startTime );
 
-                    Set<String> attributeOptionCombos = getAttributeOptionCombos( sampleMap3, valueMap3, defaultOptionComboAsSet );
+                writePredictions( predictions, outputDataElement, outputOptionCombo,
+                    outputPeriodSet, existingOutputPeriods, orgUnits, storedBy, predictionSummary );
+            }
+        }
+    }
 
-                    // Predict independently for each AOC, adding in the data,
-                    // if any, that is stored without an AOC.
+    // -------------------------------------------------------------------------
+    // Supportive Methods
+    // -------------------------------------------------------------------------
 
-                    for ( String aoc : attributeOptionCombos )
-                    {
-                        MapMap<Period, DimensionalItemObject, Double> sampleMap2 = firstNonNull( sampleMap3.get( aoc ), new MapMap<>() );
-                        MapMap<Period, DimensionalItemObject, Double> valueMap2 = firstNonNull( valueMap3.get( aoc ), new MapMap<>() );
+    /**
+     * Makes the predictions for an organisation unit. This is called on the
+     * threads of the reporting task pool, so it only reads the data values
+     * fetched for the organisation unit and must not load anything through
+     * the Hibernate session.
+     *
+     * For each org unit, we make independent predictions for each attribute
+     * option combination, but some analytics data that is not stored by AOC
+     * must be evaluated with every AOC found.
+     *
+     * @param context the predictor settings for this run.
+     * @param orgUnit the organisation unit to predict for.
+     * @param orgUnitSampleMap3 sample data for the org unit, if any.
+     * @param orgUnitValueMap3 non-sample data for the org unit, if any.
+     * @param aocMap attribute option combos by uid.
+     * @return the predicted values.
+     */
+    private List<DataValue> predictOrgUnit( PredictionContext context, OrganisationUnit orgUnit,
+        MapMapMap<String, Period, String, Double> orgUnitSampleMap3,
+        MapMapMap<String, Period, String, Double> orgUnitValueMap3,
+        Map<String, CategoryOptionCombo> aocMap )
+    {
+        List<DataValue> predictions = new ArrayList<>();
+
+        MapMapMap<String, Period, String, Double> sampleMap3 = firstNonNull( orgUnitSampleMap3, new MapMapMap<>() );
+        MapMapMap<String, Period, String, Double> valueMap3 = firstNonNull( orgUnitValueMap3, new MapMapMap<>() );
 
-                        sampleMap2.putMap( sampleMapNonAoc );
-                        valueMap2.putMap( valueMapNonAoc );
+        MapMap<Period, String, Double> sampleMapNonAoc = firstNonNull( sampleMap3.get( NON_AOC ), new MapMap<>() );
+        MapMap<Period, String, Double> valueMapNonAoc = firstNonNull( valueMap3.get( NON_AOC ), new MapMap<>() );
 
-                        MapMap<Period, DimensionalItemObject, Double> periodValueMap = applySkipTest( sampleMap2, skipTest, constantMap );
+        Set<String> attributeOptionCombos = getAttributeOptionCombos( sampleMap3, valueMap3, context.getDefaultOptionComboAsSet() );
 
-                        // Predict for each output period.
+        Expression generator = context.getGenerator();
+        DataElement outputDataElement = context.getOutputDataElement();
 
-                        for ( Period outputPeriod : outputPeriods )
-                        {
-                            Map<DimensionalItemObject, Double> valueMap = firstNonNull( valueMap2.get( outputPeriod ), new HashMap<>() );
+        // Predict independently for each AOC, adding in the data,
+        // if any, that is stored without an AOC.
 
-                            if ( requireData && dataIsAbsent( outputPeriod, valueMap, samplePeriodsMap, periodValueMap ) )
-                            {
-                                continue;
-                            }
+        for ( String aoc : attributeOptionCombos )
+        {
+            MapMap<Period, String, Double> sampleMap2 = firstNonNull( sampleMap3.get( aoc ), new MapMap<>() );
+            MapMap<Period, String, Double> valueMap2 = firstNonNull( valueMap3.get( aoc ), new MapMap<>() );
 
-                            Double value = castDouble( expressionService.getExpressionValue( generator.getExpression(),
-                                    PREDICTOR_EXPRESSION, valueMap, constantMap, null,
-                                    outputPeriod.getDaysInPeriod(), generator.getMissingValueStrategy(),
-                                    samplePeriodsMap.get( outputPeriod ), periodValueMap ) );
+            sampleMap2.putMap( sampleMapNonAoc );
+            valueMap2.putMap( valueMapNonAoc );
 
-                            carryPredictionForward( value, outputPeriod, predictionReference, periodValueMap );
+            MapMap<Period, String, Double> periodValueMap = applySkipTest( sampleMap2, context.getSkipTest(), context.getConstantMap() );
 
-                            if ( value != null && !value.isNaN() && !value.isInfinite() &&
-                                !dataValueIsZeroAndInsignificant( Double.toString( value ), outputDataElement ) )
-                            {
-                                String valueString = outputDataElement.getValueType().isInteger() ?
-                                    Long.toString( Math.round( value ) ) :
-                                    Double.toString( MathUtils.roundFraction( value, 4 ) );
+            // Predict for each output period.
 
-                                predictions.add( new DataValue( outputDataElement,
-                                    outputPeriod, orgUnit, outputOptionCombo,
-                                    cocMap.get( aoc, () -> categoryService.getCategoryOptionCombo( aoc ) ),
-                                    valueString, storedBy, now, null ) );
-                            }
-                        }
-                    }
+            for ( Period outputPeriod : context.getOutputPeriods() )
+            {
+                Map<String, Double> valueMap = firstNonNull( valueMap2.get( outputPeriod ), new HashMap<>() );
+
+                if ( context.isRequireData() && dataIsAbsent( outputPeriod, valueMap, context.getSamplePeriodsMap(), periodValueMap ) )
+                {
+                    continue;
                 }
 
-                writePredictions( predictions, outputDataElement, outputOptionCombo,
-                    outputPeriodSet, existingOutputPeriods, orgUnits, storedBy, predictionSummary );
+                Double value = castDouble( expressionService.getExpressionValueForItemIds( generator.getExpression(),
+                        PREDICTOR_EXPRESSION, valueMap, context.getConstantMap(), null,
+                        outputPeriod.getDaysInPeriod(), generator.getMissingValueStrategy(),
+                        context.getSamplePeriodsMap().get( outputPeriod ), periodValueMap ) );
+
+                carryPredictionForward( value, outputPeriod, context.getPredictionReferenceId(), periodValueMap );
+
+                if ( value != null && !value.isNaN() && !value.isInfinite() &&
+                    !dataValueIsZeroAndInsignificant( Double.toString( value ), outputDataElement ) )
+                {
+                    String valueString = outputDataElement.getValueType().isInteger() ?
+                        Long.toString( Math.round( value ) ) :
+                        Double.toString( MathUtils.roundFraction( value, 4 ) );
+
+                    predictions.add( new DataValue( outputDataElement,
+                        outputPeriod, orgUnit, context.getOutputOptionCombo(), aocMap.get( aoc ),
+                        valueString, context.getStoredBy(), context.getNow(), null ) );
+                }
             }
         }
+
+        return predictions;
     }
 
-    // -------------------------------------------------------------------------
-    // Supportive Methods
-    // -------------------------------------------------------------------------
+    /**
+     * Looks up the attribute option combos of the data values fetched for a
+     * list of org units, plus the default attribute option combo.
+     *
+     * @param sampleMap4 sample data by org unit.
+     * @param valueMap4 non-sample data by org unit.
+     * @param defaultOptionComboAsSet system default category option combo.
+     * @param cocMap cache of category option combos by uid.
+     * @return the attribute option combos by uid.
+     */
+    private Map<String, CategoryOptionCombo> getAttributeOptionComboMap(
+        Map4<OrganisationUnit, String, Period, String, Double> sampleMap4,
+        Map4<OrganisationUnit, String, Period, String, Double> valueMap4,
+        Set<String> defaultOptionComboAsSet, CachingMap<String, CategoryOptionCombo> cocMap )
+    {
+        Set<String> aocs = new HashSet<>( defaultOptionComboAsSet );
+
+        sampleMap4.values().forEach( map3 -> aocs.addAll( map3.keySet() ) );
+        valueMap4.values().forEach( map3 -> aocs.addAll( map3.keySet() ) );
+
+        aocs.remove( NON_AOC );
+
+        Map<String, CategoryOptionCombo> aocMap = new HashMap<>();
+
+        for ( String aoc : aocs )
+        {
+            aocMap.put( aoc, cocMap.get( aoc, () -> categoryService.getCategoryOptionCombo( aoc ) ) );
+        }
+
+        return aocMap;
+    }
 
     /**
      * For a predictor and orgUnit, determines the set of attribute option
@@ -419,8 +539,8 @@ public class DefaultPredictionService
      * @return set of attribute option combos to use for an orgUnit
      */
     Set<String> getAttributeOptionCombos(
-        MapMapMap<String, Period, DimensionalItemObject, Double> sampleMap3,
-        MapMapMap<String, Period, DimensionalItemObject, Double> valueMap3,
+        MapMapMap<String, Period, String, Double> sampleMap3,
+        MapMapMap<String, Period, String, Double> valueMap3,
         Set<String> defaultOptionComboAsSet )
     {
         Set<String> attributeOptionCombos = new HashSet<>(
@@ -460,8 +580,8 @@ public class DefaultPredictionService
      * @param constantMap constants to use in skip expression if needed.
      * @return the sample period map to use.
      */
-    private MapMap<Period, DimensionalItemObject, Double> applySkipTest(
-        MapMap<Period, DimensionalItemObject, Double> sampleMap2,
+    private MapMap<Period, String, Double> applySkipTest(
+        MapMap<Period, String, Double> sampleMap2,
         Expression skipTest, Map<String, Constant> constantMap )
     {
         if ( skipTest == null || StringUtils.isEmpty( skipTest.getExpression() ) )
@@ -469,12 +589,12 @@ public class DefaultPredictionService
             return sampleMap2;
         }
 
-        MapMap<Period, DimensionalItemObject, Double> periodValueMap = new MapMap<>();
+        MapMap<Period, String, Double> periodValueMap = new MapMap<>();
 
         for ( Period p : sampleMap2.keySet() )
         {
             if ( sampleMap2.get( p ) != null && Boolean.TRUE !=
-                expressionService.getExpressionValue( skipTest.getExpression(),
+                expressionService.getExpressionValueForItemIds( skipTest.getExpression(),
                 PREDICTOR_SKIP_TEST, sampleMap2.get( p ), constantMap, null,
                 p.getDaysInPeriod(), skipTest.getMissingValueStrategy(),
                 DEFAULT_SAMPLE_PERIODS, new MapMap<>() ) )
@@ -643,16 +763,15 @@ public class DefaultPredictionService
      *
      * @param value the predicted value.
      * @param outputPeriod the period the value is predicted for.
-     * @param predictionReference the item for the prediction, if any.
+     * @param predictionReferenceId the item id for the prediction, if any.
      * @param periodValueMap the period value map.
      */
     private void carryPredictionForward( Double value, Period outputPeriod,
-        DimensionalItemObject predictionReference,
-        MapMap<Period, DimensionalItemObject, Double> periodValueMap )
+        String predictionReferenceId, MapMap<Period, String, Double> periodValueMap )
     {
-        if ( value != null && predictionReference != null )
+        if ( value != null && predictionReferenceId != null )
         {
-            periodValueMap.putEntry( outputPeriod, predictionReference, value );
+            periodValueMap.putEntry( outputPeriod, predictionReferenceId, value );
         }
     }
 
@@ -667,8 +786,8 @@ public class DefaultPredictionService
      * @param periodValueMap sample data by period.
      * @return
      */
-    private boolean dataIsAbsent( Period outputPeriod, Map<DimensionalItemObject, Double> valueMap,
-        ListMap<Period, Period> samplePeriodsMap, MapMap<Period, DimensionalItemObject, Double> periodValueMap )
+    private boolean dataIsAbsent( Period outputPeriod, Map<String, Double> valueMap,
+        ListMap<Period, Period> samplePeriodsMap, MapMap<Period, String, Double> periodValueMap )
     {
         if ( !valueMap.isEmpty() )
         {
@@ -677,7 +796,7 @@ public class DefaultPredictionService
 
         for ( Period p : samplePeriodsMap.get( outputPeriod ) )
         {
-            Map<DimensionalItemObject, Double> periodValues = periodValueMap.get( p );
+            Map<String, Double> periodValues = periodValueMap.get( p );
 
             if ( periodValues != null && !periodValues.isEmpty() )
             {
@@ -695,24 +814,27 @@ public class DefaultPredictionService
      *
      * DimensionalItemObjects may reference aggregate and/or event data.
      *
-     * Returns the values mapped by attribute option combo UID, then Period,
-     * then DimensionalItemObject.
+     * Returns the values mapped by OrganisationUnit, attribute option combo
+     * UID, Period, then item id. Values are keyed by the item ids the
+     * expression service looks them up by, so that they can be evaluated
+     * without converting the maps for each expression.
      *
      * @param dimensionItems the dimensionItems.
+     * @param sampled whether the items are sampled (within vector functions).
      * @param allPeriods all data Periods (to fetch event data).
      * @param existingPeriods existing data Periods (to fetch aggregate data).
      * @param orgUnits the roots of the OrganisationUnit trees to include.
      * @return the map of values
      */
-    private Map4<OrganisationUnit, String, Period, DimensionalItemObject, Double> getDataValues(
-        Set<DimensionalItemObject> dimensionItems, Set<Period> allPeriods, Set<Period> existingPeriods,
-        List<OrganisationUnit> orgUnits)
+    private Map4<OrganisationUnit, String, Period, String, Double> getDataValues(
+        Set<DimensionalItemObject> dimensionItems, boolean sampled, Set<Period> allPeriods,
+        Set<Period> existingPeriods, List<OrganisationUnit> orgUnits)
     {
         Set<DataElement> dataElements = new HashSet<>();
         Set<DataElementOperand> dataElementOperands = new HashSet<>();
         Set<DimensionalItemObject> eventAttributeOptionObjects = new HashSet<>();
         Set<DimensionalItemObject> eventNonAttributeOptionObjects = new HashSet<>();
-        Map4<OrganisationUnit, String, Period, DimensionalItemObject, Double> dataValues = new Map4<>();
+        Map4<OrganisationUnit, String, Period, String, Double> dataValues = new Map4<>();
 
         for ( DimensionalItemObject o : dimensionItems )
         {
@@ -736,24 +858,29 @@ public class DefaultPredictionService
 
         if ( ( !dataElements.isEmpty() || !dataElementOperands.isEmpty() ) && !existingPeriods.isEmpty() )
         {
-            dataValues = fetchDataValues( dataElements, dataElementOperands, existingPeriods, orgUnits );
+            dataValues = fetchDataValues( dataElements, dataElementOperands, sampled, existingPeriods, orgUnits );
         }
 
         if ( !eventAttributeOptionObjects.isEmpty() && !allPeriods.isEmpty() )
         {
-            dataValues.putMap( getEventDataValues( eventAttributeOptionObjects, true, allPeriods, orgUnits ) );
+            dataValues.putMap( getEventDataValues( eventAttributeOptionObjects, true, sampled, allPeriods, orgUnits ) );
         }
 
         if ( !eventNonAttributeOptionObjects.isEmpty() && !allPeriods.isEmpty() )
         {
-            dataValues.putMap( getEventDataValues( eventNonAttributeOptionObjects, false, allPeriods, orgUnits ) );
+            dataValues.putMap( getEventDataValues( eventNonAttributeOptionObjects, false, sampled, allPeriods, orgUnits ) );
         }
 
         return dataValues;
     }
 
-    private Map4<OrganisationUnit, String, Period, DimensionalItemObject, Double> fetchDataValues(
-        Set<DataElement> dataElements, Set<DataElementOperand> dataElementOperands, Set<Period> periods, List<OrganisationUnit> orgUnits )
+    /**
+     * Fetches aggregate data values, streaming them into the map as they are
+     * read rather than loading them into a list first.
+     */
+    private Map4<OrganisationUnit, String, Period, String, Double> fetchDataValues(
+        Set<DataElement> dataElements, Set<DataElementOperand> dataElementOperands, boolean sampled,
+        Set<Period> periods, List<OrganisationUnit> orgUnits )
     {
         DataExportParams params = new DataExportParams();
         params.setDataElements( dataElements );
@@ -762,37 +889,30 @@ public class DefaultPredictionService
         params.setOrganisationUnits( new HashSet<>( orgUnits ) );
         params.setReturnParentOrgUnit( true );
 
-        List<DeflatedDataValue> deflatedDataValues = dataValueService.getDeflatedDataValues( params );
-
-        Map<Long, DataElement> dataElementLookup = dataElements.stream().collect( Collectors.toMap( DataElement::getId, de -> de ) );
-        Map<String, DataElementOperand> dataElementOperandLookup = dataElementOperands.stream().collect(
-            Collectors.toMap( deo -> deo.getDataElement().getId() + "." + deo.getCategoryOptionCombo().getId(), deo -> deo ) );
+        Map<Long, String> dataElementLookup = dataElements.stream().collect(
+            Collectors.toMap( DataElement::getId, de -> getItemId( de, sampled ) ) );
+        Map<String, String> dataElementOperandLookup = dataElementOperands.stream().collect(
+            Collectors.toMap( deo -> deo.getDataElement().getId() + "." + deo.getCategoryOptionCombo().getId(), deo -> getItemId( deo, sampled ) ) );
         Map<Long, Period> periodLookup = periods.stream().collect( Collectors.toMap( Period::getId, p -> p ) );
         Map<Long, OrganisationUnit> orgUnitLookup = orgUnits.stream().collect( Collectors.toMap( OrganisationUnit::getId, ou -> ou ) );
-        Map<Long, CategoryOptionCombo> aocLookup = new HashMap<>();
+        Map<Long, String> aocLookup = new HashMap<>();
 
-        Map4<OrganisationUnit, String, Period, DimensionalItemObject, Double> dataValues = new Map4<>();
+        Map4<OrganisationUnit, String, Period, String, Double> dataValues = new Map4<>();
 
-        for ( DeflatedDataValue dv : deflatedDataValues )
-        {
-            DataElement dataElement = dataElementLookup.get( dv.getDataElementId() );
-            DataElementOperand dataElementOperand = dataElementOperandLookup.get( dv.getDataElementId() + "." + dv.getCategoryOptionComboId() );
+        dataValueService.getDeflatedDataValues( params, dv -> {
+            String dataElement = dataElementLookup.get( dv.getDataElementId() );
+            String dataElementOperand = dataElementOperandLookup.get( dv.getDataElementId() + "." + dv.getCategoryOptionComboId() );
             Period p = periodLookup.get( dv.getPeriodId() );
             OrganisationUnit orgUnit = orgUnitLookup.get( dv.getSourceId() );
-            CategoryOptionCombo attributeOptionCombo = aocLookup.get( dv.getAttributeOptionComboId() );
             String stringValue = dv.getValue();
 
             if ( stringValue == null )
             {
-                continue;
+                return;
             }
 
-            if ( attributeOptionCombo == null )
-            {
-                attributeOptionCombo = categoryService.getCategoryOptionCombo( dv.getAttributeOptionComboId() );
-
-                aocLookup.put( dv.getAttributeOptionComboId(), attributeOptionCombo );
-            }
+            String attributeOptionCombo = aocLookup.computeIfAbsent( dv.getAttributeOptionComboId(),
+                id -> categoryService.getCategoryOptionCombo( id ).getUid() );
 
             if ( dataElement != null )
             {
@@ -803,13 +923,13 @@ public class DefaultPredictionService
             {
                 putDataValue( dataValues, orgUnit, attributeOptionCombo, p, dataElementOperand, stringValue );
             }
-        }
+        } );
 
         return dataValues;
     }
 
-    private void putDataValue( Map4<OrganisationUnit, String, Period, DimensionalItemObject, Double> dataValues,
-        OrganisationUnit orgUnit, CategoryOptionCombo attributeOptionCombo, Period p, DimensionalItemObject dimensionItem,
+    private void putDataValue( Map4<OrganisationUnit, String, Period, String, Double> dataValues,
+        OrganisationUnit orgUnit, String attributeOptionCombo, Period p, String itemId,
         String stringValue )
     {
         Double value;
@@ -823,14 +943,14 @@ public class DefaultPredictionService
             return; // Ignore any non-numeric values.
         }
 
-        Double valueSoFar = dataValues.getValue( orgUnit, attributeOptionCombo.getUid(), p, dimensionItem );
+        Double valueSoFar = dataValues.getValue( orgUnit, attributeOptionCombo, p, itemId );
 
         if ( valueSoFar != null )
         {
             value += valueSoFar;
         }
 
-        dataValues.putEntry( orgUnit, attributeOptionCombo.getUid(), p, dimensionItem, value );
+        dataValues.putEntry( orgUnit, attributeOptionCombo, p, itemId, value );
     }
 
     /**
@@ -838,18 +958,20 @@ public class DefaultPredictionService
      * Periods for a list of organisation units and/or any of the organisation
      * units' descendants.
      *
-     * Returns the values mapped by OrganisationUnit, Period, attribute option
-     * combo UID, and DimensionalItemObject.
+     * Returns the values mapped by OrganisationUnit, attribute option combo
+     * UID, Period, and item id.
      *
      * @param dimensionItems the dimensionItems.
+     * @param sampled whether the items are sampled (within vector functions).
      * @param periods the Periods of the DataValues.
      * @param orgUnits the roots of the OrganisationUnit trees to include.
      * @return the map of values
      */
-    private Map4<OrganisationUnit, String, Period, DimensionalItemObject, Double> getEventDataValues(
-        Set<DimensionalItemObject> dimensionItems, boolean hasAttributeOptions, Set<Period> periods, List<OrganisationUnit> orgUnits )
+    private Map4<OrganisationUnit, String, Period, String, Double> getEventDataValues(
+        Set<DimensionalItemObject> dimensionItems, boolean hasAttributeOptions, boolean sampled,
+        Set<Period> periods, List<OrganisationUnit> orgUnits )
     {
-        Map4<OrganisationUnit, String, Period, DimensionalItemObject, Double> eventDataValues = new Map4<>();
+        Map4<OrganisationUnit, String, Period, String, Double> eventDataValues = new Map4<>();
 
         DataQueryParams.Builder paramsBuilder = DataQueryParams.newBuilder()
             .withPeriods(new ArrayList<>(periods) )
@@ -870,7 +992,7 @@ public class DefaultPredictionService
         int vlInx = grid.getWidth() - 1;
 
         Map<String, Period> periodLookup = periods.stream().collect( Collectors.toMap(Period::getIsoDate, p -> p ) );
-        Map<String, DimensionalItemObject> dimensionItemLookup = dimensionItems.stream().collect( Collectors.toMap(DimensionalItemObject::getDimensionItem, d -> d ) );
+        Map<String, String> dimensionItemLookup = dimensionItems.stream().collect( Collectors.toMap(DimensionalItemObject::getDimensionItem, d -> getItemId( d, sampled ) ) );
         Map<String, OrganisationUnit> orgUnitLookup = orgUnits.stream().collect( Collectors.toMap(BaseIdentifiableObject::getUid, o -> o ) );
 
         for ( List<Object> row : grid.getRows() )
@@ -882,7 +1004,7 @@ public class DefaultPredictionService
             Double vl = ( (Number)row.get( vlInx ) ).doubleValue();
 
             Period period = periodLookup.get( pe );
-            DimensionalItemObject dimensionItem = dimensionItemLookup.get( dx );
+            String dimensionItem = dimensionItemLookup.get( dx );
             OrganisationUnit orgUnit = orgUnitLookup.get( ou );
 
             eventDataValues.putEntry( orgUnit, ao, period, dimensionItem, vl );
@@ -891,6 +1013,21 @@ public class DefaultPredictionService
         return eventDataValues;
     }
 
+    /**
+     * Gets the id by which the expression service looks up the value of an
+     * item: the dimension item for sampled items, or else the dimension item
+     * followed by a dot and the period offset, if any.
+     *
+     * @param item the item.
+     * @param sampled whether the item is sampled (within vector functions).
+     * @return the item id.
+     */
+    private static String getItemId( DimensionalItemObject item, boolean sampled )
+    {
+        return sampled || item.getPeriodOffset() == 0 ? item.getDimensionItem() :
+            item.getDimensionItem() + "." + item.getPeriodOffset();
+    }
+
     /**
      * Writes the predicted values to the database. Also updates the
      * prediction summmary per-record counts.
@@ -0,0 +1,136 @@
+package org.hisp.dhis.reporting;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.hisp.dhis.commons.util.SystemUtils.getCpuCores;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Long-lived work-stealing pool for CPU heavy reporting jobs such as
+ * validation rule analysis and predictions. Jobs split their work into
+ * {@link ForkJoinTask}s which idle threads steal from busy ones, so that a
+ * few slow org unit tasks do not leave the remaining threads waiting at the
+ * end of a run. The pool is shared, so concurrent jobs together never use
+ * more threads than the pool parallelism.
+ */
+@Slf4j
+@Component( "org.hisp.dhis.reporting.ReportingTaskPool" )
+public class ReportingTaskPool
+{
+    private static final String METRIC_TASK = "reporting.task";
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, Timer> taskTimers = new ConcurrentHashMap<>();
+
+    private ForkJoinPool pool;
+
+    public ReportingTaskPool( MeterRegistry meterRegistry )
+    {
+        checkNotNull( meterRegistry );
+
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init()
+    {
+        int parallelism = getCpuCores();
+
+        if ( parallelism > 2 )
+        {
+            parallelism--;
+        }
+
+        pool = new ForkJoinPool( parallelism, p -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread( p );
+            thread.setName( "REPORTING-TASK-" + thread.getPoolIndex() );
+            return thread;
+        }, null, false );
+
+        log.info( String.format( "Reporting task pool started with parallelism %d", parallelism ) );
+    }
+
+    @PreDestroy
+    public void destroy()
+    {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Runs the given task on the pool and waits for it to complete. When
+     * called from a thread of the pool, the task is run by the calling thread.
+     *
+     * @param task the task.
+     * @return the result of the task.
+     */
+    public <T> T invoke( ForkJoinTask<T> task )
+    {
+        return pool.invoke( task );
+    }
+
+    /**
+     * Returns the parallelism of the pool.
+     */
+    public int getParallelism()
+    {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Records the time spent by a task of the given job type.
+     *
+     * @param job the job type, such as "validation" or "prediction".
+     * @param nanos the time spent in nanoseconds.
+     */
+    public void recordTaskTime( String job, long nanos )
+    {
+        taskTimers.computeIfAbsent( job, j -> Timer.builder( METRIC_TASK )
+            .description( "Time spent by reporting tasks" )
+            .tag( "job", j )
+            .register( meterRegistry ) )
+            .record( nanos, TimeUnit.NANOSECONDS );
+    }
+}
@@ -40,7 +40,6 @@ import java.util.stream.Collectors;
 
 import javax.persistence.PersistenceException;
 
-import org.apache.commons.lang3.ObjectUtils;
 import org.hisp.dhis.analytics.AnalyticsService;
 import org.hisp.dhis.analytics.DataQueryParams;
 import org.hisp.dhis.category.CategoryOptionCombo;
@@ -127,9 +126,9 @@ public class DataValidationTask
     private ValidationRuleExtended ruleX;   // Current rule extended.
 
     // Data for current period and all rules being evaluated:
-    private MapMapMap<Long, String, DimensionalItemObject, Double> dataMap;
+    private ValidationDataMap dataMap;
 
-    private MapMapMap<Long, String, DimensionalItemObject, Double> slidingWindowDataMap;
+    private ValidationDataMap slidingWindowDataMap;
 
     @Override
     public void init( List<OrganisationUnit> orgUnits, ValidationRunContext context, AnalyticsService analyticsService )
@@ -329,22 +328,22 @@ public class DataValidationTask
     {
         getDataValueMap();
 
-        dataMap.putMap( getAnalyticsMap( true, periodTypeX.getIndicators() ) );
+        dataMap.putAll( getAnalyticsMap( true, periodTypeX.getIndicators() ) );
 
-        slidingWindowDataMap = new MapMapMap<>();
+        slidingWindowDataMap = new ValidationDataMap();
 
         if ( periodTypeX.areSlidingWindowsNeeded() )
         {
-            slidingWindowDataMap.putMap( dataMap );
+            slidingWindowDataMap.putAll( dataMap );
 
-            slidingWindowDataMap.putMap( getEventMapForSlidingWindow( true, periodTypeX.getEventItems() ) );
-            slidingWindowDataMap.putMap( getEventMapForSlidingWindow( false, periodTypeX.getEventItemsWithoutAttributeOptions() ) );
+            slidingWindowDataMap.putAll( getEventMapForSlidingWindow( true, periodTypeX.getEventItems() ) );
+            slidingWindowDataMap.putAll( getEventMapForSlidingWindow( false, periodTypeX.getEventItemsWithoutAttributeOptions() ) );
         }
 
         if ( periodTypeX.areNonSlidingWindowsNeeded() )
         {
-            dataMap.putMap( getAnalyticsMap( true, periodTypeX.getEventItems() ) );
-            dataMap.putMap( getAnalyticsMap( false, periodTypeX.getEventItemsWithoutAttributeOptions() ) );
+            dataMap.putAll( getAnalyticsMap( true, periodTypeX.getEventItems() ) );
+            dataMap.putAll( getAnalyticsMap( false, periodTypeX.getEventItemsWithoutAttributeOptions() ) );
         }
     }
 
@@ -446,50 +445,35 @@ public class DataValidationTask
     /**
      * Evaluates an expression, returning a map of values by attribute option
      * combo.
+     * <p>
+     * Values without attribute option combo apply to every attribute option
+     * combo of the organisation unit. Expressions are not evaluated for
+     * values without attribute option combo alone, as such results are not
+     * validated.
      *
      * @param expression expression to evaluate.
-     * @param valueMap   Map of value maps, by attribute option combo.
+     * @param valueMap   values by organisation unit, attribute option combo
+     *                   and item.
      * @return map of values.
      */
-    private Map<String, Double> getExpressionValueMap( Expression expression,
-        MapMapMap<Long, String, DimensionalItemObject, Double> valueMap )
+    private Map<String, Double> getExpressionValueMap( Expression expression, ValidationDataMap valueMap )
     {
         Map<String, Double> expressionValueMap = new HashMap<>();
 
-        Map<DimensionalItemObject, Double> nonAocValues = valueMap.get( orgUnitId ) == null
-            ? null : valueMap.get( orgUnitId ).get( NON_AOC );
-
-        MapMap<String, DimensionalItemObject, Double> aocValues = valueMap.get( orgUnitId );
-
-        if ( aocValues == null )
+        for ( String aoc : valueMap.getAttributeOptionCombos( orgUnitId ) )
         {
-            if ( nonAocValues == null )
-            {
-                return expressionValueMap;
-            }
-            else
-            {
-                aocValues = new MapMap<>();
-                aocValues.putEntries( context.getDefaultAttributeCombo().getUid(), nonAocValues );
-            }
-        }
-
-        for ( Map.Entry<String, Map<DimensionalItemObject, Double>> entry : aocValues.entrySet() )
-        {
-            Map<DimensionalItemObject, Double> values = entry.getValue();
-
-            if ( nonAocValues != null )
+            if ( NON_AOC.equals( aoc ) )
             {
-                values.putAll( nonAocValues );
+                continue;
             }
 
-            Double value = expressionService.getExpressionValue( expression.getExpression(),
-                VALIDATION_RULE_EXPRESSION, values, context.getConstantMap(), null,
-                period.getDaysInPeriod(), expression.getMissingValueStrategy() );
+            Double value = expressionService.getExpressionValueForItemIds( expression.getExpression(),
+                VALIDATION_RULE_EXPRESSION, valueMap.getItemValueMap( orgUnitId, aoc ), context.getConstantMap(),
+                null, period.getDaysInPeriod(), expression.getMissingValueStrategy() );
 
             if ( MathUtils.isValidDouble( value ) )
             {
-                expressionValueMap.put( entry.getKey(), value );
+                expressionValueMap.put( aoc, value );
             }
         }
 
@@ -498,6 +482,7 @@ public class DataValidationTask
 
     /**
      * Gets data elements and data element operands from the datavalue table.
+     * Values are streamed from the database straight into the data map.
      */
     private void getDataValueMap()
     {
@@ -515,69 +500,40 @@ public class DataValidationTask
             params.setAttributeOptionCombos( Sets.newHashSet( context.getAttributeCombo() ) );
         }
 
-        List<DeflatedDataValue> dataValues = dataValueService.getDeflatedDataValues( params );
+        dataMap = new ValidationDataMap();
 
-        dataMap = new MapMapMap<>();
+        dataValueService.getDeflatedDataValues( params, this::addValueToDataMap );
+    }
 
-        MapMapMap<Long, String, DimensionalItemObject, Long> checkForDuplicates = new MapMapMap<>();
+    private void addValueToDataMap( DeflatedDataValue dv )
+    {
+        double value;
 
-        for ( DeflatedDataValue dv : dataValues )
+        try
         {
-            DataElement dataElement = periodTypeX.getDataElementIdMap().get( dv.getDataElementId() );
-            String deoIdKey = periodTypeX.getDeoIds( dv.getDataElementId(), dv.getCategoryOptionComboId() );
-            DataElementOperand dataElementOperand = periodTypeX.getDataElementOperandIdMap().get( deoIdKey );
-            Period p = getPeriod( dv.getPeriodId() );
-            long orgUnitId = dv.getSourceId();
-            String attributeOptionComboUid = getAttributeOptionCombo( dv.getAttributeOptionComboId() ).getUid();
-            String valueString = dv.getValue();
-            Double value;
-
-            try
-            {
-                value = Double.parseDouble( valueString );
-            }
-            catch ( NumberFormatException | NullPointerException e )
-            {
-                continue;
-            }
-
-            if ( dataElement != null )
-            {
-                addValueToDataMap( orgUnitId, attributeOptionComboUid, dataElement, value, p, checkForDuplicates );
-            }
-
-            if ( dataElementOperand != null )
-            {
-                addValueToDataMap( orgUnitId, attributeOptionComboUid, dataElementOperand, value, p,
-                    checkForDuplicates );
-            }
+            value = Double.parseDouble( dv.getValue() );
+        }
+        catch ( NumberFormatException | NullPointerException e )
+        {
+            return;
         }
-    }
-
-    private void addValueToDataMap( long orgUnitId, String aocUid, DimensionalItemObject dimItemObject,
-        Double value, Period p, MapMapMap<Long, String, DimensionalItemObject, Long> checkForDuplicates )
-    {
-        double existingValue = ObjectUtils.firstNonNull( dataMap.getValue( orgUnitId, aocUid, dimItemObject ), 0.0 );
 
+        DataElement dataElement = periodTypeX.getDataElementIdMap().get( dv.getDataElementId() );
+        String deoIdKey = periodTypeX.getDeoIds( dv.getDataElementId(), dv.getCategoryOptionComboId() );
+        DataElementOperand dataElementOperand = periodTypeX.getDataElementOperandIdMap().get( deoIdKey );
+        Period p = getPeriod( dv.getPeriodId() );
+        String attributeOptionComboUid = getAttributeOptionCombo( dv.getAttributeOptionComboId() ).getUid();
         long periodInterval = p.getEndDate().getTime() - p.getStartDate().getTime();
 
-        Long existingPeriodInterval = checkForDuplicates.getValue( orgUnitId, aocUid, dimItemObject );
-
-        if ( existingPeriodInterval != null )
+        if ( dataElement != null )
         {
-            if ( existingPeriodInterval < periodInterval )
-            {
-                return; // Do not overwrite the previous value if for a shorter interval
-            }
-            else if ( existingPeriodInterval > periodInterval )
-            {
-                existingValue = 0.0; // Overwrite previous value if for a longer interval
-            }
+            dataMap.add( dv.getSourceId(), attributeOptionComboUid, dataElement, value, periodInterval );
         }
 
-        dataMap.putEntry( orgUnitId, aocUid, dimItemObject, value + existingValue );
-
-        checkForDuplicates.putEntry( orgUnitId, aocUid, dimItemObject, periodInterval );
+        if ( dataElementOperand != null )
+        {
+            dataMap.add( dv.getSourceId(), attributeOptionComboUid, dataElementOperand, value, periodInterval );
+        }
     }
 
     /**
@@ -585,12 +541,12 @@ public class DataValidationTask
      *
      * @param hasAttributeOptions whether the event data has attribute options.
      */
-    private MapMapMap<Long, String, DimensionalItemObject, Double> getAnalyticsMap(
+    private ValidationDataMap getAnalyticsMap(
         boolean hasAttributeOptions, Set<DimensionalItemObject> analyticsItems )
     {
         if ( analyticsItems.isEmpty() )
         {
-            return new MapMapMap<>();
+            return new ValidationDataMap();
         }
 
         DataQueryParams.Builder paramsBuilder = DataQueryParams.newBuilder()
@@ -612,12 +568,12 @@ public class DataValidationTask
      *
      * @param hasAttributeOptions whether the event data has attribute options.
      */
-    private MapMapMap<Long, String, DimensionalItemObject, Double> getEventMapForSlidingWindow(
+    private ValidationDataMap getEventMapForSlidingWindow(
         boolean hasAttributeOptions, Set<DimensionalItemObject> eventItems )
     {
         if ( eventItems.isEmpty() )
         {
-            return new MapMapMap<>();
+            return new ValidationDataMap();
         }
 
         // We want to position the sliding window over the most recent data.
@@ -662,10 +618,10 @@ public class DataValidationTask
      * @param hasAttributeOptions whether the event data has attribute options.
      * @return event data.
      */
-    private MapMapMap<Long, String, DimensionalItemObject, Double> getAnalyticsData(
+    private ValidationDataMap getAnalyticsData(
         DataQueryParams params, boolean hasAttributeOptions )
     {
-        MapMapMap<Long, String, DimensionalItemObject, Double> map = new MapMapMap<>();
+        ValidationDataMap map = new ValidationDataMap();
 
         Grid grid;
 
@@ -700,7 +656,7 @@ public class DataValidationTask
             OrganisationUnit orgUnit = ouLookup.get( ou );
             DimensionalItemObject analyticsItem = dxLookup.get( dx );
 
-            map.putEntry( orgUnit.getId(), ao, analyticsItem, vl );
+            map.put( orgUnit.getId(), ao, analyticsItem, vl );
         }
 
         return map;
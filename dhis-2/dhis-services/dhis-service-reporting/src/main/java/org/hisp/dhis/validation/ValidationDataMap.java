@@ -0,0 +1,441 @@
+package org.hisp.dhis.validation;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.hisp.dhis.common.DimensionalItemObject;
+
+/**
+ * Holds the data values for the organisation units of a validation task,
+ * by organisation unit, attribute option combo and item.
+ * <p>
+ * Organisation units, attribute option combos and items are each mapped to
+ * a dense index, and values are held in an open addressing hash table of
+ * primitive arrays keyed by the combined index. This avoids keeping a boxed
+ * key and value plus a map entry for every data value, which dominated the
+ * memory and time of validation runs over large organisation unit sets.
+ * <p>
+ * Items are identified by their dimension item followed by a dot and the
+ * period offset, if any, which is the form in which the expression service
+ * looks up values. Values for {@link DataValidationTask#NON_AOC} apply to
+ * all attribute option combos and take precedence over values stored for
+ * the attribute option combo itself.
+ * <p>
+ * This class is not thread safe; each validation task holds its own maps.
+ */
+class ValidationDataMap
+{
+    private static final int ITEM_BITS = 20;
+
+    private static final int AOC_BITS = 20;
+
+    private static final int INITIAL_CAPACITY = 1 << 10;
+
+    private static final long EMPTY = 0L;
+
+    private final Map<Long, Integer> orgUnitIndex = new HashMap<>();
+
+    private final Map<String, Integer> aocIndex = new HashMap<>();
+
+    private final List<String> aocs = new ArrayList<>();
+
+    private final Map<String, Integer> itemIndex = new HashMap<>();
+
+    private final List<String> items = new ArrayList<>();
+
+    private final List<BitSet> orgUnitAocs = new ArrayList<>();
+
+    /**
+     * Combined keys plus one, so that zero marks an empty slot.
+     */
+    private long[] keys = new long[INITIAL_CAPACITY];
+
+    private double[] values = new double[INITIAL_CAPACITY];
+
+    /**
+     * Length of the period each value was stored for, used to resolve values
+     * collected for the same item from periods of different length.
+     */
+    private long[] intervals = new long[INITIAL_CAPACITY];
+
+    private int size = 0;
+
+    // -------------------------------------------------------------------------
+    // Write
+    // -------------------------------------------------------------------------
+
+    /**
+     * Stores a value, replacing any existing value.
+     *
+     * @param orgUnitId the organisation unit id.
+     * @param aoc the attribute option combo uid, or NON_AOC.
+     * @param item the item.
+     * @param value the value.
+     */
+    public void put( long orgUnitId, String aoc, DimensionalItemObject item, double value )
+    {
+        int slot = slotFor( key( orgUnitId, aoc, getItemId( item ) ) );
+
+        values[slot] = value;
+        intervals[slot] = 0L;
+    }
+
+    /**
+     * Adds a value collected for a period of the given length. A value for a
+     * shorter period replaces a value for a longer period and is never
+     * replaced by it; values for periods of the same length are summed.
+     *
+     * @param orgUnitId the organisation unit id.
+     * @param aoc the attribute option combo uid.
+     * @param item the item.
+     * @param value the value.
+     * @param periodInterval the length of the period of the value.
+     */
+    public void add( long orgUnitId, String aoc, DimensionalItemObject item, double value, long periodInterval )
+    {
+        long key = key( orgUnitId, aoc, getItemId( item ) );
+        int sizeBefore = size;
+        int slot = slotFor( key );
+
+        if ( size == sizeBefore )
+        {
+            if ( intervals[slot] < periodInterval )
+            {
+                return;
+            }
+            else if ( intervals[slot] == periodInterval )
+            {
+                value += values[slot];
+            }
+        }
+
+        values[slot] = value;
+        intervals[slot] = periodInterval;
+    }
+
+    /**
+     * Stores all values of another map, replacing any existing values.
+     *
+     * @param other the map to copy values from.
+     */
+    public void putAll( ValidationDataMap other )
+    {
+        long[] otherOrgUnits = new long[other.orgUnitIndex.size()];
+        other.orgUnitIndex.forEach( ( id, index ) -> otherOrgUnits[index] = id );
+
+        for ( int i = 0; i < other.keys.length; i++ )
+        {
+            if ( other.keys[i] != EMPTY )
+            {
+                long otherKey = other.keys[i] - 1;
+
+                long orgUnitId = otherOrgUnits[(int) (otherKey >>> (AOC_BITS + ITEM_BITS))];
+                String aoc = other.aocs.get( (int) ((otherKey >>> ITEM_BITS) & mask( AOC_BITS )) );
+                String item = other.items.get( (int) (otherKey & mask( ITEM_BITS )) );
+
+                int slot = slotFor( key( orgUnitId, aoc, item ) );
+
+                values[slot] = other.values[i];
+                intervals[slot] = other.intervals[i];
+            }
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Read
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the number of values stored.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Indicates whether any values are stored for the organisation unit.
+     *
+     * @param orgUnitId the organisation unit id.
+     */
+    public boolean hasOrgUnit( long orgUnitId )
+    {
+        return orgUnitIndex.containsKey( orgUnitId );
+    }
+
+    /**
+     * Returns the attribute option combos with values stored for the
+     * organisation unit, including NON_AOC if present.
+     *
+     * @param orgUnitId the organisation unit id.
+     */
+    public Set<String> getAttributeOptionCombos( long orgUnitId )
+    {
+        Set<String> result = new HashSet<>();
+
+        Integer ou = orgUnitIndex.get( orgUnitId );
+
+        if ( ou != null )
+        {
+            BitSet bits = orgUnitAocs.get( ou );
+
+            for ( int i = bits.nextSetBit( 0 ); i >= 0; i = bits.nextSetBit( i + 1 ) )
+            {
+                result.add( aocs.get( i ) );
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the value stored, or null if there is none.
+     *
+     * @param orgUnitId the organisation unit id.
+     * @param aoc the attribute option combo uid, or NON_AOC.
+     * @param itemId the item identifier.
+     */
+    public Double getValue( long orgUnitId, String aoc, String itemId )
+    {
+        Integer ou = orgUnitIndex.get( orgUnitId );
+        Integer ao = aocIndex.get( aoc );
+        Integer it = itemIndex.get( itemId );
+
+        if ( ou == null || ao == null || it == null )
+        {
+            return null;
+        }
+
+        int slot = find( combine( ou, ao, it ) );
+
+        return slot < 0 ? null : values[slot];
+    }
+
+    /**
+     * Returns a read-only view of the values for an organisation unit and
+     * attribute option combo by item identifier, in which values stored for
+     * NON_AOC take precedence. Values are boxed only when looked up.
+     *
+     * @param orgUnitId the organisation unit id.
+     * @param aoc the attribute option combo uid.
+     */
+    public Map<String, Double> getItemValueMap( long orgUnitId, String aoc )
+    {
+        return new AbstractMap<String, Double>()
+        {
+            @Override
+            public Double get( Object key )
+            {
+                if ( !(key instanceof String) )
+                {
+                    return null;
+                }
+
+                Double value = getValue( orgUnitId, DataValidationTask.NON_AOC, (String) key );
+
+                return value != null ? value : getValue( orgUnitId, aoc, (String) key );
+            }
+
+            @Override
+            public boolean containsKey( Object key )
+            {
+                return get( key ) != null;
+            }
+
+            @Override
+            public Set<Entry<String, Double>> entrySet()
+            {
+                Set<Entry<String, Double>> entries = new HashSet<>();
+
+                for ( String item : items )
+                {
+                    Double value = get( item );
+
+                    if ( value != null )
+                    {
+                        entries.add( new SimpleImmutableEntry<>( item, value ) );
+                    }
+                }
+
+                return entries;
+            }
+        };
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private static String getItemId( DimensionalItemObject item )
+    {
+        return item.getDimensionItem() + (item.getPeriodOffset() == 0 ? "" : "." + item.getPeriodOffset());
+    }
+
+    private static long mask( int bits )
+    {
+        return (1L << bits) - 1;
+    }
+
+    private static long combine( long ou, long aoc, long item )
+    {
+        return (ou << (AOC_BITS + ITEM_BITS)) | (aoc << ITEM_BITS) | item;
+    }
+
+    /**
+     * Gets the combined key, assigning indexes to new organisation units,
+     * attribute option combos and items.
+     */
+    private long key( long orgUnitId, String aoc, String itemId )
+    {
+        int ou = orgUnitIndex.computeIfAbsent( orgUnitId, k -> {
+            orgUnitAocs.add( new BitSet() );
+            return orgUnitAocs.size() - 1;
+        } );
+
+        int ao = aocIndex.computeIfAbsent( aoc, k -> {
+            aocs.add( k );
+            return aocs.size() - 1;
+        } );
+
+        int it = itemIndex.computeIfAbsent( itemId, k -> {
+            items.add( k );
+            return items.size() - 1;
+        } );
+
+        if ( ao > mask( AOC_BITS ) || it > mask( ITEM_BITS ) )
+        {
+            throw new IllegalStateException( "Too many attribute option combos or items for validation data map" );
+        }
+
+        orgUnitAocs.get( ou ).set( ao );
+
+        return combine( ou, ao, it );
+    }
+
+    private int hash( long key )
+    {
+        long h = key * 0x9E3779B97F4A7C15L;
+
+        return (int) (h ^ (h >>> 32)) & (keys.length - 1);
+    }
+
+    /**
+     * Returns the slot holding the key, or -1 if not present.
+     */
+    private int find( long key )
+    {
+        long stored = key + 1;
+
+        for ( int slot = hash( key ); ; slot = (slot + 1) & (keys.length - 1) )
+        {
+            if ( keys[slot] == stored )
+            {
+                return slot;
+            }
+            else if ( keys[slot] == EMPTY )
+            {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Returns the slot holding the key, claiming a new slot if not present.
+     * A new slot holds a value of zero.
+     */
+    private int slotFor( long key )
+    {
+        if ( (size + 1) * 2 > keys.length )
+        {
+            resize();
+        }
+
+        long stored = key + 1;
+
+        int slot = hash( key );
+
+        while ( keys[slot] != EMPTY )
+        {
+            if ( keys[slot] == stored )
+            {
+                return slot;
+            }
+
+            slot = (slot + 1) & (keys.length - 1);
+        }
+
+        keys[slot] = stored;
+        size++;
+
+        return slot;
+    }
+
+    private void resize()
+    {
+        long[] oldKeys = keys;
+        double[] oldValues = values;
+        long[] oldIntervals = intervals;
+
+        keys = new long[oldKeys.length * 2];
+        values = new double[oldKeys.length * 2];
+        intervals = new long[oldKeys.length * 2];
+
+        for ( int i = 0; i < oldKeys.length; i++ )
+        {
+            if ( oldKeys[i] != EMPTY )
+            {
+                int slot = hash( oldKeys[i] - 1 );
+
+                while ( keys[slot] != EMPTY )
+                {
+                    slot = (slot + 1) & (keys.length - 1);
+                }
+
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+                intervals[slot] = oldIntervals[i];
+            }
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "[ValidationDataMap, size: " + size + ", org units: " + orgUnitIndex.size() +
+            ", attribute option combos: " + aocs + "]";
+    }
+}
@@ -28,32 +28,50 @@ package org.hisp.dhis.validation;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
-import com.google.common.collect.Lists;
 import org.hisp.dhis.analytics.AnalyticsService;
 import org.hisp.dhis.category.CategoryService;
-import org.hisp.dhis.commons.util.SystemUtils;
+import org.hisp.dhis.datavalue.DataValueService;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.period.Period;
+import org.hisp.dhis.reporting.ReportingTaskPool;
 import org.springframework.context.ApplicationContext;
 
 import java.util.Collection;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import lombok.extern.slf4j.Slf4j;
 
 /**
  * Evaluates validation rules.
  * 
  * @author Jim Grace
  */
+@Slf4j
 public class Validator
 {
+    /**
+     * Number of tasks per thread to aim for when splitting the organisation
+     * units, so that threads finishing early can steal remaining tasks.
+     */
+    private static final int TASKS_PER_THREAD = 8;
+
     /**
      * Evaluates validation rules for a collection of organisation units. This
      * method breaks the job down by organisation unit. It assigns the
      * evaluation for each organisation unit to a task that can be evaluated
      * independently in a multi-threaded environment.
      * <p/>
+     * Organisation units are split into tasks of roughly equal estimated
+     * data volume, estimated by the number of data values stored for the
+     * organisation units in the validated periods. Tasks run on the shared
+     * reporting task pool, where idle threads steal tasks from busy threads.
+     * <p/>
      * Return early with no results if there are no organisation units
      * or no validation rules.
      *
@@ -63,36 +81,29 @@ public class Validator
         ApplicationContext applicationContext, AnalyticsService analyticsService )
     {
         CategoryService categoryService = applicationContext.getBean( CategoryService.class );
-                
-        int threadPoolSize = getThreadPoolSize( context );
+        DataValueService dataValueService = applicationContext.getBean( DataValueService.class );
+        ReportingTaskPool taskPool = applicationContext.getBean( ReportingTaskPool.class );
 
-        if ( threadPoolSize == 0 || context.getPeriodTypeXs().isEmpty() )
+        if ( context.getOrgUnits().isEmpty() || context.getPeriodTypeXs().isEmpty() )
         {
             return context.getValidationResults();
         }
 
-        ExecutorService executor = Executors.newFixedThreadPool( threadPoolSize );
+        List<OrganisationUnit> orgUnits = context.getOrgUnits();
 
-        List<List<OrganisationUnit>> orgUnitLists = Lists.partition( context.getOrgUnits(), ValidationRunContext.ORG_UNITS_PER_TASK );
+        long[] cumulativeWeights = getCumulativeWeights( orgUnits, getDataValueCounts( context, dataValueService ) );
 
-        for ( List<OrganisationUnit> orgUnits : orgUnitLists )
-        {
-            ValidationTask task = (ValidationTask) applicationContext.getBean( DataValidationTask.NAME );
-            task.init( orgUnits, context, analyticsService );
+        long totalWeight = cumulativeWeights[cumulativeWeights.length - 1];
 
-            executor.execute( task );
-        }
+        long targetWeight = Math.max( 1, totalWeight / ( (long) taskPool.getParallelism() * TASKS_PER_THREAD ) );
 
-        executor.shutdown();
+        ValidationTaskStats stats = new ValidationTaskStats();
 
-        try
-        {
-            executor.awaitTermination( 6, TimeUnit.HOURS );
-        }
-        catch ( InterruptedException e )
-        {
-            executor.shutdownNow();
-        }
+        taskPool.invoke( new ValidationAction( 0, orgUnits.size(), cumulativeWeights, targetWeight,
+            context, applicationContext, analyticsService, taskPool, stats ) );
+
+        log.info( String.format( "Validated %d org units in %d tasks, slowest task %d ms, total task time %d ms",
+            orgUnits.size(), stats.tasks.get(), stats.maxMillis.get(), stats.totalMillis.get() ) );
 
         reloadAttributeOptionCombos( context.getValidationResults(), categoryService );
 
@@ -100,28 +111,39 @@ public class Validator
     }
 
     /**
-     * Determines how many threads we should use for testing validation rules.
-     * 
-     * @param context validation run context
-     * @return number of threads we should use for testing validation rules
+     * Gets the number of data values by organisation unit id for the periods
+     * being validated.
      */
-    private static int getThreadPoolSize( ValidationRunContext context )
+    private static Map<Long, Integer> getDataValueCounts( ValidationRunContext context,
+        DataValueService dataValueService )
     {
-        int threadPoolSize = SystemUtils.getCpuCores();
+        Set<Period> periods = context.getPeriodTypeXs().stream()
+            .flatMap( ptx -> ptx.getPeriods().stream() )
+            .collect( Collectors.toSet() );
 
-        if ( threadPoolSize > 2 )
-        {
-            threadPoolSize--;
-        }
+        return dataValueService.getDataValueCountBySource( periods );
+    }
 
-        int numberOfTasks = context.getNumberOfTasks();
+    /**
+     * Returns the cumulative estimated weights of the organisation units,
+     * where element i holds the sum of the weights of organisation units
+     * 0 to i. Each organisation unit weighs one plus its number of data
+     * values, to account for the fixed cost of evaluating the rules.
+     */
+    private static long[] getCumulativeWeights( List<OrganisationUnit> orgUnits, Map<Long, Integer> counts )
+    {
+        long[] cumulativeWeights = new long[orgUnits.size()];
 
-        if ( threadPoolSize > numberOfTasks )
+        long sum = 0;
+
+        for ( int i = 0; i < orgUnits.size(); i++ )
         {
-            threadPoolSize = numberOfTasks;
+            sum += 1 + counts.getOrDefault( orgUnits.get( i ).getId(), 0 );
+
+            cumulativeWeights[i] = sum;
         }
 
-        return threadPoolSize;
+        return cumulativeWeights;
     }
 
     /**
@@ -139,4 +161,153 @@ public class Validator
                 .getCategoryOptionCombo( result.getAttributeOptionCombo().getId() ) );
         }
     }
+
+    /**
+     * Timing of the validation tasks of a run.
+     */
+    private static class ValidationTaskStats
+    {
+        private final AtomicInteger tasks = new AtomicInteger();
+
+        private final AtomicLong totalMillis = new AtomicLong();
+
+        private final AtomicLong maxMillis = new AtomicLong();
+    }
+
+    /**
+     * Validates a range of organisation units. Ranges weighing more than the
+     * target weight are split in two halves of equal weight, up to
+     * {@link ValidationRunContext#ORG_UNITS_PER_TASK} organisation units are
+     * validated by a single validation task.
+     */
+    private static class ValidationAction
+        extends RecursiveAction
+    {
+        private final int from;
+
+        private final int to;
+
+        private final long[] cumulativeWeights;
+
+        private final long targetWeight;
+
+        private final ValidationRunContext context;
+
+        private final ApplicationContext applicationContext;
+
+        private final AnalyticsService analyticsService;
+
+        private final ReportingTaskPool taskPool;
+
+        private final ValidationTaskStats stats;
+
+        private ValidationAction( int from, int to, long[] cumulativeWeights, long targetWeight,
+            ValidationRunContext context, ApplicationContext applicationContext,
+            AnalyticsService analyticsService, ReportingTaskPool taskPool, ValidationTaskStats stats )
+        {
+            this.from = from;
+            this.to = to;
+            this.cumulativeWeights = cumulativeWeights;
+            this.targetWeight = targetWeight;
+            this.context = context;
+            this.applicationContext = applicationContext;
+            this.analyticsService = analyticsService;
+            this.taskPool = taskPool;
+            this.stats = stats;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if ( context.isAnalysisComplete() )
+            {
+                return;
+            }
+
+            int size = to - from;
+
+            if ( size > 1 && ( weight( from, to ) > targetWeight || size > ValidationRunContext.ORG_UNITS_PER_TASK ) )
+            {
+                int split = getSplit();
+
+                invokeAll( split( from, split ), split( split, to ) );
+            }
+            else
+            {
+                validate();
+            }
+        }
+
+        private ValidationAction split( int from, int to )
+        {
+            return new ValidationAction( from, to, cumulativeWeights, targetWeight,
+                context, applicationContext, analyticsService, taskPool, stats );
+        }
+
+        /**
+         * Returns the sum of the weights of organisation units from (inclusive)
+         * to (exclusive).
+         */
+        private long weight( int from, int to )
+        {
+            return cumulativeWeights[to - 1] - ( from == 0 ? 0 : cumulativeWeights[from - 1] );
+        }
+
+        /**
+         * Returns the index which splits the range in two halves of about
+         * equal weight, each holding at least one organisation unit.
+         */
+        private int getSplit()
+        {
+            long half = ( from == 0 ? 0 : cumulativeWeights[from - 1] ) + weight( from, to ) / 2;
+
+            int low = from + 1;
+            int high = to - 1;
+
+            while ( low < high )
+            {
+                int mid = ( low + high ) >>> 1;
+
+                if ( cumulativeWeights[mid - 1] < half )
+                {
+                    low = mid + 1;
+                }
+                else
+                {
+                    high = mid;
+                }
+            }
+
+            return low;
+        }
+
+        private void validate()
+        {
+            long start = System.nanoTime();
+
+            ValidationTask task = (ValidationTask) applicationContext.getBean( DataValidationTask.NAME );
+            task.init( context.getOrgUnits().subList( from, to ), context, analyticsService );
+
+            try
+            {
+                task.run();
+            }
+            catch ( RuntimeException ex )
+            {
+                log.error( "Validation task failed for " + ( to - from ) + " org units", ex );
+            }
+
+            long nanos = System.nanoTime() - start;
+            long millis = nanos / 1_000_000;
+
+            taskPool.recordTaskTime( "validation", nanos );
+
+            stats.tasks.incrementAndGet();
+            stats.totalMillis.addAndGet( millis );
+            stats.maxMillis.accumulateAndGet( millis, Math::max );
+
+            log.debug( String.format( "Validated %d org units with estimated weight %d in %d ms",
+                to - from, weight( from, to ), millis ) );
+        }
+    }
 }
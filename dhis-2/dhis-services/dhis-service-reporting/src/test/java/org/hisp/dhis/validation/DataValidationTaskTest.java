@@ -34,18 +34,19 @@ import static org.hisp.dhis.expression.ParseType.SIMPLE_TEST;
 import static org.hisp.dhis.expression.ParseType.VALIDATION_RULE_EXPRESSION;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 import org.apache.commons.lang3.RandomUtils;
 import org.hisp.dhis.analytics.AnalyticsService;
 import org.hisp.dhis.category.CategoryOptionCombo;
 import org.hisp.dhis.category.CategoryService;
-import org.hisp.dhis.common.DimensionalItemObject;
 import org.hisp.dhis.constant.Constant;
 import org.hisp.dhis.dataelement.DataElement;
 import org.hisp.dhis.datavalue.DataExportParams;
@@ -162,11 +163,10 @@ public class DataValidationTaskTest
         DeflatedDataValue ddv = new DeflatedDataValue(dv);
         deflatedDataValues.add(ddv);
 
-        when( dataValueService.getDeflatedDataValues( any( DataExportParams.class ) ) )
-            .thenReturn( deflatedDataValues );
+        mockDataValueService( deflatedDataValues );
 
-        Map<DimensionalItemObject, Double> vals = new HashMap<>();
-        vals.put( deA, 12.4 );
+        Map<String, Double> vals = new HashMap<>();
+        vals.put( deA.getUid(), 12.4 );
 
         mockExpressionService(leftExpression, vals, ctx, 8.4);
         mockExpressionService(rightExpression, vals, ctx, -10.0);
@@ -205,8 +205,7 @@ public class DataValidationTaskTest
         List<DeflatedDataValue> deflatedDataValues = new ArrayList<>();
 
         // Return no values!
-        when( dataValueService.getDeflatedDataValues( any( DataExportParams.class ) ) )
-                .thenReturn( deflatedDataValues );
+        mockDataValueService( deflatedDataValues );
 
         subject.init( organisationUnits, ctx, analyticsService );
         subject.run();
@@ -216,15 +215,24 @@ public class DataValidationTaskTest
 
 
 
-    private void mockExpressionService(Expression expression, Map<DimensionalItemObject, Double> vals, ValidationRunContext ctx, Double val) {
+    @SuppressWarnings( "unchecked" )
+    private void mockDataValueService( List<DeflatedDataValue> deflatedDataValues )
+    {
+        doAnswer( invocation -> {
+            deflatedDataValues.forEach( invocation.getArgument( 1, Consumer.class ) );
+            return null;
+        } ).when( dataValueService ).getDeflatedDataValues( any( DataExportParams.class ), any( Consumer.class ) );
+    }
+
+    private void mockExpressionService(Expression expression, Map<String, Double> vals, ValidationRunContext ctx, Double val) {
 
-        when( expressionService.getExpressionValue( expression.getExpression(), VALIDATION_RULE_EXPRESSION, vals,
+        when( expressionService.getExpressionValueForItemIds( expression.getExpression(), VALIDATION_RULE_EXPRESSION, vals,
                 ctx.getConstantMap(), null, p1.getDaysInPeriod(), expression.getMissingValueStrategy() ) ).thenReturn( val );
 
-        when( expressionService.getExpressionValue( expression.getExpression(), VALIDATION_RULE_EXPRESSION, vals,
+        when( expressionService.getExpressionValueForItemIds( expression.getExpression(), VALIDATION_RULE_EXPRESSION, vals,
                 ctx.getConstantMap(), null, p2.getDaysInPeriod(), expression.getMissingValueStrategy() ) ).thenReturn( val );
 
-        when( expressionService.getExpressionValue( expression.getExpression(), VALIDATION_RULE_EXPRESSION, vals,
+        when( expressionService.getExpressionValueForItemIds( expression.getExpression(), VALIDATION_RULE_EXPRESSION, vals,
                 ctx.getConstantMap(), null, p3.getDaysInPeriod(), expression.getMissingValueStrategy() ) ).thenReturn( val );
     }
 
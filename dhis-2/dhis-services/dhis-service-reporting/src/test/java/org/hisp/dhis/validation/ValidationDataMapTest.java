@@ -0,0 +1,139 @@
+package org.hisp.dhis.validation;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.DhisConvenienceTest.createDataElement;
+import static org.hisp.dhis.validation.DataValidationTask.NON_AOC;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.hisp.dhis.dataelement.DataElement;
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+public class ValidationDataMapTest
+{
+    private static final long MONTH = 30L;
+
+    private static final long QUARTER = 90L;
+
+    private final DataElement deA = createDataElement( 'A' );
+
+    private final DataElement deB = createDataElement( 'B' );
+
+    @Test
+    public void testAddSumsSameInterval()
+    {
+        ValidationDataMap map = new ValidationDataMap();
+
+        map.add( 1L, "aocA", deA, 2.0, MONTH );
+        map.add( 1L, "aocA", deA, 3.0, MONTH );
+
+        assertEquals( 5.0, map.getValue( 1L, "aocA", deA.getUid() ), 0.0 );
+        assertEquals( 1, map.size() );
+    }
+
+    @Test
+    public void testAddPrefersShorterInterval()
+    {
+        ValidationDataMap map = new ValidationDataMap();
+
+        map.add( 1L, "aocA", deA, 9.0, QUARTER );
+        map.add( 1L, "aocA", deA, 2.0, MONTH );
+        map.add( 1L, "aocA", deA, 7.0, QUARTER );
+
+        assertEquals( 2.0, map.getValue( 1L, "aocA", deA.getUid() ), 0.0 );
+    }
+
+    @Test
+    public void testItemValueMapOverlaysNonAoc()
+    {
+        ValidationDataMap map = new ValidationDataMap();
+
+        map.put( 1L, "aocA", deA, 1.0 );
+        map.put( 1L, "aocA", deB, 2.0 );
+        map.put( 1L, NON_AOC, deB, 3.0 );
+        map.put( 2L, "aocB", deA, 4.0 );
+
+        assertEquals( Sets.newHashSet( "aocA", NON_AOC ), map.getAttributeOptionCombos( 1L ) );
+        assertFalse( map.hasOrgUnit( 3L ) );
+
+        Map<String, Double> values = map.getItemValueMap( 1L, "aocA" );
+
+        assertEquals( 1.0, values.get( deA.getUid() ), 0.0 );
+        assertEquals( 3.0, values.get( deB.getUid() ), 0.0 );
+        assertEquals( 2, values.size() );
+        assertNull( map.getItemValueMap( 2L, "aocA" ).get( deA.getUid() ) );
+    }
+
+    @Test
+    public void testPutAllAndResize()
+    {
+        ValidationDataMap source = new ValidationDataMap();
+
+        for ( long ou = 0; ou < 5000; ou++ )
+        {
+            source.put( ou, "aocA", deA, ou );
+        }
+
+        ValidationDataMap target = new ValidationDataMap();
+        target.put( 7L, "aocA", deA, -1.0 );
+        target.put( 7L, "aocA", deB, 8.0 );
+        target.putAll( source );
+
+        assertEquals( 5001, target.size() );
+        assertEquals( 7.0, target.getValue( 7L, "aocA", deA.getUid() ), 0.0 );
+        assertEquals( 8.0, target.getValue( 7L, "aocA", deB.getUid() ), 0.0 );
+        assertEquals( 4999.0, target.getValue( 4999L, "aocA", deA.getUid() ), 0.0 );
+        assertTrue( target.hasOrgUnit( 4999L ) );
+    }
+
+    @Test
+    public void testPutAllMapsOrgUnitIds()
+    {
+        ValidationDataMap source = new ValidationDataMap();
+        source.put( 42L, "aocA", deA, 1.0 );
+        source.put( 17L, "aocB", deB, 2.0 );
+
+        ValidationDataMap target = new ValidationDataMap();
+        target.put( 17L, "aocA", deA, 3.0 );
+        target.putAll( source );
+
+        assertEquals( 3, target.size() );
+        assertEquals( 1.0, target.getValue( 42L, "aocA", deA.getUid() ), 0.0 );
+        assertEquals( 2.0, target.getValue( 17L, "aocB", deB.getUid() ), 0.0 );
+        assertEquals( 3.0, target.getValue( 17L, "aocA", deA.getUid() ), 0.0 );
+        assertNull( target.getValue( 0L, "aocA", deA.getUid() ) );
+    }
+}
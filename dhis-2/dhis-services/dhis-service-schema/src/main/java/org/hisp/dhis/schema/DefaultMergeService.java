@@ -81,8 +81,8 @@ public class DefaultMergeService implements MergeService
 
             if ( property.isCollection() )
             {
-                Collection<T> sourceObject = ReflectionUtils.invokeMethod( source, property.getGetterMethod() );
-                Collection<T> targetObject = ReflectionUtils.invokeMethod( target, property.getGetterMethod() );
+                Collection<T> sourceObject = ReflectionUtils.getPropertyValue( source, property );
+                Collection<T> targetObject = ReflectionUtils.getPropertyValue( target, property );
 
                 if ( sourceObject == null )
                 {
@@ -109,15 +109,15 @@ public class DefaultMergeService implements MergeService
                     targetObject.addAll( sourceObject );
                 }
 
-                ReflectionUtils.invokeMethod( target, property.getSetterMethod(), targetObject );
+                ReflectionUtils.setPropertyValue( target, property, targetObject );
             }
             else
             {
-                Object sourceObject = ReflectionUtils.invokeMethod( source, property.getGetterMethod() );
+                Object sourceObject = ReflectionUtils.getPropertyValue( source, property );
 
                 if ( mergeParams.getMergeMode().isReplace() || ( mergeParams.getMergeMode().isMerge() && sourceObject != null ) )
                 {
-                    ReflectionUtils.invokeMethod( target, property.getSetterMethod(), sourceObject );
+                    ReflectionUtils.setPropertyValue( target, property, sourceObject );
                 }
             }
         }
@@ -231,6 +231,7 @@ public class DefaultSchemaService
             pluralSchemaMap.put( schema.getPlural(), schema );
 
             updateSelf( schema );
+            generateAccessors( schema );
 
             schema.getPersistedProperties();
             schema.getNonPersistedProperties();
@@ -286,6 +287,7 @@ public class DefaultSchemaService
         schema.setPropertyMap( new HashMap<>( propertyIntrospectorService.getPropertiesMap( schema.getKlass() ) ) );
 
         updateSelf( schema );
+        generateAccessors( schema );
 
         dynamicClassSchemaMap.put( klass, schema );
 
@@ -367,6 +369,11 @@ public class DefaultSchemaService
         }
     }
 
+    private void generateAccessors( Schema schema )
+    {
+        schema.getProperties().forEach( PropertyAccessors::generate );
+    }
+
     private String beautify( Schema schema )
     {
         String[] camelCaseWords = org.apache.commons.lang3.StringUtils.capitalize( schema.getPlural() ).split( "(?=[A-Z])" );
@@ -0,0 +1,163 @@
+package org.hisp.dhis.schema;
+
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import com.google.common.primitives.Primitives;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Generates accessors for the getter and setter methods of a {@link Property}
+ * through {@link LambdaMetafactory}. Generated accessors are invoked like
+ * regular method calls, avoiding the cost of reflective dispatch.
+ * <p>
+ * Only public, non-static methods declared by public classes are generated,
+ * other methods are left to reflection.
+ */
+@Slf4j
+public final class PropertyAccessors
+{
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private PropertyAccessors()
+    {
+    }
+
+    /**
+     * Generates the getter and setter accessors of the property, unless
+     * already generated or the methods are not accessible.
+     *
+     * @param property the property.
+     */
+    public static void generate( Property property )
+    {
+        if ( property.getGetter() == null && isAccessible( property.getGetterMethod(), 0 ) )
+        {
+            property.setGetter( createGetter( property.getGetterMethod() ) );
+        }
+
+        if ( property.getSetter() == null && isAccessible( property.getSetterMethod(), 1 ) )
+        {
+            property.setSetter( createSetter( property.getSetterMethod() ) );
+        }
+    }
+
+    /**
+     * Creates a function invoking the given getter method, or returns null if
+     * the method handle could not be linked.
+     *
+     * @param method the getter method.
+     */
+    @SuppressWarnings( "unchecked" )
+    public static Function<Object, Object> createGetter( Method method )
+    {
+        try
+        {
+            MethodHandle handle = LOOKUP.unreflect( method );
+
+            CallSite site = LambdaMetafactory.metafactory( LOOKUP, "apply",
+                MethodType.methodType( Function.class ),
+                MethodType.methodType( Object.class, Object.class ), handle,
+                MethodType.methodType( Primitives.wrap( method.getReturnType() ), method.getDeclaringClass() ) );
+
+            return (Function<Object, Object>) site.getTarget().invoke();
+        }
+        catch ( Throwable ex )
+        {
+            log.debug( "Could not generate getter for method: " + method, ex );
+            return null;
+        }
+    }
+
+    /**
+     * Creates a consumer invoking the given setter method, or returns null if
+     * the method handle could not be linked. Setting null through a setter
+     * with a primitive parameter throws an {@link IllegalArgumentException},
+     * as does reflective invocation.
+     *
+     * @param method the setter method.
+     */
+    @SuppressWarnings( "unchecked" )
+    public static BiConsumer<Object, Object> createSetter( Method method )
+    {
+        Class<?> parameterType = method.getParameterTypes()[0];
+
+        try
+        {
+            MethodHandle handle = LOOKUP.unreflect( method );
+
+            CallSite site = LambdaMetafactory.metafactory( LOOKUP, "accept",
+                MethodType.methodType( BiConsumer.class ),
+                MethodType.methodType( void.class, Object.class, Object.class ), handle,
+                MethodType.methodType( void.class, method.getDeclaringClass(), Primitives.wrap( parameterType ) ) );
+
+            BiConsumer<Object, Object> setter = (BiConsumer<Object, Object>) site.getTarget().invoke();
+
+            if ( !parameterType.isPrimitive() )
+            {
+                return setter;
+            }
+
+            return ( target, value ) -> {
+                if ( value == null )
+                {
+                    throw new IllegalArgumentException( "Cannot set null on primitive property: " + method );
+                }
+
+                setter.accept( target, value );
+            };
+        }
+        catch ( Throwable ex )
+        {
+            log.debug( "Could not generate setter for method: " + method, ex );
+            return null;
+        }
+    }
+
+    private static boolean isAccessible( Method method, int parameterCount )
+    {
+        return method != null
+            && method.getParameterCount() == parameterCount
+            && !(parameterCount == 0 && method.getReturnType() == void.class)
+            && Modifier.isPublic( method.getModifiers() )
+            && !Modifier.isStatic( method.getModifiers() )
+            && Modifier.isPublic( method.getDeclaringClass().getModifiers() );
+    }
+}
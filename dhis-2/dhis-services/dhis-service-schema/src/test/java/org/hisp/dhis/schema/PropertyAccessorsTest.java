@@ -0,0 +1,139 @@
+package org.hisp.dhis.schema;
+
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.hisp.dhis.category.CategoryOption;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.system.util.ReflectionUtils;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link PropertyAccessors}.
+ */
+public class PropertyAccessorsTest
+{
+    @Test
+    public void generateObjectAccessors() throws Exception
+    {
+        Property property = new Property( String.class, DataElement.class.getMethod( "getName" ),
+            DataElement.class.getMethod( "setName", String.class ) );
+
+        PropertyAccessors.generate( property );
+
+        assertNotNull( property.getGetter() );
+        assertNotNull( property.getSetter() );
+
+        DataElement dataElement = new DataElement();
+        ReflectionUtils.setPropertyValue( dataElement, property, "Name A" );
+
+        assertEquals( "Name A", dataElement.getName() );
+        assertEquals( "Name A", ReflectionUtils.getPropertyValue( dataElement, property ) );
+
+        ReflectionUtils.setPropertyValue( dataElement, property, null );
+
+        assertNull( dataElement.getName() );
+    }
+
+    @Test
+    public void generatePrimitiveAccessors() throws Exception
+    {
+        Property property = new Property( Boolean.class, DataElement.class.getMethod( "isZeroIsSignificant" ),
+            DataElement.class.getMethod( "setZeroIsSignificant", boolean.class ) );
+
+        PropertyAccessors.generate( property );
+
+        DataElement dataElement = new DataElement();
+        ReflectionUtils.setPropertyValue( dataElement, property, true );
+
+        assertTrue( dataElement.isZeroIsSignificant() );
+        assertEquals( Boolean.TRUE, ReflectionUtils.getPropertyValue( dataElement, property ) );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void setNullOnPrimitive() throws Exception
+    {
+        Property property = new Property( Boolean.class, DataElement.class.getMethod( "isZeroIsSignificant" ),
+            DataElement.class.getMethod( "setZeroIsSignificant", boolean.class ) );
+
+        PropertyAccessors.generate( property );
+
+        ReflectionUtils.setPropertyValue( new DataElement(), property, null );
+    }
+
+    @Test
+    public void generateInheritedAccessors() throws Exception
+    {
+        Property property = new Property( String.class, CategoryOption.class.getMethod( "getUid" ),
+            CategoryOption.class.getMethod( "setUid", String.class ) );
+
+        PropertyAccessors.generate( property );
+
+        CategoryOption categoryOption = new CategoryOption();
+        ReflectionUtils.setPropertyValue( categoryOption, property, "abc1" );
+
+        assertEquals( "abc1", ReflectionUtils.getPropertyValue( categoryOption, property ) );
+    }
+
+    @Test
+    public void skipNonPublicClass() throws Exception
+    {
+        Property property = new Property( String.class, Hidden.class.getMethod( "getValue" ), null );
+
+        PropertyAccessors.generate( property );
+
+        assertNull( property.getGetter() );
+        assertNull( property.getSetter() );
+    }
+
+    @Test
+    public void resetOnMethodChange() throws Exception
+    {
+        Property property = new Property( String.class, DataElement.class.getMethod( "getName" ), null );
+
+        PropertyAccessors.generate( property );
+        assertNotNull( property.getGetter() );
+
+        property.setGetterMethod( DataElement.class.getMethod( "getCode" ) );
+        assertNull( property.getGetter() );
+    }
+
+    static class Hidden
+    {
+        public String getValue()
+        {
+            return "value";
+        }
+    }
+}
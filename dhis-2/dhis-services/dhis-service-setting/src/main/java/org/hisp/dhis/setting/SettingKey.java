@@ -117,6 +117,9 @@ public enum SettingKey
     SKIP_SYNCHRONIZATION_FOR_DATA_CHANGED_BEFORE( "syncSkipSyncForDataChangedBefore", new Date( 0 ), Date.class ),
     LAST_SUCCESSFUL_ANALYTICS_TABLES_UPDATE( "keyLastSuccessfulAnalyticsTablesUpdate", Date.class ),
     LAST_SUCCESSFUL_LATEST_ANALYTICS_PARTITION_UPDATE( "keyLastSuccessfulLatestAnalyticsPartitionUpdate", Date.class ),
+    LAST_SUCCESSFUL_INCREMENTAL_ANALYTICS_TABLE_UPDATE( "keyLastSuccessfulIncrementalAnalyticsTableUpdate", Date.class ),
+    LAST_SUCCESSFUL_INCREMENTAL_EVENT_ANALYTICS_TABLE_UPDATE( "keyLastSuccessfulIncrementalEventAnalyticsTableUpdate", Date.class ),
+    ANALYTICS_TABLE_UPDATE_RESUME_START_TIME( "keyAnalyticsTableUpdateResumeStartTime", Date.class ),
     LAST_SUCCESSFUL_RESOURCE_TABLES_UPDATE( "keyLastSuccessfulResourceTablesUpdate", Date.class ),
     LAST_SUCCESSFUL_SYSTEM_MONITORING_PUSH( "keyLastSuccessfulSystemMonitoringPush", Date.class ),
     LAST_SUCCESSFUL_MONITORING( "keyLastSuccessfulMonitoring", Date.class ),
@@ -178,7 +181,13 @@ public enum SettingKey
     /**
      * The caching strategy enabled
      */
-    ANALYTICS_CACHE_TTL_MODE( "keyAnalyticsCacheTtlMode", AnalyticsCacheTtlMode.FIXED, AnalyticsCacheTtlMode.class );
+    ANALYTICS_CACHE_TTL_MODE( "keyAnalyticsCacheTtlMode", AnalyticsCacheTtlMode.FIXED, AnalyticsCacheTtlMode.class ),
+
+    /**
+     * Number of seconds an expired analytics response is still served while a
+     * single background refresh of it is running. Zero disables the window.
+     */
+    ANALYTICS_CACHE_STALE_WHILE_REVALIDATE_TTL( "keyAnalyticsCacheStaleWhileRevalidateTtl", 0, Integer.class );
 
     private final String name;
 
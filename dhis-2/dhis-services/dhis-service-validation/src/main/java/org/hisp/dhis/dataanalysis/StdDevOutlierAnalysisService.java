@@ -31,16 +31,27 @@ package org.hisp.dhis.dataanalysis;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
 import org.hisp.dhis.category.CategoryOptionCombo;
-import org.hisp.dhis.common.MapMap;
+import org.hisp.dhis.commons.util.SystemUtils;
 import org.hisp.dhis.dataelement.DataElement;
 import org.hisp.dhis.datavalue.DeflatedDataValue;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.period.Period;
-import org.hisp.dhis.system.util.MathUtils;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.google.common.collect.Lists;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -52,6 +63,19 @@ import lombok.extern.slf4j.Slf4j;
 public class StdDevOutlierAnalysisService
     implements DataAnalysisService
 {
+    /**
+     * Number of data elements to analyse in a single query.
+     */
+    private static final int BATCH_SIZE = 50;
+
+    /**
+     * Max number of queries to run in parallel, kept low to leave database
+     * connections for other requests.
+     */
+    private static final int MAX_PARALLELISM = 4;
+
+    private ExecutorService executor;
+
     // -------------------------------------------------------------------------
     // Dependencies
     // -------------------------------------------------------------------------
@@ -64,6 +88,24 @@ public class StdDevOutlierAnalysisService
         this.dataAnalysisStore = dataAnalysisStore;
     }
 
+    @PostConstruct
+    public void init()
+    {
+        int parallelism = Math.max( 1, Math.min( MAX_PARALLELISM, SystemUtils.getCpuCores() / 2 ) );
+
+        executor = Executors.newFixedThreadPool( parallelism, r -> {
+            Thread thread = new Thread( r, "OUTLIER-ANALYSIS" );
+            thread.setDaemon( true );
+            return thread;
+        } );
+    }
+
+    @PreDestroy
+    public void destroy()
+    {
+        executor.shutdownNow();
+    }
+
     // -------------------------------------------------------------------------
     // DataAnalysisService implementation
     // -------------------------------------------------------------------------
@@ -72,49 +114,97 @@ public class StdDevOutlierAnalysisService
     public final List<DeflatedDataValue> analyse( Collection<OrganisationUnit> parents,
         Collection<DataElement> dataElements, Collection<Period> periods, Double stdDevFactor, Date from )
     {
-        log.info( "Starting std dev analysis, no of org units: " + parents.size() + ", factor: " + stdDevFactor + ", from: " + from );
+        return analyse( parents, dataElements, periods, stdDevFactor, from, OutlierDetectionAlgorithm.Z_SCORE );
+    }
+
+    /**
+     * Finds outlier data values with the given algorithm. Data elements are
+     * grouped by their category option combos and analysed in batches, each
+     * with a single query, and batches are run in parallel.
+     *
+     * @param parents the parent organisation units.
+     * @param dataElements the data elements.
+     * @param periods the periods to find outliers for.
+     * @param stdDevFactor the number of deviations from the middle value to allow.
+     * @param from the from date for which to include data values in the measures.
+     * @param algorithm the outlier detection algorithm.
+     * @return a list of outlier data values.
+     */
+    public List<DeflatedDataValue> analyse( Collection<OrganisationUnit> parents,
+        Collection<DataElement> dataElements, Collection<Period> periods, Double stdDevFactor, Date from,
+        OutlierDetectionAlgorithm algorithm )
+    {
+        log.info( "Starting outlier analysis, no of org units: " + parents.size() + ", factor: " + stdDevFactor +
+            ", from: " + from + ", algorithm: " + algorithm );
 
         List<DeflatedDataValue> outlierCollection = new ArrayList<>();
 
+        if ( stdDevFactor == null )
+        {
+            return outlierCollection;
+        }
+
         List<String> parentsPaths = parents.stream().map( OrganisationUnit::getPath ).collect( Collectors.toList() );
 
-        loop : for ( DataElement dataElement : dataElements )
-        {
-            // TODO filter periods with data element period type
+        // TODO filter periods with data element period type
 
-            if ( dataElement.getValueType().isNumeric() && stdDevFactor != null )
-            {
-                Set<CategoryOptionCombo> categoryOptionCombos = dataElement.getCategoryOptionCombos();
+        Map<Set<CategoryOptionCombo>, List<DataElement>> dataElementsByCategoryOptionCombos = dataElements.stream()
+            .filter( de -> de.getValueType().isNumeric() )
+            .collect( Collectors.groupingBy( DataElement::getCategoryOptionCombos ) );
 
-                List<DataAnalysisMeasures> measuresList = dataAnalysisStore.getDataAnalysisMeasures( dataElement, categoryOptionCombos, parentsPaths, from );
+        List<Supplier<List<DeflatedDataValue>>> tasks = new ArrayList<>();
 
-                MapMap<Long, Long, Integer> lowBoundMapMap = new MapMap<>(); // catOptionComboId, orgUnitId, lowBound
-                MapMap<Long, Long, Integer> highBoundMapMap = new MapMap<>(); // catOptionComboId, orgUnitId, highBound
+        dataElementsByCategoryOptionCombos.forEach( ( categoryOptionCombos, elements ) -> {
+            for ( List<DataElement> batch : Lists.partition( elements, BATCH_SIZE ) )
+            {
+                tasks.add( () -> dataAnalysisStore.getOutlierDataValues( batch, categoryOptionCombos, periods,
+                    parentsPaths, from, stdDevFactor, algorithm, MAX_OUTLIERS + 1 ) );
+            }
+        } );
 
-                for ( DataAnalysisMeasures measures : measuresList )
+        try
+        {
+            // Queries run on other threads would not see data of the transaction of this thread
+
+            if ( tasks.size() == 1 || TransactionSynchronizationManager.isActualTransactionActive() )
+            {
+                for ( Supplier<List<DeflatedDataValue>> task : tasks )
                 {
-                    int lowBound = (int) Math.round( MathUtils.getLowBound( measures.getStandardDeviation(), stdDevFactor, measures.getAverage() ) );
-                    int highBound = (int) Math.round( MathUtils.getHighBound( measures.getStandardDeviation(), stdDevFactor, measures.getAverage() ) );
+                    outlierCollection.addAll( task.get() );
 
-                    lowBoundMapMap.putEntry( measures.getCategoryOptionComboId(), measures.getOrgUnitId(), lowBound );
-                    highBoundMapMap.putEntry( measures.getCategoryOptionComboId(), measures.getOrgUnitId(), highBound );
+                    if ( outlierCollection.size() > MAX_OUTLIERS )
+                    {
+                        break;
+                    }
                 }
+            }
+            else
+            {
+                List<Callable<List<DeflatedDataValue>>> callables = tasks.stream()
+                    .map( task -> (Callable<List<DeflatedDataValue>>) task::get )
+                    .collect( Collectors.toList() );
 
-                for ( CategoryOptionCombo categoryOptionCombo : categoryOptionCombos )
+                for ( Future<List<DeflatedDataValue>> future : executor.invokeAll( callables ) )
                 {
-                    Map<Long, Integer> lowBoundMap = lowBoundMapMap.get( categoryOptionCombo.getId() );
-                    Map<Long, Integer> highBoundMap = highBoundMapMap.get( categoryOptionCombo.getId() );
-
-                    outlierCollection.addAll( dataAnalysisStore.getDeflatedDataValues( dataElement, categoryOptionCombo, periods,
-                        lowBoundMap, highBoundMap ) );
+                    outlierCollection.addAll( future.get() );
 
                     if ( outlierCollection.size() > MAX_OUTLIERS )
                     {
-                        break loop;
+                        break;
                     }
                 }
             }
         }
+        catch ( InterruptedException ex )
+        {
+            Thread.currentThread().interrupt();
+
+            throw new IllegalStateException( "Outlier analysis was interrupted", ex );
+        }
+        catch ( ExecutionException ex )
+        {
+            throw new IllegalStateException( "Outlier analysis failed", ex.getCause() );
+        }
 
         return outlierCollection;
     }
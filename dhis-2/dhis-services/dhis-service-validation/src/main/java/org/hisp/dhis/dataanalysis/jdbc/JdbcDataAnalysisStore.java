@@ -41,6 +41,7 @@ import org.hisp.dhis.commons.collection.PaginatedList;
 import org.hisp.dhis.commons.util.TextUtils;
 import org.hisp.dhis.dataanalysis.DataAnalysisMeasures;
 import org.hisp.dhis.dataanalysis.DataAnalysisStore;
+import org.hisp.dhis.dataanalysis.OutlierDetectionAlgorithm;
 import org.hisp.dhis.dataelement.DataElement;
 import org.hisp.dhis.datavalue.DeflatedDataValue;
 import org.hisp.dhis.jdbc.StatementBuilder;
@@ -66,6 +67,12 @@ public class JdbcDataAnalysisStore implements DataAnalysisStore
     // Dependencies
     // -------------------------------------------------------------------------
 
+    /**
+     * Scales the median absolute deviation to estimate the standard deviation
+     * of normally distributed data.
+     */
+    private static final double MAD_SCALE_FACTOR = 1.4826;
+
     private final StatementBuilder statementBuilder;
 
     /**
@@ -135,6 +142,47 @@ public class JdbcDataAnalysisStore implements DataAnalysisStore
         return measures;
     }
 
+    @Override
+    public List<DeflatedDataValue> getOutlierDataValues( Collection<DataElement> dataElements,
+        Collection<CategoryOptionCombo> categoryOptionCombos, Collection<Period> periods,
+        Collection<String> parentPaths, Date from, double factor, OutlierDetectionAlgorithm algorithm, int limit )
+    {
+        if ( dataElements.isEmpty() || categoryOptionCombos.isEmpty() || periods.isEmpty() || parentPaths.isEmpty() )
+        {
+            return new ArrayList<>();
+        }
+
+        String value = "cast( dv.value as " + statementBuilder.getDoubleColumnType() + " )";
+
+        String measuresSql = OutlierDetectionAlgorithm.MOD_Z_SCORE == algorithm ?
+            getMedianAbsoluteDeviationSql( dataElements, categoryOptionCombos, parentPaths, from, value ) :
+            getStandardDeviationSql( dataElements, categoryOptionCombos, parentPaths, from, value );
+
+        String sql = "select dv.dataelementid, dv.periodid, dv.sourceid, dv.categoryoptioncomboid, dv.attributeoptioncomboid, dv.value, dv.storedby, dv.lastupdated, "
+            + "dv.created, dv.comment, dv.followup, ou.name as sourcename, de.name as dataelementname, "
+            + "pt.name as periodtypename, pe.startdate, pe.enddate, coc.name as categoryoptioncomboname, bo.minimumvalue, bo.maximumvalue "
+            + "from datavalue dv "
+            + "join ("
+            + "select ms.dataelementid, ms.sourceid, ms.categoryoptioncomboid, "
+            + "floor( ms.middle - ms.spread * " + factor + " + 0.5 ) as minimumvalue, "
+            + "floor( ms.middle + ms.spread * " + factor + " + 0.5 ) as maximumvalue "
+            + "from (" + measuresSql + ") as ms "
+            + "where ms.spread != 0"
+            + ") as bo on ( dv.dataelementid = bo.dataelementid and dv.sourceid = bo.sourceid and dv.categoryoptioncomboid = bo.categoryoptioncomboid ) "
+            + "join dataelement de on dv.dataelementid = de.dataelementid "
+            + "join period pe on dv.periodid = pe.periodid "
+            + "join periodtype pt on pe.periodtypeid = pt.periodtypeid "
+            + "join organisationunit ou on dv.sourceid = ou.organisationunitid "
+            + "join categoryoptioncombo coc on dv.categoryoptioncomboid = coc.categoryoptioncomboid "
+            + "where dv.periodid in (" + getCommaDelimitedString( getIdentifiers( periods ) ) + ") "
+            + "and ( " + value + " < bo.minimumvalue or " + value + " > bo.maximumvalue ) "
+            + "and dv.deleted is false ";
+
+        sql += statementBuilder.limitRecord( 0, limit );
+
+        return jdbcTemplate.query( sql, new DeflatedDataValueNameMinMaxRowMapper( null, null ) );
+    }
+
     @Override
     public List<DeflatedDataValue> getMinMaxViolations( Collection<DataElement> dataElements,
         Collection<CategoryOptionCombo> categoryOptionCombos, Collection<Period> periods,
@@ -279,4 +327,68 @@ public class JdbcDataAnalysisStore implements DataAnalysisStore
 
         return jdbcTemplate.query( sql, new DeflatedDataValueNameMinMaxRowMapper( null, null ) );
     }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns SQL selecting the mean as middle value and the standard deviation
+     * as spread for each data element, organisation unit and category option
+     * combo.
+     */
+    private String getStandardDeviationSql( Collection<DataElement> dataElements,
+        Collection<CategoryOptionCombo> categoryOptionCombos, Collection<String> parentPaths, Date from, String value )
+    {
+        return "select dv.dataelementid, dv.sourceid, dv.categoryoptioncomboid, "
+            + "avg( " + value + " ) as middle, stddev_pop( " + value + " ) as spread "
+            + getMeasuresFromSql( dataElements, categoryOptionCombos, parentPaths, from, "" )
+            + "group by dv.dataelementid, dv.sourceid, dv.categoryoptioncomboid";
+    }
+
+    /**
+     * Returns SQL selecting the median as middle value and the median absolute
+     * deviation, scaled to be consistent with the standard deviation of normally
+     * distributed data, as spread for each data element, organisation unit and
+     * category option combo.
+     */
+    private String getMedianAbsoluteDeviationSql( Collection<DataElement> dataElements,
+        Collection<CategoryOptionCombo> categoryOptionCombos, Collection<String> parentPaths, Date from, String value )
+    {
+        String medianSql = "select dv.dataelementid, dv.sourceid, dv.categoryoptioncomboid, "
+            + "percentile_cont( 0.5 ) within group ( order by " + value + " ) as middle "
+            + getMeasuresFromSql( dataElements, categoryOptionCombos, parentPaths, from, "" )
+            + "group by dv.dataelementid, dv.sourceid, dv.categoryoptioncomboid";
+
+        return "select md.dataelementid, md.sourceid, md.categoryoptioncomboid, md.middle, "
+            + MAD_SCALE_FACTOR + " * percentile_cont( 0.5 ) within group ( order by abs( " + value + " - md.middle ) ) as spread "
+            + getMeasuresFromSql( dataElements, categoryOptionCombos, parentPaths, from,
+                "join (" + medianSql + ") as md on ( dv.dataelementid = md.dataelementid "
+                + "and dv.sourceid = md.sourceid and dv.categoryoptioncomboid = md.categoryoptioncomboid ) " )
+            + "group by md.dataelementid, md.sourceid, md.categoryoptioncomboid, md.middle";
+    }
+
+    /**
+     * Returns the from and where clauses for the data values to compute
+     * measures from, with the given additional join clause.
+     */
+    private String getMeasuresFromSql( Collection<DataElement> dataElements,
+        Collection<CategoryOptionCombo> categoryOptionCombos, Collection<String> parentPaths, Date from, String join )
+    {
+        String sql = "from datavalue dv "
+            + "join organisationunit ou on ou.organisationunitid = dv.sourceid "
+            + "join period pe on dv.periodid = pe.periodid "
+            + join
+            + "where dv.dataelementid in (" + getCommaDelimitedString( getIdentifiers( dataElements ) ) + ") "
+            + "and dv.categoryoptioncomboid in (" + getCommaDelimitedString( getIdentifiers( categoryOptionCombos ) ) + ") "
+            + "and pe.startdate >= '" + DateUtils.getMediumDateString( from ) + "' "
+            + "and (";
+
+        for ( String path : parentPaths )
+        {
+            sql += "ou.path like '" + path + "%' or ";
+        }
+
+        return TextUtils.removeLastOr( sql ) + ") and dv.deleted is false ";
+    }
 }
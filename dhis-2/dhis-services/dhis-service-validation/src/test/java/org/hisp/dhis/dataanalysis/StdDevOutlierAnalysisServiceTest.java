@@ -219,4 +219,35 @@ public class StdDevOutlierAnalysisServiceTest extends DhisSpringTest
         assertTrue( values.contains( valueA ) );
         assertFalse( values.contains( valueB ) );
     }
+
+    @Test
+    public void testGetFindOutliersModifiedZScore()
+    {
+        dataValueA = createDataValue( dataElementSingleQuoteName, periodI, organisationUnitA, "71",
+            categoryOptionCombo );
+
+        DataValue dataValueC = createDataValue( dataElementSingleQuoteName, periodA, organisationUnitA, "5",
+            categoryOptionCombo );
+
+        dataValueService.addDataValue( dataValueC );
+        dataValueService.addDataValue(
+            createDataValue( dataElementSingleQuoteName, periodB, organisationUnitA, "6", categoryOptionCombo ) );
+        dataValueService.addDataValue(
+            createDataValue( dataElementSingleQuoteName, periodC, organisationUnitA, "7", categoryOptionCombo ) );
+        dataValueService.addDataValue(
+            createDataValue( dataElementSingleQuoteName, periodD, organisationUnitA, "8", categoryOptionCombo ) );
+        dataValueService.addDataValue(
+            createDataValue( dataElementSingleQuoteName, periodE, organisationUnitA, "9", categoryOptionCombo ) );
+        dataValueService.addDataValue( dataValueA );
+
+        List<Period> periods = Lists.newArrayList( periodA, periodI );
+
+        List<DeflatedDataValue> values = ((StdDevOutlierAnalysisService) stdDevOutlierAnalysisService).analyse(
+            Lists.newArrayList( organisationUnitA ), dataElementsA, periods, 3.0, from,
+            OutlierDetectionAlgorithm.MOD_Z_SCORE );
+
+        assertEquals( 1, values.size() );
+        assertTrue( values.contains( new DeflatedDataValue( dataValueA ) ) );
+        assertFalse( values.contains( new DeflatedDataValue( dataValueC ) ) );
+    }
 }
@@ -31,7 +31,9 @@ package org.hisp.dhis.artemis.audit;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Set;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.DelayQueue;
 
 import org.springframework.scheduling.annotation.Scheduled;
@@ -52,6 +54,12 @@ public class AuditScheduler
 
     private final BlockingQueue<QueuedAudit> delayed = new DelayQueue<>();
 
+    /**
+     * Keys of the audits currently held in the delayed queue, used to skip
+     * duplicates without scanning the queue.
+     */
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
     public AuditScheduler( AuditProducerSupplier auditProducerSupplier )
     {
         this.auditProducerSupplier = auditProducerSupplier;
@@ -63,14 +71,21 @@ public class AuditScheduler
         {
             log.debug( String.format( "add Audit object with content %s to delayed queue", auditItem.toLog() ) );
         }
-        final QueuedAudit postponed = new QueuedAudit( auditItem, delay );
 
-        if ( !delayed.contains( postponed ) )
+        if ( auditItem.getUid() == null || pending.add( getKey( auditItem ) ) )
         {
-            delayed.offer( postponed );
+            delayed.offer( new QueuedAudit( auditItem, delay ) );
         }
     }
 
+    /**
+     * Returns the number of audits waiting in the delayed queue.
+     */
+    public int getQueueSize()
+    {
+        return delayed.size();
+    }
+
     @Scheduled( fixedDelay = 30_000 ) // TODO this value should come from configuration
     public void process()
     {
@@ -78,6 +93,23 @@ public class AuditScheduler
 
         delayed.drainTo( expired );
 
-        expired.stream().map( QueuedAudit::getAuditItem ).forEach( auditProducerSupplier::publish );
+        expired.stream().map( QueuedAudit::getAuditItem ).forEach( audit -> {
+            if ( audit.getUid() != null )
+            {
+                pending.remove( getKey( audit ) );
+            }
+
+            auditProducerSupplier.publish( audit );
+        } );
+    }
+
+    /**
+     * Returns the key identifying the audited object and operation of the
+     * given audit. The key does not depend on the audit data, which can be
+     * set after the audit is queued.
+     */
+    private static String getKey( Audit audit )
+    {
+        return audit.getKlass() + ":" + audit.getUid() + ":" + audit.getAuditType();
     }
 }
@@ -0,0 +1,101 @@
+package org.hisp.dhis.artemis.audit;
+
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.hisp.dhis.audit.AuditScope;
+import org.hisp.dhis.audit.AuditType;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import static org.junit.Assert.assertEquals;
+
+public class AuditSchedulerTest
+{
+    @Mock
+    private AuditProducerSupplier auditProducerSupplier;
+
+    @Rule
+    public MockitoRule rule = MockitoJUnit.rule();
+
+    private AuditScheduler auditScheduler;
+
+    @Before
+    public void setUp()
+    {
+        auditScheduler = new AuditScheduler( auditProducerSupplier );
+    }
+
+    @Test
+    public void testAddDuplicateAuditItem()
+    {
+        auditScheduler.addAuditItem( createAudit( "uidA" ) );
+        auditScheduler.addAuditItem( createAudit( "uidA" ) );
+        auditScheduler.addAuditItem( createAudit( "uidB" ) );
+
+        assertEquals( 2, auditScheduler.getQueueSize() );
+    }
+
+    @Test
+    public void testAddDuplicateAuditItemWithChangedData()
+    {
+        Audit audit = createAudit( "uidA" );
+
+        auditScheduler.addAuditItem( audit );
+
+        audit.setData( "{\"name\":\"A\"}" );
+
+        auditScheduler.addAuditItem( createAudit( "uidA" ) );
+
+        assertEquals( 1, auditScheduler.getQueueSize() );
+    }
+
+    @Test
+    public void testAddAuditItemWithoutUid()
+    {
+        auditScheduler.addAuditItem( createAudit( null ) );
+        auditScheduler.addAuditItem( createAudit( null ) );
+
+        assertEquals( 2, auditScheduler.getQueueSize() );
+    }
+
+    private Audit createAudit( String uid )
+    {
+        return Audit.builder()
+            .auditType( AuditType.UPDATE )
+            .auditScope( AuditScope.METADATA )
+            .klass( "org.hisp.dhis.dataelement.DataElement" )
+            .uid( uid )
+            .build();
+    }
+}
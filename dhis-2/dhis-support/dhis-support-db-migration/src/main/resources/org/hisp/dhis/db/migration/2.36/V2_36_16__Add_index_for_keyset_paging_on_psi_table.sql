@@ -0,0 +1,2 @@
+-- Supports keyset (cursor) paging of events ordered by last updated and id
+CREATE INDEX IF NOT EXISTS in_programstageinstance_lastupdated_id ON programstageinstance USING btree (lastupdated DESC, programstageinstanceid DESC);
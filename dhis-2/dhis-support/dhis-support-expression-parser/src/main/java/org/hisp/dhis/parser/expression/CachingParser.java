@@ -0,0 +1,154 @@
+package org.hisp.dhis.parser.expression;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.concurrent.TimeUnit;
+
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.ParseTreeListener;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import org.hisp.dhis.antlr.AntlrExpressionVisitor;
+import org.hisp.dhis.antlr.Parser;
+import org.hisp.dhis.cache.Cache;
+import org.hisp.dhis.cache.SimpleCacheBuilder;
+import org.hisp.dhis.parser.expression.antlr.ExpressionLexer;
+import org.hisp.dhis.parser.expression.antlr.ExpressionParser;
+
+/**
+ * Parses expressions once and visits the cached parse trees.
+ * <p>
+ * Expressions are evaluated many times with different values, for instance
+ * for every organisation unit and period in validation rule analysis,
+ * predictions and indicator calculations, and lexing and parsing costs more
+ * than visiting the resulting parse tree. Parse trees are cached by
+ * expression string, so that a changed expression of an indicator or
+ * validation rule is parsed afresh. Parse trees are not modified by visitors,
+ * so they can be visited concurrently.
+ * <p>
+ * Expressions with syntax errors are not cached, they are visited through
+ * {@link Parser} to raise the same errors.
+ */
+public class CachingParser
+{
+    private static final Cache<ParseTree> PARSE_TREE_CACHE = new SimpleCacheBuilder<ParseTree>()
+        .forRegion( "expressionParseTree" )
+        .expireAfterAccess( 1, TimeUnit.HOURS )
+        .withInitialCapacity( 1000 )
+        .withMaximumSize( 20000 )
+        .build();
+
+    private static final BaseErrorListener BAIL_ERROR_LISTENER = new BaseErrorListener()
+    {
+        @Override
+        public void syntaxError( Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
+            int charPositionInLine, String msg, RecognitionException e )
+        {
+            throw new ParseCancellationException( msg );
+        }
+    };
+
+    private CachingParser()
+    {
+    }
+
+    /**
+     * Visits an expression, parsing it only if not found in the cache.
+     *
+     * @param expression the expression.
+     * @param visitor the visitor.
+     * @return the result of visiting the expression.
+     */
+    public static Object visit( String expression, AntlrExpressionVisitor visitor )
+    {
+        ParseTree parseTree = PARSE_TREE_CACHE.get( expression, CachingParser::parse ).orElse( null );
+
+        return parseTree != null ? visitor.visit( parseTree ) : Parser.visit( expression, visitor );
+    }
+
+    /**
+     * Walks an expression with a listener, parsing it only if not found in the
+     * cache.
+     *
+     * @param expression the expression.
+     * @param listener the listener.
+     */
+    public static void listen( String expression, ParseTreeListener listener )
+    {
+        ParseTree parseTree = PARSE_TREE_CACHE.get( expression, CachingParser::parse ).orElse( null );
+
+        if ( parseTree != null )
+        {
+            ParseTreeWalker.DEFAULT.walk( listener, parseTree );
+        }
+        else
+        {
+            Parser.listen( expression, listener );
+        }
+    }
+
+    /**
+     * Removes all parse trees from the cache.
+     */
+    public static void invalidateAll()
+    {
+        PARSE_TREE_CACHE.invalidateAll();
+    }
+
+    /**
+     * Parses an expression.
+     *
+     * @param expression the expression.
+     * @return the parse tree, or null if the expression has syntax errors.
+     */
+    private static ParseTree parse( String expression )
+    {
+        ExpressionLexer lexer = new ExpressionLexer( CharStreams.fromString( expression ) );
+        lexer.removeErrorListeners();
+        lexer.addErrorListener( BAIL_ERROR_LISTENER );
+
+        ExpressionParser parser = new ExpressionParser( new CommonTokenStream( lexer ) );
+        parser.removeErrorListeners();
+        parser.addErrorListener( BAIL_ERROR_LISTENER );
+
+        try
+        {
+            return parser.expression();
+        }
+        catch ( ParseCancellationException ex )
+        {
+            return null;
+        }
+    }
+}
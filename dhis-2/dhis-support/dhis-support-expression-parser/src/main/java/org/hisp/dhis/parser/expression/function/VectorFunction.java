@@ -34,7 +34,8 @@ import org.hisp.dhis.parser.expression.ExpressionItem;
 import org.hisp.dhis.period.Period;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -90,7 +91,7 @@ public abstract class VectorFunction
 
         ExprContext lastExpr = ctx.expr().get( ctx.expr().size() - 1 );
 
-        List<Double> values = getSampleValues( lastExpr, visitor );
+        double[] values = getSampleValues( lastExpr, visitor );
 
         return vectorHandleNulls( aggregate( values, args ), visitor );
     }
@@ -113,18 +114,21 @@ public abstract class VectorFunction
     /**
      * Aggregates the values, using arguments (if any)
      *
-     * @param args the values to aggregate.
+     * @param values the values to aggregate (primitive array, which the
+     *        function may reorder).
      * @param args the arguments (if any) for aggregating the values.
      * @return the aggregated value.
      */
-    public abstract Object aggregate( List<Double> values, List<Double> args );
+    public abstract Object aggregate( double[] values, List<Double> args );
 
     /**
-     * Gets a list of sample values to aggregate.
+     * Gets an array of sample values to aggregate. Values are collected
+     * directly into a primitive array sized by the number of sample periods,
+     * so no boxed list is built for each evaluation.
      *
      * @param ctx the sample expression context
      * @param visitor the tree visitor
-     * @return the list of sample values
+     * @return the array of sample values
      *
      * The missingValueStrategy is handled as follows: for each sample expression
      * inside the aggregation function, if there are any sample values missing
@@ -138,13 +142,14 @@ public abstract class VectorFunction
      * incremented. This means that if the vector is empty, it counts as a
      * missing value in the main expression.
      */
-    private List<Double> getSampleValues( ExprContext ctx, CommonExpressionVisitor visitor )
+    private double[] getSampleValues( ExprContext ctx, CommonExpressionVisitor visitor )
     {
         int savedItemsFound = visitor.getItemsFound();
         int savedItemValuesFound = visitor.getItemValuesFound();
         Map<String, Double> savedItemValueMap = visitor.getItemValueMap();
 
-        List<Double> values = new ArrayList<>();
+        double[] values = new double[visitor.getSamplePeriods().size()];
+        int count = 0;
 
         for ( Period p : visitor.getSamplePeriods() )
         {
@@ -158,7 +163,7 @@ public abstract class VectorFunction
             }
             else // No samples found in this period:
             {
-                visitor.setItemValueMap( new HashMap<>() );
+                visitor.setItemValueMap( Collections.emptyMap() );
             }
 
             Double value = castDouble( visitor.visit( ctx ) );
@@ -171,7 +176,7 @@ public abstract class VectorFunction
 
             if ( value != null )
             {
-                values.add( value );
+                values[count++] = value;
             }
         }
 
@@ -179,7 +184,7 @@ public abstract class VectorFunction
         {
             savedItemsFound++;
 
-            if ( !values.isEmpty() )
+            if ( count != 0 )
             {
                 savedItemValuesFound++;
             }
@@ -189,6 +194,6 @@ public abstract class VectorFunction
         visitor.setItemValuesFound( savedItemValuesFound );
         visitor.setItemValueMap( savedItemValueMap );
 
-        return values;
+        return count == values.length ? values : Arrays.copyOf( values, count );
     }
 }
@@ -28,8 +28,6 @@ package org.hisp.dhis.parser.expression.function;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
-import org.apache.commons.lang3.ArrayUtils;
-
 import java.util.List;
 
 /**
@@ -41,9 +39,9 @@ public abstract class VectorFunctionDoubleArray
     extends VectorFunction
 {
     @Override
-    public final Object aggregate( List<Double> values, List<Double> args )
+    public final Object aggregate( double[] values, List<Double> args )
     {
-        return aggregate( ArrayUtils.toPrimitive( values.toArray( new Double[0] ) ) );
+        return aggregate( values );
     }
 
     /**
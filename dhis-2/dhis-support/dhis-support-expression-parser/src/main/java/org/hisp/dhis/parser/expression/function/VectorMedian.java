@@ -42,7 +42,7 @@ public class VectorMedian
     private static VectorPercentileCont percentileContinuous = new VectorPercentileCont();
 
     @Override
-    public Object aggregate( List<Double> values, List<Double> args )
+    public Object aggregate( double[] values, List<Double> args )
     {
         return percentileContinuous.aggregate( values, Arrays.asList( .5 ) );
     }
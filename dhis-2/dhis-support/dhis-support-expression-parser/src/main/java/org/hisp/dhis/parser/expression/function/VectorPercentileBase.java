@@ -28,11 +28,10 @@ package org.hisp.dhis.parser.expression.function;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
-import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.math3.stat.descriptive.rank.Percentile;
 import org.apache.commons.math3.stat.descriptive.rank.Percentile.EstimationType;
 
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -52,25 +51,23 @@ public abstract class VectorPercentileBase
     private final Percentile percentile = new Percentile().withEstimationType( getEstimationType() );
 
     @Override
-    public Object aggregate( List<Double> values, List<Double> args )
+    public Object aggregate( double[] values, List<Double> args )
     {
         Double fraction = args.get( 0 );
 
-        if ( values.size() == 0 || fraction == null || fraction < 0d || fraction > 1d )
+        if ( values.length == 0 || fraction == null || fraction < 0d || fraction > 1d )
         {
             return null;
         }
 
-        Collections.sort( values );
+        Arrays.sort( values );
 
         if ( fraction == 0d )
         {
-            return values.get( 0 );
+            return values[0];
         }
 
-        double[] vals = ArrayUtils.toPrimitive( values.toArray( new Double[0] ) );
-
-        return percentile.evaluate( vals, fraction * 100. );
+        return percentile.evaluate( values, fraction * 100. );
     }
 
     /**
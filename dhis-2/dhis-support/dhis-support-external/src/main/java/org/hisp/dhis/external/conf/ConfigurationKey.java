@@ -86,6 +86,7 @@ public enum ConfigurationKey
     PROGRAM_TEMPORARY_OWNERSHIP_TIMEOUT( "tracker.temporary.ownership.timeout", "3", false ),
     LEADER_TIME_TO_LIVE( "leader.time.to.live.minutes", "2", false ),
     ANALYTICS_CACHE_EXPIRATION( "analytics.cache.expiration", "0" ),
+    ANALYTICS_QUERY_TIMEOUT( "analytics.query.timeout", "0" ),
     ARTEMIS_MODE( "artemis.mode", "EMBEDDED" ),
     ARTEMIS_HOST( "artemis.host", "127.0.0.1" ),
     ARTEMIS_PORT( "artemis.port", "25672" ),
@@ -117,6 +118,10 @@ public enum ConfigurationKey
     AUDIT_METADATA_MATRIX( "audit.metadata", "", false ),
     AUDIT_TRACKER_MATRIX( "audit.tracker", "", false ),
     AUDIT_AGGREGATE_MATRIX( "audit.aggregate", "", false ),
+    // Queued audits are acknowledged before they are written and lost on abrupt shutdown
+    AUDIT_CONSUMER_BATCH_ENABLED( "audit.consumer.batch.enabled", Constants.OFF, false ),
+    AUDIT_CONSUMER_BATCH_SIZE( "audit.consumer.batch.size", "500", false ),
+    AUDIT_CONSUMER_BATCH_WINDOW( "audit.consumer.batch.window", "1000", false ),
     OIDC_OAUTH2_LOGIN_ENABLED( "oidc.oauth2.login.enabled", Constants.OFF, false ),
     OIDC_LOGOUT_REDIRECT_URL( "oidc.logout.redirect_url", "http://localhost:8080", false ),
     OIDC_PROVIDER_GOOGLE_CLIENT_ID( "oidc.provider.google.client_id", "", true ),
@@ -0,0 +1,254 @@
+package org.hisp.dhis.jdbc.batchhandler;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.List;
+
+import org.hisp.quick.JdbcConfiguration;
+import org.hisp.quick.StatementDialect;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+
+/**
+ * Writes rows through the PostgreSQL COPY protocol. Rows are streamed as
+ * CSV into a session scoped staging table, from which they are merged into
+ * the target table with a single set-based statement. The staging table
+ * has the same columns as the target table but no constraints.
+ */
+public class CopyBatchWriter
+{
+    private static final int BUFFER_SIZE = 65536;
+
+    private final JdbcConfiguration configuration;
+
+    private final String tableName;
+
+    private final String stagingTableName;
+
+    private final String columns;
+
+    private Connection connection;
+
+    public CopyBatchWriter( JdbcConfiguration configuration, String tableName, List<String> columns )
+    {
+        this.configuration = configuration;
+        this.tableName = tableName;
+        this.stagingTableName = tableName + "_staging";
+        this.columns = String.join( ",", columns );
+    }
+
+    /**
+     * Indicates whether COPY is supported for the given configuration, which
+     * is the case for PostgreSQL only.
+     */
+    public static boolean isSupported( JdbcConfiguration configuration )
+    {
+        return configuration != null && StatementDialect.POSTGRESQL.equals( configuration.getDialect() );
+    }
+
+    /**
+     * Returns the name of the staging table to refer to in merge statements.
+     */
+    public String getStagingTableName()
+    {
+        return stagingTableName;
+    }
+
+    /**
+     * Returns the comma separated list of columns.
+     */
+    public String getColumns()
+    {
+        return columns;
+    }
+
+    /**
+     * Opens a dedicated connection and creates the staging table.
+     */
+    public CopyBatchWriter open()
+    {
+        try
+        {
+            connection = DriverManager.getConnection( configuration.getConnectionUrl(),
+                configuration.getUsername(), configuration.getPassword() );
+
+            connection.setAutoCommit( false );
+
+            execute( "create temp table if not exists " + stagingTableName + " as select " +
+                columns + " from " + tableName + " with no data" );
+
+            connection.commit();
+        }
+        catch ( SQLException ex )
+        {
+            close();
+
+            throw new RuntimeException( "Failed to open COPY writer for table: " + tableName, ex );
+        }
+
+        return this;
+    }
+
+    /**
+     * Copies the given rows into the staging table and runs the given merge
+     * statement in one transaction. Values in each row must be in the order
+     * of the columns of this writer.
+     *
+     * @param rows the rows to write.
+     * @param mergeSql the statement which moves rows from the staging table
+     *        into the target table.
+     * @return the number of rows affected by the merge statement.
+     */
+    public int write( Collection<List<Object>> rows, String mergeSql )
+    {
+        if ( rows.isEmpty() )
+        {
+            return 0;
+        }
+
+        try
+        {
+            execute( "truncate " + stagingTableName );
+
+            final String copySql = "copy " + stagingTableName + " (" + columns + ") from stdin with (format csv)";
+
+            try ( Writer writer = new BufferedWriter( new OutputStreamWriter( new PGCopyOutputStream(
+                connection.unwrap( PGConnection.class ), copySql, BUFFER_SIZE ), UTF_8 ), BUFFER_SIZE ) )
+            {
+                for ( List<Object> row : rows )
+                {
+                    writeRow( writer, row );
+                }
+            }
+
+            int count;
+
+            try ( Statement statement = connection.createStatement() )
+            {
+                count = statement.executeUpdate( mergeSql );
+            }
+
+            connection.commit();
+
+            return count;
+        }
+        catch ( SQLException | IOException ex )
+        {
+            rollback();
+
+            throw new RuntimeException( "Failed to write rows through COPY to table: " + tableName, ex );
+        }
+    }
+
+    /**
+     * Closes the connection of this writer, which drops the staging table.
+     */
+    public void close()
+    {
+        if ( connection != null )
+        {
+            try
+            {
+                connection.close();
+            }
+            catch ( SQLException ignored )
+            {
+            }
+
+            connection = null;
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void execute( String sql )
+        throws SQLException
+    {
+        try ( Statement statement = connection.createStatement() )
+        {
+            statement.execute( sql );
+        }
+    }
+
+    private void rollback()
+    {
+        try
+        {
+            connection.rollback();
+        }
+        catch ( SQLException ignored )
+        {
+        }
+    }
+
+    /**
+     * Writes the given row as a CSV line. Null values are written as empty
+     * unquoted fields, which COPY reads as null, while text is always quoted
+     * so that empty strings are kept.
+     */
+    private void writeRow( Writer writer, List<Object> row )
+        throws IOException
+    {
+        for ( int i = 0; i < row.size(); i++ )
+        {
+            if ( i > 0 )
+            {
+                writer.write( ',' );
+            }
+
+            Object value = row.get( i );
+
+            if ( value instanceof Number || value instanceof Boolean )
+            {
+                writer.write( value.toString() );
+            }
+            else if ( value != null )
+            {
+                writer.write( '"' );
+                writer.write( value.toString().replace( "\"", "\"\"" ) );
+                writer.write( '"' );
+            }
+        }
+
+        writer.write( '\n' );
+    }
+}
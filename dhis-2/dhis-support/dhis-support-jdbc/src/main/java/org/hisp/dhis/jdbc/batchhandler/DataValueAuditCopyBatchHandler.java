@@ -0,0 +1,131 @@
+package org.hisp.dhis.jdbc.batchhandler;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hisp.dhis.datavalue.DataValueAudit;
+import org.hisp.quick.BatchHandler;
+import org.hisp.quick.JdbcConfiguration;
+
+/**
+ * Data value audit batch handler which writes added audits through the
+ * PostgreSQL COPY protocol into a staging table and inserts them into the
+ * audit table with a set-based statement which assigns identifiers from
+ * the audit sequence. Falls back to regular batch statements for databases
+ * other than PostgreSQL.
+ */
+public class DataValueAuditCopyBatchHandler
+    extends DataValueAuditBatchHandler
+{
+    private static final int MAX_ROWS = 50000;
+
+    private final List<List<Object>> inserts = new ArrayList<>();
+
+    private CopyBatchWriter writer;
+
+    // -------------------------------------------------------------------------
+    // Constructor
+    // -------------------------------------------------------------------------
+
+    public DataValueAuditCopyBatchHandler( JdbcConfiguration config )
+    {
+        super( config );
+    }
+
+    // -------------------------------------------------------------------------
+    // BatchHandler implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public BatchHandler<DataValueAudit> init()
+    {
+        super.init();
+
+        if ( CopyBatchWriter.isSupported( getConfiguration() ) )
+        {
+            writer = new CopyBatchWriter( getConfiguration(), getTableName(), getColumns() ).open();
+        }
+
+        return this;
+    }
+
+    @Override
+    public boolean addObject( DataValueAudit audit )
+    {
+        if ( writer == null )
+        {
+            return super.addObject( audit );
+        }
+
+        inserts.add( getValues( audit ) );
+
+        if ( inserts.size() >= MAX_ROWS )
+        {
+            write();
+        }
+
+        return true;
+    }
+
+    @Override
+    public void flush()
+    {
+        if ( writer != null )
+        {
+            try
+            {
+                write();
+            }
+            finally
+            {
+                writer.close();
+                writer = null;
+            }
+        }
+
+        super.flush();
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void write()
+    {
+        final String sql =
+            "insert into " + getTableName() + " (" + getAutoIncrementColumn() + "," + writer.getColumns() + ") " +
+            "select nextval('" + getIdSequenceName() + "')," + writer.getColumns() + " " +
+            "from " + writer.getStagingTableName();
+
+        writer.write( inserts, sql );
+        inserts.clear();
+    }
+}
@@ -0,0 +1,178 @@
+package org.hisp.dhis.jdbc.batchhandler;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.hisp.dhis.datavalue.DataValue;
+import org.hisp.quick.BatchHandler;
+import org.hisp.quick.JdbcConfiguration;
+
+/**
+ * Data value batch handler which writes added and updated values through
+ * the PostgreSQL COPY protocol into a staging table and merges them into
+ * the data value table with set-based statements. Added values which
+ * already exist are ignored, updated values replace existing values. Falls
+ * back to regular batch statements for databases other than PostgreSQL.
+ * Finding and deleting values is done through regular statements.
+ */
+public class DataValueCopyBatchHandler
+    extends DataValueBatchHandler
+{
+    private static final int MAX_ROWS = 50000;
+
+    private final Map<List<Object>, List<Object>> inserts = new LinkedHashMap<>();
+
+    private final Map<List<Object>, List<Object>> updates = new LinkedHashMap<>();
+
+    private CopyBatchWriter writer;
+
+    // -------------------------------------------------------------------------
+    // Constructor
+    // -------------------------------------------------------------------------
+
+    public DataValueCopyBatchHandler( JdbcConfiguration config )
+    {
+        super( config );
+    }
+
+    // -------------------------------------------------------------------------
+    // BatchHandler implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public BatchHandler<DataValue> init()
+    {
+        super.init();
+
+        if ( CopyBatchWriter.isSupported( getConfiguration() ) )
+        {
+            writer = new CopyBatchWriter( getConfiguration(), getTableName(), getColumns() ).open();
+        }
+
+        return this;
+    }
+
+    @Override
+    public boolean addObject( DataValue value )
+    {
+        if ( writer == null )
+        {
+            return super.addObject( value );
+        }
+
+        List<Object> key = getUniqueValues( value );
+
+        if ( inserts.containsKey( key ) )
+        {
+            return false;
+        }
+
+        inserts.put( key, getValues( value ) );
+
+        writeIfFull();
+
+        return true;
+    }
+
+    @Override
+    public void updateObject( DataValue value )
+    {
+        if ( writer == null )
+        {
+            super.updateObject( value );
+            return;
+        }
+
+        updates.put( getUniqueValues( value ), getValues( value ) );
+
+        writeIfFull();
+    }
+
+    @Override
+    public void flush()
+    {
+        if ( writer != null )
+        {
+            try
+            {
+                write();
+            }
+            finally
+            {
+                writer.close();
+                writer = null;
+            }
+        }
+
+        super.flush();
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void writeIfFull()
+    {
+        if ( inserts.size() + updates.size() >= MAX_ROWS )
+        {
+            write();
+        }
+    }
+
+    private void write()
+    {
+        writer.write( inserts.values(), getMergeSql( "do nothing" ) );
+        inserts.clear();
+
+        writer.write( updates.values(), getMergeSql( "do update set " + getUpdateColumns() ) );
+        updates.clear();
+    }
+
+    private String getMergeSql( String conflictAction )
+    {
+        return
+            "insert into " + getTableName() + " (" + writer.getColumns() + ") " +
+            "select " + writer.getColumns() + " from " + writer.getStagingTableName() + " " +
+            "on conflict (" + String.join( ",", getUniqueColumns() ) + ") " + conflictAction;
+    }
+
+    private String getUpdateColumns()
+    {
+        List<String> uniqueColumns = getUniqueColumns();
+
+        return getColumns().stream()
+            .filter( column -> !uniqueColumns.contains( column ) )
+            .map( column -> column + " = excluded." + column )
+            .collect( Collectors.joining( "," ) );
+    }
+}
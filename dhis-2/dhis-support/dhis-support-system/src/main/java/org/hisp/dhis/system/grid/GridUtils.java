@@ -28,7 +28,6 @@ package org.hisp.dhis.system.grid;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
-import com.csvreader.CsvWriter;
 import com.lowagie.text.Document;
 import com.lowagie.text.pdf.PdfPTable;
 import lombok.extern.slf4j.Slf4j;
@@ -36,8 +35,10 @@ import net.sf.jasperreports.engine.*;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.SpreadsheetVersion;
 import org.apache.poi.ss.usermodel.Font;
 import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.velocity.VelocityContext;
 import org.hisp.dhis.common.DimensionalItemObject;
 import org.hisp.dhis.common.DimensionalObjectUtils;
@@ -66,6 +67,7 @@ import org.springframework.jdbc.support.rowset.SqlRowSet;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.StringWriter;
+import java.io.UncheckedIOException;
 import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
@@ -81,9 +83,8 @@ import static org.hisp.dhis.system.util.PDFUtils.*;
 public class GridUtils
 {
     private static final String EMPTY = "";
-    private static final char CSV_DELIMITER = ',';
     private static final String XLS_SHEET_PREFIX = "Sheet ";
-    private static final int JXL_MAX_COLS = 256;
+    private static final int XLSX_ROW_WINDOW = 500;
     private static final String FONT_ARIAL = "Arial";
 
     private static final NodeFilter HTML_ROW_FILTER = new OrFilter( new TagNameFilter( "td" ), new TagNameFilter( "th" ) );
@@ -239,6 +240,49 @@ public class GridUtils
         workbook.close();
     }
 
+    /**
+     * Writes a XLSX (Excel Open XML workbook) representation of the given list of Grids to the given OutputStream.
+     * Only a window of rows is kept in memory while the rest are flushed to temporary files, so memory use does
+     * not depend on the number of rows.
+     */
+    public static void toXlsx( List<Grid> grids, OutputStream out )
+        throws Exception
+    {
+        SXSSFWorkbook workbook = new SXSSFWorkbook( XLSX_ROW_WINDOW );
+        workbook.setCompressTempFiles( true );
+
+        try
+        {
+            CellStyle headerCellStyle = createHeaderCellStyle( workbook );
+            CellStyle cellStyle = createCellStyle( workbook );
+
+            for ( int i = 0; i < grids.size(); i++ )
+            {
+                Grid grid = grids.get( i );
+
+                String sheetName = CodecUtils.filenameEncode( StringUtils.defaultIfEmpty( grid.getTitle(), XLS_SHEET_PREFIX + (i + 1) ) );
+
+                toXlsInternal( grid, workbook.createSheet( sheetName ), headerCellStyle, cellStyle );
+            }
+
+            workbook.write( out );
+        }
+        finally
+        {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    /**
+     * Writes a XLSX (Excel Open XML workbook) representation of the given Grid to the given OutputStream.
+     */
+    public static void toXlsx( Grid grid, OutputStream out )
+        throws Exception
+    {
+        toXlsx( Collections.singletonList( grid ), out );
+    }
+
     private static void toXlsInternal( Grid grid, Sheet sheet, CellStyle headerCellStyle, CellStyle cellStyle )
     {
         if ( grid == null )
@@ -246,11 +290,16 @@ public class GridUtils
             return;
         }
 
+        SpreadsheetVersion version = sheet.getWorkbook().getSpreadsheetVersion();
+
+        int maxCols = version.getMaxColumns();
+        int maxRows = version.getMaxRows();
+
         int cols = grid.getVisibleHeaders().size();
 
-        if ( cols > JXL_MAX_COLS )
+        if ( cols > maxCols )
         {
-            log.warn( "Grid will be truncated, no of columns is greater than JXL max limit: " + cols + "/" + JXL_MAX_COLS );
+            log.warn( "Grid will be truncated, no of columns is greater than Excel max limit: " + cols + "/" + maxCols );
         }
 
         int rowNumber = 0;
@@ -274,7 +323,7 @@ public class GridUtils
             rowNumber++;
         }
 
-        List<GridHeader> headers = ListUtils.subList( grid.getVisibleHeaders(), 0, JXL_MAX_COLS );
+        List<GridHeader> headers = ListUtils.subList( grid.getVisibleHeaders(), 0, maxCols );
         Row headerRow = sheet.createRow( ++rowNumber );
         for ( GridHeader header : headers )
         {
@@ -287,11 +336,17 @@ public class GridUtils
 
         for ( List<Object> row : grid.getVisibleRows() )
         {
+            if ( rowNumber >= maxRows )
+            {
+                log.warn( "Grid will be truncated, no of rows is greater than Excel max limit: " + maxRows );
+                break;
+            }
+
             Row xlsRow = sheet.createRow( rowNumber );
             xlsRow.setRowStyle( cellStyle );
             columnIndex = 0;
 
-            List<Object> columns = ListUtils.subList( row, 0, JXL_MAX_COLS );
+            List<Object> columns = ListUtils.subList( row, 0, maxCols );
 
             for ( Object column : columns )
             {
@@ -320,28 +375,17 @@ public class GridUtils
             return;
         }
 
-        CsvWriter csvWriter = new CsvWriter( writer, CSV_DELIMITER );
-
-        Iterator<GridHeader> headers = grid.getHeaders().iterator();
+        CsvGridWriter csvWriter = new CsvGridWriter( writer );
 
-        if ( !grid.getHeaders().isEmpty() )
+        try
         {
-            while ( headers.hasNext() )
-            {
-                csvWriter.write( headers.next().getColumn() );
-            }
+            csvWriter.writeHeaders( grid.getHeaders() );
 
-            csvWriter.endRecord();
+            grid.getRows().forEach( csvWriter::writeRow );
         }
-
-        for ( List<Object> row : grid.getRows() )
+        catch ( UncheckedIOException ex )
         {
-            for ( Object value : row )
-            {
-                csvWriter.write( value != null ? String.valueOf( value ) : StringUtils.EMPTY );
-            }
-
-            csvWriter.endRecord();
+            throw ex.getCause();
         }
     }
 
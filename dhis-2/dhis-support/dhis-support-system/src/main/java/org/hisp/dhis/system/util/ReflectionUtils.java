@@ -48,6 +48,8 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -437,6 +439,49 @@ public class ReflectionUtils
         }
     }
 
+    /**
+     * Returns the value of the property for the given target object, using the
+     * generated getter of the property if available, and reflection if not.
+     *
+     * @param target the target object.
+     * @param property the property.
+     * @return the property value, or null if the target is null.
+     */
+    @SuppressWarnings( "unchecked" )
+    public static <T> T getPropertyValue( Object target, Property property )
+    {
+        Function<Object, Object> getter = property.getGetter();
+
+        if ( target != null && getter != null )
+        {
+            return (T) getter.apply( target );
+        }
+
+        return invokeMethod( target, property.getGetterMethod() );
+    }
+
+    /**
+     * Sets the value of the property on the given target object, using the
+     * generated setter of the property if available, and reflection if not.
+     *
+     * @param target the target object.
+     * @param property the property.
+     * @param value the value to set.
+     */
+    public static void setPropertyValue( Object target, Property property, Object value )
+    {
+        BiConsumer<Object, Object> setter = property.getSetter();
+
+        if ( target != null && setter != null )
+        {
+            setter.accept( target, value );
+        }
+        else
+        {
+            invokeMethod( target, property.getSetterMethod(), value );
+        }
+    }
+
     public static Collection<Field> collectFields( Class<?> clazz, Predicate<Field> predicate )
     {
         Class<?> type = clazz;
@@ -28,6 +28,9 @@ package org.hisp.dhis.system.grid;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
 import java.nio.charset.StandardCharsets;
 
 import java.util.ArrayList;
@@ -35,9 +38,13 @@ import java.util.List;
 
 import com.google.common.collect.Lists;
 import org.apache.commons.io.IOUtils;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.hisp.dhis.common.CodeGenerator;
 import org.hisp.dhis.common.DimensionalItemObject;
 import org.hisp.dhis.common.Grid;
+import org.hisp.dhis.common.GridHeader;
 import org.hisp.dhis.period.Period;
 import org.hisp.dhis.period.PeriodType;
 import org.junit.Test;
@@ -92,5 +99,55 @@ public class GridUtilsTest
 
     }
 
+    @Test
+    public void testToXlsx()
+        throws Exception
+    {
+        Grid grid = new ListGrid();
+        grid.setTitle( "TitleA" );
+        grid.addHeader( new GridHeader( "ColA", "ColA" ) );
+        grid.addHeader( new GridHeader( "ColB", "ColB" ) );
+
+        for ( int i = 0; i < 2000; i++ )
+        {
+            grid.addRow().addValue( "Row" + i ).addValue( i );
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        GridUtils.toXlsx( grid, out );
+
+        try ( Workbook workbook = new XSSFWorkbook( new ByteArrayInputStream( out.toByteArray() ) ) )
+        {
+            Sheet sheet = workbook.getSheet( "TitleA" );
+
+            assertNotNull( sheet );
+            assertEquals( "ColA", sheet.getRow( 2 ).getCell( 0 ).getStringCellValue() );
+            assertEquals( "Row0", sheet.getRow( 3 ).getCell( 0 ).getStringCellValue() );
+            assertEquals( 1999d, sheet.getRow( 2002 ).getCell( 1 ).getNumericCellValue(), 0d );
+            assertEquals( 2002, sheet.getLastRowNum() );
+        }
+    }
+
+    @Test
+    public void testToCsv()
+        throws Exception
+    {
+        Grid grid = new ListGrid();
+        grid.addHeader( new GridHeader( "ColA", "ColA" ) );
+        grid.addHeader( new GridHeader( "ColB", "ColB" ) );
+        grid.addRow().addValue( "A" ).addValue( 1 );
+        grid.addRow().addValue( "B, C" ).addValue( null );
+
+        StringWriter writer = new StringWriter();
 
+        GridUtils.toCsv( grid, writer );
+
+        String[] lines = writer.toString().split( "\\r?\\n" );
+
+        assertEquals( 3, lines.length );
+        assertEquals( "ColA,ColB", lines[0] );
+        assertEquals( "A,1", lines[1] );
+        assertEquals( "\"B, C\",", lines[2] );
+    }
 }
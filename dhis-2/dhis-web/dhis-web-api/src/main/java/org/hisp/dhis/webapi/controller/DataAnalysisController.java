@@ -30,6 +30,7 @@ package org.hisp.dhis.webapi.controller;
 
 import com.google.common.collect.Sets;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.ObjectUtils;
 import org.hisp.dhis.category.CategoryOptionCombo;
 import org.hisp.dhis.category.CategoryService;
 import org.hisp.dhis.common.DhisApiVersion;
@@ -41,6 +42,7 @@ import org.hisp.dhis.dataanalysis.DataAnalysisService;
 import org.hisp.dhis.dataanalysis.FollowupAnalysisService;
 import org.hisp.dhis.dataanalysis.FollowupParams;
 import org.hisp.dhis.dataanalysis.MinMaxOutlierAnalysisService;
+import org.hisp.dhis.dataanalysis.OutlierDetectionAlgorithm;
 import org.hisp.dhis.dataanalysis.StdDevOutlierAnalysisService;
 import org.hisp.dhis.dataanalysis.UpdateFollowUpForDataValuesRequest;
 import org.hisp.dhis.dataanalysis.ValidationRuleExpressionDetails;
@@ -292,7 +294,8 @@ public class DataAnalysisController
 
         List<DeflatedDataValue> dataValues = new ArrayList<>( stdDevOutlierAnalysisService
             .analyse( Sets.newHashSet( organisationUnit ), dataElements, periods,
-                stdDevOutlierAnalysisParams.getStandardDeviation(), from ) );
+                stdDevOutlierAnalysisParams.getStandardDeviation(), from,
+                ObjectUtils.firstNonNull( stdDevOutlierAnalysisParams.getAlgorithm(), OutlierDetectionAlgorithm.Z_SCORE ) ) );
 
         session.setAttribute( KEY_ANALYSIS_DATA_VALUES, dataValues );
         session.setAttribute( KEY_ORG_UNIT, organisationUnit );
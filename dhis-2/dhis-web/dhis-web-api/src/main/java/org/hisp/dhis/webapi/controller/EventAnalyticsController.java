@@ -241,6 +241,18 @@ public class EventAnalyticsController
             "events.xls", response ), response.getOutputStream() );
     }
 
+    @GetMapping( value = RESOURCE_PATH + "/query/{program}.xlsx" )
+    public void getQueryXlsx(
+        @PathVariable String program,
+        EventsAnalyticsQueryCriteria criteria,
+        DhisApiVersion apiVersion,
+        HttpServletResponse response )
+        throws Exception
+    {
+        GridUtils.toXlsx( getListGridWithAttachment( criteria, program, apiVersion, ContextUtils.CONTENT_TYPE_XLSX,
+            "events.xlsx", response ), response.getOutputStream() );
+    }
+
     @GetMapping( value = RESOURCE_PATH + "/query/{program}.csv" )
     public void getQueryCsv(
         @PathVariable String program,
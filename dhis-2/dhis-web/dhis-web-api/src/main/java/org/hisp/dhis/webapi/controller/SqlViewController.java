@@ -39,6 +39,7 @@ import org.hisp.dhis.schema.descriptors.SqlViewSchemaDescriptor;
 import org.hisp.dhis.sqlview.SqlView;
 import org.hisp.dhis.sqlview.SqlViewQuery;
 import org.hisp.dhis.sqlview.SqlViewService;
+import org.hisp.dhis.system.grid.CsvGridWriter;
 import org.hisp.dhis.system.grid.GridUtils;
 import org.hisp.dhis.system.util.CodecUtils;
 import org.hisp.dhis.webapi.utils.ContextUtils;
@@ -112,13 +113,16 @@ public class SqlViewController
         List<String> filters = Lists.newArrayList( contextService.getParameterValues( "filter" ) );
         List<String> fields = Lists.newArrayList( contextService.getParameterValues( "fields" ) );
 
-        Grid grid = sqlViewService.getSqlViewGrid( sqlView, SqlView.getCriteria( criteria ), SqlView.getCriteria( var ), filters, fields );
-
-        String filename = CodecUtils.filenameEncode( grid.getTitle() ) + ".csv";
+        String filename = CodecUtils.filenameEncode( sqlView.getName() ) + ".csv";
 
         contextUtils.configureResponse( response, ContextUtils.CONTENT_TYPE_CSV, sqlView.getCacheStrategy(), filename, true );
 
-        GridUtils.toCsv( grid, response.getWriter() );
+        CsvGridWriter csvWriter = new CsvGridWriter( response.getWriter() );
+
+        sqlViewService.writeSqlViewRows( sqlView, SqlView.getCriteria( criteria ), SqlView.getCriteria( var ), filters, fields,
+            csvWriter::writeHeaders, csvWriter::writeRow );
+
+        csvWriter.flush();
     }
 
     @RequestMapping( value = "/{uid}/data.xls", method = RequestMethod.GET )
@@ -140,6 +144,25 @@ public class SqlViewController
         GridUtils.toXls( grid, response.getOutputStream() );
     }
 
+    @RequestMapping( value = "/{uid}/data.xlsx", method = RequestMethod.GET )
+    public void getViewXlsx( @PathVariable( "uid" ) String uid,
+        @RequestParam( required = false ) Set<String> criteria, @RequestParam( required = false ) Set<String> var,
+        HttpServletResponse response ) throws Exception
+    {
+        SqlView sqlView = validateView( uid );
+
+        List<String> filters = Lists.newArrayList( contextService.getParameterValues( "filter" ) );
+        List<String> fields = Lists.newArrayList( contextService.getParameterValues( "fields" ) );
+
+        Grid grid = sqlViewService.getSqlViewGrid( sqlView, SqlView.getCriteria( criteria ), SqlView.getCriteria( var ), filters, fields );
+
+        String filename = CodecUtils.filenameEncode( grid.getTitle() ) + ".xlsx";
+
+        contextUtils.configureResponse( response, ContextUtils.CONTENT_TYPE_XLSX, sqlView.getCacheStrategy(), filename, true );
+
+        GridUtils.toXlsx( grid, response.getOutputStream() );
+    }
+
     @RequestMapping( value = "/{uid}/data.html", method = RequestMethod.GET )
     public void getViewHtml( @PathVariable( "uid" ) String uid,
         @RequestParam( required = false ) Set<String> criteria, @RequestParam( required = false ) Set<String> var,
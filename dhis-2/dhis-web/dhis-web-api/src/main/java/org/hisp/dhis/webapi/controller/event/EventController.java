@@ -34,6 +34,7 @@ import static org.hisp.dhis.scheduling.JobType.EVENT_IMPORT;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.*;
 import java.util.function.BiFunction;
 import java.util.function.Function;
@@ -45,6 +46,7 @@ import javax.servlet.http.HttpServletResponse;
 import org.hisp.dhis.category.CategoryOptionCombo;
 import org.hisp.dhis.common.*;
 import org.hisp.dhis.common.cache.CacheStrategy;
+import org.hisp.dhis.commons.config.JacksonObjectMapperConfig;
 import org.hisp.dhis.commons.util.StreamUtils;
 import org.hisp.dhis.commons.util.TextUtils;
 import org.hisp.dhis.dataelement.DataElement;
@@ -72,6 +74,7 @@ import org.hisp.dhis.importexport.ImportStrategy;
 import org.hisp.dhis.node.NodeUtils;
 import org.hisp.dhis.node.Preset;
 import org.hisp.dhis.node.types.RootNode;
+import org.hisp.dhis.node.types.SimpleNode;
 import org.hisp.dhis.program.Program;
 import org.hisp.dhis.program.ProgramStageInstanceService;
 import org.hisp.dhis.program.ProgramStatus;
@@ -96,6 +99,8 @@ import org.springframework.ui.Model;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.MoreObjects;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
@@ -513,6 +518,8 @@ public class EventController
             @RequestParam( required = false ) Integer page,
             @RequestParam( required = false ) Integer pageSize,
             @RequestParam( required = false ) boolean totalPages,
+            @RequestParam( required = false ) boolean cursorPaging,
+            @RequestParam( required = false ) String cursor,
             @RequestParam( required = false ) Boolean skipPaging,
             @RequestParam( required = false ) Boolean paging,
             @RequestParam( required = false ) String order,
@@ -551,6 +558,11 @@ public class EventController
                 false, eventIds, skipEventId, assignedUserMode, assignedUserIds, filter, dataElementOrders.keySet(),
                 false, includeDeleted );
 
+        if ( cursorPaging || cursor != null )
+        {
+            params.setCursorPaging( true ).setCursor( cursor != null ? EventCursor.of( cursor ) : null );
+        }
+
         Events events = eventService.getEvents( params );
 
         if ( hasHref( fields, skipEventId ) )
@@ -573,6 +585,11 @@ public class EventController
             rootNode.addChild( NodeUtils.createPager( events.getPager() ) );
         }
 
+        if ( params.isCursorPaging() )
+        {
+            rootNode.addChild( new SimpleNode( "nextCursor", events.getNextCursor() ) );
+        }
+
         if ( !StringUtils.isEmpty( attachment ) )
         {
             response.addHeader( ContextUtils.HEADER_CONTENT_DISPOSITION, "attachment; filename=" + attachment );
@@ -744,8 +761,6 @@ public class EventController
                 eventIds, skipEventId, assignedUserMode, assignedUserIds, filter, dataElementOrders.keySet(), false,
                 includeDeleted );
 
-        Events events = eventService.getEvents( params );
-
         OutputStream outputStream = response.getOutputStream();
         response.setContentType( "application/csv" );
 
@@ -761,7 +776,98 @@ public class EventController
             response.addHeader( "Content-Disposition", "attachment; filename=" + attachment );
         }
 
-        csvEventService.writeEvents( outputStream, events, !skipHeader );
+        // Streamed events are read in keyset order, so ordered exports are loaded up front
+
+        if ( skipPaging && StringUtils.isEmpty( order ) )
+        {
+            csvEventService.writeEvents( outputStream, consumer -> eventService.streamEvents( params, consumer ),
+                !skipHeader );
+        }
+        else
+        {
+            csvEventService.writeEvents( outputStream, eventService.getEvents( params ), !skipHeader );
+        }
+    }
+
+    @RequestMapping( value = "/stream", method = RequestMethod.GET, produces = ContextUtils.CONTENT_TYPE_JSON )
+    public void getJsonEventStream(
+            @RequestParam( required = false ) String program,
+            @RequestParam( required = false ) String programStage,
+            @RequestParam( required = false ) ProgramStatus programStatus,
+            @RequestParam( required = false ) Boolean followUp,
+            @RequestParam( required = false ) String trackedEntityInstance,
+            @RequestParam( required = false ) String orgUnit,
+            @RequestParam( required = false ) OrganisationUnitSelectionMode ouMode,
+            @RequestParam( required = false ) AssignedUserSelectionMode assignedUserMode,
+            @RequestParam( required = false ) String assignedUser,
+            @RequestParam( required = false ) Date startDate,
+            @RequestParam( required = false ) Date endDate,
+            @RequestParam( required = false ) Date dueDateStart,
+            @RequestParam( required = false ) Date dueDateEnd,
+            @RequestParam( required = false ) Date lastUpdated,
+            @RequestParam( required = false ) Date lastUpdatedStartDate,
+            @RequestParam( required = false ) Date lastUpdatedEndDate,
+            @RequestParam( required = false ) String lastUpdatedDuration,
+            @RequestParam( required = false ) EventStatus status,
+            @RequestParam( required = false ) String attributeCc,
+            @RequestParam( required = false ) String attributeCos,
+            @RequestParam( required = false ) String event,
+            @RequestParam( required = false ) Boolean skipEventId,
+            @RequestParam( required = false ) Set<String> filter,
+            @RequestParam( required = false ) String attachment,
+            @RequestParam( required = false, defaultValue = "false" ) boolean includeDeleted,
+            IdSchemes idSchemes, HttpServletResponse response ) throws IOException, WebMessageException
+    {
+        CategoryOptionCombo attributeOptionCombo = inputUtils.getAttributeOptionCombo( attributeCc, attributeCos, true );
+
+        Set<String> eventIds = TextUtils.splitToArray( event, TextUtils.SEMICOLON );
+
+        Set<String> assignedUserIds = TextUtils.splitToArray( assignedUser, TextUtils.SEMICOLON );
+
+        lastUpdatedStartDate = lastUpdatedStartDate != null ? lastUpdatedStartDate : lastUpdated;
+
+        // Events are streamed in order of last updated and id, so order
+        // parameters do not apply
+
+        EventSearchParams params = requestToSearchParamsMapper.map( program, programStage, programStatus, followUp,
+                orgUnit, ouMode, trackedEntityInstance, startDate, endDate, dueDateStart, dueDateEnd, lastUpdatedStartDate,
+                lastUpdatedEndDate, lastUpdatedDuration, status, attributeOptionCombo, idSchemes, null, null,
+                false, true, new ArrayList<>(), new ArrayList<>(), false, eventIds, skipEventId, assignedUserMode,
+                assignedUserIds, filter, new HashSet<>(), false, includeDeleted );
+
+        OutputStream outputStream = response.getOutputStream();
+        response.setContentType( ContextUtils.CONTENT_TYPE_JSON );
+
+        if ( !StringUtils.isEmpty( attachment ) )
+        {
+            response.addHeader( ContextUtils.HEADER_CONTENT_DISPOSITION, "attachment; filename=" + attachment );
+        }
+
+        ObjectMapper jsonMapper = JacksonObjectMapperConfig.staticJsonMapper();
+
+        try ( JsonGenerator generator = jsonMapper.getFactory().createGenerator( outputStream ) )
+        {
+            generator.writeStartObject();
+            generator.writeArrayFieldStart( "events" );
+
+            eventService.streamEvents( params, e -> {
+                try
+                {
+                    jsonMapper.writeValue( generator, e );
+                }
+                catch ( IOException ex )
+                {
+                    throw new UncheckedIOException( ex );
+                }
+            } );
+
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+        catch ( UncheckedIOException ex )
+        {
+            throw ex.getCause();
+        }
     }
 
     // -------------------------------------------------------------------------
@@ -1016,16 +1122,21 @@ public class EventController
     {
         InputStream inputStream = StreamUtils.wrapAndCheckCompressionFormat( request.getInputStream() );
 
-        Events events = csvEventService.readEvents( inputStream, skipFirst );
-
         if ( !importOptions.isAsync() )
         {
-            ImportSummaries importSummaries = eventService.addEvents( events.getEvents(), importOptions, null );
+            // Events are read and imported in batches as the input is parsed
+
+            importOptions.setImportStrategy( ImportStrategy.CREATE );
+
+            ImportSummaries importSummaries = eventService.processEventImport(
+                csvEventService.iterateEvents( inputStream, skipFirst ), importOptions, null );
             importSummaries.setImportOptions( importOptions );
             webMessageService.send( WebMessageUtils.importSummaries( importSummaries ), response, request );
         }
         else
         {
+            Events events = csvEventService.readEvents( inputStream, skipFirst );
+
             startAsyncImport( importOptions, events.getEvents(), request, response );
         }
     }
@@ -28,21 +28,32 @@ package org.hisp.dhis.webapi.controller.event;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import static org.hisp.dhis.dxf2.webmessage.WebMessageUtils.jobConfigurationReport;
+import static org.hisp.dhis.scheduling.JobType.TRACKED_ENTITY_ATTRIBUTE_SEARCH_INDEX;
+
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
 import org.hisp.dhis.common.DhisApiVersion;
 import org.hisp.dhis.dxf2.webmessage.WebMessageException;
 import org.hisp.dhis.dxf2.webmessage.WebMessageUtils;
 import org.hisp.dhis.reservedvalue.ReserveValueException;
 import org.hisp.dhis.reservedvalue.ReservedValue;
 import org.hisp.dhis.reservedvalue.ReservedValueService;
+import org.hisp.dhis.scheduling.JobConfiguration;
+import org.hisp.dhis.scheduling.SchedulingManager;
 import org.hisp.dhis.schema.descriptors.TrackedEntityAttributeSchemaDescriptor;
+import org.hisp.dhis.system.notification.Notifier;
 import org.hisp.dhis.textpattern.TextPatternGenerationException;
 import org.hisp.dhis.textpattern.TextPatternService;
 import org.hisp.dhis.trackedentity.TrackedEntityAttribute;
+import org.hisp.dhis.trackedentity.TrackedEntityAttributeSearchIndexService;
+import org.hisp.dhis.trackedentity.TrackedEntityAttributeSearchIndexTask;
 import org.hisp.dhis.trackedentity.TrackedEntityAttributeService;
 import org.hisp.dhis.util.DateUtils;
 import org.hisp.dhis.webapi.controller.AbstractCrudController;
@@ -50,6 +61,8 @@ import org.hisp.dhis.webapi.mvc.annotation.ApiVersion;
 import org.hisp.dhis.webapi.service.ContextService;
 import org.hisp.dhis.webapi.utils.ContextUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -57,6 +70,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
 
 /**
  * @author Morten Olav Hansen <mortenoh@gmail.com>
@@ -76,6 +90,15 @@ public class TrackedEntityAttributeController
     @Autowired
     private ReservedValueService reservedValueService;
 
+    @Autowired
+    private TrackedEntityAttributeSearchIndexService searchIndexService;
+
+    @Autowired
+    private SchedulingManager schedulingManager;
+
+    @Autowired
+    private Notifier notifier;
+
     @Autowired
     private ContextService context;
 
@@ -151,8 +174,59 @@ public class TrackedEntityAttributeController
 
     }
 
+    @RequestMapping( value = "/searchIndex", method = { RequestMethod.PUT, RequestMethod.POST } )
+    @PreAuthorize( "hasRole('ALL') or hasRole('F_PERFORM_MAINTENANCE')" )
+    public void createSearchIndexes( HttpServletRequest request, HttpServletResponse response )
+    {
+        startSearchIndexTask( null, request, response );
+    }
+
+    @RequestMapping( value = "/{id}/searchIndex", method = { RequestMethod.PUT, RequestMethod.POST } )
+    @PreAuthorize( "hasRole('ALL') or hasRole('F_PERFORM_MAINTENANCE')" )
+    public void rebuildSearchIndex( @PathVariable String id, HttpServletRequest request, HttpServletResponse response )
+        throws WebMessageException
+    {
+        startSearchIndexTask( getAttribute( id ), request, response );
+    }
+
+    @RequestMapping( value = "/{id}/searchIndex", method = RequestMethod.DELETE )
+    @PreAuthorize( "hasRole('ALL') or hasRole('F_PERFORM_MAINTENANCE')" )
+    @ResponseStatus( HttpStatus.NO_CONTENT )
+    public void dropSearchIndex( @PathVariable String id )
+        throws WebMessageException
+    {
+        searchIndexService.dropSearchIndex( getAttribute( id ) );
+    }
+
     // Helpers
 
+    private void startSearchIndexTask( TrackedEntityAttribute attribute, HttpServletRequest request,
+        HttpServletResponse response )
+    {
+        JobConfiguration jobId = new JobConfiguration( "inMemorySearchIndex", TRACKED_ENTITY_ATTRIBUTE_SEARCH_INDEX,
+            currentUserService.getCurrentUser().getUid(), true );
+
+        schedulingManager.executeJob( new TrackedEntityAttributeSearchIndexTask( searchIndexService, notifier,
+            attribute, jobId ) );
+
+        response.setHeader( "Location", ContextUtils.getRootPath( request ) + "/system/tasks/" +
+            TRACKED_ENTITY_ATTRIBUTE_SEARCH_INDEX );
+        webMessageService.send( jobConfigurationReport( jobId ), response, request );
+    }
+
+    private TrackedEntityAttribute getAttribute( String id )
+        throws WebMessageException
+    {
+        TrackedEntityAttribute trackedEntityAttribute = trackedEntityAttributeService.getTrackedEntityAttribute( id );
+
+        if ( trackedEntityAttribute == null )
+        {
+            throw new WebMessageException( WebMessageUtils.notFound( TrackedEntityAttribute.class, id ) );
+        }
+
+        return trackedEntityAttribute;
+    }
+
     private List<ReservedValue> reserve( String id, int numberToReserve, int daysToLive )
         throws WebMessageException
     {